@@ -0,0 +1,657 @@
+package me.kahlil.bvh;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Intersectable;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+
+/**
+ * A binary bounding volume hierarchy of axis-aligned boxes built over a set of {@link
+ * IndexedPrimitives}.
+ *
+ * <p>After construction, the nodes are stored depth-first in flat arrays rather than as an object
+ * graph: the first child of an internal node always immediately follows it, and the node only
+ * records the index of its second child. Leaves record a contiguous range of {@link
+ * #primitiveIndexes}, and are intersected a range at a time through the primitives' {@link
+ * LeafPrimitives}.
+ *
+ * <p>Based on:
+ * https://www.scratchapixel.com/lessons/advanced-rendering/introduction-acceleration-structure/bounding-volume-hierarchy-BVH-part1
+ */
+public final class BoundingVolumeHierarchy implements Intersectable {
+
+  private static final int BOUNDS_STRIDE = 6;
+  private static final int LAYOUT_STRIDE = 2;
+
+  // Number of buckets that centroids are binned into when evaluating surface area heuristic splits.
+  private static final int NUM_SPLIT_BUCKETS = 12;
+  // Relative costs of visiting a node and of intersecting a primitive, for the surface area
+  // heuristic.
+  private static final double TRAVERSAL_COST = 1;
+  private static final double INTERSECTION_COST = 1;
+  // Subtrees with at least this many primitives have their two children built in parallel.
+  private static final int PARALLEL_BUILD_THRESHOLD = 4096;
+  // Packets with fewer rays than this left reaching a node trace its subtree one ray at a time,
+  // since there is too little work left to share between them.
+  private static final int MIN_PACKET_RAYS = 4;
+
+  private final IndexedPrimitives primitives;
+
+  // Min (x, y, z) followed by max (x, y, z) of every node.
+  private double[] nodeBounds;
+  // For leaves: the offset of the leaf's first primitive in primitiveIndexes followed by the
+  // number of primitives (always > 0). For internal nodes: the index of the second child followed
+  // by 0.
+  private int[] nodeLayout;
+  private final int[] primitiveIndexes;
+  // The primitives laid out in the order of primitiveIndexes, once the hierarchy is built.
+  private final LeafPrimitives leafPrimitives;
+  private int numNodes = 0;
+  // Depth of the deepest leaf, which bounds the size of the traversal stack.
+  private int maxDepth = 0;
+
+  public BoundingVolumeHierarchy(IndexedPrimitives primitives, int maxPrimitivesPerLeaf) {
+    this(primitives, maxPrimitivesPerLeaf, SplitStrategy.MIDPOINT);
+  }
+
+  /**
+   * Builds a hierarchy using the given {@link SplitStrategy}. With {@link
+   * SplitStrategy#SURFACE_AREA}, maxPrimitivesPerLeaf is only an upper bound, since nodes stop
+   * being split as soon as a leaf is cheaper.
+   */
+  public BoundingVolumeHierarchy(
+      IndexedPrimitives primitives, int maxPrimitivesPerLeaf, SplitStrategy splitStrategy) {
+    checkArgument(maxPrimitivesPerLeaf > 0, "Leaves must hold at least one primitive.");
+    this.primitives = primitives;
+    this.primitiveIndexes = IntStream.range(0, primitives.size()).toArray();
+
+    // A binary tree with n leaves has at most 2n - 1 nodes.
+    int maxNodes = Math.max(1, 2 * primitives.size() - 1);
+    this.nodeBounds = new double[maxNodes * BOUNDS_STRIDE];
+    this.nodeLayout = new int[maxNodes * LAYOUT_STRIDE];
+
+    if (primitives.size() > 0) {
+      Builder builder = new Builder(maxPrimitivesPerLeaf, splitStrategy);
+      ForkJoinPool.commonPool()
+          .invoke(ForkJoinTask.adapt(() -> builder.build(0, primitives.size(), 0)));
+
+      // The builder leaves gaps between subtrees, so copy the nodes into place depth first.
+      double[] compactBounds = new double[maxNodes * BOUNDS_STRIDE];
+      int[] compactLayout = new int[maxNodes * LAYOUT_STRIDE];
+      compact(0, 0, compactBounds, compactLayout);
+      this.nodeBounds = Arrays.copyOf(compactBounds, numNodes * BOUNDS_STRIDE);
+      this.nodeLayout = Arrays.copyOf(compactLayout, numNodes * LAYOUT_STRIDE);
+    } else {
+      this.nodeBounds = new double[0];
+      this.nodeLayout = new int[0];
+    }
+    this.leafPrimitives = primitives.inLeafOrder(primitiveIndexes);
+  }
+
+  /**
+   * Restores a hierarchy which was built over the given primitives from its flat arrays, e.g. as
+   * read back by {@link BvhCache}, without rebuilding it. The arrays must be consistent with each
+   * other and with the primitives.
+   */
+  BoundingVolumeHierarchy(
+      IndexedPrimitives primitives,
+      double[] nodeBounds,
+      int[] nodeLayout,
+      int[] primitiveIndexes,
+      int maxDepth) {
+    checkArgument(
+        nodeBounds.length % BOUNDS_STRIDE == 0
+            && nodeLayout.length == nodeBounds.length / BOUNDS_STRIDE * LAYOUT_STRIDE
+            && primitiveIndexes.length == primitives.size(),
+        "Hierarchy arrays do not match each other or the %s primitives.",
+        primitives.size());
+    this.primitives = primitives;
+    this.nodeBounds = nodeBounds;
+    this.nodeLayout = nodeLayout;
+    this.primitiveIndexes = primitiveIndexes;
+    this.numNodes = nodeLayout.length / LAYOUT_STRIDE;
+    this.maxDepth = maxDepth;
+    this.leafPrimitives = primitives.inLeafOrder(primitiveIndexes);
+  }
+
+  /** Returns the min (x, y, z) followed by max (x, y, z) of every node, for serialization. */
+  double[] getNodeBounds() {
+    return nodeBounds;
+  }
+
+  /** Returns the layout of every node as described on the field, for serialization. */
+  int[] getNodeLayout() {
+    return nodeLayout;
+  }
+
+  /** Returns the primitive indexes which leaves refer to ranges of, for serialization. */
+  int[] getPrimitiveIndexes() {
+    return primitiveIndexes;
+  }
+
+  /** Returns the primitives which leaves refer to ranges of, in the order of primitiveIndexes. */
+  LeafPrimitives getLeafPrimitives() {
+    return leafPrimitives;
+  }
+
+  /** Returns the number of nodes in the hierarchy. */
+  public int getNumNodes() {
+    return numNodes;
+  }
+
+  /** Returns the depth of the deepest leaf in the hierarchy, where the root has depth 0. */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Returns the closest intersection of the ray with any primitive. Nodes are visited nearest
+   * first, and nodes which the ray enters after the closest hit so far are skipped.
+   */
+  @Override
+  public Optional<RayHit> intersectWith(Ray ray) {
+    if (numNodes == 0) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(intersectSubtree(0, ray, POSITIVE_INFINITY));
+  }
+
+  /**
+   * Returns the closest intersection of the ray with any primitive in the subtree of the given
+   * node which is closer than maxTime, or null if there is none.
+   */
+  private RayHit intersectSubtree(int root, Ray ray, double maxTime) {
+    double rootTime = intersectWithNode(root, ray, maxTime);
+    if (rootTime < 0) {
+      return null;
+    }
+    TraversalStack stack = TraversalStack.acquire(maxDepth + 2);
+    try {
+      return intersectSubtree(stack, root, rootTime, ray, maxTime);
+    } finally {
+      stack.release();
+    }
+  }
+
+  private RayHit intersectSubtree(
+      TraversalStack stack, int root, double rootTime, Ray ray, double maxTime) {
+    int[] nodeStack = stack.nodes;
+    double[] timeStack = stack.times;
+    int stackSize = 0;
+
+    RayHit closest = null;
+    double closestTime = maxTime;
+
+    nodeStack[stackSize] = root;
+    timeStack[stackSize++] = rootTime;
+
+    while (stackSize > 0) {
+      int node = nodeStack[--stackSize];
+      if (timeStack[stackSize] >= closestTime) {
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int count = nodeLayout[node * LAYOUT_STRIDE + 1];
+      if (count > 0) {
+        int offset = nodeLayout[node * LAYOUT_STRIDE];
+        RayHit rayHit = leafPrimitives.intersectWith(offset, offset + count, ray, closestTime);
+        if (rayHit != null) {
+          closest = rayHit;
+          closestTime = closest.getTime();
+        }
+        continue;
+      }
+      int first = node + 1;
+      int second = nodeLayout[node * LAYOUT_STRIDE];
+      double firstTime = intersectWithNode(first, ray, closestTime);
+      double secondTime = intersectWithNode(second, ray, closestTime);
+      // Push the farther child first, so that the nearer child is popped and visited first.
+      if (firstTime > secondTime) {
+        int swapNode = first;
+        first = second;
+        second = swapNode;
+        double swapTime = firstTime;
+        firstTime = secondTime;
+        secondTime = swapTime;
+      }
+      if (secondTime >= 0) {
+        nodeStack[stackSize] = second;
+        timeStack[stackSize++] = secondTime;
+      }
+      if (firstTime >= 0) {
+        nodeStack[stackSize] = first;
+        timeStack[stackSize++] = firstTime;
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * Intersects the active rays of the packet with the primitives, visiting each node once for all
+   * of the rays which reach it rather than once per ray. Nodes are tested against the rays' closest
+   * hits so far when they are visited, and children are visited in the order the first active ray
+   * reaches them. Once the rays reaching a node have diverged so that too few of them are left,
+   * each of them continues through the node's subtree on its own.
+   */
+  @Override
+  public void intersectWith(RayPacket packet, long activeRays) {
+    if (numNodes == 0) {
+      return;
+    }
+    TraversalStack stack = TraversalStack.acquire(maxDepth + 2);
+    try {
+      intersectWith(stack, packet, activeRays);
+    } finally {
+      stack.release();
+    }
+  }
+
+  private void intersectWith(TraversalStack stack, RayPacket packet, long activeRays) {
+    int[] nodeStack = stack.nodes;
+    long[] raysStack = stack.rays;
+    int stackSize = 0;
+    nodeStack[stackSize] = 0;
+    raysStack[stackSize++] = activeRays;
+
+    while (stackSize > 0) {
+      int node = nodeStack[--stackSize];
+      long rays = raysStack[stackSize];
+      if (Long.bitCount(rays) < MIN_PACKET_RAYS) {
+        for (long remaining = rays; remaining != 0; remaining &= remaining - 1) {
+          int i = Long.numberOfTrailingZeros(remaining);
+          RayHit rayHit = intersectSubtree(node, packet.getRay(i), packet.getClosestTime(i));
+          if (rayHit != null) {
+            packet.recordHit(i, rayHit);
+          }
+        }
+        continue;
+      }
+      rays = intersectWithNode(node, packet, rays);
+      if (rays == 0) {
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int count = nodeLayout[node * LAYOUT_STRIDE + 1];
+      if (count > 0) {
+        int offset = nodeLayout[node * LAYOUT_STRIDE];
+        leafPrimitives.intersectWith(offset, offset + count, packet, rays);
+        continue;
+      }
+      int first = node + 1;
+      int second = nodeLayout[node * LAYOUT_STRIDE];
+      // Push the farther child first, so that the nearer child is popped and visited first.
+      if (reachesSecondChildFirst(first, second, packet.getRay(Long.numberOfTrailingZeros(rays)))) {
+        int swap = first;
+        first = second;
+        second = swap;
+      }
+      nodeStack[stackSize] = second;
+      raysStack[stackSize++] = rays;
+      nodeStack[stackSize] = first;
+      raysStack[stackSize++] = rays;
+    }
+  }
+
+  /** Returns as soon as any primitive is found which the ray hits before maxDistance. */
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    if (numNodes == 0) {
+      return false;
+    }
+    if (intersectWithNode(0, ray, maxDistance) < 0) {
+      return false;
+    }
+    TraversalStack stack = TraversalStack.acquire(maxDepth + 2);
+    try {
+      return intersectsWithin(stack, ray, maxDistance);
+    } finally {
+      stack.release();
+    }
+  }
+
+  private boolean intersectsWithin(TraversalStack stack, Ray ray, double maxDistance) {
+    int[] nodeStack = stack.nodes;
+    int stackSize = 0;
+    nodeStack[stackSize++] = 0;
+    while (stackSize > 0) {
+      int node = nodeStack[--stackSize];
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int count = nodeLayout[node * LAYOUT_STRIDE + 1];
+      if (count > 0) {
+        int offset = nodeLayout[node * LAYOUT_STRIDE];
+        if (leafPrimitives.intersectsWithin(offset, offset + count, ray, maxDistance)) {
+          return true;
+        }
+        continue;
+      }
+      int second = nodeLayout[node * LAYOUT_STRIDE];
+      if (intersectWithNode(second, ray, maxDistance) >= 0) {
+        nodeStack[stackSize++] = second;
+      }
+      if (intersectWithNode(node + 1, ray, maxDistance) >= 0) {
+        nodeStack[stackSize++] = node + 1;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the time the ray enters the node's box (0 if it starts inside), or -1 if it misses the
+   * interval [0, maxTime).
+   */
+  private double intersectWithNode(int node, Ray ray, double maxTime) {
+    return BoundingBox.intersectWithBoundingVolume(ray, nodeBounds, node * BOUNDS_STRIDE, maxTime);
+  }
+
+  /** Returns the active rays of the packet which enter the node's box before their closest hits. */
+  private long intersectWithNode(int node, RayPacket packet, long activeRays) {
+    long reachingRays = 0;
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      if (intersectWithNode(node, packet.getRay(i), packet.getClosestTime(i)) >= 0) {
+        reachingRays |= 1L << i;
+      }
+    }
+    return reachingRays;
+  }
+
+  /**
+   * Returns whether the ray travels from the center of the second child towards the center of the
+   * first, so that it generally reaches the second child first.
+   */
+  private boolean reachesSecondChildFirst(int first, int second, Ray ray) {
+    double dot = 0;
+    for (int axis = 0; axis < 3; axis++) {
+      double firstCenter =
+          nodeBounds[first * BOUNDS_STRIDE + axis] + nodeBounds[first * BOUNDS_STRIDE + 3 + axis];
+      double secondCenter =
+          nodeBounds[second * BOUNDS_STRIDE + axis]
+              + nodeBounds[second * BOUNDS_STRIDE + 3 + axis];
+      dot += (firstCenter - secondCenter) * ray.getDirection().getComponent(axis);
+    }
+    return dot > 0;
+  }
+
+  /**
+   * Copies the node and its descendants from the builder's sparse layout into the given arrays in
+   * depth first order, returning the node's new index.
+   */
+  private int compact(int node, int depth, double[] compactBounds, int[] compactLayout) {
+    maxDepth = Math.max(maxDepth, depth);
+    int compactNode = numNodes++;
+    System.arraycopy(
+        nodeBounds,
+        node * BOUNDS_STRIDE,
+        compactBounds,
+        compactNode * BOUNDS_STRIDE,
+        BOUNDS_STRIDE);
+    int count = nodeLayout[node * LAYOUT_STRIDE + 1];
+    if (count > 0) {
+      compactLayout[compactNode * LAYOUT_STRIDE] = nodeLayout[node * LAYOUT_STRIDE];
+      compactLayout[compactNode * LAYOUT_STRIDE + 1] = count;
+      return compactNode;
+    }
+    compact(node + 1, depth + 1, compactBounds, compactLayout);
+    int second = compact(nodeLayout[node * LAYOUT_STRIDE], depth + 1, compactBounds, compactLayout);
+    compactLayout[compactNode * LAYOUT_STRIDE] = second;
+    compactLayout[compactNode * LAYOUT_STRIDE + 1] = 0;
+    return compactNode;
+  }
+
+  /**
+   * Recursive top-down construction of the hierarchy, which is only needed at build time.
+   *
+   * <p>Node indexes are reserved up front so that subtrees can be built in parallel: a subtree
+   * over n primitives may need up to 2n - 1 nodes, so it owns that many indexes starting at its
+   * root, and its first child's subtree is followed by its second child's. Unused indexes are
+   * squeezed out by {@link #compact} afterwards.
+   */
+  private final class Builder {
+
+    private final int maxPrimitivesPerLeaf;
+    private final SplitStrategy splitStrategy;
+    // Bounds and centroids of every primitive, indexed by primitive index.
+    private final double[] primitiveBounds = new double[primitives.size() * BOUNDS_STRIDE];
+    private final double[] centroids = new double[primitives.size() * 3];
+
+    Builder(int maxPrimitivesPerLeaf, SplitStrategy splitStrategy) {
+      this.maxPrimitivesPerLeaf = maxPrimitivesPerLeaf;
+      this.splitStrategy = splitStrategy;
+      for (int i = 0; i < primitives.size(); i++) {
+        BoundingBox bounds = primitives.getBounds(i);
+        for (int axis = 0; axis < 3; axis++) {
+          double min = bounds.getMinBound().getComponent(axis);
+          double max = bounds.getMaxBound().getComponent(axis);
+          primitiveBounds[i * BOUNDS_STRIDE + axis] = min;
+          primitiveBounds[i * BOUNDS_STRIDE + 3 + axis] = max;
+          centroids[i * 3 + axis] = 0.5 * (min + max);
+        }
+      }
+    }
+
+    /**
+     * Builds the node at the given index for the primitives in primitiveIndexes[start, end) and all
+     * of its descendants.
+     */
+    void build(int start, int end, int node) {
+      computeNodeBounds(node, start, end);
+
+      int count = end - start;
+      // The surface area heuristic decides for itself when a small node is better left as a leaf.
+      if (count == 1
+          || (splitStrategy == SplitStrategy.MIDPOINT && count <= maxPrimitivesPerLeaf)) {
+        makeLeaf(node, start, count);
+        return;
+      }
+
+      // Split along the axis in which the centroids are most spread out.
+      double[] centroidMin = {POSITIVE_INFINITY, POSITIVE_INFINITY, POSITIVE_INFINITY};
+      double[] centroidMax = {NEGATIVE_INFINITY, NEGATIVE_INFINITY, NEGATIVE_INFINITY};
+      for (int i = start; i < end; i++) {
+        for (int axis = 0; axis < 3; axis++) {
+          double centroid = centroids[primitiveIndexes[i] * 3 + axis];
+          centroidMin[axis] = Math.min(centroidMin[axis], centroid);
+          centroidMax[axis] = Math.max(centroidMax[axis], centroid);
+        }
+      }
+      int axis = 0;
+      for (int i = 1; i < 3; i++) {
+        if (centroidMax[i] - centroidMin[i] > centroidMax[axis] - centroidMin[axis]) {
+          axis = i;
+        }
+      }
+      // All centroids coincide, so there is no meaningful way to split them.
+      if (centroidMax[axis] - centroidMin[axis] <= 0) {
+        makeLeaf(node, start, count);
+        return;
+      }
+
+      int middle;
+      if (splitStrategy == SplitStrategy.SURFACE_AREA) {
+        middle = splitBySurfaceArea(node, start, end, axis, centroidMin[axis], centroidMax[axis]);
+        if (middle < 0) {
+          makeLeaf(node, start, count);
+          return;
+        }
+      } else {
+        int splitAxis = axis;
+        double split = 0.5 * (centroidMin[axis] + centroidMax[axis]);
+        middle = partition(start, end, index -> centroids[index * 3 + splitAxis] < split);
+      }
+      // Fall back to splitting evenly by count if the split put everything on one side.
+      if (middle == start || middle == end) {
+        middle = splitByCount(start, end, axis);
+      }
+
+      int first = node + 1;
+      int second = node + 2 * (middle - start);
+      nodeLayout[node * LAYOUT_STRIDE] = second;
+      nodeLayout[node * LAYOUT_STRIDE + 1] = 0;
+      if (count >= PARALLEL_BUILD_THRESHOLD) {
+        int split = middle;
+        ForkJoinTask.invokeAll(
+            ForkJoinTask.adapt(() -> build(start, split, first)),
+            ForkJoinTask.adapt(() -> build(split, end, second)));
+      } else {
+        build(start, middle, first);
+        build(middle, end, second);
+      }
+    }
+
+    private void makeLeaf(int node, int start, int count) {
+      nodeLayout[node * LAYOUT_STRIDE] = start;
+      nodeLayout[node * LAYOUT_STRIDE + 1] = count;
+    }
+
+    private void computeNodeBounds(int node, int start, int end) {
+      clearBounds(nodeBounds, node * BOUNDS_STRIDE);
+      for (int i = start; i < end; i++) {
+        growBounds(
+            nodeBounds, node * BOUNDS_STRIDE, primitiveBounds, primitiveIndexes[i] * BOUNDS_STRIDE);
+      }
+    }
+
+    /**
+     * Bins the centroids of primitiveIndexes[start, end) into buckets along the axis and finds the
+     * boundary between buckets with the lowest surface area heuristic cost, then partitions the
+     * primitives at it. Returns the index of the first primitive of the second half, or -1 if the
+     * node holds few enough primitives and making it a leaf is cheaper than any split.
+     */
+    private int splitBySurfaceArea(
+        int node, int start, int end, int axis, double centroidMin, double centroidMax) {
+      int[] bucketCounts = new int[NUM_SPLIT_BUCKETS];
+      double[] bucketBounds = new double[NUM_SPLIT_BUCKETS * BOUNDS_STRIDE];
+      for (int bucket = 0; bucket < NUM_SPLIT_BUCKETS; bucket++) {
+        clearBounds(bucketBounds, bucket * BOUNDS_STRIDE);
+      }
+      double bucketsPerUnit = NUM_SPLIT_BUCKETS / (centroidMax - centroidMin);
+      for (int i = start; i < end; i++) {
+        int p = primitiveIndexes[i];
+        int bucket = bucketOf(p, axis, centroidMin, bucketsPerUnit);
+        bucketCounts[bucket]++;
+        growBounds(bucketBounds, bucket * BOUNDS_STRIDE, primitiveBounds, p * BOUNDS_STRIDE);
+      }
+
+      // Sweep from the right to find the area and count of everything at or after each bucket.
+      double[] rightAreas = new double[NUM_SPLIT_BUCKETS];
+      int[] rightCounts = new int[NUM_SPLIT_BUCKETS];
+      double[] sweptBounds = new double[BOUNDS_STRIDE];
+      clearBounds(sweptBounds, 0);
+      int sweptCount = 0;
+      for (int bucket = NUM_SPLIT_BUCKETS - 1; bucket > 0; bucket--) {
+        growBounds(sweptBounds, 0, bucketBounds, bucket * BOUNDS_STRIDE);
+        sweptCount += bucketCounts[bucket];
+        rightAreas[bucket] = surfaceArea(sweptBounds, 0);
+        rightCounts[bucket] = sweptCount;
+      }
+
+      // Then sweep from the left, costing the split before each bucket. Costs are left scaled by
+      // the node's surface area rather than divided by it, which keeps flat nodes well defined.
+      double nodeArea = surfaceArea(nodeBounds, node * BOUNDS_STRIDE);
+      double bestCost = POSITIVE_INFINITY;
+      int bestSplit = -1;
+      clearBounds(sweptBounds, 0);
+      sweptCount = 0;
+      for (int bucket = 1; bucket < NUM_SPLIT_BUCKETS; bucket++) {
+        growBounds(sweptBounds, 0, bucketBounds, (bucket - 1) * BOUNDS_STRIDE);
+        sweptCount += bucketCounts[bucket - 1];
+        if (sweptCount == 0 || rightCounts[bucket] == 0) {
+          continue;
+        }
+        double cost =
+            TRAVERSAL_COST * nodeArea
+                + INTERSECTION_COST
+                    * (surfaceArea(sweptBounds, 0) * sweptCount
+                        + rightAreas[bucket] * rightCounts[bucket]);
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestSplit = bucket;
+        }
+      }
+
+      int count = end - start;
+      if (count <= maxPrimitivesPerLeaf
+          && (bestSplit < 0 || INTERSECTION_COST * count * nodeArea <= bestCost)) {
+        return -1;
+      }
+      if (bestSplit < 0) {
+        return splitByCount(start, end, axis);
+      }
+      int split = bestSplit;
+      return partition(
+          start, end, index -> bucketOf(index, axis, centroidMin, bucketsPerUnit) < split);
+    }
+
+    private int bucketOf(int index, int axis, double centroidMin, double bucketsPerUnit) {
+      int bucket = (int) ((centroids[index * 3 + axis] - centroidMin) * bucketsPerUnit);
+      return Math.min(bucket, NUM_SPLIT_BUCKETS - 1);
+    }
+
+    /**
+     * Reorders primitiveIndexes[start, end) so that primitives for which isBelowSplit holds come
+     * first, returning the index of the first primitive for which it does not.
+     */
+    private int partition(int start, int end, IntPredicate isBelowSplit) {
+      int low = start;
+      int high = end - 1;
+      while (low <= high) {
+        if (isBelowSplit.test(primitiveIndexes[low])) {
+          low++;
+        } else {
+          int swap = primitiveIndexes[low];
+          primitiveIndexes[low] = primitiveIndexes[high];
+          primitiveIndexes[high--] = swap;
+        }
+      }
+      return low;
+    }
+
+    /** Sets the bounds at the given offset to an empty box which any bounds can grow. */
+    private void clearBounds(double[] bounds, int offset) {
+      for (int axis = 0; axis < 3; axis++) {
+        bounds[offset + axis] = POSITIVE_INFINITY;
+        bounds[offset + 3 + axis] = NEGATIVE_INFINITY;
+      }
+    }
+
+    /** Grows the bounds at the given offset to also enclose the other bounds. */
+    private void growBounds(double[] bounds, int offset, double[] other, int otherOffset) {
+      for (int axis = 0; axis < 3; axis++) {
+        bounds[offset + axis] = Math.min(bounds[offset + axis], other[otherOffset + axis]);
+        bounds[offset + 3 + axis] =
+            Math.max(bounds[offset + 3 + axis], other[otherOffset + 3 + axis]);
+      }
+    }
+
+    private double surfaceArea(double[] bounds, int offset) {
+      double x = bounds[offset + 3] - bounds[offset];
+      double y = bounds[offset + 4] - bounds[offset + 1];
+      double z = bounds[offset + 5] - bounds[offset + 2];
+      return 2 * (x * y + y * z + z * x);
+    }
+
+    /** Sorts primitiveIndexes[start, end) by centroid and returns the middle index. */
+    private int splitByCount(int start, int end, int axis) {
+      Integer[] sorted =
+          Arrays.stream(primitiveIndexes, start, end).boxed().toArray(Integer[]::new);
+      Arrays.sort(sorted, Comparator.comparingDouble(index -> centroids[index * 3 + axis]));
+      for (int i = 0; i < sorted.length; i++) {
+        primitiveIndexes[start + i] = sorted[i];
+      }
+      return (start + end) / 2;
+    }
+  }
+}
@@ -0,0 +1,348 @@
+package me.kahlil.bvh;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static me.kahlil.config.Parameters.BVH_CACHE_DIRECTORY;
+import static me.kahlil.config.Parameters.BVH_CACHE_MAX_BYTES;
+import static me.kahlil.config.Parameters.BVH_CACHE_MIN_PRIMITIVES;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import me.kahlil.geometry.BoundingBox;
+
+/**
+ * A directory of built {@link BoundingVolumeHierarchy}s, so that the hierarchies of meshes which
+ * have not changed are read back in rather than rebuilt whenever the process restarts.
+ *
+ * <p>Each hierarchy is stored in its own file, named by a hash of everything its construction
+ * depends on: the bounds of every primitive, the build parameters and the file format version. A
+ * changed mesh therefore never reads a stale hierarchy, and files of an older format are simply
+ * never read again. Files are memory-mapped and copied straight into the hierarchy's arrays, and
+ * are validated first, so a corrupt or truncated file is rebuilt rather than trusted.
+ *
+ * <p>Reading a file marks it as recently used. Whenever a file is added, the least recently used
+ * files are evicted until the directory is within its size limit. Files are written under a
+ * temporary name and then renamed, so processes sharing the directory never see partial files, and
+ * temporary files left behind by killed processes are deleted once they are stale.
+ *
+ * <p>Since the cache only saves time, failing to read, write or evict files never fails a build:
+ * the hierarchy is built, or left uncached, instead.
+ */
+public final class BvhCache {
+
+  private static final int MAGIC = 0x4856424B; // "KBVH" in little endian
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".bvh";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  // Temporary files older than this were left behind by processes killed while writing them, since
+  // writing even the largest hierarchy takes seconds.
+  private static final Duration STALE_TEMPORARY_FILE_AGE = Duration.ofHours(1);
+  // Magic, version, key hash, number of primitives and number of nodes, which leaves the node
+  // bounds that follow 8 byte aligned.
+  private static final int HEADER_SIZE = 32;
+  private static final int KEY_SIZE = 16;
+
+  private static final int BOUNDS_STRIDE = 6;
+  private static final int LAYOUT_STRIDE = 2;
+
+  // The cache configured in Parameters, or null if there is none.
+  private static final Supplier<BvhCache> DEFAULT =
+      Suppliers.memoize(
+          () -> BVH_CACHE_DIRECTORY.isEmpty() ? null : create(Paths.get(BVH_CACHE_DIRECTORY)));
+
+  private final Path directory;
+  private final long maxBytes;
+
+  /**
+   * Returns a cache of hierarchies in the given directory, which is created if it does not exist,
+   * holding at most maxBytes of them.
+   */
+  public BvhCache(Path directory, long maxBytes) throws IOException {
+    checkArgument(maxBytes >= 0, "The cache size must not be negative but was %s.", maxBytes);
+    this.directory = Files.createDirectories(directory);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns a hierarchy over the given primitives, read from the cache configured in {@link
+   * me.kahlil.config.Parameters} if there is one and the primitives are numerous enough to be
+   * worth caching, and built otherwise.
+   */
+  public static BoundingVolumeHierarchy buildHierarchy(
+      IndexedPrimitives primitives, int maxPrimitivesPerLeaf, SplitStrategy splitStrategy) {
+    BvhCache cache = DEFAULT.get();
+    if (cache == null || primitives.size() < BVH_CACHE_MIN_PRIMITIVES) {
+      return new BoundingVolumeHierarchy(primitives, maxPrimitivesPerLeaf, splitStrategy);
+    }
+    return cache.getOrBuild(primitives, maxPrimitivesPerLeaf, splitStrategy);
+  }
+
+  /**
+   * Returns the cached hierarchy over the given primitives built with the given parameters, or
+   * builds and caches it if there is none.
+   */
+  public BoundingVolumeHierarchy getOrBuild(
+      IndexedPrimitives primitives, int maxPrimitivesPerLeaf, SplitStrategy splitStrategy) {
+    HashCode key = computeKey(primitives, maxPrimitivesPerLeaf, splitStrategy);
+    Path path = directory.resolve(key + SUFFIX);
+    // The cache is only an optimization, so any failure to use it just falls back to building the
+    // hierarchy, or leaves the built hierarchy uncached, rather than failing the render.
+    try {
+      BoundingVolumeHierarchy cached = read(path, key, primitives);
+      if (cached != null) {
+        touch(path);
+        return cached;
+      }
+    } catch (IOException e) {
+      // Build the hierarchy and try to replace the unreadable file below.
+    }
+    BoundingVolumeHierarchy hierarchy =
+        new BoundingVolumeHierarchy(primitives, maxPrimitivesPerLeaf, splitStrategy);
+    try {
+      write(hierarchy, key, path);
+      evict();
+    } catch (IOException e) {
+      // E.g. the directory is full or no longer writable, so the hierarchy stays uncached.
+    }
+    return hierarchy;
+  }
+
+  /** Returns the cache in the given directory, or null if the directory cannot be created. */
+  private static BvhCache create(Path directory) {
+    try {
+      return new BvhCache(directory, BVH_CACHE_MAX_BYTES);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Hashes everything the construction of a hierarchy over the primitives depends on. */
+  private static HashCode computeKey(
+      IndexedPrimitives primitives, int maxPrimitivesPerLeaf, SplitStrategy splitStrategy) {
+    Hasher hasher =
+        Hashing.murmur3_128()
+            .newHasher()
+            .putInt(FORMAT_VERSION)
+            .putInt(maxPrimitivesPerLeaf)
+            .putInt(splitStrategy.ordinal())
+            .putInt(primitives.size());
+    for (int i = 0; i < primitives.size(); i++) {
+      BoundingBox bounds = primitives.getBounds(i);
+      for (int axis = 0; axis < 3; axis++) {
+        hasher.putDouble(bounds.getMinBound().getComponent(axis));
+        hasher.putDouble(bounds.getMaxBound().getComponent(axis));
+      }
+    }
+    return hasher.hash();
+  }
+
+  private static void write(BoundingVolumeHierarchy hierarchy, HashCode key, Path path)
+      throws IOException {
+    double[] nodeBounds = hierarchy.getNodeBounds();
+    int[] nodeLayout = hierarchy.getNodeLayout();
+    int[] primitiveIndexes = hierarchy.getPrimitiveIndexes();
+    long size =
+        HEADER_SIZE
+            + (long) Double.BYTES * nodeBounds.length
+            + (long) Integer.BYTES * (nodeLayout.length + primitiveIndexes.length);
+    if (size > Integer.MAX_VALUE) {
+      // Too big to map in one piece, so it is always rebuilt.
+      return;
+    }
+
+    Path temporary = Files.createTempFile(path.getParent(), key.toString(), TEMPORARY_SUFFIX);
+    try {
+      try (FileChannel channel =
+          FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        ByteBuffer buffer =
+            channel.map(MapMode.READ_WRITE, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).put(key.asBytes());
+        buffer.putInt(primitiveIndexes.length).putInt(nodeLayout.length / LAYOUT_STRIDE);
+        buffer.asDoubleBuffer().put(nodeBounds);
+        buffer.position(buffer.position() + Double.BYTES * nodeBounds.length);
+        buffer.asIntBuffer().put(nodeLayout).put(primitiveIndexes);
+      }
+      Files.move(
+          temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Reads the hierarchy in the given file back in, or returns null if the file is not a valid
+   * hierarchy over the primitives.
+   */
+  private static BoundingVolumeHierarchy read(Path path, HashCode key, IndexedPrimitives primitives)
+      throws IOException {
+    try (FileChannel channel = openIfExists(path)) {
+      if (channel == null) {
+        return null;
+      }
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+      byte[] fileKey = new byte[KEY_SIZE];
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        return null;
+      }
+      buffer.get(fileKey);
+      int numPrimitives = buffer.getInt();
+      int numNodes = buffer.getInt();
+      if (!HashCode.fromBytes(fileKey).equals(key)
+          || numPrimitives != primitives.size()
+          || numNodes < 0
+          || size
+              != HEADER_SIZE
+                  + (long) Double.BYTES * BOUNDS_STRIDE * numNodes
+                  + (long) Integer.BYTES * (LAYOUT_STRIDE * numNodes + numPrimitives)) {
+        return null;
+      }
+
+      double[] nodeBounds = new double[BOUNDS_STRIDE * numNodes];
+      int[] nodeLayout = new int[LAYOUT_STRIDE * numNodes];
+      int[] primitiveIndexes = new int[numPrimitives];
+      buffer.asDoubleBuffer().get(nodeBounds);
+      buffer.position(buffer.position() + Double.BYTES * nodeBounds.length);
+      buffer.asIntBuffer().get(nodeLayout).get(primitiveIndexes);
+
+      int maxDepth = validate(nodeLayout, primitiveIndexes);
+      if (maxDepth < 0) {
+        return null;
+      }
+      return new BoundingVolumeHierarchy(
+          primitives, nodeBounds, nodeLayout, primitiveIndexes, maxDepth);
+    }
+  }
+
+  /** Marks the given file as recently used, unless another process evicted it in the meantime. */
+  private static void touch(Path path) throws IOException {
+    try {
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (NoSuchFileException e) {
+      // The hierarchy has already been read, so it does not matter.
+    }
+  }
+
+  /** Opens the given file, or returns null if another process evicted it in the meantime. */
+  private static FileChannel openIfExists(Path path) throws IOException {
+    try {
+      return FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks that traversing the hierarchy cannot index out of bounds, returning the depth of its
+   * deepest leaf, or -1 if it is invalid. Children always follow their parent, so depths can be
+   * computed in a single pass.
+   */
+  private static int validate(int[] nodeLayout, int[] primitiveIndexes) {
+    int numNodes = nodeLayout.length / LAYOUT_STRIDE;
+    if (numNodes == 0) {
+      return primitiveIndexes.length == 0 ? 0 : -1;
+    }
+    for (int index : primitiveIndexes) {
+      if (index < 0 || index >= primitiveIndexes.length) {
+        return -1;
+      }
+    }
+    int[] depths = new int[numNodes];
+    int maxDepth = 0;
+    for (int node = 0; node < numNodes; node++) {
+      int count = nodeLayout[node * LAYOUT_STRIDE + 1];
+      int value = nodeLayout[node * LAYOUT_STRIDE];
+      if (count > 0) {
+        if (value < 0 || value > primitiveIndexes.length - count) {
+          return -1;
+        }
+        maxDepth = Math.max(maxDepth, depths[node]);
+        continue;
+      }
+      if (count < 0 || node + 1 >= numNodes || value <= node + 1 || value >= numNodes) {
+        return -1;
+      }
+      depths[node + 1] = Math.max(depths[node + 1], depths[node] + 1);
+      depths[value] = Math.max(depths[value], depths[node] + 1);
+    }
+    return maxDepth;
+  }
+
+  /**
+   * Deletes the least recently used files until the cache is within its size limit, after deleting
+   * any stale temporary files.
+   */
+  private void evict() throws IOException {
+    deleteStaleTemporaryFiles();
+    List<Path> files = new ArrayList<>();
+    List<BasicFileAttributes> attributes = new ArrayList<>();
+    long totalBytes = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      for (Path file : stream) {
+        try {
+          attributes.add(Files.readAttributes(file, BasicFileAttributes.class));
+          files.add(file);
+          totalBytes += attributes.get(attributes.size() - 1).size();
+        } catch (NoSuchFileException e) {
+          // Another process sharing the cache evicted it in the meantime.
+        }
+      }
+    }
+    List<Integer> leastRecentlyUsedFirst = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      leastRecentlyUsedFirst.add(i);
+    }
+    leastRecentlyUsedFirst.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+    for (int i : leastRecentlyUsedFirst) {
+      if (totalBytes <= maxBytes) {
+        return;
+      }
+      Files.deleteIfExists(files.get(i));
+      totalBytes -= attributes.get(i).size();
+    }
+  }
+
+  /**
+   * Deletes the temporary files which processes killed while writing them left behind, and which
+   * would otherwise never be evicted. Newer temporary files may still be being written.
+   */
+  private void deleteStaleTemporaryFiles() throws IOException {
+    FileTime staleBefore =
+        FileTime.fromMillis(System.currentTimeMillis() - STALE_TEMPORARY_FILE_AGE.toMillis());
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, "*" + TEMPORARY_SUFFIX)) {
+      for (Path file : stream) {
+        try {
+          if (Files.getLastModifiedTime(file).compareTo(staleBefore) < 0) {
+            Files.deleteIfExists(file);
+          }
+        } catch (NoSuchFileException e) {
+          // Another process renamed or deleted it in the meantime.
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package me.kahlil.bvh;
+
+import java.util.Arrays;
+
+/**
+ * The boxes of the children of every node of a {@link WideBoundingVolumeHierarchy}, stored as a
+ * structure of arrays so that all the children of a node are slab tested against a ray together.
+ * The children of a node are consecutive, and each array is padded with empty boxes so that
+ * kernels can read a whole group past the last child.
+ */
+final class ChildBounds {
+
+  final double[] minX;
+  final double[] minY;
+  final double[] minZ;
+  final double[] maxX;
+  final double[] maxY;
+  final double[] maxZ;
+
+  ChildBounds(int numChildren, int groupSize) {
+    int length = numChildren + groupSize;
+    this.minX = new double[length];
+    this.minY = new double[length];
+    this.minZ = new double[length];
+    this.maxX = new double[length];
+    this.maxY = new double[length];
+    this.maxZ = new double[length];
+  }
+
+  private ChildBounds(ChildBounds bounds, int length) {
+    this.minX = Arrays.copyOf(bounds.minX, length);
+    this.minY = Arrays.copyOf(bounds.minY, length);
+    this.minZ = Arrays.copyOf(bounds.minZ, length);
+    this.maxX = Arrays.copyOf(bounds.maxX, length);
+    this.maxY = Arrays.copyOf(bounds.maxY, length);
+    this.maxZ = Arrays.copyOf(bounds.maxZ, length);
+  }
+
+  /**
+   * Returns a copy of the first numChildren children, padded for kernels which read groupSize
+   * children at a time, once it is known how many children are used.
+   */
+  ChildBounds trimmedTo(int numChildren, int groupSize) {
+    return new ChildBounds(this, numChildren + groupSize);
+  }
+
+  /** Returns the min coordinates of the children along the given axis. */
+  double[] getMin(int axis) {
+    return axis == 0 ? minX : axis == 1 ? minY : minZ;
+  }
+
+  /** Returns the max coordinates of the children along the given axis. */
+  double[] getMax(int axis) {
+    return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+  }
+
+  /** Sets the child at the given index to the box stored as min (x, y, z) then max (x, y, z). */
+  void set(int index, double[] bounds, int offset) {
+    minX[index] = bounds[offset];
+    minY[index] = bounds[offset + 1];
+    minZ[index] = bounds[offset + 2];
+    maxX[index] = bounds[offset + 3];
+    maxY[index] = bounds[offset + 4];
+    maxZ[index] = bounds[offset + 5];
+  }
+}
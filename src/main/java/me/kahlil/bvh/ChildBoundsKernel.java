@@ -0,0 +1,23 @@
+package me.kahlil.bvh;
+
+import me.kahlil.geometry.Ray;
+
+/**
+ * Slab test of a ray against all the children of a {@link WideBoundingVolumeHierarchy} node.
+ * Implementations must agree exactly with {@link
+ * me.kahlil.geometry.BoundingBox#intersectWithBoundingVolume}, so that a wide hierarchy culls
+ * just what its binary hierarchy does.
+ */
+interface ChildBoundsKernel {
+
+  /** Returns the number of children the kernel reads at a time, past the last child. */
+  int getGroupSize();
+
+  /**
+   * Tests the ray against the boxes at [start, start + numChildren), clipped to the interval [0,
+   * maxTime). Returns a mask whose ith bit is set if the ray enters the ith box in that interval,
+   * in which case the time it enters it (0 if it starts inside) is written to times[i].
+   */
+  int intersect(
+      ChildBounds bounds, int start, int numChildren, Ray ray, double maxTime, double[] times);
+}
@@ -0,0 +1,52 @@
+package me.kahlil.bvh;
+
+import java.util.Optional;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+
+/**
+ * {@link LeafPrimitives} which intersect the primitives of a leaf one at a time, looking each up
+ * by its index.
+ */
+final class IndexedLeafPrimitives implements LeafPrimitives {
+
+  private final IndexedPrimitives primitives;
+  private final int[] primitiveIndexes;
+
+  IndexedLeafPrimitives(IndexedPrimitives primitives, int[] primitiveIndexes) {
+    this.primitives = primitives;
+    this.primitiveIndexes = primitiveIndexes;
+  }
+
+  @Override
+  public RayHit intersectWith(int start, int end, Ray ray, double maxTime) {
+    RayHit closest = null;
+    double closestTime = maxTime;
+    for (int i = start; i < end; i++) {
+      Optional<RayHit> rayHit = primitives.intersectWith(primitiveIndexes[i], ray);
+      if (rayHit.isPresent() && rayHit.get().getTime() < closestTime) {
+        closest = rayHit.get();
+        closestTime = closest.getTime();
+      }
+    }
+    return closest;
+  }
+
+  @Override
+  public boolean intersectsWithin(int start, int end, Ray ray, double maxDistance) {
+    for (int i = start; i < end; i++) {
+      if (primitives.intersectsWithin(primitiveIndexes[i], ray, maxDistance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void intersectWith(int start, int end, RayPacket packet, long activeRays) {
+    for (int i = start; i < end; i++) {
+      primitives.intersectWith(primitiveIndexes[i], packet, activeRays);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package me.kahlil.bvh;
+
+import java.util.Optional;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+
+/**
+ * A fixed collection of primitives addressed by index, which a {@link BoundingVolumeHierarchy}
+ * can be built over. The hierarchy only ever refers to primitives by their index.
+ */
+public interface IndexedPrimitives {
+
+  /** Returns the number of primitives. */
+  int size();
+
+  /** Returns the axis-aligned bounds of the primitive at the given index. */
+  BoundingBox getBounds(int index);
+
+  /** Returns the intersection of the ray with the primitive at the given index, if any. */
+  Optional<RayHit> intersectWith(int index, Ray ray);
+
+  /**
+   * Returns whether or not the ray intersects the primitive at the given index less than
+   * maxDistance along the ray.
+   */
+  boolean intersectsWithin(int index, Ray ray, double maxDistance);
+
+  /**
+   * Intersects each active ray of the packet with the primitive at the given index, recording any
+   * hit closer than the ray's closest so far. By default the rays are intersected one at a time.
+   */
+  default void intersectWith(int index, RayPacket packet, long activeRays) {
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      Optional<RayHit> rayHit = intersectWith(index, packet.getRay(i));
+      if (rayHit.isPresent()) {
+        packet.recordHit(i, rayHit.get());
+      }
+    }
+  }
+
+  /**
+   * Returns the primitives for a hierarchy whose leaves refer to ranges of the given primitive
+   * indexes, which primitives may override to lay themselves out in that order, e.g. to intersect
+   * a whole leaf at a time. By default each primitive of a leaf is intersected on its own.
+   */
+  default LeafPrimitives inLeafOrder(int[] primitiveIndexes) {
+    return new IndexedLeafPrimitives(this, primitiveIndexes);
+  }
+}
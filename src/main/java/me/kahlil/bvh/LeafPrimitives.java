@@ -0,0 +1,40 @@
+package me.kahlil.bvh;
+
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+
+/**
+ * The primitives of a {@link BoundingVolumeHierarchy}, addressed by their position in the order in
+ * which the hierarchy's leaves refer to them, so that every leaf is a contiguous range of
+ * positions and is intersected in one call. See {@link IndexedPrimitives#inLeafOrder}.
+ */
+public interface LeafPrimitives {
+
+  /**
+   * Returns the closest hit of the ray with the primitives at positions [start, end) which is
+   * closer than maxTime, or null if there is none.
+   */
+  RayHit intersectWith(int start, int end, Ray ray, double maxTime);
+
+  /**
+   * Returns whether or not the ray intersects any of the primitives at positions [start, end) less
+   * than maxDistance along the ray.
+   */
+  boolean intersectsWithin(int start, int end, Ray ray, double maxDistance);
+
+  /**
+   * Intersects each active ray of the packet with the primitives at positions [start, end),
+   * recording any hit closer than the ray's closest so far. By default the rays are intersected
+   * one at a time.
+   */
+  default void intersectWith(int start, int end, RayPacket packet, long activeRays) {
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      RayHit rayHit = intersectWith(start, end, packet.getRay(i), packet.getClosestTime(i));
+      if (rayHit != null) {
+        packet.recordHit(i, rayHit);
+      }
+    }
+  }
+}
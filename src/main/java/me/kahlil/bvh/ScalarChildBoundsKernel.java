@@ -0,0 +1,61 @@
+package me.kahlil.bvh;
+
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
+
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Vector;
+
+/** {@link ChildBoundsKernel} which tests one box at a time. */
+final class ScalarChildBoundsKernel implements ChildBoundsKernel {
+
+  @Override
+  public int getGroupSize() {
+    return 1;
+  }
+
+  @Override
+  public int intersect(
+      ChildBounds bounds, int start, int numChildren, Ray ray, double maxTime, double[] times) {
+    int hits = 0;
+    for (int i = 0; i < numChildren; i++) {
+      double time = intersect(bounds, start + i, ray, maxTime);
+      if (time >= 0) {
+        hits |= 1 << i;
+        times[i] = time;
+      }
+    }
+    NUM_BOUNDING_INTERSECTION_TESTS.getAndAdd(numChildren);
+    NUM_BOUNDING_INTERSECTIONS.getAndAdd(Integer.bitCount(hits));
+    return hits;
+  }
+
+  /** The same slab test as {@link BoundingBox#intersectWithBoundingVolume}, of one child. */
+  private static double intersect(ChildBounds bounds, int child, Ray ray, double maxTime) {
+    Vector rayStart = ray.getStart();
+    Vector inverseDirection = ray.getInvertedDirection();
+    double timeNear = 0;
+    double timeFar = maxTime;
+    for (int axis = 0; axis < 3; axis++) {
+      double start = rayStart.getComponent(axis);
+      double t1 = (bounds.getMin(axis)[child] - start) * inverseDirection.getComponent(axis);
+      double t2 = (bounds.getMax(axis)[child] - start) * inverseDirection.getComponent(axis);
+      if (t1 > t2) {
+        double swap = t1;
+        t1 = t2;
+        t2 = swap;
+      }
+      if (t1 > timeNear) {
+        timeNear = t1;
+      }
+      if (t2 < timeFar) {
+        timeFar = t2;
+      }
+    }
+    if (timeNear > timeFar || timeNear >= maxTime) {
+      return -1;
+    }
+    return timeNear;
+  }
+}
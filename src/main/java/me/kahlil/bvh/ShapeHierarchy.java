@@ -0,0 +1,114 @@
+package me.kahlil.bvh;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Optional;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Intersectable;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+import me.kahlil.geometry.Shape;
+
+/**
+ * Top-level acceleration structure over all of the {@link Shape}s in a scene.
+ *
+ * <p>Shapes with finite bounds are placed in a {@link BoundingVolumeHierarchy} built over their
+ * world space bounds. Unbounded shapes (e.g. planes) cannot be placed in the hierarchy, so they
+ * are kept in a small list which is always tested.
+ *
+ * <p>Over {@link me.kahlil.geometry.Instance}s of a shared mesh, this is the top level of a
+ * two-level hierarchy, whose bottom level is the mesh's own acceleration structure.
+ */
+public final class ShapeHierarchy implements Intersectable {
+
+  private final ImmutableList<Shape> unboundedShapes;
+  private final BoundingVolumeHierarchy boundedShapes;
+
+  public ShapeHierarchy(List<Shape> shapes, int maxShapesPerLeaf) {
+    ImmutableList.Builder<Shape> bounded = ImmutableList.builder();
+    ImmutableList.Builder<BoundingBox> bounds = ImmutableList.builder();
+    ImmutableList.Builder<Shape> unbounded = ImmutableList.builder();
+    for (Shape shape : shapes) {
+      Optional<BoundingBox> worldBounds = shape.getWorldBounds();
+      if (worldBounds.isPresent()) {
+        bounded.add(shape);
+        bounds.add(worldBounds.get());
+      } else {
+        unbounded.add(shape);
+      }
+    }
+    this.unboundedShapes = unbounded.build();
+    this.boundedShapes =
+        new BoundingVolumeHierarchy(
+            new ShapePrimitives(bounded.build(), bounds.build()), maxShapesPerLeaf);
+  }
+
+  @Override
+  public Optional<RayHit> intersectWith(Ray ray) {
+    Optional<RayHit> closest = boundedShapes.intersectWith(ray);
+    for (int i = 0; i < unboundedShapes.size(); i++) {
+      Optional<RayHit> rayHit = unboundedShapes.get(i).intersectWith(ray);
+      if (rayHit.isPresent()
+          && (closest.isEmpty() || rayHit.get().getTime() < closest.get().getTime())) {
+        closest = rayHit;
+      }
+    }
+    return closest;
+  }
+
+  @Override
+  public void intersectWith(RayPacket packet, long activeRays) {
+    boundedShapes.intersectWith(packet, activeRays);
+    for (int i = 0; i < unboundedShapes.size(); i++) {
+      unboundedShapes.get(i).intersectWith(packet, activeRays);
+    }
+  }
+
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    for (int i = 0; i < unboundedShapes.size(); i++) {
+      if (unboundedShapes.get(i).intersectsWithin(ray, maxDistance)) {
+        return true;
+      }
+    }
+    return boundedShapes.intersectsWithin(ray, maxDistance);
+  }
+
+  /** Adapts a list of bounded shapes, along with their world space bounds, to primitives. */
+  private static final class ShapePrimitives implements IndexedPrimitives {
+
+    private final ImmutableList<Shape> shapes;
+    private final ImmutableList<BoundingBox> bounds;
+
+    ShapePrimitives(ImmutableList<Shape> shapes, ImmutableList<BoundingBox> bounds) {
+      this.shapes = shapes;
+      this.bounds = bounds;
+    }
+
+    @Override
+    public int size() {
+      return shapes.size();
+    }
+
+    @Override
+    public BoundingBox getBounds(int index) {
+      return bounds.get(index);
+    }
+
+    @Override
+    public Optional<RayHit> intersectWith(int index, Ray ray) {
+      return shapes.get(index).intersectWith(ray);
+    }
+
+    @Override
+    public boolean intersectsWithin(int index, Ray ray, double maxDistance) {
+      return shapes.get(index).intersectsWithin(ray, maxDistance);
+    }
+
+    @Override
+    public void intersectWith(int index, RayPacket packet, long activeRays) {
+      shapes.get(index).intersectWith(packet, activeRays);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package me.kahlil.bvh;
+
+/** How a {@link BoundingVolumeHierarchy} chooses where to split a node's primitives in two. */
+public enum SplitStrategy {
+
+  /**
+   * Splits at the midpoint of the primitives' centroids along their widest axis. Cheap to build,
+   * and works well for a modest number of similarly sized primitives (e.g. the shapes in a scene).
+   */
+  MIDPOINT,
+
+  /**
+   * Chooses the split which minimizes the expected cost of tracing a ray through the node
+   * according to the surface area heuristic, and stops splitting once a leaf would be cheaper.
+   * Slower to build, but produces much tighter trees for meshes.
+   *
+   * <p>See: https://www.pbr-book.org/3ed-2018/Primitives_and_Intersection_Acceleration/Bounding_Volume_Hierarchies
+   */
+  SURFACE_AREA
+}
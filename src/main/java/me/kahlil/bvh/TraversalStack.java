@@ -0,0 +1,77 @@
+package me.kahlil.bvh;
+
+/**
+ * Scratch stacks of node indexes, the times at which the ray enters them and the packet rays
+ * which reach them, reused by every hierarchy traversal on the same thread so that traversals do
+ * not allocate.
+ *
+ * <p>Unlike octree traversals, hierarchy traversals nest on one thread: the scene's {@link
+ * ShapeHierarchy} intersects meshes which traverse hierarchies of their own, and packets traverse
+ * subtrees again one ray at a time. So each thread keeps one stack per level of nesting. A
+ * traversal takes the next free one with {@link #acquire} and must hand it back with {@link
+ * #release} when it is done, even if it fails.
+ */
+final class TraversalStack {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private static final ThreadLocal<Levels> LEVELS = ThreadLocal.withInitial(Levels::new);
+
+  int[] nodes = new int[INITIAL_CAPACITY];
+  double[] times = new double[INITIAL_CAPACITY];
+  long[] rays = new long[INITIAL_CAPACITY];
+  // The times at which the ray enters each child of a wide node.
+  double[] childTimes = new double[0];
+
+  private final Levels levels;
+
+  private TraversalStack(Levels levels) {
+    this.levels = levels;
+  }
+
+  /**
+   * Returns the current thread's next free stack, grown if necessary to hold at least capacity
+   * entries.
+   */
+  static TraversalStack acquire(int capacity) {
+    Levels levels = LEVELS.get();
+    if (levels.depth == levels.stacks.length) {
+      TraversalStack[] stacks = new TraversalStack[2 * levels.stacks.length];
+      System.arraycopy(levels.stacks, 0, stacks, 0, levels.stacks.length);
+      levels.stacks = stacks;
+    }
+    TraversalStack stack = levels.stacks[levels.depth];
+    if (stack == null) {
+      stack = new TraversalStack(levels);
+      levels.stacks[levels.depth] = stack;
+    }
+    levels.depth++;
+    if (stack.nodes.length < capacity) {
+      int grownCapacity = Math.max(capacity, 2 * stack.nodes.length);
+      stack.nodes = new int[grownCapacity];
+      stack.times = new double[grownCapacity];
+      stack.rays = new long[grownCapacity];
+    }
+    return stack;
+  }
+
+  /** Returns the stack's child times, grown if necessary to hold at least length children. */
+  double[] childTimes(int length) {
+    if (childTimes.length < length) {
+      childTimes = new double[length];
+    }
+    return childTimes;
+  }
+
+  /** Hands the stack back. Stacks must be released in the reverse order they were acquired. */
+  void release() {
+    levels.depth--;
+  }
+
+  /** The stacks of one thread, one per level of nesting, of which the first depth are in use. */
+  private static final class Levels {
+
+    private TraversalStack[] stacks = new TraversalStack[4];
+    private int depth = 0;
+  }
+}
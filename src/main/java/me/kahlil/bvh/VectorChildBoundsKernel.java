@@ -0,0 +1,71 @@
+package me.kahlil.bvh;
+
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LT;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Vector;
+
+/**
+ * {@link ChildBoundsKernel} which tests as many boxes as fit in the platform's preferred vector
+ * size against a ray at a time with the incubating Vector API.
+ *
+ * <p>Slabs are clipped with comparisons and blends rather than with min and max, which would
+ * propagate the NaNs that {@link ScalarChildBoundsKernel} ignores. Lanes past the last child
+ * are tested along with the rest of their group, and their bits dropped afterwards, since masking
+ * the lanes up front with {@link VectorSpecies#indexInRange} is far slower.
+ */
+final class VectorChildBoundsKernel implements ChildBoundsKernel {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  public int getGroupSize() {
+    return SPECIES.length();
+  }
+
+  @Override
+  public int intersect(
+      ChildBounds bounds, int start, int numChildren, Ray ray, double maxTime, double[] times) {
+    Vector rayStart = ray.getStart();
+    Vector inverseDirection = ray.getInvertedDirection();
+    int hits = 0;
+    for (int i = 0; i < numChildren; i += SPECIES.length()) {
+      int group = start + i;
+      DoubleVector near = DoubleVector.zero(SPECIES);
+      DoubleVector far = DoubleVector.broadcast(SPECIES, maxTime);
+      for (int axis = 0; axis < 3; axis++) {
+        double axisStart = rayStart.getComponent(axis);
+        double axisInverseDirection = inverseDirection.getComponent(axis);
+        DoubleVector t1 =
+            DoubleVector.fromArray(SPECIES, bounds.getMin(axis), group)
+                .sub(axisStart)
+                .mul(axisInverseDirection);
+        DoubleVector t2 =
+            DoubleVector.fromArray(SPECIES, bounds.getMax(axis), group)
+                .sub(axisStart)
+                .mul(axisInverseDirection);
+        VectorMask<Double> swap = t1.compare(GT, t2);
+        DoubleVector nearest = t1.blend(t2, swap);
+        DoubleVector farthest = t2.blend(t1, swap);
+        near = near.blend(nearest, nearest.compare(GT, near));
+        far = far.blend(farthest, farthest.compare(LT, far));
+      }
+      // The intervals are never NaN, so this negates the scalar kernel's test for a miss.
+      VectorMask<Double> groupHits = near.compare(LE, far).and(near.compare(LT, maxTime));
+      near.intoArray(times, i);
+      hits |= (int) (groupHits.toLong() << i);
+    }
+    // Unlike (1 << numChildren) - 1, this keeps every bit of 32 children.
+    hits &= -1 >>> (Integer.SIZE - numChildren);
+    NUM_BOUNDING_INTERSECTION_TESTS.getAndAdd(numChildren);
+    NUM_BOUNDING_INTERSECTIONS.getAndAdd(Integer.bitCount(hits));
+    return hits;
+  }
+}
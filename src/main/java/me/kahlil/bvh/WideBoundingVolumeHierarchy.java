@@ -0,0 +1,296 @@
+package me.kahlil.bvh;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+
+import java.util.Arrays;
+import java.util.Optional;
+import me.kahlil.config.VectorApi;
+import me.kahlil.geometry.Intersectable;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+
+/**
+ * A bounding volume hierarchy whose nodes have up to a fixed width of children rather than two,
+ * made by collapsing a binary {@link BoundingVolumeHierarchy}. The boxes of a node's children are
+ * stored together as {@link ChildBounds}, so visiting a node slab tests the ray against all of
+ * them at once, with the incubating Vector API when it is available. A wide hierarchy has fewer
+ * levels than its binary one, so rays visit fewer nodes and hop around memory less.
+ *
+ * <p>Every child is either another node or a leaf of the binary hierarchy, whose primitives are
+ * intersected through the binary hierarchy's {@link LeafPrimitives}. The children of a node are
+ * found by repeatedly replacing the child of the binary hierarchy with the largest surface area,
+ * which is the most likely to be hit, by its own two children, until the node is full.
+ */
+public final class WideBoundingVolumeHierarchy implements Intersectable {
+
+  /** The widest nodes can be, since the children a ray hits are returned as the bits of an int. */
+  public static final int MAX_WIDTH = Integer.SIZE;
+
+  static final ChildBoundsKernel KERNEL =
+      VectorApi.loadOrElse(
+          ChildBoundsKernel.class,
+          "me.kahlil.bvh.VectorChildBoundsKernel",
+          ScalarChildBoundsKernel::new);
+
+  private static final int BOUNDS_STRIDE = 6;
+  private static final int LAYOUT_STRIDE = 2;
+
+  private final int width;
+  private final LeafPrimitives leafPrimitives;
+
+  // The children of node n are at [n * width, n * width + numChildren[n]).
+  private final ChildBounds childBounds;
+  // For children which are leaves: the offset of the leaf's first primitive followed by the
+  // number of primitives (always > 0). For children which are nodes: the node's index followed
+  // by 0.
+  private final int[] childLayout;
+  private final int[] numChildren;
+  private int numNodes = 0;
+  // Depth of the deepest node, which bounds the size of the traversal stack.
+  private int maxDepth = 0;
+
+  /** Collapses the binary hierarchy into one with nodes of up to width children. */
+  public WideBoundingVolumeHierarchy(BoundingVolumeHierarchy hierarchy, int width) {
+    checkArgument(
+        width >= 2 && width <= MAX_WIDTH,
+        "Nodes must have between 2 and %s children. Found: %s",
+        MAX_WIDTH,
+        width);
+    this.width = width;
+    this.leafPrimitives = hierarchy.getLeafPrimitives();
+
+    // Every node but the root replaces at least one internal node of the binary hierarchy, but
+    // most replace width - 1 of them, so the arrays are trimmed once the nodes are collapsed.
+    int maxNodes = Math.max(1, hierarchy.getNumNodes());
+    ChildBounds bounds = new ChildBounds(maxNodes * width, KERNEL.getGroupSize());
+    int[] layout = new int[maxNodes * width * LAYOUT_STRIDE];
+    int[] counts = new int[maxNodes];
+    if (hierarchy.getNumNodes() > 0) {
+      new Collapser(hierarchy, bounds, layout, counts).collapse(0, 0);
+    }
+    this.childBounds = bounds.trimmedTo(numNodes * width, KERNEL.getGroupSize());
+    this.childLayout = Arrays.copyOf(layout, numNodes * width * LAYOUT_STRIDE);
+    this.numChildren = Arrays.copyOf(counts, numNodes);
+  }
+
+  /** Returns the number of nodes in the hierarchy. */
+  public int getNumNodes() {
+    return numNodes;
+  }
+
+  /** Returns the depth of the deepest node in the hierarchy, where the root has depth 0. */
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * Returns the closest intersection of the ray with any primitive. Children are visited nearest
+   * first, and children which the ray enters after the closest hit so far are skipped.
+   */
+  @Override
+  public Optional<RayHit> intersectWith(Ray ray) {
+    if (numNodes == 0) {
+      return Optional.empty();
+    }
+    TraversalStack stack = TraversalStack.acquire((maxDepth + 1) * width);
+    try {
+      return Optional.ofNullable(intersectWith(stack, ray));
+    } finally {
+      stack.release();
+    }
+  }
+
+  private RayHit intersectWith(TraversalStack stack, Ray ray) {
+    int[] childStack = stack.nodes;
+    double[] timeStack = stack.times;
+    double[] times = stack.childTimes(width + KERNEL.getGroupSize());
+    RayHit closest = null;
+    double closestTime = POSITIVE_INFINITY;
+
+    int stackSize = pushChildren(stack, 0, 0, ray, closestTime, times, /* nearestFirst= */ true);
+    while (stackSize > 0) {
+      int child = childStack[--stackSize];
+      if (timeStack[stackSize] >= closestTime) {
+        continue;
+      }
+      int count = childLayout[child * LAYOUT_STRIDE + 1];
+      if (count == 0) {
+        stackSize =
+            pushChildren(
+                stack,
+                stackSize,
+                childLayout[child * LAYOUT_STRIDE],
+                ray,
+                closestTime,
+                times,
+                /* nearestFirst= */ true);
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int offset = childLayout[child * LAYOUT_STRIDE];
+      RayHit rayHit = leafPrimitives.intersectWith(offset, offset + count, ray, closestTime);
+      if (rayHit != null) {
+        closest = rayHit;
+        closestTime = closest.getTime();
+      }
+    }
+    return closest;
+  }
+
+  /** Returns as soon as any primitive is found which the ray hits before maxDistance. */
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    if (numNodes == 0) {
+      return false;
+    }
+    TraversalStack stack = TraversalStack.acquire((maxDepth + 1) * width);
+    try {
+      return intersectsWithin(stack, ray, maxDistance);
+    } finally {
+      stack.release();
+    }
+  }
+
+  private boolean intersectsWithin(TraversalStack stack, Ray ray, double maxDistance) {
+    int[] childStack = stack.nodes;
+    double[] times = stack.childTimes(width + KERNEL.getGroupSize());
+    int stackSize = pushChildren(stack, 0, 0, ray, maxDistance, times, /* nearestFirst= */ false);
+    while (stackSize > 0) {
+      int child = childStack[--stackSize];
+      int count = childLayout[child * LAYOUT_STRIDE + 1];
+      if (count == 0) {
+        stackSize =
+            pushChildren(
+                stack,
+                stackSize,
+                childLayout[child * LAYOUT_STRIDE],
+                ray,
+                maxDistance,
+                times,
+                /* nearestFirst= */ false);
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int offset = childLayout[child * LAYOUT_STRIDE];
+      if (leafPrimitives.intersectsWithin(offset, offset + count, ray, maxDistance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Visits the node, pushing the children the ray enters before maxTime onto the stack, and
+   * returns the new size of the stack. If nearestFirst, the children are pushed farthest first, so
+   * that the nearest is popped and visited first. Each node visited pops one child and pushes up to
+   * width, and there is a node per level, so the stack never holds more than (maxDepth + 1) *
+   * width children.
+   */
+  private int pushChildren(
+      TraversalStack stack,
+      int stackSize,
+      int node,
+      Ray ray,
+      double maxTime,
+      double[] times,
+      boolean nearestFirst) {
+    NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+    int[] childStack = stack.nodes;
+    double[] timeStack = stack.times;
+    int first = node * width;
+    int hits = KERNEL.intersect(childBounds, first, numChildren[node], ray, maxTime, times);
+    int pushed = stackSize;
+    for (int remaining = hits; remaining != 0; remaining &= remaining - 1) {
+      int i = Integer.numberOfTrailingZeros(remaining);
+      // Insert the child among those just pushed, which are few enough to sort this way.
+      int position = stackSize++;
+      while (nearestFirst && position > pushed && timeStack[position - 1] < times[i]) {
+        childStack[position] = childStack[position - 1];
+        timeStack[position] = timeStack[position - 1];
+        position--;
+      }
+      childStack[position] = first + i;
+      timeStack[position] = times[i];
+    }
+    return stackSize;
+  }
+
+  /** Depth-first construction of the wide nodes from the nodes of the binary hierarchy. */
+  private final class Collapser {
+
+    private final double[] binaryBounds;
+    private final int[] binaryLayout;
+    private final ChildBounds bounds;
+    private final int[] layout;
+    private final int[] counts;
+
+    Collapser(BoundingVolumeHierarchy hierarchy, ChildBounds bounds, int[] layout, int[] counts) {
+      this.binaryBounds = hierarchy.getNodeBounds();
+      this.binaryLayout = hierarchy.getNodeLayout();
+      this.bounds = bounds;
+      this.layout = layout;
+      this.counts = counts;
+    }
+
+    /**
+     * Builds the wide node which replaces the given binary node and all of its descendants,
+     * returning the wide node's index. The binary node itself becomes the wide node's only child
+     * if it is a leaf, which only happens at the root.
+     */
+    int collapse(int binaryNode, int depth) {
+      maxDepth = Math.max(maxDepth, depth);
+      int node = numNodes++;
+      int[] children = new int[width];
+      int count = 0;
+      if (isLeaf(binaryNode)) {
+        children[count++] = binaryNode;
+      } else {
+        children[count++] = binaryNode + 1;
+        children[count++] = binaryLayout[binaryNode * LAYOUT_STRIDE];
+      }
+      while (count < width) {
+        int largest = -1;
+        for (int i = 0; i < count; i++) {
+          if (!isLeaf(children[i])
+              && (largest < 0 || surfaceArea(children[i]) > surfaceArea(children[largest]))) {
+            largest = i;
+          }
+        }
+        if (largest < 0) {
+          break;
+        }
+        int replaced = children[largest];
+        children[largest] = replaced + 1;
+        children[count++] = binaryLayout[replaced * LAYOUT_STRIDE];
+      }
+
+      counts[node] = count;
+      for (int i = 0; i < count; i++) {
+        int child = node * width + i;
+        bounds.set(child, binaryBounds, children[i] * BOUNDS_STRIDE);
+        if (isLeaf(children[i])) {
+          layout[child * LAYOUT_STRIDE] = binaryLayout[children[i] * LAYOUT_STRIDE];
+          layout[child * LAYOUT_STRIDE + 1] = binaryLayout[children[i] * LAYOUT_STRIDE + 1];
+        } else {
+          layout[child * LAYOUT_STRIDE] = collapse(children[i], depth + 1);
+          layout[child * LAYOUT_STRIDE + 1] = 0;
+        }
+      }
+      return node;
+    }
+
+    private boolean isLeaf(int binaryNode) {
+      return binaryLayout[binaryNode * LAYOUT_STRIDE + 1] > 0;
+    }
+
+    private double surfaceArea(int binaryNode) {
+      int offset = binaryNode * BOUNDS_STRIDE;
+      double x = binaryBounds[offset + 3] - binaryBounds[offset];
+      double y = binaryBounds[offset + 4] - binaryBounds[offset + 1];
+      double z = binaryBounds[offset + 5] - binaryBounds[offset + 2];
+      return 2 * (x * y + y * z + z * x);
+    }
+  }
+}
@@ -43,6 +43,12 @@ public final class Counters {
    */
   public static final AtomicLong NUM_BOUNDING_INTERSECTIONS = new AtomicLong();
 
+  /**
+   * Counter of total number of acceleration structure (octree or bounding volume hierarchy) nodes
+   * whose contents were examined by a ray, i.e. the traversal steps taken.
+   */
+  public static final AtomicLong NUM_ACCELERATION_NODE_VISITS = new AtomicLong();
+
   /**
    * Counter of total number of ray-triangle tests computed during the ray tracing algorithm.
    */
@@ -53,6 +59,18 @@ public final class Counters {
    */
   public static final AtomicLong NUM_TRIANGLE_INTERSECTIONS = new AtomicLong();
 
+  /**
+   * Counter of the number of mesh acceleration structures built, each on the first ray which
+   * reached its mesh unless built up front.
+   */
+  public static final AtomicLong NUM_ACCELERATION_STRUCTURES_BUILT = new AtomicLong();
+
+  /**
+   * Counter of the total time in nanoseconds spent building mesh acceleration structures, summed
+   * over every thread which built one.
+   */
+  public static final AtomicLong ACCELERATION_STRUCTURE_BUILD_NANOS = new AtomicLong();
+
   /**
    * Counter of the total number of polygons stored in the octree that overlap between cells.
    */
@@ -0,0 +1,20 @@
+package me.kahlil.config;
+
+/** The acceleration structures which a polygon mesh can use to find the triangles a ray hits. */
+public enum MeshAccelerationStructure {
+
+  /** Tests every triangle of the mesh. */
+  NONE,
+
+  /** An octree which splits cells at their centers. */
+  OCTREE,
+
+  /** A bounding volume hierarchy built with the surface area heuristic. */
+  BVH,
+
+  /**
+   * A {@link #BVH} collapsed into nodes of up to {@link Parameters#BVH_WIDTH} children, which are
+   * tested against a ray together.
+   */
+  WIDE_BVH
+}
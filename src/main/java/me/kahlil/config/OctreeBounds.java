@@ -0,0 +1,17 @@
+package me.kahlil.config;
+
+/** The bounding volume an {@link me.kahlil.octree.Octree} tests a ray against before descending into a node. */
+public enum OctreeBounds {
+
+  /** The axis-aligned box around the node's polygons, tested with a branchless slab test. */
+  AABB,
+
+  /** The tighter 7-plane {@link me.kahlil.geometry.Extents} around the node's polygons. */
+  EXTENTS,
+
+  /**
+   * The axis-aligned box first, then the extents only for rays which hit the box. The cheap box
+   * test rejects most misses, while the extents still reject rays passing near the box's corners.
+   */
+  AABB_THEN_EXTENTS
+}
@@ -21,11 +21,70 @@ public final class Parameters {
 //  public static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
   public static final int NUM_THREADS = 1;
 
+  // Width/height in pixels of the square tiles that worker threads render (and steal) as a unit.
+  public static final int TILE_SIZE = 16;
+
+  // Width/height in pixels of the square blocks whose primary rays are traced together as a packet,
+  // sharing each acceleration structure node they visit. At most 8, so that a packet's rays fit in
+  // the bits of a long. 1 traces every primary ray on its own.
+  public static final int RAY_PACKET_SIZE = 8;
+
+  // Number of pixels the WavefrontRenderer traces through each of its stages at a time. Bigger
+  // wavefronts keep more threads busy per stage but need more memory for the rays in flight.
+  public static final int WAVEFRONT_SIZE = 1 << 16;
+
+  // Number of consecutive shadow or reflection rays the WavefrontRenderer sorts into a coherent
+  // order (by direction octant, then by the Morton code of their starts) before tracing them.
+  // Bigger batches are more coherent but take longer to sort. 1 traces them in emission order.
+  // Set with -Dsecondary.ray.batch.size=<rays>.
+  public static final int SECONDARY_RAY_BATCH_SIZE =
+      Integer.getInteger("secondary.ray.batch.size", 1 << 12);
+
+  // Maximum number of shapes in a leaf of the scene's top-level bounding volume hierarchy.
+  public static final int BVH_MAX_SHAPES_PER_LEAF = 4;
+
   // Maximum number of shapes that can occur on a leaf.
   public static final int OCTREE_MAX_SHAPES_PER_LEAF = 50;
 
   // Maximum depth of the Octree.
   public static final int OCTREE_MAX_DEPTH = 10;
 
-  public static final boolean OCTREE_ENABLED = true;
+  // Bounding volume an Octree tests before descending into a node.
+  public static final OctreeBounds OCTREE_BOUNDS = OctreeBounds.EXTENTS;
+
+  // Maximum number of distinct PolygonSphere tessellations (resolution and normal mode) kept for
+  // reuse. The least recently used tessellation is evicted beyond this.
+  public static final int POLYGON_SPHERE_CACHE_SIZE = 16;
+
+  // Maximum number of triangles in a leaf of a mesh's bounding volume hierarchy.
+  public static final int BVH_MAX_TRIANGLES_PER_LEAF = 4;
+
+  // Whether meshes build their acceleration structures on the first ray which reaches them, rather
+  // than all up front (concurrently) before rendering starts. Lazy building skips the meshes no ray
+  // reaches.
+  public static final boolean LAZY_ACCELERATION_STRUCTURES = true;
+
+  // Directory in which mesh bounding volume hierarchies are cached between runs, or empty to always
+  // build them. Set with -Dbvh.cache.directory=<path>, e.g. for batch jobs which restart per shot.
+  public static final String BVH_CACHE_DIRECTORY = System.getProperty("bvh.cache.directory", "");
+
+  // Total size of the cached hierarchies beyond which the least recently used are evicted.
+  public static final long BVH_CACHE_MAX_BYTES = 4L << 30;
+
+  // Meshes with fewer triangles than this build their hierarchies faster than reading them back.
+  public static final int BVH_CACHE_MIN_PRIMITIVES = 1 << 14;
+
+  // Number of children of the nodes of WIDE_BVH mesh hierarchies, which are collapsed from binary
+  // hierarchies. Best set to a multiple of the number of doubles in a vector register.
+  public static final int BVH_WIDTH = 8;
+
+  // Whether the triangles in the leaves of mesh hierarchies, and the children of wide hierarchy
+  // nodes, are tested against a ray a group at a time with the incubating Vector API. Only takes
+  // effect when its module is added with --add-modules jdk.incubator.vector, and otherwise they
+  // are tested one at a time.
+  public static final boolean VECTOR_API_ENABLED = true;
+
+  // Acceleration structure used by meshes to find the triangles a ray hits.
+  public static final MeshAccelerationStructure MESH_ACCELERATION_STRUCTURE =
+      MeshAccelerationStructure.BVH;
 }
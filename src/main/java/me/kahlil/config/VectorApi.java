@@ -0,0 +1,40 @@
+package me.kahlil.config;
+
+import static me.kahlil.config.Parameters.VECTOR_API_ENABLED;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
+
+/**
+ * Chooses between implementations which use the incubating Vector API and their scalar fallbacks.
+ * The Vector API is only available when its module is added, e.g. with {@code --add-modules
+ * jdk.incubator.vector}, so the implementations which use it are only ever loaded reflectively:
+ * linking them fails without the module.
+ */
+public final class VectorApi {
+
+  private VectorApi() {}
+
+  /** Returns whether the Vector API is enabled in {@link Parameters} and its module is present. */
+  public static boolean isAvailable() {
+    return VECTOR_API_ENABLED && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+  }
+
+  /**
+   * Returns a new instance of the named class, which uses the Vector API and has a no-argument
+   * constructor, if the Vector API is available. Otherwise, returns the fallback's instance. The
+   * class and its constructor may be package-private.
+   */
+  public static <T> T loadOrElse(Class<T> type, String className, Supplier<T> fallback) {
+    if (isAvailable()) {
+      try {
+        Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return type.cast(constructor.newInstance());
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // Fall back to the scalar implementation below.
+      }
+    }
+    return fallback.get();
+  }
+}
@@ -0,0 +1,78 @@
+package me.kahlil.demos;
+
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
+import static me.kahlil.config.Counters.NUM_OCTREE_INTERNAL_INSERTIONS;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
+
+import java.util.Random;
+import me.kahlil.config.MeshAccelerationStructure;
+import me.kahlil.geometry.ConvexPolygon;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Vector;
+
+/**
+ * Traces the same random rays against a procedurally generated terrain mesh using each {@link
+ * MeshAccelerationStructure}, and reports the traversal steps, bounding volume tests and triangle
+ * tests per ray from the {@link me.kahlil.config.Counters}.
+ *
+ * <p>Usage: AccelerationStructureBenchmark [terrain grid size] [number of rays]
+ */
+public class AccelerationStructureBenchmark {
+
+  public static void main(String[] args) {
+    int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+    int numRays = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+    ConvexPolygon terrain = Meshes.createTerrain(gridSize);
+    System.out.printf("Terrain of %d triangles\n", terrain.getTriangles().length);
+    System.out.printf(
+        "%-8s %10s %12s %14s %14s %10s %10s\n",
+        "", "build ms", "trace ms", "nodes/ray", "bounds/ray", "tris/ray", "hits");
+
+    NUM_OCTREE_INTERNAL_INSERTIONS.set(0);
+    for (MeshAccelerationStructure type : MeshAccelerationStructure.values()) {
+      long buildStart = System.nanoTime();
+      ConvexPolygon polygon = terrain.withAccelerationStructure(type);
+      polygon.buildAccelerationStructure();
+      long buildNanos = System.nanoTime() - buildStart;
+
+      // Trace once to warm up, then again to measure.
+      traceRays(polygon, numRays);
+      NUM_ACCELERATION_NODE_VISITS.set(0);
+      NUM_BOUNDING_INTERSECTION_TESTS.set(0);
+      NUM_TRIANGLE_TESTS.set(0);
+      long traceStart = System.nanoTime();
+      int numHits = traceRays(polygon, numRays);
+      long traceNanos = System.nanoTime() - traceStart;
+
+      System.out.printf(
+          "%-8s %10.1f %12.1f %14.2f %14.2f %10.2f %10d\n",
+          type,
+          buildNanos / 1e6,
+          traceNanos / 1e6,
+          (double) NUM_ACCELERATION_NODE_VISITS.get() / numRays,
+          (double) NUM_BOUNDING_INTERSECTION_TESTS.get() / numRays,
+          (double) NUM_TRIANGLE_TESTS.get() / numRays,
+          numHits);
+    }
+    System.out.printf(
+        "%d triangles straddle octree cells and are stored in internal nodes\n",
+        NUM_OCTREE_INTERNAL_INSERTIONS.get());
+  }
+
+  /** Traces the same sequence of random rays down onto the terrain, returning how many hit. */
+  private static int traceRays(ConvexPolygon polygon, int numRays) {
+    Random random = new Random(7);
+    int numHits = 0;
+    for (int i = 0; i < numRays; i++) {
+      Vector start = new Vector(random.nextDouble() * 2 - 1, 2, random.nextDouble() * 2 - 1);
+      Vector direction =
+          new Vector(random.nextDouble() - 0.5, -1, random.nextDouble() - 0.5);
+      if (polygon.intersectWith(new Ray(start, direction)).isPresent()) {
+        numHits++;
+      }
+    }
+    return numHits;
+  }
+}
@@ -53,6 +53,47 @@ public class Demo {
 
     Raster raster = new Raster(IMAGE_SIZE, IMAGE_SIZE);
 
+    Scene scene = createScene();
+
+    Camera camera = STANDARD_CAMERA;
+
+    RayTracer rayTracer =
+        new SimpleAntiAliaser(
+            raster,
+            camera,
+            new ReflectiveRayTracer(
+                new PhongShading(scene, camera, SHADOWS_ENABLED), scene, raster, camera, MAX_RAY_DEPTH),
+            new RandomAntiAliasingMethod(NUM_ANTI_ALIASING_SAMPLES));
+    //    RayTracer rayTracer = new SimpleRayTracer(
+    ////        new NoShading(),
+    //        new PhongShading(scene, camera, false),
+    //        scene,
+    //        raster,
+    //        camera);
+    //    RayTracer rayTracer = new ReflectiveRayTracer(
+    //        new PhongShading(scene, camera, shadowsEnabled),
+    //        scene,
+    //        raster,
+    //        camera,
+    //        4);
+
+    RayTracerCoordinator rt = new RayTracerCoordinator(raster, camera, scene, rayTracer);
+
+    long start = System.currentTimeMillis();
+    Raster rendered = rt.render();
+    long end = System.currentTimeMillis();
+
+    System.out.println("Rendering took " + (end - start) + " ms");
+
+    start = System.currentTimeMillis();
+    paintToJpeg(IMAGES_DEMO_PNG_PATH, rendered);
+    //    paintToJFrame(rendered);
+    end = System.currentTimeMillis();
+    System.out.println("Painting took " + (end - start) + " ms");
+  }
+
+  /** Returns the scene rendered by this demo. */
+  public static Scene createScene() {
     ImmutableList<Shape> shapes =
         ImmutableList.of(
             PolygonSphere.withVertexNormals(glossy().setColor(GREEN).build(), 100).transform(translate(2, 0, -7)),
@@ -92,49 +133,12 @@ public class Demo {
                 .build());
 
     // Whole scene
-    Scene scene =
-        ImmutableScene.builder()
-            .setShapes(shapes)
-            .setLights(lights)
-            .setBackgroundColor(new MutableColor(.25f, .25f, .25f))
-            .setAmbient(new MutableColor((float) .15, (float) .15, (float) .15))
-            .build();
-
-    Camera camera = STANDARD_CAMERA;
-
-    RayTracer rayTracer =
-        new SimpleAntiAliaser(
-            raster,
-            camera,
-            new ReflectiveRayTracer(
-                new PhongShading(scene, camera, SHADOWS_ENABLED), scene, raster, camera, MAX_RAY_DEPTH),
-            new RandomAntiAliasingMethod(NUM_ANTI_ALIASING_SAMPLES));
-    //    RayTracer rayTracer = new SimpleRayTracer(
-    ////        new NoShading(),
-    //        new PhongShading(scene, camera, false),
-    //        scene,
-    //        raster,
-    //        camera);
-    //    RayTracer rayTracer = new ReflectiveRayTracer(
-    //        new PhongShading(scene, camera, shadowsEnabled),
-    //        scene,
-    //        raster,
-    //        camera,
-    //        4);
-
-    RayTracerCoordinator rt = new RayTracerCoordinator(raster, camera, scene, rayTracer);
-
-    long start = System.currentTimeMillis();
-    Raster rendered = rt.render();
-    long end = System.currentTimeMillis();
-
-    System.out.println("Rendering took " + (end - start) + " ms");
-
-    start = System.currentTimeMillis();
-    paintToJpeg(IMAGES_DEMO_PNG_PATH, rendered);
-    //    paintToJFrame(rendered);
-    end = System.currentTimeMillis();
-    System.out.println("Painting took " + (end - start) + " ms");
+    return ImmutableScene.builder()
+        .setShapes(shapes)
+        .setLights(lights)
+        .setBackgroundColor(new MutableColor(.25f, .25f, .25f))
+        .setAmbient(new MutableColor((float) .15, (float) .15, (float) .15))
+        .build();
   }
 
   private static void paintToJpeg(String fileName, Raster rendered) {
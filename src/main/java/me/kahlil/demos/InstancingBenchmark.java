@@ -0,0 +1,85 @@
+package me.kahlil.demos;
+
+import static me.kahlil.config.Parameters.BVH_MAX_SHAPES_PER_LEAF;
+import static me.kahlil.geometry.LinearTransformation.rotateAboutYAxis;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import me.kahlil.bvh.ShapeHierarchy;
+import me.kahlil.geometry.ConvexPolygon;
+import me.kahlil.geometry.Instance;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Shape;
+import me.kahlil.geometry.Vector;
+
+/**
+ * Scatters a forest of {@link Instance}s of one sphere mesh over a plane, and reports the memory
+ * per instance, how long the top-level hierarchy over them takes to build, and the time per ray.
+ *
+ * <p>Usage: InstancingBenchmark [number of instances] [number of rays]
+ */
+public class InstancingBenchmark {
+
+  public static void main(String[] args) {
+    int numInstances = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int numRays = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+    ConvexPolygon mesh = Meshes.createSphere(100);
+    mesh.buildAccelerationStructure();
+    System.out.printf("Mesh of %d triangles\n", mesh.getTriangles().length);
+
+    long memoryBefore = usedMemory();
+    Random random = new Random(11);
+    double size = Math.sqrt(numInstances) * 4;
+    ImmutableList.Builder<Shape> instances = ImmutableList.builder();
+    for (int i = 0; i < numInstances; i++) {
+      instances.add(
+          Instance.of(
+              mesh,
+              scale(0.5 + random.nextDouble())
+                  .then(rotateAboutYAxis(random.nextDouble() * 360))
+                  .then(translate(random.nextDouble() * size, 0, random.nextDouble() * size))));
+    }
+    ImmutableList<Shape> forest = instances.build();
+    long buildStart = System.nanoTime();
+    ShapeHierarchy hierarchy = new ShapeHierarchy(forest, BVH_MAX_SHAPES_PER_LEAF);
+    long buildNanos = System.nanoTime() - buildStart;
+    long memoryAfter = usedMemory();
+    System.out.printf(
+        "%d instances: %.0f bytes per instance including the hierarchy, built in %.0f ms\n",
+        forest.size(), (double) (memoryAfter - memoryBefore) / forest.size(), buildNanos / 1e6);
+
+    // Trace once to warm up, then again to measure.
+    traceRays(hierarchy, size, numRays);
+    long traceStart = System.nanoTime();
+    int numHits = traceRays(hierarchy, size, numRays);
+    long traceNanos = System.nanoTime() - traceStart;
+    System.out.printf(
+        "%d rays, %d hits: %.3f us/ray\n", numRays, numHits, traceNanos / 1e3 / numRays);
+  }
+
+  /** Traces rays down onto the forest from random points above it, returning how many hit. */
+  private static int traceRays(ShapeHierarchy hierarchy, double size, int numRays) {
+    Random random = new Random(5);
+    int numHits = 0;
+    for (int i = 0; i < numRays; i++) {
+      Vector start = new Vector(random.nextDouble() * size, 10, random.nextDouble() * size);
+      Ray ray =
+          new Ray(start, new Vector(random.nextDouble() - 0.5, -2, random.nextDouble() - 0.5));
+      if (hierarchy.intersectWith(ray).isPresent()) {
+        numHits++;
+      }
+    }
+    return numHits;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,87 @@
+package me.kahlil.demos;
+
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import java.util.Arrays;
+import me.kahlil.geometry.ConvexPolygon;
+import me.kahlil.geometry.Vector;
+
+/** Procedurally generated meshes shared by the benchmarks. */
+final class Meshes {
+
+  private Meshes() {}
+
+  /**
+   * Creates a gridSize x gridSize grid of quads spanning [-1, 1] in x and z, with heights from a
+   * few overlapping waves so that many triangles straddle the octree's cell boundaries.
+   */
+  static ConvexPolygon createTerrain(int gridSize) {
+    return createQuadGrid(createTerrainVertexes(gridSize), gridSize, false);
+  }
+
+  /**
+   * Returns the (gridSize + 1) x (gridSize + 1) vertexes of {@link #createTerrain}, row by row, for
+   * benchmarks which write the terrain to a file.
+   */
+  static Vector[] createTerrainVertexes(int gridSize) {
+    int numVertexesPerSide = gridSize + 1;
+    Vector[] vertexes = new Vector[numVertexesPerSide * numVertexesPerSide];
+    for (int i = 0; i < numVertexesPerSide; i++) {
+      for (int j = 0; j < numVertexesPerSide; j++) {
+        double x = 2.0 * j / gridSize - 1;
+        double z = 2.0 * i / gridSize - 1;
+        double y = 0.2 * Math.sin(5 * x) * Math.cos(4 * z) + 0.05 * Math.sin(17 * (x + z));
+        vertexes[i * numVertexesPerSide + j] = new Vector(x, y, z);
+      }
+    }
+    return vertexes;
+  }
+
+  /** Creates a UV sphere of radius 1 around the origin built from numDivisions^2 quads. */
+  static ConvexPolygon createSphere(int numDivisions) {
+    int numVertexesPerRing = numDivisions + 1;
+    Vector[] vertexes = new Vector[numVertexesPerRing * numVertexesPerRing];
+    for (int i = 0; i < numVertexesPerRing; i++) {
+      double theta = Math.PI * i / numDivisions;
+      for (int j = 0; j < numVertexesPerRing; j++) {
+        double phi = 2 * Math.PI * j / numDivisions;
+        vertexes[i * numVertexesPerRing + j] =
+            new Vector(
+                Math.sin(theta) * Math.cos(phi), Math.cos(theta), Math.sin(theta) * Math.sin(phi));
+      }
+    }
+    return createQuadGrid(vertexes, numDivisions, true);
+  }
+
+  /**
+   * Connects a (size + 1) x (size + 1) grid of vertexes, stored row by row, into size x size quads.
+   * The quads wind one way or the other depending on clockwise.
+   */
+  private static ConvexPolygon createQuadGrid(Vector[] vertexes, int size, boolean clockwise) {
+    int[] faces = new int[size * size];
+    Arrays.fill(faces, 4);
+    return ConvexPolygon.withSurfaceNormals(
+        DUMMY_MATERIAL, vertexes, faces, createQuadGridIndexes(size, clockwise));
+  }
+
+  /**
+   * Returns the vertex indexes of the quads connecting a (size + 1) x (size + 1) grid of vertexes,
+   * four per quad. The quads wind one way or the other depending on clockwise.
+   */
+  static int[] createQuadGridIndexes(int size, boolean clockwise) {
+    int numVertexesPerRow = size + 1;
+    int[] vertexIndexes = new int[size * size * 4];
+    int k = 0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        int topLeft = i * numVertexesPerRow + j;
+        int nextRow = topLeft + numVertexesPerRow;
+        vertexIndexes[k++] = topLeft;
+        vertexIndexes[k++] = clockwise ? topLeft + 1 : nextRow;
+        vertexIndexes[k++] = nextRow + 1;
+        vertexIndexes[k++] = clockwise ? nextRow : topLeft + 1;
+      }
+    }
+    return vertexIndexes;
+  }
+}
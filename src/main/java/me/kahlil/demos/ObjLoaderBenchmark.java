@@ -0,0 +1,68 @@
+package me.kahlil.demos;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.geometry.Vector;
+import me.kahlil.scene.ObjLoader;
+
+/**
+ * Writes a terrain mesh to a temporary OBJ file and reports how quickly {@link ObjLoader} loads
+ * it, in megabytes and triangles per second.
+ *
+ * <p>Usage: ObjLoaderBenchmark [terrain grid size] [number of loads]
+ */
+public class ObjLoaderBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int numLoads = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    Path path = Files.createTempFile("terrain", ".obj");
+    try {
+      writeTerrain(path, gridSize);
+      double megabytes = Files.size(path) / 1e6;
+      System.out.printf("Terrain OBJ of %.1f MB\n", megabytes);
+      for (int i = 0; i < numLoads; i++) {
+        long start = System.nanoTime();
+        TriangleMesh mesh = ObjLoader.load(path, DUMMY_MATERIAL);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(
+            "Loaded %d triangles in %.0f ms: %.1f MB/s, %.2f M triangles/s\n",
+            mesh.getNumTriangles(),
+            seconds * 1e3,
+            megabytes / seconds,
+            mesh.getNumTriangles() / seconds / 1e6);
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /** Writes the quads of {@link Meshes#createTerrain}, with normals pointing straight up. */
+  private static void writeTerrain(Path path, int gridSize) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, US_ASCII)) {
+      for (Vector vertex : Meshes.createTerrainVertexes(gridSize)) {
+        writer.write(
+            String.format(
+                Locale.ROOT, "v %.6f %.6f %.6f\n", vertex.getX(), vertex.getY(), vertex.getZ()));
+        writer.write(String.format(Locale.ROOT, "vn %.6f %.6f %.6f\n", 0.0, 1.0, 0.0));
+      }
+      int[] vertexIndexes = Meshes.createQuadGridIndexes(gridSize, false);
+      for (int i = 0; i < vertexIndexes.length; i += 4) {
+        writer.write("f");
+        for (int k = i; k < i + 4; k++) {
+          // OBJ indexes start at 1.
+          writer.write(String.format(" %d//%d", vertexIndexes[k] + 1, vertexIndexes[k] + 1));
+        }
+        writer.write("\n");
+      }
+    }
+  }
+}
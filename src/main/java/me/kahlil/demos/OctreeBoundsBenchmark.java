@@ -0,0 +1,85 @@
+package me.kahlil.demos;
+
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
+import static me.kahlil.config.Parameters.OCTREE_MAX_DEPTH;
+import static me.kahlil.config.Parameters.OCTREE_MAX_SHAPES_PER_LEAF;
+
+import java.util.Random;
+import me.kahlil.config.OctreeBounds;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Triangle;
+import me.kahlil.geometry.Vector;
+import me.kahlil.octree.Octree;
+
+/**
+ * Traces the same random rays against octrees over a terrain mesh and a sphere mesh using each
+ * {@link OctreeBounds}, and reports the bounding volume tests, bounding volume hits and time per
+ * ray.
+ *
+ * <p>Usage: OctreeBoundsBenchmark [number of rays]
+ */
+public class OctreeBoundsBenchmark {
+
+  public static void main(String[] args) {
+    int numRays = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+    run("Terrain", Meshes.createTerrain(100).getTriangles(), numRays, true);
+    run("Sphere", Meshes.createSphere(100).getTriangles(), numRays, false);
+  }
+
+  private static void run(String name, Triangle[] triangles, int numRays, boolean fromAbove) {
+    System.out.printf("%s of %d triangles\n", name, triangles.length);
+    System.out.printf(
+        "%-18s %12s %14s %14s %14s %10s\n",
+        "", "trace ms", "us/ray", "nodes/ray", "tests/ray", "hits/ray");
+    for (OctreeBounds bounds : OctreeBounds.values()) {
+      Octree octree =
+          new Octree(triangles, OCTREE_MAX_SHAPES_PER_LEAF, OCTREE_MAX_DEPTH, bounds);
+
+      // Trace once to warm up, then again to measure.
+      traceRays(octree, numRays, fromAbove);
+      NUM_ACCELERATION_NODE_VISITS.set(0);
+      NUM_BOUNDING_INTERSECTION_TESTS.set(0);
+      NUM_BOUNDING_INTERSECTIONS.set(0);
+      long traceStart = System.nanoTime();
+      traceRays(octree, numRays, fromAbove);
+      long traceNanos = System.nanoTime() - traceStart;
+
+      System.out.printf(
+          "%-18s %12.1f %14.3f %14.2f %14.2f %10.2f\n",
+          bounds,
+          traceNanos / 1e6,
+          traceNanos / 1e3 / numRays,
+          (double) NUM_ACCELERATION_NODE_VISITS.get() / numRays,
+          (double) NUM_BOUNDING_INTERSECTION_TESTS.get() / numRays,
+          (double) NUM_BOUNDING_INTERSECTIONS.get() / numRays);
+    }
+  }
+
+  /**
+   * Traces the same sequence of random rays, either down from above the mesh or from random points
+   * outside a unit sphere towards points near the origin, returning how many hit.
+   */
+  private static int traceRays(Octree octree, int numRays, boolean fromAbove) {
+    Random random = new Random(7);
+    int numHits = 0;
+    for (int i = 0; i < numRays; i++) {
+      Ray ray;
+      if (fromAbove) {
+        Vector start = new Vector(random.nextDouble() * 2 - 1, 2, random.nextDouble() * 2 - 1);
+        ray = new Ray(start, new Vector(random.nextDouble() - 0.5, -1, random.nextDouble() - 0.5));
+      } else {
+        Vector start = new Vector(random.nextDouble() * 6 - 3, random.nextDouble() * 6 - 3, 3);
+        Vector target =
+            new Vector(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, 0);
+        ray = new Ray(start, target.subtract(start));
+      }
+      if (octree.intersectWith(ray).isPresent()) {
+        numHits++;
+      }
+    }
+    return numHits;
+  }
+}
@@ -0,0 +1,86 @@
+package me.kahlil.demos;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.geometry.Vector;
+import me.kahlil.scene.PlyLoader;
+
+/**
+ * Writes a terrain mesh to a temporary binary PLY file and reports how quickly {@link PlyLoader}
+ * loads it, with and without its vertex normals.
+ *
+ * <p>Usage: PlyLoaderBenchmark [terrain grid size] [number of loads]
+ */
+public class PlyLoaderBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int numLoads = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    Path path = Files.createTempFile("terrain", ".ply");
+    try {
+      writeTerrain(path, gridSize);
+      double megabytes = Files.size(path) / 1e6;
+      System.out.printf("Terrain PLY of %.1f MB\n", megabytes);
+      for (boolean loadNormals : new boolean[] {true, false}) {
+        for (int i = 0; i < numLoads; i++) {
+          long start = System.nanoTime();
+          TriangleMesh mesh = PlyLoader.load(path, DUMMY_MATERIAL, loadNormals);
+          double seconds = (System.nanoTime() - start) / 1e9;
+          System.out.printf(
+              "Loaded %d triangles %s normals in %.0f ms: %.1f MB/s, %.2f M triangles/s\n",
+              mesh.getNumTriangles(),
+              loadNormals ? "with" : "without",
+              seconds * 1e3,
+              megabytes / seconds,
+              mesh.getNumTriangles() / seconds / 1e6);
+        }
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Writes the quads of {@link Meshes#createTerrain}, with normals pointing straight up, in big
+   * endian since that is what {@link DataOutputStream} writes.
+   */
+  private static void writeTerrain(Path path, int gridSize) throws IOException {
+    Vector[] vertexes = Meshes.createTerrainVertexes(gridSize);
+    int[] vertexIndexes = Meshes.createQuadGridIndexes(gridSize, false);
+    String header =
+        "ply\n"
+            + "format binary_big_endian 1.0\n"
+            + "element vertex " + vertexes.length + "\n"
+            + "property float x\nproperty float y\nproperty float z\n"
+            + "property float nx\nproperty float ny\nproperty float nz\n"
+            + "element face " + vertexIndexes.length / 4 + "\n"
+            + "property list uchar int vertex_indices\n"
+            + "end_header\n";
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      output.write(header.getBytes(US_ASCII));
+      for (Vector vertex : vertexes) {
+        output.writeFloat((float) vertex.getX());
+        output.writeFloat((float) vertex.getY());
+        output.writeFloat((float) vertex.getZ());
+        output.writeFloat(0);
+        output.writeFloat(1);
+        output.writeFloat(0);
+      }
+      for (int i = 0; i < vertexIndexes.length; i += 4) {
+        output.writeByte(4);
+        for (int k = i; k < i + 4; k++) {
+          output.writeInt(vertexIndexes[k]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package me.kahlil.demos;
+
+import static me.kahlil.config.Parameters.MAX_RAY_DEPTH;
+import static me.kahlil.config.Parameters.SHADOWS_ENABLED;
+import static me.kahlil.scene.Cameras.STANDARD_CAMERA;
+
+import java.util.concurrent.ExecutionException;
+import me.kahlil.graphics.PhongShading;
+import me.kahlil.graphics.RayTracer;
+import me.kahlil.graphics.RayTracerCoordinator;
+import me.kahlil.graphics.ReflectiveRayTracer;
+import me.kahlil.graphics.WavefrontRenderer;
+import me.kahlil.scene.Camera;
+import me.kahlil.scene.Raster;
+import me.kahlil.scene.Scene;
+
+/**
+ * Renders the {@link Demo} scene several times and reports the time per frame, for comparing the
+ * performance of changes to the renderer.
+ *
+ * <p>Usage: RenderBenchmark [image size] [number of warmup frames] [number of measured frames]
+ * [max ray depth] [recursive|wavefront]
+ *
+ * <p>The wavefront renderer sorts its secondary rays in batches of -Dsecondary.ray.batch.size rays.
+ */
+public class RenderBenchmark {
+
+  public static void main(String[] args) throws InterruptedException, ExecutionException {
+    int imageSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int numWarmupFrames = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    int numMeasuredFrames = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    int maxRayDepth = args.length > 3 ? Integer.parseInt(args[3]) : MAX_RAY_DEPTH;
+    boolean isWavefront = args.length > 4 && args[4].equals("wavefront");
+
+    Scene scene = Demo.createScene();
+    Camera camera = STANDARD_CAMERA;
+
+    for (int i = 0; i < numWarmupFrames; i++) {
+      renderFrame(scene, camera, imageSize, maxRayDepth, isWavefront);
+    }
+
+    long totalNanos = 0;
+    for (int i = 0; i < numMeasuredFrames; i++) {
+      totalNanos += renderFrame(scene, camera, imageSize, maxRayDepth, isWavefront);
+    }
+
+    System.out.printf(
+        "Rendered %d frames of %dx%d in %.1f ms per frame\n",
+        numMeasuredFrames, imageSize, imageSize, totalNanos / 1e6 / numMeasuredFrames);
+  }
+
+  /** Renders a single frame and returns how many nanoseconds it took. */
+  private static long renderFrame(
+      Scene scene, Camera camera, int imageSize, int maxRayDepth, boolean isWavefront)
+      throws InterruptedException, ExecutionException {
+    Raster raster = new Raster(imageSize, imageSize);
+    PhongShading shading = new PhongShading(scene, camera, SHADOWS_ENABLED);
+    long start = System.nanoTime();
+    if (isWavefront) {
+      new WavefrontRenderer(raster, camera, scene, shading, maxRayDepth).render();
+    } else {
+      RayTracer rayTracer = new ReflectiveRayTracer(shading, scene, raster, camera, maxRayDepth);
+      new RayTracerCoordinator(raster, camera, scene, rayTracer).render();
+    }
+    return System.nanoTime() - start;
+  }
+}
@@ -4,6 +4,8 @@ import static java.lang.Double.NEGATIVE_INFINITY;
 import static java.lang.Double.POSITIVE_INFINITY;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
 
 /**
  * Intersection borrowed from:
@@ -19,6 +21,52 @@ public final class BoundingBox implements BoundingVolume {
     this.maxBound = maxBound;
   }
 
+  public Vector getMinBound() {
+    return minBound;
+  }
+
+  public Vector getMaxBound() {
+    return maxBound;
+  }
+
+  /** Returns the smallest {@link BoundingBox} containing both this box and the other box. */
+  public BoundingBox union(BoundingBox other) {
+    return new BoundingBox(
+        new Vector(
+            min(minBound.getX(), other.minBound.getX()),
+            min(minBound.getY(), other.minBound.getY()),
+            min(minBound.getZ(), other.minBound.getZ())),
+        new Vector(
+            max(maxBound.getX(), other.maxBound.getX()),
+            max(maxBound.getY(), other.maxBound.getY()),
+            max(maxBound.getZ(), other.maxBound.getZ())));
+  }
+
+  /**
+   * Returns the smallest axis-aligned {@link BoundingBox} containing this box after the given
+   * transformation is applied to it (i.e. the box around all 8 transformed corners).
+   */
+  public BoundingBox transform(LinearTransformation transformation) {
+    double[] minXyz = {POSITIVE_INFINITY, POSITIVE_INFINITY, POSITIVE_INFINITY};
+    double[] maxXyz = {NEGATIVE_INFINITY, NEGATIVE_INFINITY, NEGATIVE_INFINITY};
+    for (int corner = 0; corner < 8; corner++) {
+      // A w component of 1 marks this as a point, so that translations apply to it.
+      Vector transformed =
+          transformation.apply(
+              new Vector(
+                  (corner & 4) == 0 ? minBound.getX() : maxBound.getX(),
+                  (corner & 2) == 0 ? minBound.getY() : maxBound.getY(),
+                  (corner & 1) == 0 ? minBound.getZ() : maxBound.getZ(),
+                  1));
+      for (int i = 0; i < 3; i++) {
+        minXyz[i] = min(minXyz[i], transformed.getComponent(i));
+        maxXyz[i] = max(maxXyz[i], transformed.getComponent(i));
+      }
+    }
+    return new BoundingBox(
+        new Vector(minXyz[0], minXyz[1], minXyz[2]), new Vector(maxXyz[0], maxXyz[1], maxXyz[2]));
+  }
+
   @Override
   public double intersectWithBoundingVolume(Ray ray) {
     double tmin = NEGATIVE_INFINITY, tmax = POSITIVE_INFINITY;
@@ -35,4 +83,47 @@ public final class BoundingBox implements BoundingVolume {
     }
     return tmin;
   }
+
+  /**
+   * Slab test of the ray against a box stored in the array at the given offset as min (x, y, z)
+   * followed by max (x, y, z), clipped to the interval [0, maxTime). Returns the time the ray
+   * enters the box (0 if it starts inside), or -1 if it misses the interval.
+   *
+   * <p>Comparisons are written so that the NaNs produced by rays parallel to a slab and starting
+   * exactly on its boundary are ignored rather than propagated. See:
+   * https://tavianator.com/fast-branchless-raybounding-box-intersections-part-2-nans/
+   */
+  public static double intersectWithBoundingVolume(
+      Ray ray, double[] bounds, int offset, double maxTime) {
+    NUM_BOUNDING_INTERSECTION_TESTS.getAndIncrement();
+    double timeNear = 0;
+    double timeFar = maxTime;
+    for (int axis = 0; axis < 3; axis++) {
+      double start = ray.getStart().getComponent(axis);
+      double inverseDirection = ray.getInvertedDirection().getComponent(axis);
+      double t1 = (bounds[offset + axis] - start) * inverseDirection;
+      double t2 = (bounds[offset + 3 + axis] - start) * inverseDirection;
+      if (t1 > t2) {
+        double swap = t1;
+        t1 = t2;
+        t2 = swap;
+      }
+      if (t1 > timeNear) {
+        timeNear = t1;
+      }
+      if (t2 < timeFar) {
+        timeFar = t2;
+      }
+    }
+    if (timeNear > timeFar || timeNear >= maxTime) {
+      return -1;
+    }
+    NUM_BOUNDING_INTERSECTIONS.getAndIncrement();
+    return timeNear;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("BoundingBox[%s, %s]", minBound, maxBound);
+  }
 }
@@ -1,13 +1,21 @@
 package me.kahlil.geometry;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.POSITIVE_INFINITY;
 import static me.kahlil.config.Counters.NUM_TRIANGLES;
-import static me.kahlil.config.Parameters.OCTREE_ENABLED;
+import static me.kahlil.config.Parameters.BVH_MAX_TRIANGLES_PER_LEAF;
+import static me.kahlil.config.Parameters.BVH_WIDTH;
+import static me.kahlil.config.Parameters.MESH_ACCELERATION_STRUCTURE;
+import static me.kahlil.config.Parameters.OCTREE_BOUNDS;
 import static me.kahlil.config.Parameters.OCTREE_MAX_DEPTH;
 import static me.kahlil.config.Parameters.OCTREE_MAX_SHAPES_PER_LEAF;
 
 import java.util.Arrays;
 import java.util.Optional;
+import me.kahlil.bvh.BvhCache;
+import me.kahlil.bvh.SplitStrategy;
+import me.kahlil.bvh.WideBoundingVolumeHierarchy;
+import me.kahlil.config.MeshAccelerationStructure;
 import me.kahlil.octree.BoundsHelper;
 import me.kahlil.octree.Octree;
 import me.kahlil.scene.Material;
@@ -16,7 +24,10 @@ import me.kahlil.scene.Material;
 public class ConvexPolygon extends Shape implements Polygon {
 
   private final Triangle[] triangles;
-  private final Octree<Triangle> octree;
+  // Built on the first ray which reaches the bounds, or by buildAccelerationStructure(), and shared
+  // by transformed copies. Holds null when the acceleration structure type is NONE, in which case
+  // every triangle is tested.
+  private final LazyAccelerationStructure accelerationStructure;
 
   // Min/max (x, y, z) that the ConvexPolygon occupies for forming a bounding volume.
   private final Vector minBound;
@@ -44,8 +55,15 @@ public class ConvexPolygon extends Shape implements Polygon {
     this.minBound = minMaxBounds[0];
     this.maxBound = minMaxBounds[1];
 
-    this.octree =
-        new Octree(getTriangles(), OCTREE_MAX_SHAPES_PER_LEAF, OCTREE_MAX_DEPTH);
+    this.accelerationStructure = lazyAccelerationStructure(MESH_ACCELERATION_STRUCTURE);
+  }
+
+  private ConvexPolygon(ConvexPolygon polygon, MeshAccelerationStructure type) {
+    this.triangles = polygon.triangles;
+    this.minBound = polygon.minBound;
+    this.maxBound = polygon.maxBound;
+    this.accelerationStructure = lazyAccelerationStructure(type);
+    setTransformation(polygon.getTransformation());
   }
 
   public static ConvexPolygon withSurfaceNormals(
@@ -91,12 +109,57 @@ public class ConvexPolygon extends Shape implements Polygon {
         });
   }
 
+  /**
+   * Returns a copy of this polygon which uses the given type of acceleration structure, rather
+   * than the one configured in {@link me.kahlil.config.Parameters}.
+   */
+  public ConvexPolygon withAccelerationStructure(MeshAccelerationStructure type) {
+    return new ConvexPolygon(this, type);
+  }
+
+  @Override
+  public void buildAccelerationStructure() {
+    accelerationStructure.get();
+  }
+
+  private LazyAccelerationStructure lazyAccelerationStructure(MeshAccelerationStructure type) {
+    return new LazyAccelerationStructure(
+        minBound, maxBound, () -> buildAccelerationStructure(triangles, type));
+  }
+
+  private static Intersectable buildAccelerationStructure(
+      Triangle[] triangles, MeshAccelerationStructure type) {
+    switch (type) {
+      case OCTREE:
+        return new Octree(
+            triangles, OCTREE_MAX_SHAPES_PER_LEAF, OCTREE_MAX_DEPTH, OCTREE_BOUNDS);
+      case BVH:
+        return BvhCache.buildHierarchy(
+            new TrianglePrimitives(triangles),
+            BVH_MAX_TRIANGLES_PER_LEAF,
+            SplitStrategy.SURFACE_AREA);
+      case WIDE_BVH:
+        return new WideBoundingVolumeHierarchy(
+            BvhCache.buildHierarchy(
+                new TrianglePrimitives(triangles),
+                BVH_MAX_TRIANGLES_PER_LEAF,
+                SplitStrategy.SURFACE_AREA),
+            BVH_WIDTH);
+      default:
+        return null;
+    }
+  }
+
   @Override
   Optional<RayHit> internalIntersectInObjectSpace(Ray ray) {
     double minTime = Integer.MAX_VALUE;
     Optional<RayHit> closestHit = Optional.empty();
-    if (OCTREE_ENABLED) {
-      return octree.intersectWith(ray);
+    if (!accelerationStructure.isReachedBy(ray, POSITIVE_INFINITY)) {
+      return closestHit;
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      return structure.intersectWith(ray);
     }
     for (Triangle triangle : triangles) {
       Optional<RayHit> rayHit = triangle.intersectInObjectSpace(ray);
@@ -111,6 +174,37 @@ public class ConvexPolygon extends Shape implements Polygon {
     return closestHit;
   }
 
+  @Override
+  void internalIntersectInObjectSpace(RayPacket packet, long activeRays) {
+    long reachedRays = accelerationStructure.reachedBy(packet, activeRays);
+    if (reachedRays == 0) {
+      return;
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      structure.intersectWith(packet, reachedRays);
+    } else {
+      super.internalIntersectInObjectSpace(packet, reachedRays);
+    }
+  }
+
+  @Override
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    if (!accelerationStructure.isReachedBy(ray, maxTime)) {
+      return false;
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      return structure.intersectsWithin(ray, maxTime);
+    }
+    for (Triangle triangle : triangles) {
+      if (triangle.intersectsInObjectSpaceWithin(ray, maxTime)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public Triangle[] getTriangles() {
     return this.triangles;
@@ -126,6 +220,11 @@ public class ConvexPolygon extends Shape implements Polygon {
     return maxBound;
   }
 
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return Optional.of(new BoundingBox(minBound, maxBound));
+  }
+
   /**
    * Converts the given set of vertices into triangles using the simple algorithm described at:
    * https://www.scratchapixel.com/lessons/3d-basic-rendering/ray-tracing-polygon-mesh/polygon-to-triangle-mesh
@@ -22,6 +22,9 @@ import java.util.Optional;
  */
 public class Extents implements BoundingVolume, Intersectable {
 
+  /** Number of planes bounding every {@link Extents}. */
+  public static final int NUM_PLANES = 7;
+
   private static final Extents EMPTY = new Extents(new double[] {}, new double[] {});
 
   private static final double A = sqrt(3) / 3;
@@ -49,8 +52,12 @@ public class Extents implements BoundingVolume, Intersectable {
   }
 
   public static Extents fromTriangles(Triangle[] triangles) {
-    double[][] dNearAndDFar = computeDNearAndDFar(triangles);
-    return new Extents(triangles, dNearAndDFar[0], dNearAndDFar[1]);
+    Builder builder = new Builder();
+    for (Triangle triangle : triangles) {
+      builder.addTriangle(triangle);
+    }
+    Extents extents = builder.build();
+    return new Extents(triangles, extents.dNear, extents.dFar);
   }
 
   public static Extents empty() {
@@ -82,25 +89,54 @@ public class Extents implements BoundingVolume, Intersectable {
   }
 
   /**
-   * Returns whether or not the ray intersects the bounding volume, and with a {@link RayHit}
-   * describing the intersection with the original bounded shape.
+   * Returns whether or not any triangle captured within this extent intersects the ray less than
+   * maxDistance along it.
+   *
+   * <p>This should not be called for union'd extents.
+   */
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    for (Triangle triangle : triangles) {
+      if (triangle.intersectsInObjectSpaceWithin(ray, maxDistance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the time at which the ray enters the bounding volume, 0 if the ray starts inside of
+   * it, or -1 if the ray misses it entirely.
    */
   @Override
   public double intersectWithBoundingVolume(Ray ray) {
+    return intersectWithBoundingVolume(new RayContext().setRay(ray), dNear, 0, dFar, 0);
+  }
+
+  /**
+   * Performs the same test as {@link #intersectWithBoundingVolume(Ray)} for the context's ray
+   * against extents which were written into the array at the given offset by {@link #writeTo}.
+   */
+  public static double intersectWithBoundingVolume(
+      RayContext context, double[] planes, int offset) {
+    return intersectWithBoundingVolume(context, planes, offset, planes, offset + NUM_PLANES);
+  }
+
+  private static double intersectWithBoundingVolume(
+      RayContext context, double[] dNear, int nearOffset, double[] dFar, int farOffset) {
     NUM_BOUNDING_INTERSECTION_TESTS.getAndIncrement();
     double timeNearMax = NEGATIVE_INFINITY;
     double timeFarMin = POSITIVE_INFINITY;
-    for (int i = 0; i < PLANE_SET_NORMALS.length; i++) {
-      double numerator = PLANE_SET_NORMALS[i].dot(ray.getStart());
-      double denominator = PLANE_SET_NORMALS[i].dot(ray.getDirection());
-
+    for (int i = 0; i < NUM_PLANES; i++) {
       // Ray and plane are parallel, so we say they don't intersect.
-      if (Math.abs(denominator) < EPSILON) {
+      if (context.isParallel[i]) {
         continue;
       }
+      double numerator = context.numerators[i];
+      double inverseDenominator = context.inverseDenominators[i];
 
-      double timeNear = (dNear[i] - numerator) / denominator;
-      double timeFar = (dFar[i] - numerator) / denominator;
+      double timeNear = (dNear[nearOffset + i] - numerator) * inverseDenominator;
+      double timeFar = (dFar[farOffset + i] - numerator) * inverseDenominator;
 
       double actualTimeNear = min(timeNear, timeFar);
       timeFarMin = min(timeFarMin, max(timeNear, timeFar));
@@ -112,8 +148,13 @@ public class Extents implements BoundingVolume, Intersectable {
         return -1;
       }
     }
+    // The bounding volume is entirely behind the ray.
+    if (timeFarMin < 0) {
+      return -1;
+    }
     NUM_BOUNDING_INTERSECTIONS.getAndIncrement();
-    return timeNearMax;
+    // Rays starting inside of the bounding volume enter it immediately.
+    return max(timeNearMax, 0);
   }
 
   /** Returns an {@link Extents} bounding the union of the two volumes. */
@@ -133,6 +174,27 @@ public class Extents implements BoundingVolume, Intersectable {
     return new Extents(dNear, dFar);
   }
 
+  /**
+   * Writes the d-near values of the extents followed by the d-far values into the array at the
+   * given offset, taking up 2 * {@link #NUM_PLANES} entries. Must not be called on empty extents.
+   */
+  public void writeTo(double[] planes, int offset) {
+    checkState(!isEmpty(), "Empty extents have no planes to write.");
+    System.arraycopy(dNear, 0, planes, offset, NUM_PLANES);
+    System.arraycopy(dFar, 0, planes, offset + NUM_PLANES, NUM_PLANES);
+  }
+
+  /**
+   * Writes the axis-aligned box enclosing the extents into the array at the given offset, as min
+   * (x, y, z) followed by max (x, y, z). The first three plane-set normals are the axes, so this is
+   * exact rather than an approximation. Must not be called on empty extents.
+   */
+  public void writeBoxTo(double[] box, int offset) {
+    checkState(!isEmpty(), "Empty extents have no box to write.");
+    System.arraycopy(dNear, 0, box, offset, 3);
+    System.arraycopy(dFar, 0, box, offset + 3, 3);
+  }
+
   /** Returns if this an empty {@link Extents}. */
   public boolean isEmpty() {
     return dNear.length == 0 || dFar.length == 0;
@@ -159,30 +221,76 @@ public class Extents implements BoundingVolume, Intersectable {
   }
 
   /**
-   * Returns the d-near and d-far computation necessary to represent the extents. The first element
-   * in the returned array is d-near and the second is d-far.
+   * Accumulates the extents of a set of points one at a time, so that extents can be computed from
+   * vertexes stored in any layout (e.g. the flat arrays of a {@link TriangleMesh}).
    */
-  private static double[][] computeDNearAndDFar(Triangle[] triangles) {
-    double[] dNear = new double[PLANE_SET_NORMALS.length];
-    Arrays.fill(dNear, POSITIVE_INFINITY);
-    double[] dFar = new double[PLANE_SET_NORMALS.length];
-    Arrays.fill(dFar, NEGATIVE_INFINITY);
+  public static final class Builder {
 
-    for (int i = 0; i < PLANE_SET_NORMALS.length; i++) {
-      Vector planeNormal = PLANE_SET_NORMALS[i];
-      for (Triangle triangle : triangles) {
-        for (Vector vertex : triangle.getVertexes()) {
-          double d = vertex.dot(planeNormal);
-          if (d < dNear[i]) {
-            dNear[i] = d;
-          }
-          if (d > dFar[i]) {
-            dFar[i] = d;
-          }
+    private final double[] dNear = new double[NUM_PLANES];
+    private final double[] dFar = new double[NUM_PLANES];
+    private boolean isEmpty = true;
+
+    public Builder() {
+      Arrays.fill(dNear, POSITIVE_INFINITY);
+      Arrays.fill(dFar, NEGATIVE_INFINITY);
+    }
+
+    /** Grows the extents to include the given point. */
+    public Builder addPoint(double x, double y, double z) {
+      isEmpty = false;
+      for (int i = 0; i < NUM_PLANES; i++) {
+        Vector planeNormal = PLANE_SET_NORMALS[i];
+        double d = x * planeNormal.getX() + y * planeNormal.getY() + z * planeNormal.getZ();
+        if (d < dNear[i]) {
+          dNear[i] = d;
         }
+        if (d > dFar[i]) {
+          dFar[i] = d;
+        }
+      }
+      return this;
+    }
+
+    /** Grows the extents to include every vertex of the triangle. */
+    public Builder addTriangle(Triangle triangle) {
+      for (Vector vertex : triangle.getVertexes()) {
+        addPoint(vertex.getX(), vertex.getY(), vertex.getZ());
       }
+      return this;
+    }
+
+    /** Returns the extents of every point added so far, or empty extents if there are none. */
+    public Extents build() {
+      return isEmpty ? EMPTY : new Extents(dNear.clone(), dFar.clone());
+    }
+  }
+
+  /**
+   * The projections of a ray onto the plane-set normals, which only depend on the ray. Testing many
+   * extents against the same ray (e.g. while traversing an octree) through one context saves
+   * recomputing them, and the divisions, for every test.
+   *
+   * <p>A context is mutable so that traversals can reuse one rather than allocating one per ray.
+   */
+  public static final class RayContext {
+
+    // Dot products of each plane normal with the ray's start.
+    private final double[] numerators = new double[NUM_PLANES];
+    // Reciprocals of the dot products of each plane normal with the ray's direction.
+    private final double[] inverseDenominators = new double[NUM_PLANES];
+    // Whether or not the ray is parallel to each pair of planes.
+    private final boolean[] isParallel = new boolean[NUM_PLANES];
+
+    /** Projects the given ray onto the plane normals, replacing any previous ray. */
+    public RayContext setRay(Ray ray) {
+      for (int i = 0; i < NUM_PLANES; i++) {
+        numerators[i] = PLANE_SET_NORMALS[i].dot(ray.getStart());
+        double denominator = PLANE_SET_NORMALS[i].dot(ray.getDirection());
+        isParallel[i] = Math.abs(denominator) < EPSILON;
+        inverseDenominators[i] = 1 / denominator;
+      }
+      return this;
     }
-    return new double[][] {dNear, dFar};
   }
 
   @Override
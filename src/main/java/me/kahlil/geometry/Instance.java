@@ -0,0 +1,65 @@
+package me.kahlil.geometry;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Optional;
+
+/**
+ * A transformed instance of a shared prototype shape, typically a mesh.
+ *
+ * <p>An instance holds nothing but a reference to its prototype and its own transformation, so any
+ * number of instances cost the memory of one prototype, including its acceleration structure which
+ * is built once for all of them. Rays are transformed into the prototype's space and intersected
+ * with it there, and placing instances by their world bounds in a {@link
+ * me.kahlil.bvh.ShapeHierarchy} makes up the top level of a two-level acceleration structure.
+ */
+public final class Instance extends Shape {
+
+  private final Shape prototype;
+
+  private Instance(Shape prototype) {
+    this.prototype = prototype;
+  }
+
+  /**
+   * Returns an instance of the given prototype with the given transformation applied on top of any
+   * transformation of the prototype itself.
+   */
+  public static Instance of(Shape prototype, LinearTransformation transformation) {
+    checkArgument(
+        prototype.getWorldBounds().isPresent(),
+        "Only bounded shapes can be instanced, but found %s.",
+        prototype);
+    return new Instance(prototype).transform(transformation);
+  }
+
+  /** Returns the shape shared by every instance of it. */
+  public Shape getPrototype() {
+    return prototype;
+  }
+
+  @Override
+  Optional<RayHit> internalIntersectInObjectSpace(Ray ray) {
+    return prototype.intersectWith(ray);
+  }
+
+  @Override
+  void internalIntersectInObjectSpace(RayPacket packet, long activeRays) {
+    prototype.intersectWith(packet, activeRays);
+  }
+
+  @Override
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    return prototype.intersectsWithin(ray, maxTime);
+  }
+
+  @Override
+  public void buildAccelerationStructure() {
+    prototype.buildAccelerationStructure();
+  }
+
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return prototype.getWorldBounds();
+  }
+}
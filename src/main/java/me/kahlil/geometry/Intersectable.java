@@ -10,4 +10,33 @@ public interface Intersectable {
    * Optional#empty otherwise}.
    */
   Optional<RayHit> intersectWith(Ray ray);
+
+  /**
+   * Returns whether or not the ray intersects this object less than maxDistance along the ray.
+   *
+   * <p>Unlike {@link #intersectWith}, this need not find the closest intersection, so
+   * implementations should stop as soon as they find any intersection within range (e.g. for
+   * shadow rays, where one blocker is enough).
+   */
+  default boolean intersectsWithin(Ray ray, double maxDistance) {
+    Optional<RayHit> rayHit = intersectWith(ray);
+    return rayHit.isPresent() && rayHit.get().getTime() < maxDistance;
+  }
+
+  /**
+   * Intersects each active ray of the packet with this object, recording any hit which is closer
+   * than the ray's closest hit so far in the packet.
+   *
+   * <p>By default the rays are intersected one at a time. Objects which can share work between
+   * coherent rays, e.g. acceleration structures, should override this.
+   */
+  default void intersectWith(RayPacket packet, long activeRays) {
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      Optional<RayHit> rayHit = intersectWith(packet.getRay(i));
+      if (rayHit.isPresent()) {
+        packet.recordHit(i, rayHit.get());
+      }
+    }
+  }
 }
@@ -0,0 +1,83 @@
+package me.kahlil.geometry;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+import static me.kahlil.config.Counters.ACCELERATION_STRUCTURE_BUILD_NANOS;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_STRUCTURES_BUILT;
+
+import java.util.function.Supplier;
+
+/**
+ * A mesh's acceleration structure, built on the first ray which reaches the mesh's bounds (or by
+ * {@link #get()}), so meshes which no ray reaches, e.g. because they are off-screen, never pay for
+ * theirs. It is built once however many threads reach it at a time, and the time spent building
+ * it is recorded in the render statistics.
+ *
+ * <p>The structure may be null, for meshes which test every triangle instead.
+ */
+final class LazyAccelerationStructure {
+
+  // The mesh's object space bounds as min (x, y, z) followed by max (x, y, z), tested by rays
+  // until the structure is built. After that, the structure's own root test makes this redundant,
+  // unless there is no structure, in which case rays keep being tested against the bounds.
+  private final double[] bounds;
+  private Supplier<Intersectable> builder;
+  private Intersectable structure;
+  // Written after structure, so reading true guarantees that structure is visible.
+  private volatile boolean built;
+
+  LazyAccelerationStructure(Vector minBound, Vector maxBound, Supplier<Intersectable> builder) {
+    this.bounds =
+        new double[] {
+          minBound.getX(), minBound.getY(), minBound.getZ(),
+          maxBound.getX(), maxBound.getY(), maxBound.getZ()
+        };
+    this.builder = builder;
+  }
+
+  /**
+   * Returns whether the given object space ray may hit the mesh before maxTime, and so whether it
+   * should be traced through the structure. Until the structure is built, or always if there is
+   * none, this is false for rays which miss the mesh's bounds.
+   */
+  boolean isReachedBy(Ray ray, double maxTime) {
+    return hasStructure() || BoundingBox.intersectWithBoundingVolume(ray, bounds, 0, maxTime) >= 0;
+  }
+
+  /** Returns the active rays of the object space packet for which {@link #isReachedBy} holds. */
+  long reachedBy(RayPacket packet, long activeRays) {
+    if (hasStructure()) {
+      return activeRays;
+    }
+    long reached = 0;
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      if (BoundingBox.intersectWithBoundingVolume(
+              packet.getRay(i), bounds, 0, POSITIVE_INFINITY) >= 0) {
+        reached |= 1L << i;
+      }
+    }
+    return reached;
+  }
+
+  /** Returns whether the structure has been built and is not null. */
+  private boolean hasStructure() {
+    return built && structure != null;
+  }
+
+  /** Returns the structure, building it first if it has not been built yet. */
+  Intersectable get() {
+    if (!built) {
+      synchronized (this) {
+        if (!built) {
+          long start = System.nanoTime();
+          structure = builder.get();
+          ACCELERATION_STRUCTURE_BUILD_NANOS.getAndAdd(System.nanoTime() - start);
+          NUM_ACCELERATION_STRUCTURES_BUILT.getAndIncrement();
+          builder = null;
+          built = true;
+        }
+      }
+    }
+    return structure;
+  }
+}
@@ -1,25 +1,52 @@
 package me.kahlil.geometry;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.abs;
 import static java.lang.Math.cos;
 import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
 import static java.lang.Math.toRadians;
 
 import java.util.Objects;
 import java.util.function.UnaryOperator;
 
-/** Representation of a given linear transformation (i.e. translate, scale, rotate). */
+/**
+ * Representation of a given linear transformation (i.e. translate, scale, rotate).
+ *
+ * <p>Transformations which only translate and/or uniformly scale are detected on construction and
+ * applied without a general 4x4 matrix multiplication, since most shapes in a scene are only
+ * transformed in these ways.
+ */
 public class LinearTransformation implements UnaryOperator<Vector> {
 
   // Identity map
   static final LinearTransformation IDENTITY =
       new LinearTransformation(Matrix.IDENTITY, Matrix.IDENTITY);
 
-  private Matrix matrix;
-  private Matrix inverse;
+  private final Matrix matrix;
+  private final Matrix inverse;
+
+  // Which fast path, if any, apply() can take for this transformation.
+  private final Kind kind;
+  // Scale factor and translation (x, y, z) used by the fast paths.
+  private final double scale;
+  private final double translateX;
+  private final double translateY;
+  private final double translateZ;
+
+  // Lazily computed and cached derived transformations. Races are benign, since both are
+  // immutable and any thread would compute an equal value.
+  private LinearTransformation inverseTransformation;
+  private LinearTransformation normalTransformation;
 
   private LinearTransformation(Matrix matrix, Matrix inverse) {
     this.matrix = matrix;
     this.inverse = inverse;
+    this.kind = Kind.of(matrix);
+    this.scale = matrix.get(0, 0);
+    this.translateX = matrix.get(0, 3);
+    this.translateY = matrix.get(1, 3);
+    this.translateZ = matrix.get(2, 3);
   }
 
   /** Factory method to construct matrices that are orthogonal (i.e. inverse(M) = transpose(M)). */
@@ -135,10 +162,99 @@ public class LinearTransformation implements UnaryOperator<Vector> {
     return transformationForOrthogonalMatrix(rotateAboutZ);
   }
 
+  /**
+   * Returns the rotation described by the quaternion xi + yj + zk + w, which is normalized first.
+   */
+  public static LinearTransformation rotate(double x, double y, double z, double w) {
+    double norm = sqrt(x * x + y * y + z * z + w * w);
+    checkArgument(norm > 0, "A rotation quaternion must not be zero.");
+    x /= norm;
+    y /= norm;
+    z /= norm;
+    w /= norm;
+    Matrix rotation =
+        new Matrix(
+            new double[][] {
+              {1 - 2 * (y * y + z * z), 2 * (x * y - z * w), 2 * (x * z + y * w), 0},
+              {2 * (x * y + z * w), 1 - 2 * (x * x + z * z), 2 * (y * z - x * w), 0},
+              {2 * (x * z - y * w), 2 * (y * z + x * w), 1 - 2 * (x * x + y * y), 0},
+              {0, 0, 0, 1}
+            });
+    return transformationForOrthogonalMatrix(rotation);
+  }
+
+  /**
+   * Returns the transformation represented by the given 4x4 affine matrix, i.e. one whose bottom
+   * row is (0, 0, 0, 1), such as any combination of translations, rotations and scalings.
+   */
+  public static LinearTransformation affine(double[][] entries) {
+    checkArgument(
+        entries.length == 4
+            && entries[3][0] == 0
+            && entries[3][1] == 0
+            && entries[3][2] == 0
+            && entries[3][3] == 1,
+        "An affine transformation must be a 4x4 matrix with a bottom row of (0, 0, 0, 1).");
+
+    // The inverse of [A t] is [inverse(A) -inverse(A)t], where inverse(A) is the transposed
+    // cofactor matrix of A divided by its determinant.
+    double[][] inverse = new double[4][4];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        int r0 = (j + 1) % 3;
+        int r1 = (j + 2) % 3;
+        int c0 = (i + 1) % 3;
+        int c1 = (i + 2) % 3;
+        inverse[i][j] = entries[r0][c0] * entries[r1][c1] - entries[r0][c1] * entries[r1][c0];
+      }
+    }
+    double determinant =
+        entries[0][0] * inverse[0][0]
+            + entries[0][1] * inverse[1][0]
+            + entries[0][2] * inverse[2][0];
+    checkArgument(abs(determinant) > 0, "An affine transformation must be invertible.");
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        inverse[i][j] /= determinant;
+      }
+    }
+    for (int i = 0; i < 3; i++) {
+      inverse[i][3] =
+          -(inverse[i][0] * entries[0][3]
+              + inverse[i][1] * entries[1][3]
+              + inverse[i][2] * entries[2][3]);
+    }
+    inverse[3][3] = 1;
+
+    double[][] copy = new double[4][];
+    for (int i = 0; i < 4; i++) {
+      copy[i] = entries[i].clone();
+    }
+    return new LinearTransformation(new Matrix(copy), new Matrix(inverse));
+  }
+
   /** Applies this linear transformation to the given vector. */
   @Override
   public Vector apply(Vector vector) {
-    return matrix.multiply(vector);
+    double w = vector.getW();
+    switch (kind) {
+      case IDENTITY:
+        return vector;
+      case TRANSLATION:
+        return new Vector(
+            vector.getX() + translateX * w,
+            vector.getY() + translateY * w,
+            vector.getZ() + translateZ * w,
+            w);
+      case UNIFORM_SCALE:
+        return new Vector(
+            vector.getX() * scale + translateX * w,
+            vector.getY() * scale + translateY * w,
+            vector.getZ() * scale + translateZ * w,
+            w);
+      default:
+        return matrix.multiply(vector);
+    }
   }
 
   /**
@@ -152,7 +268,10 @@ public class LinearTransformation implements UnaryOperator<Vector> {
 
   /** Returns the inverse linear transformation. */
   public LinearTransformation inverse() {
-    return new LinearTransformation(inverse, matrix);
+    if (inverseTransformation == null) {
+      inverseTransformation = new LinearTransformation(inverse, matrix);
+    }
+    return inverseTransformation;
   }
 
   /** Returns the transpose matrix of the inverse linear transformation */
@@ -160,6 +279,35 @@ public class LinearTransformation implements UnaryOperator<Vector> {
     return new LinearTransformation(inverse.transpose(), matrix.transpose());
   }
 
+  /**
+   * Returns the transformation which maps normals through this transformation, i.e. the inverse
+   * transpose of the upper-left 3x3 (linear) part of the matrix.
+   *
+   * <p>This matches the (x, y, z) components of {@link #inverseTranspose()}, but drops the
+   * translation that ends up in its bottom row. That row only affects the w component, which is
+   * meaningless for normals, and dropping it lets translated shapes use the identity fast path.
+   */
+  public LinearTransformation normalTransformation() {
+    if (normalTransformation == null) {
+      normalTransformation =
+          new LinearTransformation(
+              linearPart(inverse).transpose(), linearPart(matrix).transpose());
+    }
+    return normalTransformation;
+  }
+
+  /** Returns a copy of the matrix with its translation column and bottom row cleared. */
+  private static Matrix linearPart(Matrix matrix) {
+    double[][] entries = new double[4][4];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        entries[i][j] = matrix.get(i, j);
+      }
+    }
+    entries[3][3] = 1;
+    return new Matrix(entries);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -184,4 +332,41 @@ public class LinearTransformation implements UnaryOperator<Vector> {
   public String toString() {
     return String.format("Linear transformation represented by matrix:\n%s", matrix.toString());
   }
+
+  /** The different shapes of matrix which {@link #apply} handles specially. */
+  private enum Kind {
+    IDENTITY,
+    // Only translation, i.e. an identity upper-left 3x3.
+    TRANSLATION,
+    // Uniform scaling, optionally followed by translation.
+    UNIFORM_SCALE,
+    // Anything else (rotation, non-uniform scaling, ...).
+    GENERAL;
+
+    static Kind of(Matrix matrix) {
+      // Fast paths assume the bottom row of an affine transformation, which preserves w.
+      if (matrix.get(3, 0) != 0
+          || matrix.get(3, 1) != 0
+          || matrix.get(3, 2) != 0
+          || matrix.get(3, 3) != 1) {
+        return GENERAL;
+      }
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          if (i != j && matrix.get(i, j) != 0) {
+            return GENERAL;
+          }
+        }
+      }
+      double scale = matrix.get(0, 0);
+      if (matrix.get(1, 1) != scale || matrix.get(2, 2) != scale) {
+        return GENERAL;
+      }
+      boolean translates = matrix.get(0, 3) != 0 || matrix.get(1, 3) != 0 || matrix.get(2, 3) != 0;
+      if (scale != 1) {
+        return UNIFORM_SCALE;
+      }
+      return translates ? TRANSLATION : IDENTITY;
+    }
+  }
 }
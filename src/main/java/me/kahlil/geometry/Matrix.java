@@ -46,11 +46,15 @@ public class Matrix {
     if (getColumnCount() != 4) {
       throw new IllegalArgumentException(vector + " must have magnitude " + getColumnCount());
     }
+    double x = vector.getX();
+    double y = vector.getY();
+    double z = vector.getZ();
+    double w = vector.getW();
     return new Vector(
-        getRow(0).dot4D(vector),
-        getRow(1).dot4D(vector),
-        getRow(2).dot4D(vector),
-        getRow(3).dot4D(vector));
+        entries[0][0] * x + entries[0][1] * y + entries[0][2] * z + entries[0][3] * w,
+        entries[1][0] * x + entries[1][1] * y + entries[1][2] * z + entries[1][3] * w,
+        entries[2][0] * x + entries[2][1] * y + entries[2][2] * z + entries[2][3] * w,
+        entries[3][0] * x + entries[3][1] * y + entries[3][2] * z + entries[3][3] * w);
   }
 
   /**
@@ -22,4 +22,8 @@ public class PointObject extends Shape {
     return pointSphere.intersectInObjectSpace(ray);
   }
 
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return pointSphere.getObjectSpaceBounds();
+  }
 }
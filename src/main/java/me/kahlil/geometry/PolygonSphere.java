@@ -1,5 +1,12 @@
 package me.kahlil.geometry;
 
+import static me.kahlil.config.Parameters.POLYGON_SPHERE_CACHE_SIZE;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.util.Objects;
 import java.util.Optional;
 import me.kahlil.scene.Material;
 
@@ -10,16 +17,20 @@ import me.kahlil.scene.Material;
  */
 public class PolygonSphere extends Shape {
 
+  // Spheres with the same resolution and normals share one tessellation and acceleration
+  // structure, whatever their material. Tessellations are built once even when requested by many
+  // threads at a time, and the least recently used are evicted when the cache is full.
+  private static final LoadingCache<Tessellation, ConvexPolygon> TESSELLATIONS =
+      CacheBuilder.newBuilder()
+          .maximumSize(POLYGON_SPHERE_CACHE_SIZE)
+          .build(CacheLoader.from(PolygonSphere::computePolygonSpecification));
+
   private final Material material;
-  private final int numDivisions;
   private final ConvexPolygon polygon;
-  private final boolean useVertexNormals;
 
   private PolygonSphere(Material material, int numDivisions, boolean useVertexNormals) {
     this.material = material;
-    this.numDivisions = numDivisions;
-    this.useVertexNormals = useVertexNormals;
-    this.polygon = computePolygonSpecification(numDivisions);
+    this.polygon = TESSELLATIONS.getUnchecked(new Tessellation(numDivisions, useVertexNormals));
   }
 
   public static PolygonSphere withSurfaceNormals(Material material, int numDivisions) {
@@ -35,33 +46,55 @@ public class PolygonSphere extends Shape {
     return polygon.intersectInObjectSpace(ray);
   }
 
+  @Override
+  void internalIntersectInObjectSpace(RayPacket packet, long activeRays) {
+    polygon.intersectInObjectSpace(packet, activeRays);
+  }
+
+  @Override
+  Material getMaterial(RayHit objectSpaceHit) {
+    return material;
+  }
+
+  @Override
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    return polygon.intersectsInObjectSpaceWithin(ray, maxTime);
+  }
+
+  @Override
+  public void buildAccelerationStructure() {
+    polygon.buildAccelerationStructure();
+  }
+
   /**
    * Generates polygon representation of sphere by following code example over at:
    * https://www.scratchapixel.com/lessons/3d-basic-rendering/ray-tracing-polygon-mesh/Ray-Tracing%20a%20Polygon%20Mesh-part-1
    */
-  private ConvexPolygon computePolygonSpecification(int numDivisions) {
+  private static ConvexPolygon computePolygonSpecification(Tessellation tessellation) {
+    int numDivisions = tessellation.numDivisions;
     int numVertexes = (numDivisions - 1) * numDivisions + 2;
 
     Vector[] vertexes = new Vector[numVertexes];
     Vector[] normals = new Vector[numVertexes];
     Vector[] barycentricCoordinates = new Vector[numVertexes];
 
-    generateVertexes(vertexes, normals, barycentricCoordinates);
+    generateVertexes(numDivisions, vertexes, normals, barycentricCoordinates);
 
     int numPolygons = numDivisions * numDivisions;
     int[] faces = new int[numPolygons];
     int[] vertexIndexes = new int[(6 + (numDivisions - 1) * 4) * numDivisions];
-    generateConnectivity(faces, vertexIndexes);
+    generateConnectivity(numDivisions, faces, vertexIndexes);
 
-    return useVertexNormals
-        ? ConvexPolygon.withVertexNormals(material, vertexes, vertexes, faces, vertexIndexes)
-        : ConvexPolygon.withSurfaceNormals(material, vertexes, faces, vertexIndexes);
+    // The tessellation is shared by spheres of every material, which each substitute their own.
+    return tessellation.useVertexNormals
+        ? ConvexPolygon.withVertexNormals(DUMMY_MATERIAL, vertexes, vertexes, faces, vertexIndexes)
+        : ConvexPolygon.withSurfaceNormals(DUMMY_MATERIAL, vertexes, faces, vertexIndexes);
   }
 
   /**
    * Generates the connectivity polygon data to populate the faces and vertex indexes arrays.
    */
-  private void generateConnectivity(int[] faces, int[] vertexIndexes) {
+  private static void generateConnectivity(int numDivisions, int[] faces, int[] vertexIndexes) {
     int vid = 1;
     int numV = 0;
     int l = 0;
@@ -101,7 +134,7 @@ public class PolygonSphere extends Shape {
    * Generates vertexes, normals, and barycentric coordinates for the sphere and stores them in
    * the passed arrays.
    */
-  private void generateVertexes(Vector[] vertexes, Vector[] normals,
+  private static void generateVertexes(int numDivisions, Vector[] vertexes, Vector[] normals,
       Vector[] barycentricCoordinates) {
     double u = -1 * Math.PI / 2;
     double v;
@@ -131,4 +164,38 @@ public class PolygonSphere extends Shape {
     vertexes[k] = new Vector(0, 1,0);
     normals[k] = vertexes[k];
   }
+
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return polygon.getObjectSpaceBounds();
+  }
+
+  /** The parameters which determine a sphere's tessellation. */
+  private static final class Tessellation {
+
+    private final int numDivisions;
+    private final boolean useVertexNormals;
+
+    Tessellation(int numDivisions, boolean useVertexNormals) {
+      this.numDivisions = numDivisions;
+      this.useVertexNormals = useVertexNormals;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Tessellation)) {
+        return false;
+      }
+      Tessellation that = (Tessellation) o;
+      return numDivisions == that.numDivisions && useVertexNormals == that.useVertexNormals;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(numDivisions, useVertexNormals);
+    }
+  }
 }
@@ -0,0 +1,86 @@
+package me.kahlil.geometry;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A group of coherent rays, e.g. the primary rays through a block of neighboring pixels, which are
+ * traced through the scene together, along with the closest hit found so far for each of them.
+ *
+ * <p>Which rays an operation applies to is given by a mask of active rays, in which bit i stands
+ * for the ith ray, so a packet holds at most {@link #MAX_SIZE} rays. Acceleration structures
+ * narrow the mask down to the rays which reach each node, so the node is only visited once for
+ * all of them.
+ */
+public final class RayPacket {
+
+  /** The maximum number of rays in a packet, one per bit of a mask. */
+  public static final int MAX_SIZE = Long.SIZE;
+
+  private final Ray[] rays;
+  private final RayHit[] hits;
+  // Time of each ray's closest hit so far, which nothing farther needs to be tested against.
+  private final double[] closestTimes;
+
+  public RayPacket(Ray[] rays) {
+    checkArgument(
+        rays.length > 0 && rays.length <= MAX_SIZE,
+        "A packet holds between 1 and %s rays but was given %s.",
+        MAX_SIZE,
+        rays.length);
+    this.rays = rays;
+    this.hits = new RayHit[rays.length];
+    this.closestTimes = new double[rays.length];
+    Arrays.fill(closestTimes, Double.POSITIVE_INFINITY);
+  }
+
+  /** Returns the number of rays in the packet. */
+  public int size() {
+    return rays.length;
+  }
+
+  /** Returns the mask in which every ray of the packet is active. */
+  public long allRays() {
+    return -1L >>> (MAX_SIZE - rays.length);
+  }
+
+  public Ray getRay(int index) {
+    return rays[index];
+  }
+
+  /** Returns the closest hit found so far for the ray at the given index, if any. */
+  public Optional<RayHit> getHit(int index) {
+    return Optional.ofNullable(hits[index]);
+  }
+
+  /** Returns the time of the closest hit found so far for the ray, or infinity if there is none. */
+  public double getClosestTime(int index) {
+    return closestTimes[index];
+  }
+
+  /** Records the hit for the ray at the given index if it is closer than its closest so far. */
+  public void recordHit(int index, RayHit rayHit) {
+    if (rayHit.getTime() < closestTimes[index]) {
+      hits[index] = rayHit;
+      closestTimes[index] = rayHit.getTime();
+    }
+  }
+
+  /**
+   * Returns a new packet, without any hits, of the active rays transformed by the given
+   * transformation (e.g. into a shape's object space). Inactive rays are left out.
+   */
+  RayPacket transform(LinearTransformation transformation, long activeRays) {
+    Ray[] transformed = new Ray[rays.length];
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      transformed[i] =
+          new Ray(
+              transformation.apply(rays[i].getStart()),
+              transformation.apply(rays[i].getDirection()));
+    }
+    return new RayPacket(transformed);
+  }
+}
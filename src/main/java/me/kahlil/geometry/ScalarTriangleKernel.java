@@ -0,0 +1,112 @@
+package me.kahlil.geometry;
+
+import static java.lang.Math.abs;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
+import static me.kahlil.geometry.Constants.EPSILON;
+
+/**
+ * {@link TriangleKernel} which tests one triangle at a time, which {@link VectorTriangleKernel}
+ * agrees with exactly. Meshes select no groups when this is the kernel, since testing triangles one
+ * at a time needs no second copy of them, and fall back to the same test on their own arrays.
+ */
+final class ScalarTriangleKernel implements TriangleKernel {
+
+  @Override
+  public int getGroupSize() {
+    return 1;
+  }
+
+  @Override
+  public int intersect(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxTime, double[] hit) {
+    NUM_TRIANGLE_TESTS.getAndAdd(end - start);
+    int closest = -1;
+    double closestTime = maxTime;
+    double[] barycentric = new double[2];
+    for (int i = start; i < end; i++) {
+      double time = intersect(triangles, i, ray, barycentric);
+      if (time >= 0 && time < closestTime) {
+        closest = i;
+        closestTime = time;
+        hit[0] = time;
+        hit[1] = barycentric[0];
+        hit[2] = barycentric[1];
+      }
+    }
+    return closest;
+  }
+
+  @Override
+  public boolean intersectsWithin(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxDistance) {
+    for (int i = start; i < end; i++) {
+      NUM_TRIANGLE_TESTS.getAndIncrement();
+      double time = intersect(triangles, i, ray, null);
+      if (time >= 0 && time < maxDistance) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the time at which the ray hits the triangle at the given position, or -1 if it misses
+   * it. If barycentric is not null, the (u, v) coordinates of the hit are written to it.
+   */
+  private static double intersect(
+      TriangleGroups triangles, int i, Ray ray, double[] barycentric) {
+    double p0p1X = triangles.edge1X[i];
+    double p0p1Y = triangles.edge1Y[i];
+    double p0p1Z = triangles.edge1Z[i];
+    double p0p2X = triangles.edge2X[i];
+    double p0p2Y = triangles.edge2Y[i];
+    double p0p2Z = triangles.edge2Z[i];
+
+    Vector direction = ray.getDirection();
+    double dX = direction.getX();
+    double dY = direction.getY();
+    double dZ = direction.getZ();
+
+    // pVec = direction x p0p2
+    double pX = dY * p0p2Z - dZ * p0p2Y;
+    double pY = dZ * p0p2X - dX * p0p2Z;
+    double pZ = dX * p0p2Y - dY * p0p2X;
+    double determinant = p0p1X * pX + p0p1Y * pY + p0p1Z * pZ;
+
+    // Ray and triangle are parallel if determinant is too close to zero.
+    if (abs(determinant) < EPSILON) {
+      return -1;
+    }
+    double inverseDeterminant = 1 / determinant;
+
+    Vector start = ray.getStart();
+    double tX = start.getX() - triangles.vertexX[i];
+    double tY = start.getY() - triangles.vertexY[i];
+    double tZ = start.getZ() - triangles.vertexZ[i];
+    double u = (tX * pX + tY * pY + tZ * pZ) * inverseDeterminant;
+    if (u < 0 || u > 1) {
+      return -1;
+    }
+
+    // qVec = tVec x p0p1
+    double qX = tY * p0p1Z - tZ * p0p1Y;
+    double qY = tZ * p0p1X - tX * p0p1Z;
+    double qZ = tX * p0p1Y - tY * p0p1X;
+    double v = (dX * qX + dY * qY + dZ * qZ) * inverseDeterminant;
+    if (v < 0 || u + v > 1) {
+      return -1;
+    }
+
+    double t = (p0p2X * qX + p0p2Y * qY + p0p2Z * qZ) * inverseDeterminant;
+    if (t < 0) {
+      return -1;
+    }
+    if (barycentric != null) {
+      barycentric[0] = u;
+      barycentric[1] = v;
+    }
+    NUM_TRIANGLE_INTERSECTIONS.getAndIncrement();
+    return t;
+  }
+}
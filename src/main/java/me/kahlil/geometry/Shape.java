@@ -4,12 +4,18 @@ import static me.kahlil.config.Counters.NUM_INTERSECTIONS;
 import static me.kahlil.config.Counters.NUM_INTERSECTION_TESTS;
 
 import java.util.Optional;
+import me.kahlil.scene.Material;
 
 /** A representation of a 3D object in the scene. */
 public abstract class Shape implements Cloneable, Intersectable {
 
   private LinearTransformation transformation = LinearTransformation.IDENTITY;
 
+  // Derived transformations, cached whenever the transformation is set since they are needed for
+  // every intersection test.
+  private LinearTransformation worldToObjectSpace = LinearTransformation.IDENTITY;
+  private LinearTransformation normalsToWorldSpace = LinearTransformation.IDENTITY;
+
   /** Finds the intersection of the given ray with this potentially transformed object */
   @Override
   public Optional<RayHit> intersectWith(Ray ray) {
@@ -24,18 +30,59 @@ public abstract class Shape implements Cloneable, Intersectable {
     if (maybeObjectSpaceIntersection.isEmpty()) {
       return Optional.empty();
     }
-    RayHit objectSpaceIntersection = maybeObjectSpaceIntersection.get();
+    return Optional.of(toWorldSpace(ray, maybeObjectSpaceIntersection.get()));
+  }
+
+  /**
+   * Intersects the active rays of the packet with this potentially transformed object, which
+   * intersects them in object space as a packet of their own.
+   */
+  @Override
+  public void intersectWith(RayPacket packet, long activeRays) {
+    RayPacket objectSpacePacket = packet.transform(worldToObjectSpace(), activeRays);
+    intersectInObjectSpace(objectSpacePacket, activeRays);
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      Optional<RayHit> objectSpaceHit = objectSpacePacket.getHit(i);
+      if (objectSpaceHit.isPresent()) {
+        packet.recordHit(i, toWorldSpace(packet.getRay(i), objectSpaceHit.get()));
+      }
+    }
+  }
+
+  /** Returns the world space hit of the given world space ray from its object space hit. */
+  private RayHit toWorldSpace(Ray ray, RayHit objectSpaceIntersection) {
     Vector worldSpaceIntersectionPoint =
         objectToWorldSpace().apply(objectSpaceIntersection.getIntersection());
     Vector worldSpaceNormal = normalsToWorldSpace().apply(objectSpaceIntersection.getNormal());
-    return Optional.of(
-        ImmutableRayHit.builder()
-            .setRay(ray)
-            .setTime(ray.timeToPoint(worldSpaceIntersectionPoint))
-            .setNormal(worldSpaceNormal)
-            .setObject(maybeObjectSpaceIntersection.get().getObject())
-            .setMaterial(maybeObjectSpaceIntersection.get().getMaterial())
-            .build());
+    return ImmutableRayHit.builder()
+        .setRay(ray)
+        .setTime(ray.timeToPoint(worldSpaceIntersectionPoint))
+        .setNormal(worldSpaceNormal)
+        .setObject(objectSpaceIntersection.getObject())
+        .setMaterial(getMaterial(objectSpaceIntersection))
+        .build();
+  }
+
+  /**
+   * Returns whether or not the ray intersects this potentially transformed object less than
+   * maxDistance along the ray, stopping at the first intersection found.
+   */
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    Ray objectSpaceRay =
+        new Ray(
+            worldToObjectSpace().apply(ray.getStart()),
+            worldToObjectSpace().apply(ray.getDirection()));
+
+    // Distances are not preserved by scaling, so find how far along the object space ray the
+    // world space limit is.
+    double objectSpaceMaxDistance = maxDistance;
+    if (!Double.isInfinite(maxDistance)) {
+      Vector objectSpaceLimit = worldToObjectSpace().apply(ray.atTime(maxDistance));
+      objectSpaceMaxDistance = objectSpaceLimit.subtract(objectSpaceRay.getStart()).magnitude();
+    }
+    return intersectsInObjectSpaceWithin(objectSpaceRay, objectSpaceMaxDistance);
   }
 
   /**
@@ -43,7 +90,7 @@ public abstract class Shape implements Cloneable, Intersectable {
    * having the inverse transformation of this object applied to it. The resulting RayHit should
    * also be returned in object space.
    */
-  final Optional<RayHit> intersectInObjectSpace(Ray ray) {
+  public final Optional<RayHit> intersectInObjectSpace(Ray ray) {
     NUM_INTERSECTION_TESTS.getAndIncrement();
     Optional<RayHit> rayHit = internalIntersectInObjectSpace(ray);
     if (rayHit.isPresent()) {
@@ -54,6 +101,87 @@ public abstract class Shape implements Cloneable, Intersectable {
 
   abstract Optional<RayHit> internalIntersectInObjectSpace(Ray ray);
 
+  /**
+   * Packet counterpart of {@link #intersectInObjectSpace(Ray)}, which records the object space hits
+   * of the active rays in the given object space packet. The packet must not have any hits yet.
+   */
+  final void intersectInObjectSpace(RayPacket packet, long activeRays) {
+    NUM_INTERSECTION_TESTS.getAndAdd(Long.bitCount(activeRays));
+    internalIntersectInObjectSpace(packet, activeRays);
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      if (packet.getHit(Long.numberOfTrailingZeros(remaining)).isPresent()) {
+        NUM_INTERSECTIONS.getAndIncrement();
+      }
+    }
+  }
+
+  /**
+   * Records the object space hits of the active rays in the given object space packet. By default
+   * the rays are intersected one at a time, so shapes with an acceleration structure should
+   * override this to trace them through it together.
+   */
+  void internalIntersectInObjectSpace(RayPacket packet, long activeRays) {
+    for (long remaining = activeRays; remaining != 0; remaining &= remaining - 1) {
+      int i = Long.numberOfTrailingZeros(remaining);
+      Optional<RayHit> rayHit = internalIntersectInObjectSpace(packet.getRay(i));
+      if (rayHit.isPresent()) {
+        packet.recordHit(i, rayHit.get());
+      }
+    }
+  }
+
+  /**
+   * Returns the material of the given object space hit with this object. Shapes which share their
+   * geometry with shapes of other materials should override this to return their own.
+   */
+  Material getMaterial(RayHit objectSpaceHit) {
+    return objectSpaceHit.getMaterial();
+  }
+
+  /**
+   * Returns whether or not the given object space ray intersects this object less than maxTime
+   * along the ray.
+   */
+  public final boolean intersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    NUM_INTERSECTION_TESTS.getAndIncrement();
+    boolean intersects = internalIntersectsInObjectSpaceWithin(ray, maxTime);
+    if (intersects) {
+      NUM_INTERSECTIONS.getAndIncrement();
+    }
+    return intersects;
+  }
+
+  /**
+   * Returns whether or not the given object space ray intersects this object less than maxTime
+   * along the ray. Shapes made of many parts should override this to stop at the first part hit.
+   */
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    Optional<RayHit> rayHit = internalIntersectInObjectSpace(ray);
+    return rayHit.isPresent() && rayHit.get().getTime() < maxTime;
+  }
+
+  /**
+   * Builds any acceleration structure this object uses to speed up its intersections, if it has not
+   * been built already. Otherwise, it is built on first use. Does nothing for simple shapes.
+   */
+  public void buildAccelerationStructure() {}
+
+  /**
+   * Returns the axis-aligned bounds of this object in world space, or empty if the object is
+   * unbounded (e.g. a {@link Plane}).
+   */
+  public Optional<BoundingBox> getWorldBounds() {
+    return getObjectSpaceBounds().map(bounds -> bounds.transform(objectToWorldSpace()));
+  }
+
+  /**
+   * Returns the bounds of this object in object space, or empty if the object is unbounded.
+   * Bounded shapes should override this so they can be placed in acceleration structures.
+   */
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return Optional.empty();
+  }
+
   /** Returns the object-to-world space transformation currently applied to this object. */
   LinearTransformation getTransformation() {
     return this.transformation;
@@ -61,6 +189,8 @@ public abstract class Shape implements Cloneable, Intersectable {
 
   void setTransformation(LinearTransformation transformation) {
     this.transformation = transformation;
+    this.worldToObjectSpace = transformation.inverse();
+    this.normalsToWorldSpace = transformation.normalTransformation();
   }
 
   /** Transforms the object by the given linear transformation */
@@ -81,11 +211,11 @@ public abstract class Shape implements Cloneable, Intersectable {
 
   /** Returns the transformation from world space to object space. */
   private LinearTransformation worldToObjectSpace() {
-    return transformation.inverse();
+    return worldToObjectSpace;
   }
 
   /** Returns the transformation from normals in object space back to world space. */
   private LinearTransformation normalsToWorldSpace() {
-    return transformation.inverseTranspose();
+    return normalsToWorldSpace;
   }
 }
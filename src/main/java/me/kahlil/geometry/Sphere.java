@@ -65,4 +65,10 @@ public class Sphere extends Shape {
     }
   }
 
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return Optional.of(
+        new BoundingBox(
+            center.translate(-radius, -radius, -radius), center.translate(radius, radius, radius)));
+  }
 }
@@ -22,6 +22,10 @@ public class Triangle extends Shape implements Polygon {
   // Array of size 3 containing the vertex normals of the triangle.
   private final Vector[] vertexNormals;
 
+  // Edges from the first vertex to the second and to the third, which every intersection uses.
+  private final Vector p0p1;
+  private final Vector p0p2;
+
   private final Vector minBound;
   private final Vector maxBound;
 
@@ -34,6 +38,8 @@ public class Triangle extends Shape implements Polygon {
     this.material = material;
     this.vertexes = vertexes;
     this.vertexNormals = vertexNormals;
+    this.p0p1 = vertexes[1].subtract(vertexes[0]);
+    this.p0p2 = vertexes[2].subtract(vertexes[0]);
 
     double[][] minMaxBounds = computeMinMaxBounds();
     this.minBound = new Vector(minMaxBounds[0][0], minMaxBounds[0][1], minMaxBounds[0][2]);
@@ -77,9 +83,6 @@ public class Triangle extends Shape implements Polygon {
   Optional<RayHit> internalIntersectInObjectSpace(Ray ray) {
     NUM_TRIANGLE_TESTS.getAndIncrement();
 
-    Vector p0p1 = vertexes[1].subtract(vertexes[0]);
-    Vector p0p2 = vertexes[2].subtract(vertexes[0]);
-
     Vector pVec = ray.getDirection().cross(p0p2);
     double determinant = p0p1.dot(pVec);
 
@@ -120,6 +123,41 @@ public class Triangle extends Shape implements Polygon {
         .build());
   }
 
+  /**
+   * Performs the same Moller-Trumbore test as {@link #internalIntersectInObjectSpace}, but skips
+   * computing the normal and {@link RayHit} since only the existence of a hit matters.
+   */
+  @Override
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    NUM_TRIANGLE_TESTS.getAndIncrement();
+
+    Vector pVec = ray.getDirection().cross(p0p2);
+    double determinant = p0p1.dot(pVec);
+    if (abs(determinant) < EPSILON) {
+      return false;
+    }
+    double inverseDeterminant = 1 / determinant;
+
+    Vector tVec = ray.getStart().subtract(vertexes[0]);
+    double u = tVec.dot(pVec) * inverseDeterminant;
+    if (u < 0 || u > 1) {
+      return false;
+    }
+
+    Vector qVec = tVec.cross(p0p1);
+    double v = ray.getDirection().dot(qVec) * inverseDeterminant;
+    if (v < 0 || u + v > 1) {
+      return false;
+    }
+
+    double t = p0p2.dot(qVec) * inverseDeterminant;
+    if (t < 0 || t >= maxTime) {
+      return false;
+    }
+    NUM_TRIANGLE_INTERSECTIONS.getAndIncrement();
+    return true;
+  }
+
   @Override
   public Triangle[] getTriangles() {
     return new Triangle[]{this};
@@ -135,6 +173,11 @@ public class Triangle extends Shape implements Polygon {
     return this.maxBound;
   }
 
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return Optional.of(new BoundingBox(minBound, maxBound));
+  }
+
   @Override
   public String toString() {
     return String.format("Triangle[%s %s %s]", vertexes[0], vertexes[1], vertexes[2]);
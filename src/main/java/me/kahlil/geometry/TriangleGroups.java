@@ -0,0 +1,71 @@
+package me.kahlil.geometry;
+
+import me.kahlil.config.VectorApi;
+
+/**
+ * The triangles of a mesh laid out for intersecting a group of them with a ray at a time: in the
+ * order in which the leaves of its acceleration structure refer to them, as a structure of
+ * arrays, with the two edges from each triangle's first vertex computed up front.
+ *
+ * <p>Triangles are intersected by a {@link TriangleKernel}. When the incubating Vector API is
+ * available ({@code --add-modules jdk.incubator.vector}) that is a {@link VectorTriangleKernel},
+ * which tests a whole group in one go. Otherwise, meshes do not build groups at all, and test
+ * their triangles one at a time from their own arrays, exactly as a {@link ScalarTriangleKernel}
+ * would.
+ */
+final class TriangleGroups {
+
+  static final TriangleKernel KERNEL =
+      VectorApi.loadOrElse(
+          TriangleKernel.class,
+          "me.kahlil.geometry.VectorTriangleKernel",
+          ScalarTriangleKernel::new);
+
+  // The (x, y, z) of each triangle's first vertex, and of the edges from it to the second and to
+  // the third vertex. Each array is padded with empty triangles, which no ray hits, so that kernels
+  // can read a whole group past the last triangle.
+  final double[] vertexX;
+  final double[] vertexY;
+  final double[] vertexZ;
+  final double[] edge1X;
+  final double[] edge1Y;
+  final double[] edge1Z;
+  final double[] edge2X;
+  final double[] edge2Y;
+  final double[] edge2Z;
+
+  /**
+   * Lays out the triangles of a mesh in the given order.
+   *
+   * @param positions the (x, y, z) coordinates of every vertex, one after another
+   * @param indexes the indexes of the three vertexes of every triangle, one after another
+   * @param order the index of the triangle at each position
+   * @param groupSize the number of triangles which kernels read at a time
+   */
+  TriangleGroups(double[] positions, int[] indexes, int[] order, int groupSize) {
+    int length = order.length + groupSize;
+    this.vertexX = new double[length];
+    this.vertexY = new double[length];
+    this.vertexZ = new double[length];
+    this.edge1X = new double[length];
+    this.edge1Y = new double[length];
+    this.edge1Z = new double[length];
+    this.edge2X = new double[length];
+    this.edge2Y = new double[length];
+    this.edge2Z = new double[length];
+    for (int i = 0; i < order.length; i++) {
+      int v0 = 3 * indexes[3 * order[i]];
+      int v1 = 3 * indexes[3 * order[i] + 1];
+      int v2 = 3 * indexes[3 * order[i] + 2];
+      vertexX[i] = positions[v0];
+      vertexY[i] = positions[v0 + 1];
+      vertexZ[i] = positions[v0 + 2];
+      edge1X[i] = positions[v1] - positions[v0];
+      edge1Y[i] = positions[v1 + 1] - positions[v0 + 1];
+      edge1Z[i] = positions[v1 + 2] - positions[v0 + 2];
+      edge2X[i] = positions[v2] - positions[v0];
+      edge2Y[i] = positions[v2 + 1] - positions[v0 + 1];
+      edge2Z[i] = positions[v2 + 2] - positions[v0 + 2];
+    }
+  }
+}
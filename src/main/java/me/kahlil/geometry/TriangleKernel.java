@@ -0,0 +1,24 @@
+package me.kahlil.geometry;
+
+/**
+ * Moller-Trumbore ray-triangle intersection over ranges of {@link TriangleGroups}, as used by
+ * {@link TriangleMesh}. Implementations must compute exactly the same hits, so that which one is
+ * used never changes a rendered image.
+ */
+interface TriangleKernel {
+
+  /** Returns the number of triangles the kernel reads at a time, past the end of a range. */
+  int getGroupSize();
+
+  /**
+   * Returns the position of the triangle in [start, end) which the ray hits first before maxTime,
+   * or -1 if it hits none, writing the time and the (u, v) coordinates of the hit to hit. Of
+   * triangles hit at the same time, the first is returned.
+   */
+  int intersect(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxTime, double[] hit);
+
+  /** Returns whether the ray hits any triangle in [start, end) less than maxDistance along it. */
+  boolean intersectsWithin(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxDistance);
+}
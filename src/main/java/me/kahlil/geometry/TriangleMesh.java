@@ -0,0 +1,457 @@
+package me.kahlil.geometry;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static me.kahlil.config.Counters.NUM_TRIANGLES;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
+import static me.kahlil.config.Parameters.BVH_MAX_TRIANGLES_PER_LEAF;
+import static me.kahlil.config.Parameters.BVH_WIDTH;
+import static me.kahlil.config.Parameters.MESH_ACCELERATION_STRUCTURE;
+import static me.kahlil.config.Parameters.OCTREE_BOUNDS;
+import static me.kahlil.config.Parameters.OCTREE_MAX_DEPTH;
+import static me.kahlil.config.Parameters.OCTREE_MAX_SHAPES_PER_LEAF;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.geometry.TriangleGroups.KERNEL;
+
+import java.util.Optional;
+import me.kahlil.bvh.BvhCache;
+import me.kahlil.bvh.LeafPrimitives;
+import me.kahlil.bvh.SplitStrategy;
+import me.kahlil.bvh.WideBoundingVolumeHierarchy;
+import me.kahlil.config.MeshAccelerationStructure;
+import me.kahlil.octree.Octree;
+import me.kahlil.octree.OctreePrimitives;
+import me.kahlil.scene.Material;
+
+/**
+ * Shape representing a triangle mesh stored as flat arrays of vertex coordinates and triangle
+ * vertex indexes.
+ *
+ * <p>Unlike {@link ConvexPolygon}, which creates a {@link Triangle} (with its own transformation,
+ * vertex array and bounds) for every face, a mesh stores each vertex once and each triangle as
+ * three ints. Its triangles are only ever addressed by index, both by its acceleration structure
+ * and by its ray-triangle intersection test, so large meshes take a fraction of the memory.
+ */
+public final class TriangleMesh extends Shape {
+
+  private final Material material;
+  // The (x, y, z) coordinates of every vertex, one after another.
+  private final double[] positions;
+  // The (x, y, z) normal of every vertex, one after another, or empty to use surface normals.
+  private final float[] normals;
+  // The indexes of the three vertexes of every triangle, one triangle after another.
+  private final int[] indexes;
+
+  // Built on the first ray which reaches the bounds, or by buildAccelerationStructure(), and shared
+  // by transformed copies. Holds null when the acceleration structure type is NONE, in which case
+  // every triangle is tested.
+  private final LazyAccelerationStructure accelerationStructure;
+
+  // Min/max (x, y, z) that the mesh occupies for forming a bounding volume.
+  private final Vector minBound;
+  private final Vector maxBound;
+
+  private TriangleMesh(Material material, double[] positions, float[] normals, int[] indexes) {
+    checkArgument(
+        positions.length % 3 == 0,
+        "Vertex positions must be (x, y, z) triples. Found %s coordinates.",
+        positions.length);
+    checkArgument(
+        indexes.length > 0 && indexes.length % 3 == 0,
+        "Triangle indexes must be non-empty triples. Found %s indexes.",
+        indexes.length);
+    int numVertexes = positions.length / 3;
+    for (int index : indexes) {
+      checkArgument(
+          0 <= index && index < numVertexes,
+          "Vertex index %s is out of range for %s vertexes.",
+          index,
+          numVertexes);
+    }
+    this.material = material;
+    this.positions = positions;
+    this.normals = normals;
+    this.indexes = indexes;
+    NUM_TRIANGLES.getAndAdd(getNumTriangles());
+
+    double[] minXyz = {POSITIVE_INFINITY, POSITIVE_INFINITY, POSITIVE_INFINITY};
+    double[] maxXyz = {NEGATIVE_INFINITY, NEGATIVE_INFINITY, NEGATIVE_INFINITY};
+    for (int index : indexes) {
+      for (int i = 0; i < 3; i++) {
+        minXyz[i] = min(minXyz[i], positions[3 * index + i]);
+        maxXyz[i] = max(maxXyz[i], positions[3 * index + i]);
+      }
+    }
+    this.minBound = new Vector(minXyz[0], minXyz[1], minXyz[2]);
+    this.maxBound = new Vector(maxXyz[0], maxXyz[1], maxXyz[2]);
+
+    this.accelerationStructure = lazyAccelerationStructure(MESH_ACCELERATION_STRUCTURE);
+  }
+
+  private TriangleMesh(TriangleMesh mesh, MeshAccelerationStructure type) {
+    this.material = mesh.material;
+    this.positions = mesh.positions;
+    this.normals = mesh.normals;
+    this.indexes = mesh.indexes;
+    this.minBound = mesh.minBound;
+    this.maxBound = mesh.maxBound;
+    this.accelerationStructure = lazyAccelerationStructure(type);
+    setTransformation(mesh.getTransformation());
+  }
+
+  /**
+   * Returns a mesh shaded with the surface normal of each triangle.
+   *
+   * @param positions the (x, y, z) coordinates of every vertex, one after another
+   * @param indexes the indexes of the three vertexes of every triangle, one after another
+   */
+  public static TriangleMesh withSurfaceNormals(
+      Material material, double[] positions, int[] indexes) {
+    return new TriangleMesh(material, positions, new float[] {}, indexes);
+  }
+
+  /**
+   * Returns a mesh shaded with normals interpolated from the given normal of each vertex, which
+   * are stored as (x, y, z) triples in the same order as the vertex positions.
+   */
+  public static TriangleMesh withVertexNormals(
+      Material material, double[] positions, float[] normals, int[] indexes) {
+    checkArgument(
+        normals.length == positions.length,
+        "A mesh with vertex normals must have a normal for every vertex. Instead, found %s"
+            + " coordinates and %s normal coordinates.",
+        positions.length,
+        normals.length);
+    return new TriangleMesh(material, positions, normals, indexes);
+  }
+
+  /**
+   * Converts faces given in the same form as {@link ConvexPolygon} (the number of vertexes of each
+   * face, followed by the vertex indexes of every face) into the vertex indexes of the triangles
+   * which make them up, as taken by the factories of this class.
+   */
+  public static int[] triangulateFaces(int[] faces, int[] vertexIndexes) {
+    int numTriangles = 0;
+    for (int numVertexes : faces) {
+      checkArgument(
+          numVertexes >= 3, "A face must have at least 3 vertices. Found: %s", numVertexes);
+      numTriangles += numVertexes - 2;
+    }
+    int[] indexes = new int[3 * numTriangles];
+    int faceStart = 0;
+    int k = 0;
+    for (int numVertexes : faces) {
+      for (int i = 0; i < numVertexes - 2; i++) {
+        indexes[k++] = vertexIndexes[faceStart];
+        indexes[k++] = vertexIndexes[faceStart + i + 1];
+        indexes[k++] = vertexIndexes[faceStart + i + 2];
+      }
+      faceStart += numVertexes;
+    }
+    return indexes;
+  }
+
+  /**
+   * Returns a copy of this mesh which uses the given type of acceleration structure, rather than
+   * the one configured in {@link me.kahlil.config.Parameters}.
+   */
+  public TriangleMesh withAccelerationStructure(MeshAccelerationStructure type) {
+    return new TriangleMesh(this, type);
+  }
+
+  public int getNumTriangles() {
+    return indexes.length / 3;
+  }
+
+  public int getNumVertexes() {
+    return positions.length / 3;
+  }
+
+  @Override
+  public void buildAccelerationStructure() {
+    accelerationStructure.get();
+  }
+
+  private LazyAccelerationStructure lazyAccelerationStructure(MeshAccelerationStructure type) {
+    return new LazyAccelerationStructure(
+        minBound, maxBound, () -> buildAccelerationStructure(type));
+  }
+
+  private Intersectable buildAccelerationStructure(MeshAccelerationStructure type) {
+    switch (type) {
+      case OCTREE:
+        return new Octree(
+            new MeshPrimitives(), OCTREE_MAX_SHAPES_PER_LEAF, OCTREE_MAX_DEPTH, OCTREE_BOUNDS);
+      case BVH:
+        return BvhCache.buildHierarchy(
+            new MeshPrimitives(), BVH_MAX_TRIANGLES_PER_LEAF, SplitStrategy.SURFACE_AREA);
+      case WIDE_BVH:
+        return new WideBoundingVolumeHierarchy(
+            BvhCache.buildHierarchy(
+                new MeshPrimitives(), BVH_MAX_TRIANGLES_PER_LEAF, SplitStrategy.SURFACE_AREA),
+            BVH_WIDTH);
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  Optional<RayHit> internalIntersectInObjectSpace(Ray ray) {
+    if (!accelerationStructure.isReachedBy(ray, POSITIVE_INFINITY)) {
+      return Optional.empty();
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      return structure.intersectWith(ray);
+    }
+    int closest = -1;
+    double closestTime = POSITIVE_INFINITY;
+    double[] barycentric = new double[2];
+    double closestU = 0;
+    double closestV = 0;
+    for (int triangle = 0; triangle < getNumTriangles(); triangle++) {
+      double time = intersectTriangle(triangle, ray, barycentric);
+      if (time >= 0 && time < closestTime) {
+        closest = triangle;
+        closestTime = time;
+        closestU = barycentric[0];
+        closestV = barycentric[1];
+      }
+    }
+    return closest < 0
+        ? Optional.empty()
+        : Optional.of(toRayHit(closest, ray, closestTime, closestU, closestV));
+  }
+
+  @Override
+  void internalIntersectInObjectSpace(RayPacket packet, long activeRays) {
+    long reachedRays = accelerationStructure.reachedBy(packet, activeRays);
+    if (reachedRays == 0) {
+      return;
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      structure.intersectWith(packet, reachedRays);
+    } else {
+      super.internalIntersectInObjectSpace(packet, reachedRays);
+    }
+  }
+
+  @Override
+  boolean internalIntersectsInObjectSpaceWithin(Ray ray, double maxTime) {
+    if (!accelerationStructure.isReachedBy(ray, maxTime)) {
+      return false;
+    }
+    Intersectable structure = accelerationStructure.get();
+    if (structure != null) {
+      return structure.intersectsWithin(ray, maxTime);
+    }
+    for (int triangle = 0; triangle < getNumTriangles(); triangle++) {
+      double time = intersectTriangle(triangle, ray, null);
+      if (time >= 0 && time < maxTime) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  Optional<BoundingBox> getObjectSpaceBounds() {
+    return Optional.of(new BoundingBox(minBound, maxBound));
+  }
+
+  /**
+   * Performs the Moller-Trumbore ray-triangle intersection test directly on the vertex arrays,
+   * returning the time of the hit or -1 if the ray misses the triangle. If barycentric is not null,
+   * the (u, v) coordinates of the hit are written to it.
+   */
+  private double intersectTriangle(int triangle, Ray ray, double[] barycentric) {
+    NUM_TRIANGLE_TESTS.getAndIncrement();
+    int v0 = 3 * indexes[3 * triangle];
+    int v1 = 3 * indexes[3 * triangle + 1];
+    int v2 = 3 * indexes[3 * triangle + 2];
+
+    double p0p1X = positions[v1] - positions[v0];
+    double p0p1Y = positions[v1 + 1] - positions[v0 + 1];
+    double p0p1Z = positions[v1 + 2] - positions[v0 + 2];
+    double p0p2X = positions[v2] - positions[v0];
+    double p0p2Y = positions[v2 + 1] - positions[v0 + 1];
+    double p0p2Z = positions[v2 + 2] - positions[v0 + 2];
+
+    Vector direction = ray.getDirection();
+    double dX = direction.getX();
+    double dY = direction.getY();
+    double dZ = direction.getZ();
+
+    // pVec = direction x p0p2
+    double pX = dY * p0p2Z - dZ * p0p2Y;
+    double pY = dZ * p0p2X - dX * p0p2Z;
+    double pZ = dX * p0p2Y - dY * p0p2X;
+    double determinant = p0p1X * pX + p0p1Y * pY + p0p1Z * pZ;
+
+    // Ray and triangle are parallel if determinant is too close to zero.
+    if (abs(determinant) < EPSILON) {
+      return -1;
+    }
+    double inverseDeterminant = 1 / determinant;
+
+    Vector start = ray.getStart();
+    double tX = start.getX() - positions[v0];
+    double tY = start.getY() - positions[v0 + 1];
+    double tZ = start.getZ() - positions[v0 + 2];
+    double u = (tX * pX + tY * pY + tZ * pZ) * inverseDeterminant;
+    if (u < 0 || u > 1) {
+      return -1;
+    }
+
+    // qVec = tVec x p0p1
+    double qX = tY * p0p1Z - tZ * p0p1Y;
+    double qY = tZ * p0p1X - tX * p0p1Z;
+    double qZ = tX * p0p1Y - tY * p0p1X;
+    double v = (dX * qX + dY * qY + dZ * qZ) * inverseDeterminant;
+    if (v < 0 || u + v > 1) {
+      return -1;
+    }
+
+    double t = (p0p2X * qX + p0p2Y * qY + p0p2Z * qZ) * inverseDeterminant;
+    if (t < 0) {
+      return -1;
+    }
+    if (barycentric != null) {
+      barycentric[0] = u;
+      barycentric[1] = v;
+    }
+    NUM_TRIANGLE_INTERSECTIONS.getAndIncrement();
+    return t;
+  }
+
+  /** Returns the hit of the ray with the triangle at the given time and (u, v) coordinates. */
+  private RayHit toRayHit(int triangle, Ray ray, double time, double u, double v) {
+    return ImmutableRayHit.builder()
+        .setObject(this)
+        .setTime(time)
+        .setNormal(computeNormal(triangle, u, v))
+        .setMaterial(material)
+        .setRay(ray)
+        .build();
+  }
+
+  /**
+   * Returns the normal of the triangle at the given barycentric coordinates, either interpolated
+   * from its vertex normals or the normal of its surface.
+   */
+  private Vector computeNormal(int triangle, double u, double v) {
+    int v0 = 3 * indexes[3 * triangle];
+    int v1 = 3 * indexes[3 * triangle + 1];
+    int v2 = 3 * indexes[3 * triangle + 2];
+    if (normals.length > 0) {
+      double w = 1 - u - v;
+      return new Vector(
+          normals[v0] * w + normals[v1] * u + normals[v2] * v,
+          normals[v0 + 1] * w + normals[v1 + 1] * u + normals[v2 + 1] * v,
+          normals[v0 + 2] * w + normals[v1 + 2] * u + normals[v2 + 2] * v);
+    }
+    Vector p0 = vertex(v0);
+    return vertex(v1).subtract(p0).cross(vertex(v2).subtract(p0)).normalize();
+  }
+
+  private Vector vertex(int offset) {
+    return new Vector(positions[offset], positions[offset + 1], positions[offset + 2]);
+  }
+
+  /**
+   * Adapts the triangles of this mesh to primitives which acceleration structures can be built
+   * over. Rays are expected to already be in the mesh's object space.
+   */
+  private final class MeshPrimitives implements OctreePrimitives {
+
+    @Override
+    public int size() {
+      return getNumTriangles();
+    }
+
+    @Override
+    public BoundingBox getBounds(int index) {
+      double[] minXyz = {POSITIVE_INFINITY, POSITIVE_INFINITY, POSITIVE_INFINITY};
+      double[] maxXyz = {NEGATIVE_INFINITY, NEGATIVE_INFINITY, NEGATIVE_INFINITY};
+      for (int corner = 0; corner < 3; corner++) {
+        int offset = 3 * indexes[3 * index + corner];
+        for (int i = 0; i < 3; i++) {
+          minXyz[i] = min(minXyz[i], positions[offset + i]);
+          maxXyz[i] = max(maxXyz[i], positions[offset + i]);
+        }
+      }
+      return new BoundingBox(
+          new Vector(minXyz[0], minXyz[1], minXyz[2]),
+          new Vector(maxXyz[0], maxXyz[1], maxXyz[2]));
+    }
+
+    @Override
+    public Optional<RayHit> intersectWith(int index, Ray ray) {
+      double[] barycentric = new double[2];
+      double time = intersectTriangle(index, ray, barycentric);
+      return time < 0
+          ? Optional.empty()
+          : Optional.of(toRayHit(index, ray, time, barycentric[0], barycentric[1]));
+    }
+
+    @Override
+    public boolean intersectsWithin(int index, Ray ray, double maxDistance) {
+      double time = intersectTriangle(index, ray, null);
+      return time >= 0 && time < maxDistance;
+    }
+
+    /**
+     * Lays the triangles out in the hierarchy's leaf order as {@link TriangleGroups}, so that each
+     * leaf's triangles are tested against a ray together, if the Vector API is available. Otherwise
+     * the groups would only be a second copy of every triangle, so leaves test their triangles one
+     * at a time straight from the mesh's arrays.
+     */
+    @Override
+    public LeafPrimitives inLeafOrder(int[] primitiveIndexes) {
+      if (KERNEL.getGroupSize() == 1) {
+        return OctreePrimitives.super.inLeafOrder(primitiveIndexes);
+      }
+      return new MeshLeaves(primitiveIndexes);
+    }
+
+    @Override
+    public void addToExtents(int index, Extents.Builder extents) {
+      for (int corner = 0; corner < 3; corner++) {
+        int offset = 3 * indexes[3 * index + corner];
+        extents.addPoint(positions[offset], positions[offset + 1], positions[offset + 2]);
+      }
+    }
+  }
+
+  /** The triangles of this mesh in the order in which the leaves of its hierarchy refer to them. */
+  private final class MeshLeaves implements LeafPrimitives {
+
+    // The index of the triangle at each position.
+    private final int[] order;
+    private final TriangleGroups triangles;
+
+    MeshLeaves(int[] order) {
+      this.order = order;
+      this.triangles = new TriangleGroups(positions, indexes, order, KERNEL.getGroupSize());
+    }
+
+    @Override
+    public RayHit intersectWith(int start, int end, Ray ray, double maxTime) {
+      // The time and (u, v) coordinates of the hit.
+      double[] hit = new double[3];
+      int closest = KERNEL.intersect(triangles, start, end, ray, maxTime, hit);
+      return closest < 0 ? null : toRayHit(order[closest], ray, hit[0], hit[1], hit[2]);
+    }
+
+    @Override
+    public boolean intersectsWithin(int start, int end, Ray ray, double maxDistance) {
+      return KERNEL.intersectsWithin(triangles, start, end, ray, maxDistance);
+    }
+  }
+}
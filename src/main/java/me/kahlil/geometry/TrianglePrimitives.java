@@ -0,0 +1,37 @@
+package me.kahlil.geometry;
+
+import java.util.Optional;
+import me.kahlil.bvh.IndexedPrimitives;
+
+/**
+ * Adapts the triangles of a mesh to {@link IndexedPrimitives}, so that a bounding volume hierarchy
+ * can be built over them. Rays are expected to already be in the mesh's object space.
+ */
+final class TrianglePrimitives implements IndexedPrimitives {
+
+  private final Triangle[] triangles;
+
+  TrianglePrimitives(Triangle[] triangles) {
+    this.triangles = triangles;
+  }
+
+  @Override
+  public int size() {
+    return triangles.length;
+  }
+
+  @Override
+  public BoundingBox getBounds(int index) {
+    return new BoundingBox(triangles[index].minBound(), triangles[index].maxBound());
+  }
+
+  @Override
+  public Optional<RayHit> intersectWith(int index, Ray ray) {
+    return triangles[index].intersectInObjectSpace(ray);
+  }
+
+  @Override
+  public boolean intersectsWithin(int index, Ray ray, double maxDistance) {
+    return triangles[index].intersectsInObjectSpaceWithin(ray, maxDistance);
+  }
+}
@@ -159,6 +159,11 @@ public class Vector {
     return y;
   }
 
+  /** Returns the homogeneous coordinate, which is 1 for points and 0 for directions. */
+  double getW() {
+    return w;
+  }
+
   public double getComponent(int i) {
     if (i == 0) {
       return x;
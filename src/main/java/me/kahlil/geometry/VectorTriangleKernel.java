@@ -0,0 +1,130 @@
+package me.kahlil.geometry;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LT;
+import static jdk.incubator.vector.VectorOperators.MIN;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_INTERSECTIONS;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
+import static me.kahlil.geometry.Constants.EPSILON;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link TriangleKernel} which tests a group of triangles, as many as fit in the platform's
+ * preferred vector size, against a ray at a time with the incubating Vector API.
+ *
+ * <p>Every lane performs the same operations in the same order as {@link ScalarTriangleKernel},
+ * without fusing any multiplications and additions, so both find exactly the same hits. Instead of
+ * returning early, a lane which misses its triangle is masked out.
+ */
+final class VectorTriangleKernel implements TriangleKernel {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  public int getGroupSize() {
+    return SPECIES.length();
+  }
+
+  @Override
+  public int intersect(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxTime, double[] hit) {
+    NUM_TRIANGLE_TESTS.getAndAdd(end - start);
+    int numHits = 0;
+    int closest = -1;
+    double closestTime = maxTime;
+    for (int group = start; group < end; group += SPECIES.length()) {
+      Lanes lanes = new Lanes(triangles, group, end, ray);
+      numHits += lanes.hits.trueCount();
+      VectorMask<Double> closer = lanes.hits.and(lanes.times.compare(LT, closestTime));
+      if (!closer.anyTrue()) {
+        continue;
+      }
+      // The first of the closest lanes, as the scalar kernel would find it.
+      int lane = lanes.times.compare(EQ, lanes.times.reduceLanes(MIN, closer), closer).firstTrue();
+      closest = group + lane;
+      closestTime = lanes.times.lane(lane);
+      hit[0] = closestTime;
+      hit[1] = lanes.u.lane(lane);
+      hit[2] = lanes.v.lane(lane);
+    }
+    NUM_TRIANGLE_INTERSECTIONS.getAndAdd(numHits);
+    return closest;
+  }
+
+  @Override
+  public boolean intersectsWithin(
+      TriangleGroups triangles, int start, int end, Ray ray, double maxDistance) {
+    for (int group = start; group < end; group += SPECIES.length()) {
+      NUM_TRIANGLE_TESTS.getAndAdd(Math.min(SPECIES.length(), end - group));
+      Lanes lanes = new Lanes(triangles, group, end, ray);
+      NUM_TRIANGLE_INTERSECTIONS.getAndAdd(lanes.hits.trueCount());
+      if (lanes.hits.and(lanes.times.compare(LT, maxDistance)).anyTrue()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The Moller-Trumbore test of a ray against the group of triangles starting at a position. */
+  private static final class Lanes {
+
+    // The lanes whose triangles are before the end of the range and are hit by the ray.
+    private final VectorMask<Double> hits;
+    private final DoubleVector times;
+    private final DoubleVector u;
+    private final DoubleVector v;
+
+    Lanes(TriangleGroups triangles, int group, int end, Ray ray) {
+      DoubleVector p0p1X = DoubleVector.fromArray(SPECIES, triangles.edge1X, group);
+      DoubleVector p0p1Y = DoubleVector.fromArray(SPECIES, triangles.edge1Y, group);
+      DoubleVector p0p1Z = DoubleVector.fromArray(SPECIES, triangles.edge1Z, group);
+      DoubleVector p0p2X = DoubleVector.fromArray(SPECIES, triangles.edge2X, group);
+      DoubleVector p0p2Y = DoubleVector.fromArray(SPECIES, triangles.edge2Y, group);
+      DoubleVector p0p2Z = DoubleVector.fromArray(SPECIES, triangles.edge2Z, group);
+
+      Vector direction = ray.getDirection();
+      double dX = direction.getX();
+      double dY = direction.getY();
+      double dZ = direction.getZ();
+
+      // pVec = direction x p0p2
+      DoubleVector pX = p0p2Z.mul(dY).sub(p0p2Y.mul(dZ));
+      DoubleVector pY = p0p2X.mul(dZ).sub(p0p2Z.mul(dX));
+      DoubleVector pZ = p0p2Y.mul(dX).sub(p0p2X.mul(dY));
+      DoubleVector determinant = p0p1X.mul(pX).add(p0p1Y.mul(pY)).add(p0p1Z.mul(pZ));
+
+      // Ray and triangle are parallel if determinant is too close to zero.
+      VectorMask<Double> misses =
+          SPECIES.indexInRange(group, end).not().or(determinant.abs().compare(LT, EPSILON));
+      DoubleVector inverseDeterminant = DoubleVector.broadcast(SPECIES, 1).div(determinant);
+
+      Vector start = ray.getStart();
+      DoubleVector tX =
+          DoubleVector.broadcast(SPECIES, start.getX())
+              .sub(DoubleVector.fromArray(SPECIES, triangles.vertexX, group));
+      DoubleVector tY =
+          DoubleVector.broadcast(SPECIES, start.getY())
+              .sub(DoubleVector.fromArray(SPECIES, triangles.vertexY, group));
+      DoubleVector tZ =
+          DoubleVector.broadcast(SPECIES, start.getZ())
+              .sub(DoubleVector.fromArray(SPECIES, triangles.vertexZ, group));
+      this.u = tX.mul(pX).add(tY.mul(pY)).add(tZ.mul(pZ)).mul(inverseDeterminant);
+      misses = misses.or(u.compare(LT, 0)).or(u.compare(GT, 1));
+
+      // qVec = tVec x p0p1
+      DoubleVector qX = tY.mul(p0p1Z).sub(tZ.mul(p0p1Y));
+      DoubleVector qY = tZ.mul(p0p1X).sub(tX.mul(p0p1Z));
+      DoubleVector qZ = tX.mul(p0p1Y).sub(tY.mul(p0p1X));
+      this.v = qX.mul(dX).add(qY.mul(dY)).add(qZ.mul(dZ)).mul(inverseDeterminant);
+      misses = misses.or(v.compare(LT, 0)).or(u.add(v).compare(GT, 1));
+
+      this.times = p0p2X.mul(qX).add(p0p2Y.mul(qY)).add(p0p2Z.mul(qZ)).mul(inverseDeterminant);
+      misses = misses.or(times.compare(LT, 0));
+      this.hits = misses.not();
+    }
+  }
+}
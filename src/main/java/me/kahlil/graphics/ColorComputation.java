@@ -61,7 +61,8 @@ public final class ColorComputation {
     return color;
   }
 
-  private static float bound(float v) {
+  /** Bounds the color component to be within 0.0 to 1.0 inclusively. */
+  static float bound(float v) {
     return Math.min(Math.max(v, 0f), 1.0f);
   }
 }
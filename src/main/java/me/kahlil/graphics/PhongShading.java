@@ -1,9 +1,8 @@
 package me.kahlil.graphics;
 
-import static me.kahlil.graphics.RayIntersections.findAllIntersections;
+import static me.kahlil.graphics.RayIntersections.isOccluded;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
 import me.kahlil.geometry.LightSphere;
 import me.kahlil.geometry.Ray;
 import me.kahlil.geometry.RayHit;
@@ -32,23 +31,65 @@ public final class PhongShading implements Shader {
   @Override
   public MutableColor shade(RayHit rayHit) {
     // Perform custom logic for LightSpheres since they are exceptional
-    if (rayHit.getObject() instanceof LightSphere) {
+    if (isLight(rayHit)) {
       return shadeLightSphere();
     }
-    Material material = rayHit.getMaterial();
     // Initialize color with ambient light
-    MutableColor lighted = ColorComputation.of(scene.getAmbient()).multiply(material.getColor()).compute();
+    MutableColor lighted = shadeAmbient(rayHit);
     for (PointLight light : scene.getLights()) {
       // Check to see if shadow should be cast
       if (!shadowsEnabled || !isObjectBetweenLightAndPoint(light, rayHit.getIntersection())) {
         lighted = ColorComputation.modifyingInPlace(lighted)
-            .add(phongIllumination(light, rayHit, camera.getLocation()))
+            .add(illuminate(light, rayHit))
             .compute();
       }
     }
     return lighted;
   }
 
+  /**
+   * Returns whether the hit is with a light itself, which {@link #shade} colors without casting any
+   * shadow rays.
+   */
+  static boolean isLight(RayHit rayHit) {
+    return rayHit.getObject() instanceof LightSphere;
+  }
+
+  /**
+   * Returns the ambient color of the hit. {@link #shade} adds the illumination of every light whose
+   * shadow ray is not occluded to it, in order, so renderers which trace the shadow rays themselves
+   * can shade hits from these parts.
+   */
+  MutableColor shadeAmbient(RayHit rayHit) {
+    return ColorComputation.of(scene.getAmbient())
+        .multiply(rayHit.getMaterial().getColor())
+        .compute();
+  }
+
+  /**
+   * Returns the color the given light adds to the hit if nothing occludes it. No shadow ray is
+   * traced here, so callers must only add this for lights whose shadow ray reaches them.
+   */
+  MutableColor illuminate(PointLight light, RayHit rayHit) {
+    return phongIllumination(light, rayHit, camera.getLocation());
+  }
+
+  boolean isShadowsEnabled() {
+    return shadowsEnabled;
+  }
+
+  /** Returns the direction of the shadow ray from the given point towards the light. */
+  static Vector computeShadowDirection(PointLight light, Vector point) {
+    return light.getLocation().subtract(point);
+  }
+
+  /**
+   * Returns the start of the shadow ray from the given point, moved slightly towards the light so
+   * that the ray does not hit the surface the point is on.
+   */
+  static Vector computeShadowStart(Vector point, Vector shadowDirection) {
+    return point.add(shadowDirection.scale(.0001));
+  }
 
   /**
    * Returns the new color of a pixel given the color of the pixel that this light hits and the
@@ -104,13 +145,8 @@ public final class PhongShading implements Shader {
 
   /** Returns true iff there is an object in the scene between the light and the given point. */
   private boolean isObjectBetweenLightAndPoint(PointLight l, Vector point) {
-    Vector shadowVec = l.getLocation().subtract(point);
-    ImmutableList<RayHit> allIntersections =
-        findAllIntersections(new Ray(point.add(shadowVec.scale(.0001)), shadowVec), scene);
-    return allIntersections
-        .stream()
-        .filter(rayHit -> !(rayHit.getObject() instanceof LightSphere))
-        .map(RayHit::getDistance)
-        .anyMatch(distance -> distance < shadowVec.magnitude());
+    Vector shadowVec = computeShadowDirection(l, point);
+    return isOccluded(
+        new Ray(computeShadowStart(point, shadowVec), shadowVec), scene, shadowVec.magnitude());
   }
 }
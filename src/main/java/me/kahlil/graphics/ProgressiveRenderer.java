@@ -0,0 +1,139 @@
+package me.kahlil.graphics;
+
+import static me.kahlil.config.Counters.NUM_PRIMARY_RAYS;
+import static me.kahlil.config.Parameters.NUM_THREADS;
+import static me.kahlil.config.Parameters.TILE_SIZE;
+import static me.kahlil.graphics.CoordinateMapper.getPixelHeightInCameraSpace;
+import static me.kahlil.graphics.CoordinateMapper.getPixelWidthInCameraSpace;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import me.kahlil.geometry.Ray;
+import me.kahlil.scene.Camera;
+import me.kahlil.scene.Raster;
+
+/**
+ * Renderer which progressively refines an image by tracing one sample per pixel over the whole
+ * raster per pass, rather than tracing all anti-aliasing samples of a pixel before moving on to
+ * the next one.
+ *
+ * <p>Running sums of the samples are kept for every pixel, and a snapshot averaging the samples
+ * traced so far is published after each pass. The first pass samples the middle of every pixel
+ * and later passes sample randomly within the pixel, so a snapshot after n passes is comparable to
+ * a {@link SimpleAntiAliaser} render with n samples per pixel.
+ */
+public final class ProgressiveRenderer {
+
+  private static final AntiAliasingMethod JITTER = new RandomAntiAliasingMethod(1);
+
+  private final RayTracer rayTracer;
+  private final int heightPx;
+  private final int widthPx;
+  private final SamplingRadius samplingRadius;
+  private final int numThreads;
+  private final int tileSize;
+
+  // Running sums of the red, green and blue samples of every pixel, in row-major order.
+  private final float[] sums;
+  private int numPasses = 0;
+
+  /**
+   * Constructs a renderer which samples the given {@link RayTracer}. Note, the ray tracer should
+   * not itself perform anti-aliasing (e.g. a {@link ReflectiveRayTracer}), since this renderer
+   * takes care of distributing samples within each pixel.
+   */
+  public ProgressiveRenderer(Raster frame, Camera camera, RayTracer rayTracer) {
+    this(frame, camera, rayTracer, NUM_THREADS, TILE_SIZE);
+  }
+
+  public ProgressiveRenderer(
+      Raster frame, Camera camera, RayTracer rayTracer, int numThreads, int tileSize) {
+    this.rayTracer = rayTracer;
+    this.heightPx = frame.getHeightPx();
+    this.widthPx = frame.getWidthPx();
+    this.samplingRadius =
+        ImmutableSamplingRadius.builder()
+            .setWidth(getPixelWidthInCameraSpace(frame, camera) * 0.5)
+            .setHeight(getPixelHeightInCameraSpace(frame, camera) * 0.5)
+            .build();
+    this.numThreads = numThreads;
+    this.tileSize = tileSize;
+    this.sums = new float[heightPx * widthPx * 3];
+  }
+
+  /**
+   * Runs up to maxPasses passes over the raster, handing a snapshot to the listener after each
+   * one. Rendering stops early if the listener asks it to. Returns the snapshot of the last pass.
+   */
+  public Raster render(int maxPasses, SnapshotListener listener)
+      throws InterruptedException, ExecutionException {
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    ThreadUtilization utilization = new ThreadUtilization();
+    Raster snapshot = null;
+    try {
+      for (int pass = 0; pass < maxPasses; pass++) {
+        pool.submit(
+                new RayTracerWorker(
+                    this::accumulateSample, utilization, tileSize, heightPx, widthPx))
+            .get();
+        numPasses++;
+        snapshot = snapshot();
+        if (!listener.onSnapshot(numPasses, snapshot)) {
+          break;
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return snapshot;
+  }
+
+  /** Returns the number of completed passes, which is the number of samples in every pixel. */
+  public int getNumPasses() {
+    return numPasses;
+  }
+
+  /** Returns a new {@link Raster} containing the average of every pixel's samples so far. */
+  public Raster snapshot() {
+    Raster snapshot = new Raster(widthPx, heightPx);
+    float weight = numPasses == 0 ? 0f : 1.0f / numPasses;
+    for (int i = 0; i < heightPx; i++) {
+      for (int j = 0; j < widthPx; j++) {
+        int offset = (i * widthPx + j) * 3;
+        snapshot.setPixel(
+            i,
+            j,
+            new MutableColor(
+                sums[offset] * weight, sums[offset + 1] * weight, sums[offset + 2] * weight));
+      }
+    }
+    return snapshot;
+  }
+
+  /** Traces a single sample for the ith and jth pixel and adds it to that pixel's running sum. */
+  private void accumulateSample(int i, int j) {
+    NUM_PRIMARY_RAYS.getAndIncrement();
+    Ray ray = rayTracer.primaryRay(i, j);
+    if (numPasses > 0) {
+      ray = JITTER.getRaysToSample(ray, samplingRadius)[0];
+    }
+    float[] rgb = rayTracer.traceRay(ray).getRgb();
+    // Each pixel is only ever touched by one thread per pass, and passes are separated by the
+    // pool's join, so no further synchronization is necessary.
+    int offset = (i * widthPx + j) * 3;
+    sums[offset] += rgb[0];
+    sums[offset + 1] += rgb[1];
+    sums[offset + 2] += rgb[2];
+  }
+
+  /** Callback which receives the snapshot published at the end of every pass. */
+  @FunctionalInterface
+  public interface SnapshotListener {
+
+    /**
+     * Receives the snapshot after the given number of completed passes. Returns whether or not
+     * rendering should continue with another pass.
+     */
+    boolean onSnapshot(int numPasses, Raster snapshot);
+  }
+}
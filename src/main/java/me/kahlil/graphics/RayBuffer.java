@@ -0,0 +1,145 @@
+package me.kahlil.graphics;
+
+import java.util.Arrays;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Vector;
+
+/**
+ * A fixed-size stream of rays stored as a structure of arrays, one array per component, for the
+ * stages of a {@link WavefrontRenderer}.
+ *
+ * <p>Rays are stored as the start and direction they are constructed from rather than as {@link
+ * Ray}s, and are only materialized when they are intersected. Each ray also records the index of
+ * what it was generated for (e.g. its pixel, or the ray it was reflected from), and the distance
+ * up to which hits count.
+ *
+ * <p>Rays can be put into a coherent order, by the octant of their direction and then the Morton
+ * code of their start, so that neighboring rays in the stream tend to visit the same parts of the
+ * scene.
+ */
+final class RayBuffer {
+
+  // Bits per axis of the grid over the rays' starts whose cells are ordered by Morton code, which
+  // along with the direction's octant must leave room for a ray's index in a sort key.
+  private static final int MORTON_BITS = 9;
+
+  private final double[] startX;
+  private final double[] startY;
+  private final double[] startZ;
+  private final double[] directionX;
+  private final double[] directionY;
+  private final double[] directionZ;
+  private final double[] maxDistances;
+  private final int[] sources;
+
+  RayBuffer(int size) {
+    this.startX = new double[size];
+    this.startY = new double[size];
+    this.startZ = new double[size];
+    this.directionX = new double[size];
+    this.directionY = new double[size];
+    this.directionZ = new double[size];
+    this.maxDistances = new double[size];
+    this.sources = new int[size];
+  }
+
+  int size() {
+    return sources.length;
+  }
+
+  /**
+   * Sets the ray at the given index. The direction need not be normalized, since it is normalized
+   * the same way as by {@link Ray#Ray} when the ray is materialized.
+   */
+  void set(int index, Vector start, Vector direction, double maxDistance, int source) {
+    startX[index] = start.getX();
+    startY[index] = start.getY();
+    startZ[index] = start.getZ();
+    directionX[index] = direction.getX();
+    directionY[index] = direction.getY();
+    directionZ[index] = direction.getZ();
+    maxDistances[index] = maxDistance;
+    sources[index] = source;
+  }
+
+  /** Materializes the ray at the given index for intersection. */
+  Ray getRay(int index) {
+    return new Ray(
+        new Vector(startX[index], startY[index], startZ[index]),
+        new Vector(directionX[index], directionY[index], directionZ[index]));
+  }
+
+  double getMaxDistance(int index) {
+    return maxDistances[index];
+  }
+
+  int getSource(int index) {
+    return sources[index];
+  }
+
+  /** Sets the ray at the given index to a copy of the ray at sourceIndex in the given buffer. */
+  void copy(int index, RayBuffer source, int sourceIndex) {
+    startX[index] = source.startX[sourceIndex];
+    startY[index] = source.startY[sourceIndex];
+    startZ[index] = source.startZ[sourceIndex];
+    directionX[index] = source.directionX[sourceIndex];
+    directionY[index] = source.directionY[sourceIndex];
+    directionZ[index] = source.directionZ[sourceIndex];
+    maxDistances[index] = source.maxDistances[sourceIndex];
+    sources[index] = source.sources[sourceIndex];
+  }
+
+  /**
+   * Writes the indexes in [start, end) into the same range of order, sorted by the octant of the
+   * ray's direction and then by the Morton code of its start within the bounds of the range's
+   * starts. Rays with equal keys keep their relative order.
+   */
+  void sortCoherently(int start, int end, int[] order) {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double maxZ = Double.NEGATIVE_INFINITY;
+    for (int i = start; i < end; i++) {
+      minX = Math.min(minX, startX[i]);
+      minY = Math.min(minY, startY[i]);
+      minZ = Math.min(minZ, startZ[i]);
+      maxX = Math.max(maxX, startX[i]);
+      maxY = Math.max(maxY, startY[i]);
+      maxZ = Math.max(maxZ, startZ[i]);
+    }
+
+    // The key goes in the high bits and the index in the low ones, so sorting the longs orders
+    // the indexes by key, and then by index.
+    long[] keys = new long[end - start];
+    for (int i = start; i < end; i++) {
+      long octant =
+          (directionX[i] < 0 ? 4 : 0) | (directionY[i] < 0 ? 2 : 0) | (directionZ[i] < 0 ? 1 : 0);
+      long mortonCode =
+          spreadBits(toCell(startX[i], minX, maxX)) << 2
+              | spreadBits(toCell(startY[i], minY, maxY)) << 1
+              | spreadBits(toCell(startZ[i], minZ, maxZ));
+      keys[i - start] = (octant << 3 * MORTON_BITS | mortonCode) << Integer.SIZE | i;
+    }
+    Arrays.sort(keys);
+    for (int i = start; i < end; i++) {
+      order[i] = (int) keys[i - start];
+    }
+  }
+
+  /** Returns the cell of the grid along one axis which the coordinate falls in. */
+  private static int toCell(double coordinate, double min, double max) {
+    int maxCell = (1 << MORTON_BITS) - 1;
+    return max > min ? (int) ((coordinate - min) / (max - min) * maxCell) : 0;
+  }
+
+  /** Spreads the low bits of the cell out to every third bit, to interleave them with others'. */
+  private static long spreadBits(int cell) {
+    long spread = 0;
+    for (int bit = 0; bit < MORTON_BITS; bit++) {
+      spread |= (long) ((cell >>> bit) & 1) << (3 * bit);
+    }
+    return spread;
+  }
+}
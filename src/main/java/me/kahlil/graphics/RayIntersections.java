@@ -1,14 +1,12 @@
 package me.kahlil.graphics;
 
-import static com.google.common.collect.ImmutableList.toImmutableList;
-
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Streams;
-import com.google.common.primitives.Doubles;
+import java.util.List;
 import java.util.Optional;
+import me.kahlil.geometry.Intersectable;
 import me.kahlil.geometry.LightSphere;
 import me.kahlil.geometry.Ray;
 import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
 import me.kahlil.scene.Scene;
 
 /** Static helper class for determining ray intersections with a given scene. */
@@ -19,18 +17,54 @@ final class RayIntersections {
   /**
    * Returns the RayHit with the lowest distance from the visionVector to each obj in the scene.
    * Returns optional.empty() if no object is hit.
+   *
+   * <p>This is on the hottest path of the renderer, so it keeps track of the closest hit so far
+   * rather than collecting every hit and then picking the minimum. Shapes are found through the
+   * scene's {@link me.kahlil.bvh.ShapeHierarchy}, while the few light spheres are tested directly.
    */
   static Optional<RayHit> findFirstIntersection(Ray visionVector, Scene scene) {
-    return findAllIntersections(visionVector, scene).stream()
-        .min((rayHit1, rayHit2) -> Doubles.compare(rayHit1.getDistance(), rayHit2.getDistance()));
+    RayHit closest = scene.getShapeHierarchy().intersectWith(visionVector).orElse(null);
+    closest = findCloserIntersection(visionVector, scene.getLightSpheres(), closest);
+    return Optional.ofNullable(closest);
+  }
+
+  /**
+   * Records the closest hit of each ray of the packet with any object in the scene in the packet.
+   * Shapes are found by tracing the rays through the scene's {@link me.kahlil.bvh.ShapeHierarchy}
+   * together.
+   */
+  static void findFirstIntersections(RayPacket packet, Scene scene) {
+    long allRays = packet.allRays();
+    scene.getShapeHierarchy().intersectWith(packet, allRays);
+    List<LightSphere> lightSpheres = scene.getLightSpheres();
+    for (int i = 0; i < lightSpheres.size(); i++) {
+      lightSpheres.get(i).intersectWith(packet, allRays);
+    }
   }
 
-  /** Returns all intersections the given ray has with the objects in the scene. */
-  static ImmutableList<RayHit> findAllIntersections(Ray visionVector, Scene scene) {
-    return Streams.concat(
-            scene.getShapes().stream(), scene.getLights().stream().map(LightSphere::new))
-        .map(object -> object.intersectWith(visionVector)).collect(toImmutableList()).stream()
-        .flatMap(Optional::stream)
-        .collect(toImmutableList());
+  /**
+   * Returns whether or not any shape in the scene intersects the ray less than maxDistance along
+   * it. Lights are not considered, since they do not block each other. Returns as soon as the
+   * first blocker is found.
+   */
+  static boolean isOccluded(Ray ray, Scene scene, double maxDistance) {
+    return scene.getShapeHierarchy().intersectsWithin(ray, maxDistance);
+  }
+
+  /**
+   * Returns the closest hit of the ray with any of the given objects if it is closer than
+   * closestSoFar, or closestSoFar otherwise. closestSoFar may be null if nothing has been hit yet.
+   */
+  private static RayHit findCloserIntersection(
+      Ray ray, List<? extends Intersectable> objects, RayHit closestSoFar) {
+    double maxTime = closestSoFar == null ? Double.POSITIVE_INFINITY : closestSoFar.getTime();
+    for (int i = 0; i < objects.size(); i++) {
+      Optional<RayHit> rayHit = objects.get(i).intersectWith(ray);
+      if (rayHit.isPresent() && rayHit.get().getTime() < maxTime) {
+        closestSoFar = rayHit.get();
+        maxTime = closestSoFar.getTime();
+      }
+    }
+    return closestSoFar;
   }
 }
@@ -5,6 +5,7 @@ import static me.kahlil.graphics.CoordinateMapper.convertPixelToCameraSpaceCoord
 
 import me.kahlil.graphics.MutableColor;
 import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayPacket;
 import me.kahlil.geometry.Vector;
 import me.kahlil.scene.Camera;
 import me.kahlil.scene.Raster;
@@ -32,11 +33,44 @@ public abstract class RayTracer {
   /** Traces a ray through ith and jth pixel, returning a color for that pixel. */
   final MutableColor traceRay(int i, int j) {
     NUM_PRIMARY_RAYS.getAndIncrement();
+    return traceRay(primaryRay(i, j));
+  }
+
+  /**
+   * Traces every ray of the packet, returning their colors in order. By default the rays are traced
+   * one at a time, so ray tracers which can trace coherent rays together should override this.
+   */
+  MutableColor[] traceRays(RayPacket packet) {
+    MutableColor[] colors = new MutableColor[packet.size()];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = traceRay(packet.getRay(i));
+    }
+    return colors;
+  }
+
+  /**
+   * Traces the rays through the pixels in rows [startRow, endRow) and columns [startColumn,
+   * endColumn) together as one packet, returning their colors row by row. The block may hold at
+   * most {@link RayPacket#MAX_SIZE} pixels.
+   */
+  final MutableColor[] traceBlock(int startRow, int endRow, int startColumn, int endColumn) {
+    Ray[] rays = new Ray[(endRow - startRow) * (endColumn - startColumn)];
+    int ray = 0;
+    for (int i = startRow; i < endRow; i++) {
+      for (int j = startColumn; j < endColumn; j++) {
+        rays[ray++] = primaryRay(i, j);
+      }
+    }
+    NUM_PRIMARY_RAYS.getAndAdd(rays.length);
+    return traceRays(new RayPacket(rays));
+  }
+
+  /** Returns the ray from the camera through the middle of the ith and jth pixel. */
+  final Ray primaryRay(int i, int j) {
     Point2D inCameraSpace = convertPixelToCameraSpaceCoordinates(raster, camera, i, j);
-    return traceRay(
-        new Ray(
-            camera.getLocation(),
-            new Vector(inCameraSpace.getX(), inCameraSpace.getY(), -1.0)
-                .subtract(camera.getLocation())));
+    return new Ray(
+        camera.getLocation(),
+        new Vector(inCameraSpace.getX(), inCameraSpace.getY(), -1.0)
+            .subtract(camera.getLocation()));
   }
 }
@@ -1,6 +1,9 @@
 package me.kahlil.graphics;
 
-import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.base.Preconditions.checkArgument;
+import static me.kahlil.config.Counters.ACCELERATION_STRUCTURE_BUILD_NANOS;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_STRUCTURES_BUILT;
 import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTIONS;
 import static me.kahlil.config.Counters.NUM_BOUNDING_INTERSECTION_TESTS;
 import static me.kahlil.config.Counters.NUM_INTERSECTIONS;
@@ -13,24 +16,29 @@ import static me.kahlil.config.Counters.NUM_TRIANGLES;
 import static me.kahlil.config.Counters.NUM_TRIANGLE_INTERSECTIONS;
 import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
 import static me.kahlil.config.Parameters.NUM_THREADS;
+import static me.kahlil.config.Parameters.RAY_PACKET_SIZE;
+import static me.kahlil.config.Parameters.TILE_SIZE;
 
-import com.google.common.collect.ImmutableList;
 import java.text.NumberFormat;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import me.kahlil.geometry.RayPacket;
 import me.kahlil.scene.Camera;
 import me.kahlil.scene.Raster;
 import me.kahlil.scene.Scene;
 
-/** Coordinator for managing the ray tracer worker threads via a {@link ExecutorService}. */
+/**
+ * Coordinator for managing the ray tracer worker threads via a work-stealing {@link
+ * ForkJoinPool}, which renders the raster as a set of square tiles.
+ */
 public class RayTracerCoordinator {
 
   private static final NumberFormat numberFormat = NumberFormat.getNumberInstance();
 
-  private final ExecutorService executor;
+  private final ForkJoinPool pool;
+  private final int tileSize;
+  private final int packetSize;
 
   private final Raster raster;
   private final Camera camera;
@@ -38,33 +46,78 @@ public class RayTracerCoordinator {
   private final RayTracer rayTracer;
 
   public RayTracerCoordinator(Raster raster, Camera camera, Scene scene, RayTracer rayTracer) {
+    this(raster, camera, scene, rayTracer, NUM_THREADS, TILE_SIZE);
+  }
+
+  public RayTracerCoordinator(
+      Raster raster,
+      Camera camera,
+      Scene scene,
+      RayTracer rayTracer,
+      int numThreads,
+      int tileSize) {
+    this(raster, camera, scene, rayTracer, numThreads, tileSize, RAY_PACKET_SIZE);
+  }
+
+  /**
+   * Constructs a coordinator which traces the primary rays through each square block of packetSize
+   * pixels together as a packet, or one at a time if packetSize is 1.
+   */
+  public RayTracerCoordinator(
+      Raster raster,
+      Camera camera,
+      Scene scene,
+      RayTracer rayTracer,
+      int numThreads,
+      int tileSize,
+      int packetSize) {
+    checkArgument(
+        packetSize > 0 && packetSize * packetSize <= RayPacket.MAX_SIZE,
+        "Packets must be between 1 and %s pixels wide but were %s.",
+        (int) Math.sqrt(RayPacket.MAX_SIZE),
+        packetSize);
     this.raster = raster;
     this.camera = camera;
     this.scene = scene;
     this.rayTracer = rayTracer;
-    this.executor = Executors.newFixedThreadPool(NUM_THREADS);
+    this.tileSize = tileSize;
+    this.packetSize = packetSize;
+    this.pool = new ForkJoinPool(numThreads);
   }
 
   public Raster render() throws InterruptedException, ExecutionException {
+    ThreadUtilization utilization = new ThreadUtilization();
 
-    // Construct individual worker threads.
-    ImmutableList<RayTracerWorker> rayTracerWorkers =
-        IntStream.range(0, NUM_THREADS)
-            .mapToObj(i -> new RayTracerWorker(rayTracer, raster, i, NUM_THREADS))
-            .collect(toImmutableList());
+    // Render the whole raster, letting the pool split it into tiles and balance them across
+    // threads.
+    long start = System.nanoTime();
+    RayTracerWorker worker =
+        packetSize > 1
+            ? new RayTracerWorker(
+                this::renderPacket,
+                packetSize,
+                utilization,
+                tileSize,
+                raster.getHeightPx(),
+                raster.getWidthPx())
+            : new RayTracerWorker(
+                (i, j) -> raster.setPixel(i, j, rayTracer.traceRay(i, j)),
+                utilization,
+                tileSize,
+                raster.getHeightPx(),
+                raster.getWidthPx());
+    pool.submit(worker).get();
+    long wallNanos = System.nanoTime() - start;
 
-    // Start all workers.
-    ImmutableList<Future<?>> futures =
-        rayTracerWorkers.stream().map(executor::submit).collect(toImmutableList());
-
-    // Wait for all workers to finish.
-    for (Future<?> future : futures) {
-      future.get();
-    }
-
-    // Kill executor now that work is done.
-    executor.shutdown();
+    // Kill pool now that work is done.
+    pool.shutdown();
 
+    System.out.printf(
+        "Rendered %d tiles of size %d in %s ms\n",
+        numTiles(),
+        tileSize,
+        numberFormat.format(TimeUnit.NANOSECONDS.toMillis(wallNanos)));
+    utilization.printSummary(wallNanos);
     System.out.printf("# primary rays = %s\n", numberFormat.format(NUM_PRIMARY_RAYS.get()));
     System.out.printf("# total rays traced = %s\n", numberFormat.format(NUM_TOTAL_RAYS.get()));
     System.out.printf("# triangles = %s\n", numberFormat.format(NUM_TRIANGLES.get()));
@@ -80,12 +133,20 @@ public class RayTracerCoordinator {
         "# ray-bounding-volume actual intersections = %s (%s%%)\n",
         numberFormat.format(NUM_BOUNDING_INTERSECTIONS.get()),
         numberFormat.format(100.0 * NUM_BOUNDING_INTERSECTIONS.get() / NUM_BOUNDING_INTERSECTION_TESTS.get()));
+    System.out.printf(
+        "# acceleration structure node visits = %s\n",
+        numberFormat.format(NUM_ACCELERATION_NODE_VISITS.get()));
     System.out.printf(
         "# ray-shape intersection tests = %s\n", numberFormat.format(NUM_INTERSECTION_TESTS.get()));
     System.out.printf(
         "# ray-shape actual intersections = %s (%s%%)\n",
         numberFormat.format(NUM_INTERSECTIONS.get()),
         numberFormat.format(100.0 * NUM_INTERSECTIONS.get() / NUM_INTERSECTION_TESTS.get()));
+    System.out.printf(
+        "# acceleration structures built = %s in %s ms\n",
+        numberFormat.format(NUM_ACCELERATION_STRUCTURES_BUILT.get()),
+        numberFormat.format(
+            TimeUnit.NANOSECONDS.toMillis(ACCELERATION_STRUCTURE_BUILD_NANOS.get())));
     System.out.printf(
         "# octree internal insertions = %s\n", numberFormat.format(NUM_OCTREE_INTERNAL_INSERTIONS.get()));
     System.out.printf(
@@ -93,4 +154,20 @@ public class RayTracerCoordinator {
 
     return raster;
   }
+
+  private void renderPacket(int startRow, int endRow, int startColumn, int endColumn) {
+    MutableColor[] colors = rayTracer.traceBlock(startRow, endRow, startColumn, endColumn);
+    int pixel = 0;
+    for (int i = startRow; i < endRow; i++) {
+      for (int j = startColumn; j < endColumn; j++) {
+        raster.setPixel(i, j, colors[pixel++]);
+      }
+    }
+  }
+
+  private int numTiles() {
+    int tilesWide = (raster.getWidthPx() + tileSize - 1) / tileSize;
+    int tilesHigh = (raster.getHeightPx() + tileSize - 1) / tileSize;
+    return tilesWide * tilesHigh;
+  }
 }
@@ -1,34 +1,149 @@
 package me.kahlil.graphics;
 
-import me.kahlil.graphics.MutableColor;
-import me.kahlil.scene.Raster;
+import java.util.concurrent.RecursiveAction;
 
-public class RayTracerWorker implements Runnable {
+/**
+ * Fork-join task which renders a rectangular region of pixels.
+ *
+ * <p>Regions larger than a single tile are recursively split in half along their longer side, so
+ * idle threads in the {@link java.util.concurrent.ForkJoinPool} can steal the unstarted halves
+ * from busy ones. This keeps all threads busy even when the cost of a pixel varies a lot across
+ * the image (e.g. a reflective sphere or a finely tessellated mesh in one corner).
+ */
+@SuppressWarnings("serial") // Fork-join tasks are never serialized.
+final class RayTracerWorker extends RecursiveAction {
 
-  private final RayTracer rayTracer;
-  private final Raster frame;
-  private final int startingPixel;
-  private final int pixelIncrement;
+  private final BlockRenderer blockRenderer;
+  // Width/height of the square blocks of pixels each tile is rendered in.
+  private final int blockSize;
+  private final ThreadUtilization utilization;
+  private final int tileSize;
 
+  // Pixel bounds of this region, with the start inclusive and the end exclusive.
+  private final int startRow;
+  private final int endRow;
+  private final int startColumn;
+  private final int endColumn;
+
+  /** Constructs a worker which renders every pixel of a frame with the given dimensions. */
   RayTracerWorker(
-      RayTracer rayTracer,
-      Raster frame,
-      int startingPixel,
-      int pixelIncrement) {
-    this.rayTracer = rayTracer;
-    this.frame = frame;
-    this.startingPixel = startingPixel;
-    this.pixelIncrement = pixelIncrement;
+      PixelRenderer pixelRenderer,
+      ThreadUtilization utilization,
+      int tileSize,
+      int heightPx,
+      int widthPx) {
+    this(
+        (startRow, endRow, startColumn, endColumn) -> {
+          for (int i = startRow; i < endRow; ++i) {
+            for (int j = startColumn; j < endColumn; ++j) {
+              pixelRenderer.renderPixel(i, j);
+            }
+          }
+        },
+        tileSize,
+        utilization,
+        tileSize,
+        heightPx,
+        widthPx);
+  }
+
+  /**
+   * Constructs a worker which renders every pixel of a frame with the given dimensions in square
+   * blocks of the given size, e.g. to trace each block's rays together.
+   */
+  RayTracerWorker(
+      BlockRenderer blockRenderer,
+      int blockSize,
+      ThreadUtilization utilization,
+      int tileSize,
+      int heightPx,
+      int widthPx) {
+    this(blockRenderer, blockSize, utilization, tileSize, 0, heightPx, 0, widthPx);
+  }
+
+  private RayTracerWorker(
+      BlockRenderer blockRenderer,
+      int blockSize,
+      ThreadUtilization utilization,
+      int tileSize,
+      int startRow,
+      int endRow,
+      int startColumn,
+      int endColumn) {
+    this.blockRenderer = blockRenderer;
+    this.blockSize = blockSize;
+    this.utilization = utilization;
+    this.tileSize = tileSize;
+    this.startRow = startRow;
+    this.endRow = endRow;
+    this.startColumn = startColumn;
+    this.endColumn = endColumn;
   }
 
   @Override
-  public void run() {
-    for (int i = 0; i < frame.getHeightPx(); ++i) {
-      for (int j = startingPixel; j < frame.getWidthPx(); j += pixelIncrement) {
-        MutableColor color = rayTracer.traceRay(i, j);
-        frame.setPixel(i, j, color);
+  protected void compute() {
+    int numRows = endRow - startRow;
+    int numColumns = endColumn - startColumn;
+    if (numRows <= tileSize && numColumns <= tileSize) {
+      renderTile();
+      return;
+    }
+    // Split along the longer side, keeping the split aligned to a tile boundary.
+    if (numRows >= numColumns) {
+      int middleRow = startRow + splitPoint(numRows);
+      invokeAll(
+          subRegion(startRow, middleRow, startColumn, endColumn),
+          subRegion(middleRow, endRow, startColumn, endColumn));
+    } else {
+      int middleColumn = startColumn + splitPoint(numColumns);
+      invokeAll(
+          subRegion(startRow, endRow, startColumn, middleColumn),
+          subRegion(startRow, endRow, middleColumn, endColumn));
+    }
+  }
+
+  /** Returns the offset to split a side of the given length at, rounded to a whole tile. */
+  private int splitPoint(int length) {
+    int numTiles = (length + tileSize - 1) / tileSize;
+    return (numTiles / 2) * tileSize;
+  }
+
+  private RayTracerWorker subRegion(int startRow, int endRow, int startColumn, int endColumn) {
+    return new RayTracerWorker(
+        blockRenderer,
+        blockSize,
+        utilization,
+        tileSize,
+        startRow,
+        endRow,
+        startColumn,
+        endColumn);
+  }
+
+  private void renderTile() {
+    long start = System.nanoTime();
+    for (int i = startRow; i < endRow; i += blockSize) {
+      for (int j = startColumn; j < endColumn; j += blockSize) {
+        blockRenderer.renderBlock(
+            i, Math.min(i + blockSize, endRow), j, Math.min(j + blockSize, endColumn));
       }
     }
-    System.out.println("Thread " + startingPixel + " finished!");
+    utilization.recordBusyTime(System.nanoTime() - start);
+  }
+
+  /** The work performed for each individual pixel of a region. */
+  @FunctionalInterface
+  interface PixelRenderer {
+
+    /** Renders the ith and jth pixel. */
+    void renderPixel(int i, int j);
+  }
+
+  /** The work performed for each square block of pixels of a region. */
+  @FunctionalInterface
+  interface BlockRenderer {
+
+    /** Renders the pixels in rows [startRow, endRow) and columns [startColumn, endColumn). */
+    void renderBlock(int startRow, int endRow, int startColumn, int endColumn);
   }
 }
@@ -3,10 +3,12 @@ package me.kahlil.graphics;
 import static me.kahlil.config.Counters.NUM_TOTAL_RAYS;
 import static me.kahlil.geometry.Constants.EPSILON;
 import static me.kahlil.graphics.RayIntersections.findFirstIntersection;
+import static me.kahlil.graphics.RayIntersections.findFirstIntersections;
 
 import java.util.Optional;
 import me.kahlil.geometry.Ray;
 import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
 import me.kahlil.geometry.Vector;
 import me.kahlil.scene.Camera;
 import me.kahlil.scene.Raster;
@@ -18,6 +20,9 @@ import me.kahlil.scene.Scene;
  */
 public class ReflectiveRayTracer extends RayTracer {
 
+  // Reduces the effect of reflections by 20% to mimic imperfect reflection.
+  static final float REFLECTION_ATTENUATION = 0.8f;
+
   private final Shader shader;
   private final Scene scene;
   private final int maxRayDepth;
@@ -39,12 +44,34 @@ public class ReflectiveRayTracer extends RayTracer {
     return recursiveTraceRay(ray, 1);
   }
 
+  /**
+   * Finds the primary rays' first intersections together, and then shades each hit and traces its
+   * reflections on its own, since reflected rays are no longer coherent.
+   */
+  @Override
+  MutableColor[] traceRays(RayPacket packet) {
+    if (maxRayDepth < 1) {
+      return super.traceRays(packet);
+    }
+    NUM_TOTAL_RAYS.getAndAdd(packet.size());
+    findFirstIntersections(packet, scene);
+    MutableColor[] colors = new MutableColor[packet.size()];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = shade(packet.getHit(i), 1);
+    }
+    return colors;
+  }
+
   private MutableColor recursiveTraceRay(Ray ray, int rayDepth) {
     NUM_TOTAL_RAYS.getAndIncrement();
     if (rayDepth > maxRayDepth) {
       return scene.getBackgroundColor();
     }
-    Optional<RayHit> rayHit = findFirstIntersection(ray, scene);
+    return shade(findFirstIntersection(ray, scene), rayDepth);
+  }
+
+  /** Returns the color of a ray at the given depth with the given first intersection, if any. */
+  private MutableColor shade(Optional<RayHit> rayHit, int rayDepth) {
     if (!rayHit.isPresent()) {
       return scene.getBackgroundColor();
     }
@@ -56,8 +83,7 @@ public class ReflectiveRayTracer extends RayTracer {
 
     MutableColor reflectedRayColor =
         ColorComputation.of(recursiveTraceRay(computeReflectionRay(rayHit.get()), rayDepth + 1))
-            // Reduce effect of reflection by 20% to mimic imperfect reflection.
-            .scaleFloat(0.8f)
+            .scaleFloat(REFLECTION_ATTENUATION)
             .scaleFloat((float) reflectiveness)
             .compute();
 
@@ -84,10 +110,22 @@ public class ReflectiveRayTracer extends RayTracer {
    * http://web.cse.ohio-state.edu/~shen.94/681/Site/Slides_files/reflection_refraction.pdf
    */
   private static Ray computeReflectionRay(RayHit rayHit) {
+    Vector reflection = computeReflectionDirection(rayHit);
+    return new Ray(computeReflectionStart(rayHit, reflection), reflection);
+  }
+
+  /** Returns the direction R of the reflection ray, as computed by the formula above. */
+  static Vector computeReflectionDirection(RayHit rayHit) {
     Vector incident = rayHit.getRay().getDirection();
     Vector normal = rayHit.getNormal();
-    Vector reflection = incident.subtract(normal.scale(2 * incident.dot(normal)));
-    Vector perturbedStartingPoint = rayHit.getIntersection().add(reflection.scale(EPSILON));
-    return new Ray(perturbedStartingPoint, reflection);
+    return incident.subtract(normal.scale(2 * incident.dot(normal)));
+  }
+
+  /**
+   * Returns the start of the reflection ray, moved slightly off the surface so that the ray does
+   * not hit the surface it is reflected from.
+   */
+  static Vector computeReflectionStart(RayHit rayHit, Vector reflection) {
+    return rayHit.getIntersection().add(reflection.scale(EPSILON));
   }
 }
@@ -0,0 +1,50 @@
+package me.kahlil.graphics;
+
+import com.google.common.collect.ImmutableSortedMap;
+import java.text.NumberFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how much time each rendering thread spends doing useful work, so that load imbalance
+ * between threads can be observed.
+ */
+final class ThreadUtilization {
+
+  private static final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+
+  private final Map<String, LongAdder> busyNanosByThread = new ConcurrentHashMap<>();
+
+  /** Adds the given number of nanoseconds to the busy time of the calling thread. */
+  void recordBusyTime(long nanos) {
+    busyNanosByThread
+        .computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder())
+        .add(nanos);
+  }
+
+  /** Returns the busy time in nanoseconds of every thread which has recorded any work. */
+  ImmutableSortedMap<String, Long> getBusyNanosByThread() {
+    ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+    busyNanosByThread.forEach((thread, nanos) -> builder.put(thread, nanos.sum()));
+    return builder.build();
+  }
+
+  /**
+   * Prints the busy and idle time of each thread, where idle time is whatever portion of the
+   * given wall clock time the thread did not spend rendering.
+   */
+  void printSummary(long wallNanos) {
+    getBusyNanosByThread()
+        .forEach(
+            (thread, busyNanos) ->
+                System.out.printf(
+                    "%s: busy = %s ms, idle = %s ms (%s%% utilization)\n",
+                    thread,
+                    numberFormat.format(TimeUnit.NANOSECONDS.toMillis(busyNanos)),
+                    numberFormat.format(
+                        TimeUnit.NANOSECONDS.toMillis(Math.max(0, wallNanos - busyNanos))),
+                    numberFormat.format(100.0 * busyNanos / wallNanos)));
+  }
+}
@@ -0,0 +1,488 @@
+package me.kahlil.graphics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static me.kahlil.config.Counters.NUM_PRIMARY_RAYS;
+import static me.kahlil.config.Counters.NUM_TOTAL_RAYS;
+import static me.kahlil.config.Parameters.NUM_THREADS;
+import static me.kahlil.config.Parameters.SECONDARY_RAY_BATCH_SIZE;
+import static me.kahlil.config.Parameters.WAVEFRONT_SIZE;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.graphics.ColorComputation.bound;
+import static me.kahlil.graphics.CoordinateMapper.convertPixelToCameraSpaceCoordinates;
+import static me.kahlil.graphics.PhongShading.computeShadowDirection;
+import static me.kahlil.graphics.PhongShading.computeShadowStart;
+import static me.kahlil.graphics.PhongShading.isLight;
+import static me.kahlil.graphics.RayIntersections.findFirstIntersections;
+import static me.kahlil.graphics.RayIntersections.isOccluded;
+import static me.kahlil.graphics.ReflectiveRayTracer.REFLECTION_ATTENUATION;
+import static me.kahlil.graphics.ReflectiveRayTracer.computeReflectionDirection;
+import static me.kahlil.graphics.ReflectiveRayTracer.computeReflectionStart;
+
+import com.google.common.collect.ImmutableList;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+import me.kahlil.geometry.Vector;
+import me.kahlil.scene.Camera;
+import me.kahlil.scene.PointLight;
+import me.kahlil.scene.Raster;
+import me.kahlil.scene.Scene;
+
+/**
+ * Renderer which traces rays in stages over whole streams of them, rather than tracing each
+ * pixel's rays to completion before moving on to the next pixel like a {@link ReflectiveRayTracer}
+ * does. This keeps each stage's code and data hot in the cache while it works through the stream.
+ *
+ * <p>The raster is rendered a wavefront of pixels at a time. The primary rays of a wavefront are
+ * generated into a {@link RayBuffer} and intersected with the scene as a whole. Every hit is then
+ * shaded, which emits a compacted buffer of shadow rays towards the lights, and those are traced
+ * in turn. Finally the rays which hit reflective surfaces emit a compacted buffer of reflection
+ * rays, which make up the next wave of the wavefront. Once no rays are left, the colors of the
+ * reflection rays are combined into the rays they were reflected from, deepest wave first. Every
+ * stage is split across the pool's threads.
+ *
+ * <p>Shadow and reflection rays start all over the scene and, off curved surfaces, head in all
+ * directions, so before they are traced they are sorted in batches into a coherent order (see
+ * {@link RayBuffer#sortCoherently}). Consecutive rays then visit the same parts of the scene,
+ * which keeps those in the cache and makes for tighter packets.
+ *
+ * <p>Colors are combined with the same operations in the same order as by a {@link
+ * ReflectiveRayTracer} shading with {@link PhongShading}, so both render identical images.
+ */
+public final class WavefrontRenderer {
+
+  private static final NumberFormat numberFormat = NumberFormat.getNumberInstance();
+
+  // Stages are split across threads down to ranges of this many rays.
+  private static final int STAGE_CHUNK_SIZE = 256;
+  // Intersection is split down to single packets, since each is a lot more work than a ray is in
+  // the other stages.
+  private static final int INTERSECTION_CHUNK_SIZE = 1;
+
+  // How the color of a ray is made up from its own shading and its reflection's color. The
+  // reflection is either left out, the whole color, or blended with the shading by the surface's
+  // reflectiveness.
+  private static final byte SHADED = 0;
+  private static final byte MIRRORED = 1;
+  private static final byte BLENDED = 2;
+
+  private final Raster raster;
+  private final Camera camera;
+  private final Scene scene;
+  private final PhongShading shading;
+  private final int maxRayDepth;
+  private final int numThreads;
+  private final int wavefrontSize;
+  private final int secondaryRayBatchSize;
+
+  private final ImmutableList<PointLight> lights;
+  private final float[] backgroundColor;
+
+  public WavefrontRenderer(
+      Raster raster, Camera camera, Scene scene, PhongShading shading, int maxRayDepth) {
+    this(
+        raster,
+        camera,
+        scene,
+        shading,
+        maxRayDepth,
+        NUM_THREADS,
+        WAVEFRONT_SIZE,
+        SECONDARY_RAY_BATCH_SIZE);
+  }
+
+  /**
+   * Constructs a renderer which traces up to maxRayDepth waves of rays, the first being the
+   * primary rays, for wavefronts of wavefrontSize pixels at a time. Secondary rays are sorted in
+   * batches of secondaryRayBatchSize rays, or left in the order they are emitted in if it is 1.
+   */
+  public WavefrontRenderer(
+      Raster raster,
+      Camera camera,
+      Scene scene,
+      PhongShading shading,
+      int maxRayDepth,
+      int numThreads,
+      int wavefrontSize,
+      int secondaryRayBatchSize) {
+    checkArgument(maxRayDepth > 0, "At least the primary rays must be traced.");
+    checkArgument(wavefrontSize > 0, "Wavefronts must hold at least one pixel.");
+    checkArgument(secondaryRayBatchSize > 0, "Batches must hold at least one ray.");
+    this.raster = raster;
+    this.camera = camera;
+    this.scene = scene;
+    this.shading = shading;
+    this.maxRayDepth = maxRayDepth;
+    this.numThreads = numThreads;
+    this.wavefrontSize = wavefrontSize;
+    this.secondaryRayBatchSize = secondaryRayBatchSize;
+    this.lights = scene.getLights();
+    this.backgroundColor = scene.getBackgroundColor().getRgb();
+  }
+
+  public Raster render() {
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    int numPixels = raster.getHeightPx() * raster.getWidthPx();
+    int numWavefronts = 0;
+    long start = System.nanoTime();
+    try {
+      for (int firstPixel = 0; firstPixel < numPixels; firstPixel += wavefrontSize) {
+        renderWavefront(pool, firstPixel, Math.min(firstPixel + wavefrontSize, numPixels));
+        numWavefronts++;
+      }
+    } finally {
+      pool.shutdown();
+    }
+    long wallNanos = System.nanoTime() - start;
+
+    System.out.printf(
+        "Rendered %d wavefronts of up to %d pixels in %s ms\n",
+        numWavefronts,
+        wavefrontSize,
+        numberFormat.format(TimeUnit.NANOSECONDS.toMillis(wallNanos)));
+    System.out.printf("# primary rays = %s\n", numberFormat.format(NUM_PRIMARY_RAYS.get()));
+    System.out.printf("# total rays traced = %s\n", numberFormat.format(NUM_TOTAL_RAYS.get()));
+    return raster;
+  }
+
+  /** Renders the pixels in [firstPixel, endPixel), in row-major order. */
+  private void renderWavefront(ForkJoinPool pool, int firstPixel, int endPixel) {
+    int widthPx = raster.getWidthPx();
+    RayBuffer primaryRays = new RayBuffer(endPixel - firstPixel);
+    runStage(
+        pool,
+        primaryRays.size(),
+        i -> {
+          int pixel = firstPixel + i;
+          // The same ray as RayTracer#primaryRay.
+          Point2D inCameraSpace =
+              convertPixelToCameraSpaceCoordinates(
+                  raster, camera, pixel / widthPx, pixel % widthPx);
+          Vector direction =
+              new Vector(inCameraSpace.getX(), inCameraSpace.getY(), -1.0)
+                  .subtract(camera.getLocation());
+          primaryRays.set(i, camera.getLocation(), direction, POSITIVE_INFINITY, pixel);
+        });
+    NUM_PRIMARY_RAYS.getAndAdd(primaryRays.size());
+
+    List<Wave> waves = new ArrayList<>();
+    RayBuffer rays = primaryRays;
+    for (int depth = 1; rays.size() > 0; depth++) {
+      Wave wave = new Wave(rays);
+      waves.add(wave);
+      intersect(pool, wave);
+      shade(pool, wave, depth);
+      rays = emitReflectionRays(pool, wave);
+    }
+
+    // Combine the reflections' colors into the rays they were reflected from, deepest first.
+    for (int depth = waves.size() - 1; depth > 0; depth--) {
+      Wave reflections = waves.get(depth);
+      Wave reflected = waves.get(depth - 1);
+      runStage(pool, reflections.size(), i -> combineReflection(reflections, reflected, i));
+    }
+
+    Wave primaryWave = waves.get(0);
+    runStage(
+        pool,
+        primaryWave.size(),
+        i -> {
+          int pixel = primaryWave.rays.getSource(i);
+          raster.setPixel(
+              pixel / widthPx,
+              pixel % widthPx,
+              new MutableColor(
+                  primaryWave.colors[i * 3],
+                  primaryWave.colors[i * 3 + 1],
+                  primaryWave.colors[i * 3 + 2]));
+        });
+  }
+
+  /**
+   * Finds the first hit of every ray in the wave. Consecutive rays are intersected together as
+   * {@link RayPacket}s, since neighboring rays in the stream tend to be coherent.
+   */
+  private void intersect(ForkJoinPool pool, Wave wave) {
+    NUM_TOTAL_RAYS.getAndAdd(wave.size());
+    int numPackets = (wave.size() + RayPacket.MAX_SIZE - 1) / RayPacket.MAX_SIZE;
+    runStage(
+        pool,
+        numPackets,
+        INTERSECTION_CHUNK_SIZE,
+        packetIndex -> {
+          int first = packetIndex * RayPacket.MAX_SIZE;
+          Ray[] rays = new Ray[Math.min(RayPacket.MAX_SIZE, wave.size() - first)];
+          for (int i = 0; i < rays.length; i++) {
+            rays[i] = wave.rays.getRay(first + i);
+          }
+          RayPacket packet = new RayPacket(rays);
+          findFirstIntersections(packet, scene);
+          for (int i = 0; i < rays.length; i++) {
+            wave.hits[first + i] = packet.getHit(i).orElse(null);
+          }
+        });
+  }
+
+  /**
+   * Works out how the color of every ray in the wave at the given depth is made up, and computes
+   * its own shading. Rays which hit a lit surface emit a shadow ray towards every light when
+   * shadows are enabled, and only the lights whose shadow rays are not occluded are added.
+   */
+  private void shade(ForkJoinPool pool, Wave wave, int depth) {
+    int numLights = lights.size();
+    // The illumination by each light of each ray's hit, as red, green and blue.
+    float[] illumination = new float[wave.size() * numLights * 3];
+    boolean[] isLit = new boolean[wave.size()];
+    runStage(
+        pool,
+        wave.size(),
+        i -> {
+          RayHit rayHit = wave.hits[i];
+          if (rayHit == null) {
+            wave.kinds[i] = SHADED;
+            wave.setColor(i, backgroundColor);
+            return;
+          }
+          // Mirror ReflectiveRayTracer, which only shades a hit if any of the shading is seen.
+          double reflectiveness = rayHit.getMaterial().getReflectiveness();
+          wave.reflectiveness[i] = (float) reflectiveness;
+          if (reflectiveness < EPSILON || depth == maxRayDepth) {
+            wave.kinds[i] = SHADED;
+          } else if (Math.abs(reflectiveness - 1.0) < EPSILON) {
+            wave.kinds[i] = MIRRORED;
+            return;
+          } else {
+            wave.kinds[i] = BLENDED;
+          }
+          if (isLight(rayHit)) {
+            wave.setColor(i, shading.shade(rayHit).getRgb());
+            return;
+          }
+          wave.setColor(i, shading.shadeAmbient(rayHit).getRgb());
+          for (int light = 0; light < numLights; light++) {
+            float[] rgb = shading.illuminate(lights.get(light), rayHit).getRgb();
+            System.arraycopy(rgb, 0, illumination, (i * numLights + light) * 3, 3);
+          }
+          isLit[i] = true;
+        });
+
+    // Every light is seen unless a shadow ray finds an object between it and the hit.
+    boolean[] isShadowed = new boolean[wave.size() * numLights];
+    if (shading.isShadowsEnabled()) {
+      traceShadowRays(pool, wave, isLit, isShadowed);
+    }
+
+    runStage(
+        pool,
+        wave.size(),
+        i -> {
+          float[] colors = wave.colors;
+          if (isLit[i]) {
+            for (int light = 0; light < numLights; light++) {
+              if (isShadowed[i * numLights + light]) {
+                continue;
+              }
+              int offset = (i * numLights + light) * 3;
+              for (int c = 0; c < 3; c++) {
+                colors[i * 3 + c] = bound(colors[i * 3 + c] + illumination[offset + c]);
+              }
+            }
+          }
+          if (wave.kinds[i] == BLENDED) {
+            float shadingWeight = 1.0f - wave.reflectiveness[i];
+            for (int c = 0; c < 3; c++) {
+              colors[i * 3 + c] = bound(colors[i * 3 + c] * shadingWeight);
+            }
+          }
+        });
+  }
+
+  /**
+   * Emits a compacted buffer of the shadow rays from every lit hit towards every light and traces
+   * them, recording which lights are occluded from which hits.
+   */
+  private void traceShadowRays(
+      ForkJoinPool pool, Wave wave, boolean[] isLit, boolean[] isShadowed) {
+    int numLights = lights.size();
+    int[] litRays = compact(isLit);
+    RayBuffer shadowRays = new RayBuffer(litRays.length * numLights);
+    runStage(
+        pool,
+        shadowRays.size(),
+        k -> {
+          int i = litRays[k / numLights];
+          int light = k % numLights;
+          Vector point = wave.hits[i].getIntersection();
+          Vector shadowDirection = computeShadowDirection(lights.get(light), point);
+          shadowRays.set(
+              k,
+              computeShadowStart(point, shadowDirection),
+              shadowDirection,
+              shadowDirection.magnitude(),
+              i * numLights + light);
+        });
+    RayBuffer sortedShadowRays = sortCoherently(pool, shadowRays);
+    runStage(
+        pool,
+        sortedShadowRays.size(),
+        k ->
+            isShadowed[sortedShadowRays.getSource(k)] =
+                isOccluded(
+                    sortedShadowRays.getRay(k), scene, sortedShadowRays.getMaxDistance(k)));
+  }
+
+  /** Emits a compacted buffer of the reflection rays of the wave's reflective hits. */
+  private RayBuffer emitReflectionRays(ForkJoinPool pool, Wave wave) {
+    boolean[] isReflected = new boolean[wave.size()];
+    for (int i = 0; i < wave.size(); i++) {
+      isReflected[i] = wave.kinds[i] != SHADED;
+    }
+    int[] reflectedRays = compact(isReflected);
+    RayBuffer reflectionRays = new RayBuffer(reflectedRays.length);
+    runStage(
+        pool,
+        reflectionRays.size(),
+        k -> {
+          int i = reflectedRays[k];
+          RayHit rayHit = wave.hits[i];
+          Vector reflection = computeReflectionDirection(rayHit);
+          reflectionRays.set(
+              k, computeReflectionStart(rayHit, reflection), reflection, POSITIVE_INFINITY, i);
+        });
+    return sortCoherently(pool, reflectionRays);
+  }
+
+  /**
+   * Returns the rays sorted into a coherent order, each batch of secondaryRayBatchSize rays on its
+   * own. Every ray records its source, so the stages don't depend on the order of the rays.
+   */
+  private RayBuffer sortCoherently(ForkJoinPool pool, RayBuffer rays) {
+    if (secondaryRayBatchSize == 1) {
+      return rays;
+    }
+    int[] order = new int[rays.size()];
+    int numBatches = (rays.size() + secondaryRayBatchSize - 1) / secondaryRayBatchSize;
+    runStage(
+        pool,
+        numBatches,
+        /* chunkSize= */ 1,
+        batch -> {
+          int start = batch * secondaryRayBatchSize;
+          rays.sortCoherently(
+              start, Math.min(start + secondaryRayBatchSize, rays.size()), order);
+        });
+    RayBuffer sorted = new RayBuffer(rays.size());
+    runStage(pool, sorted.size(), k -> sorted.copy(k, rays, order[k]));
+    return sorted;
+  }
+
+  /**
+   * Combines the color of the ith reflection ray into the color of the ray it was reflected from,
+   * as {@link ReflectiveRayTracer} does.
+   */
+  private static void combineReflection(Wave reflections, Wave reflected, int i) {
+    int source = reflections.rays.getSource(i);
+    float reflectiveness = reflected.reflectiveness[source];
+    boolean isMirrored = reflected.kinds[source] == MIRRORED;
+    for (int c = 0; c < 3; c++) {
+      float reflection =
+          bound(bound(reflections.colors[i * 3 + c] * REFLECTION_ATTENUATION) * reflectiveness);
+      reflected.colors[source * 3 + c] =
+          isMirrored ? reflection : bound(reflected.colors[source * 3 + c] + reflection);
+    }
+  }
+
+  /** Returns the indexes at which the flags are set, in order. */
+  private static int[] compact(boolean[] flags) {
+    int count = 0;
+    for (boolean flag : flags) {
+      if (flag) {
+        count++;
+      }
+    }
+    int[] indexes = new int[count];
+    int next = 0;
+    for (int i = 0; i < flags.length; i++) {
+      if (flags[i]) {
+        indexes[next++] = i;
+      }
+    }
+    return indexes;
+  }
+
+  /** Runs the stage for every index in [0, size), split across the pool's threads. */
+  private static void runStage(ForkJoinPool pool, int size, IntConsumer stage) {
+    runStage(pool, size, STAGE_CHUNK_SIZE, stage);
+  }
+
+  private static void runStage(ForkJoinPool pool, int size, int chunkSize, IntConsumer stage) {
+    pool.invoke(new StageTask(stage, chunkSize, 0, size));
+  }
+
+  /** The rays at one depth of a wavefront, along with what the stages work out for each. */
+  private static final class Wave {
+
+    private final RayBuffer rays;
+    private final RayHit[] hits;
+    private final byte[] kinds;
+    private final float[] reflectiveness;
+    // Red, green and blue of each ray's own shading, which becomes its final color once its
+    // reflection's color has been combined into it.
+    private final float[] colors;
+
+    Wave(RayBuffer rays) {
+      this.rays = rays;
+      this.hits = new RayHit[rays.size()];
+      this.kinds = new byte[rays.size()];
+      this.reflectiveness = new float[rays.size()];
+      this.colors = new float[rays.size() * 3];
+    }
+
+    int size() {
+      return rays.size();
+    }
+
+    void setColor(int i, float[] rgb) {
+      System.arraycopy(rgb, 0, colors, i * 3, 3);
+    }
+  }
+
+  /** Fork-join task which runs a stage over a range of indexes. */
+  @SuppressWarnings("serial") // Fork-join tasks are never serialized.
+  private static final class StageTask extends RecursiveAction {
+
+    private final IntConsumer stage;
+    private final int chunkSize;
+    private final int start;
+    private final int end;
+
+    StageTask(IntConsumer stage, int chunkSize, int start, int end) {
+      this.stage = stage;
+      this.chunkSize = chunkSize;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= chunkSize) {
+        for (int i = start; i < end; i++) {
+          stage.accept(i);
+        }
+        return;
+      }
+      int middle = (start + end) >>> 1;
+      invokeAll(
+          new StageTask(stage, chunkSize, start, middle),
+          new StageTask(stage, chunkSize, middle, end));
+    }
+  }
+}
@@ -5,6 +5,8 @@ import static java.lang.Float.NEGATIVE_INFINITY;
 import static java.lang.Float.POSITIVE_INFINITY;
 
 import java.util.Arrays;
+import me.kahlil.bvh.IndexedPrimitives;
+import me.kahlil.geometry.BoundingBox;
 import me.kahlil.geometry.Polygon;
 import me.kahlil.geometry.Vector;
 
@@ -40,4 +42,18 @@ public final class BoundsHelper {
     };
   }
 
+  /**
+   * Returns a 2-sized array containing the minimum and maximum bounds of all of the given
+   * primitives.
+   */
+  public static Vector[] computeGlobalMinAndMax(IndexedPrimitives primitives) {
+    checkState(primitives.size() > 0);
+
+    BoundingBox bounds = primitives.getBounds(0);
+    for (int i = 1; i < primitives.size(); i++) {
+      bounds = bounds.union(primitives.getBounds(i));
+    }
+    return new Vector[]{bounds.getMinBound(), bounds.getMaxBound()};
+  }
+
 }
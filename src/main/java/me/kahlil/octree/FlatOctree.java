@@ -0,0 +1,237 @@
+package me.kahlil.octree;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_NODE_VISITS;
+import static me.kahlil.geometry.Extents.NUM_PLANES;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import me.kahlil.config.OctreeBounds;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Extents;
+import me.kahlil.geometry.Intersectable;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+
+/**
+ * Compact, read-only copy of a built tree of {@link OctreeNode}s which is used for traversal.
+ *
+ * <p>Nodes are numbered breadth first, so the children of every node are stored next to each
+ * other, and each node only records the index of its first child and how many it has. The bounds
+ * of every node live in one double[] and the primitive indexes of every node in one int[], so a
+ * traversal only walks arrays rather than chasing pointers through node objects, lists and boxed
+ * indexes. Traversals are iterative, using a {@link TraversalStack} reused by each thread.
+ */
+final class FlatOctree implements Intersectable {
+
+  private static final int EXTENTS_STRIDE = 2 * NUM_PLANES;
+  private static final int BOX_STRIDE = 6;
+  private static final int LAYOUT_STRIDE = 4;
+  private static final int MAX_CHILDREN = 8;
+
+  private final OctreeBounds bounds;
+  // The d-near values followed by the d-far values of the total extents of every node. Empty if
+  // the bounds are only boxes.
+  private final double[] nodeExtents;
+  // Min (x, y, z) followed by max (x, y, z) of the axis-aligned box around the total extents of
+  // every node. Empty if the bounds are only extents.
+  private final double[] nodeBoxes;
+  // For every node: the index of its first child, its number of children, the offset of its first
+  // primitive in primitiveIndexes and its number of primitives.
+  private final int[] nodeLayout;
+  private final int[] primitiveIndexes;
+  private final OctreePrimitives primitives;
+  private final int numNodes;
+  private final int maxDepth;
+
+  FlatOctree(OctreeNode root, OctreeBounds bounds) {
+    this.bounds = bounds;
+    this.primitives = root.primitives;
+    List<OctreeNode> nodes = new ArrayList<>();
+    if (!root.computeExtents().isEmpty()) {
+      ArrayDeque<OctreeNode> queue = new ArrayDeque<>();
+      queue.add(root);
+      while (!queue.isEmpty()) {
+        OctreeNode node = queue.remove();
+        nodes.add(node);
+        for (OctreeNode child : node.children) {
+          if (child != null) {
+            queue.add(child);
+          }
+        }
+      }
+    }
+
+    this.numNodes = nodes.size();
+    this.nodeExtents = new double[bounds == OctreeBounds.AABB ? 0 : numNodes * EXTENTS_STRIDE];
+    this.nodeBoxes = new double[bounds == OctreeBounds.EXTENTS ? 0 : numNodes * BOX_STRIDE];
+    this.nodeLayout = new int[numNodes * LAYOUT_STRIDE];
+    this.primitiveIndexes = new int[primitives.size()];
+    int numPrimitives = 0;
+    int nextChild = 1;
+    int deepest = 0;
+    for (int i = 0; i < numNodes; i++) {
+      OctreeNode node = nodes.get(i);
+      deepest = Math.max(deepest, node.depth);
+      if (bounds != OctreeBounds.AABB) {
+        node.totalExtents.writeTo(nodeExtents, i * EXTENTS_STRIDE);
+      }
+      if (bounds != OctreeBounds.EXTENTS) {
+        node.totalExtents.writeBoxTo(nodeBoxes, i * BOX_STRIDE);
+      }
+
+      int numChildren = 0;
+      for (OctreeNode child : node.children) {
+        if (child != null) {
+          numChildren++;
+        }
+      }
+      nodeLayout[i * LAYOUT_STRIDE] = nextChild;
+      nodeLayout[i * LAYOUT_STRIDE + 1] = numChildren;
+      nextChild += numChildren;
+
+      nodeLayout[i * LAYOUT_STRIDE + 2] = numPrimitives;
+      for (int primitiveIndex : node.boundPrimitives) {
+        primitiveIndexes[numPrimitives++] = primitiveIndex;
+      }
+      nodeLayout[i * LAYOUT_STRIDE + 3] = node.boundPrimitives.size();
+    }
+    this.maxDepth = deepest;
+  }
+
+  /**
+   * Returns the closest intersection of the ray with any primitive. Nodes are visited in the order
+   * the ray enters them using an explicit stack, and nodes entered after the closest hit so far are
+   * skipped.
+   */
+  @Override
+  public Optional<RayHit> intersectWith(Ray ray) {
+    if (numNodes == 0) {
+      return Optional.empty();
+    }
+    TraversalStack stack = TraversalStack.forCurrentThread(maxStackSize());
+    Extents.RayContext context = stack.rayContext.setRay(ray);
+    double rootTime = intersectWithNode(0, ray, context, POSITIVE_INFINITY);
+    if (rootTime < 0) {
+      return Optional.empty();
+    }
+    int[] nodeStack = stack.nodes;
+    double[] timeStack = stack.times;
+    int stackSize = 0;
+    nodeStack[stackSize] = 0;
+    timeStack[stackSize++] = rootTime;
+
+    RayHit closest = null;
+    double closestTime = POSITIVE_INFINITY;
+    while (stackSize > 0) {
+      int node = nodeStack[--stackSize];
+      // Skip only this node. Children are sorted only among their siblings when pushed, so nodes
+      // further down the stack may still be entered before the closest hit.
+      if (timeStack[stackSize] >= closestTime) {
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int layout = node * LAYOUT_STRIDE;
+      int primitiveOffset = nodeLayout[layout + 2];
+      int primitiveEnd = primitiveOffset + nodeLayout[layout + 3];
+      for (int i = primitiveOffset; i < primitiveEnd; i++) {
+        Optional<RayHit> rayHit = primitives.intersectWith(primitiveIndexes[i], ray);
+        if (rayHit.isPresent() && rayHit.get().getTime() < closestTime) {
+          closest = rayHit.get();
+          closestTime = closest.getTime();
+        }
+      }
+
+      // Push the children the ray hits sorted from farthest to nearest, so that the nearest is
+      // popped first. Insertion sort is plenty for at most 8 children.
+      int firstChild = nodeLayout[layout];
+      int numChildren = nodeLayout[layout + 1];
+      int start = stackSize;
+      for (int child = firstChild; child < firstChild + numChildren; child++) {
+        double time = intersectWithNode(child, ray, context, closestTime);
+        if (time < 0 || time >= closestTime) {
+          continue;
+        }
+        int i = stackSize++;
+        while (i > start && timeStack[i - 1] < time) {
+          nodeStack[i] = nodeStack[i - 1];
+          timeStack[i] = timeStack[i - 1];
+          i--;
+        }
+        nodeStack[i] = child;
+        timeStack[i] = time;
+      }
+    }
+    return Optional.ofNullable(closest);
+  }
+
+  /** Returns as soon as any primitive is found which the ray hits before maxDistance. */
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    if (numNodes == 0) {
+      return false;
+    }
+    TraversalStack stack = TraversalStack.forCurrentThread(maxStackSize());
+    Extents.RayContext context = stack.rayContext.setRay(ray);
+    int[] nodeStack = stack.nodes;
+    int stackSize = 0;
+    nodeStack[stackSize++] = 0;
+    while (stackSize > 0) {
+      int node = nodeStack[--stackSize];
+      double timeToExtents = intersectWithNode(node, ray, context, maxDistance);
+      if (timeToExtents < 0 || timeToExtents >= maxDistance) {
+        continue;
+      }
+      NUM_ACCELERATION_NODE_VISITS.getAndIncrement();
+      int layout = node * LAYOUT_STRIDE;
+      int primitiveOffset = nodeLayout[layout + 2];
+      int primitiveEnd = primitiveOffset + nodeLayout[layout + 3];
+      for (int i = primitiveOffset; i < primitiveEnd; i++) {
+        if (primitives.intersectsWithin(primitiveIndexes[i], ray, maxDistance)) {
+          return true;
+        }
+      }
+      int firstChild = nodeLayout[layout];
+      for (int child = firstChild + nodeLayout[layout + 1] - 1; child >= firstChild; child--) {
+        nodeStack[stackSize++] = child;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the number of nodes in the tree. */
+  int getNumNodes() {
+    return numNodes;
+  }
+
+  /**
+   * Returns the most entries the traversal stack can need: every level below the root leaves at
+   * most 7 unvisited siblings behind, and the deepest level pushes at most 8 children.
+   */
+  private int maxStackSize() {
+    return maxDepth * (MAX_CHILDREN - 1) + MAX_CHILDREN;
+  }
+
+  /**
+   * Returns the time the ray enters the node's bounds, or -1 if it misses them. The context must
+   * hold the same ray. Box tests also reject nodes entered after maxTime, but extents tests leave
+   * that to the caller.
+   */
+  private double intersectWithNode(
+      int node, Ray ray, Extents.RayContext context, double maxTime) {
+    switch (bounds) {
+      case AABB:
+        return BoundingBox.intersectWithBoundingVolume(ray, nodeBoxes, node * BOX_STRIDE, maxTime);
+      case EXTENTS:
+        return Extents.intersectWithBoundingVolume(context, nodeExtents, node * EXTENTS_STRIDE);
+      default:
+        if (BoundingBox.intersectWithBoundingVolume(ray, nodeBoxes, node * BOX_STRIDE, maxTime)
+            < 0) {
+          return -1;
+        }
+        return Extents.intersectWithBoundingVolume(context, nodeExtents, node * EXTENTS_STRIDE);
+    }
+  }
+}
@@ -4,6 +4,10 @@ import static me.kahlil.octree.BoundsHelper.computeGlobalMinAndMax;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+import me.kahlil.config.OctreeBounds;
 import me.kahlil.geometry.Extents;
 import me.kahlil.geometry.Intersectable;
 import me.kahlil.geometry.Polygon;
@@ -13,34 +17,62 @@ import me.kahlil.geometry.Vector;
 
 /**
  * Implementation of an Octree.
+ *
+ * <p>The tree is built as a graph of {@link OctreeNode}s over {@link OctreePrimitives}, which is
+ * then compacted into a {@link FlatOctree} that is used for all intersection queries. Arrays of
+ * {@link Polygon}s are adapted to primitives, where each polygon is one primitive.
  */
-public class Octree<T extends Polygon> implements Intersectable {
+public class Octree implements Intersectable {
 
   @VisibleForTesting
-  final OctreeNode<T> root;
+  final OctreeNode root;
   final int maxObjectsPerLeaf;
   final int maxDepth;
   final Extents extents;
+  @VisibleForTesting
+  final FlatOctree flatOctree;
 
   public Octree(
-      T[] shapes,
+      Polygon[] shapes,
       int maxObjectsPerLeaf,
       int maxDepth) {
+    this(shapes, maxObjectsPerLeaf, maxDepth, OctreeBounds.EXTENTS);
+  }
+
+  public Octree(
+      Polygon[] shapes,
+      int maxObjectsPerLeaf,
+      int maxDepth,
+      OctreeBounds bounds) {
+    this(new PolygonPrimitives(shapes), maxObjectsPerLeaf, maxDepth, bounds);
+  }
+
+  public Octree(
+      OctreePrimitives primitives,
+      int maxObjectsPerLeaf,
+      int maxDepth,
+      OctreeBounds bounds) {
     this.maxObjectsPerLeaf = maxObjectsPerLeaf;
     this.maxDepth = maxDepth;
-    Vector[] minAndMax = computeGlobalMinAndMax(shapes);
-    this.root = new OctreeNode<>(shapes, maxObjectsPerLeaf, maxDepth, minAndMax[0], minAndMax[1], 0);
+    Vector[] minAndMax = computeGlobalMinAndMax(primitives);
+    this.root =
+        new OctreeNode(primitives, maxObjectsPerLeaf, maxDepth, minAndMax[0], minAndMax[1], 0);
 
-    for (int i = 0; i < shapes.length; i++) {
-      root.insert(i);
-    }
+    int[] shapeIndexes = IntStream.range(0, primitives.size()).toArray();
+    ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> root.build(shapeIndexes)));
 
     this.extents = root.computeExtents();
+    this.flatOctree = new FlatOctree(root, bounds);
   }
 
   @Override
   public Optional<RayHit> intersectWith(Ray ray) {
-    return root.intersectWith(ray);
+    return flatOctree.intersectWith(ray);
+  }
+
+  @Override
+  public boolean intersectsWithin(Ray ray, double maxDistance) {
+    return flatOctree.intersectsWithin(ray, maxDistance);
   }
 
 }
@@ -1,7 +1,6 @@
 package me.kahlil.octree;
 
 import static com.google.common.base.Preconditions.checkState;
-import static java.util.Comparator.comparingDouble;
 import static me.kahlil.config.Counters.NUM_OCTREE_CHILD_INSERTIONS;
 import static me.kahlil.config.Counters.NUM_OCTREE_INTERNAL_INSERTIONS;
 
@@ -11,22 +10,24 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import me.kahlil.geometry.BoundingBox;
 import me.kahlil.geometry.Extents;
-import me.kahlil.geometry.Intersectable;
-import me.kahlil.geometry.Polygon;
-import me.kahlil.geometry.Ray;
-import me.kahlil.geometry.RayHit;
-import me.kahlil.geometry.Triangle;
 import me.kahlil.geometry.Vector;
 
-/** A representation of a single node within an Octree. */
-final class OctreeNode<T extends Polygon> implements Intersectable {
+/**
+ * A representation of a single node within an Octree while it is being built. Once built, the
+ * nodes are compacted into a {@link FlatOctree} for traversal.
+ */
+final class OctreeNode {
 
-  // Array containing all original shapes stored in the octree. This way, each node need only
-  // maintain indexes to shapes within the array.
-  @VisibleForTesting T[] allPolygons;
+  // Nodes with at least this many shapes build their children in parallel.
+  private static final int PARALLEL_BUILD_THRESHOLD = 2048;
+
+  // All primitives stored in the octree. This way, each node need only maintain indexes to
+  // primitives within it.
+  @VisibleForTesting final OctreePrimitives primitives;
   final int depth;
 
   final int maxObjectsPerLeaf;
@@ -38,132 +39,108 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
 
   // This is a List, even though it's fixed size, because Java Arrays don't handle generic
   // type parameters well.
-  @VisibleForTesting final OctreeNode<T>[] children = new OctreeNode[8];
+  @VisibleForTesting final OctreeNode[] children = new OctreeNode[8];
 
   // This is a list, rather than an array, because it is dynamically sized.
-  final List<Integer> boundPolygons;
-  // Extents that bound the polygons stored in this node. Only present for nodes with triangles.
+  final List<Integer> boundPrimitives;
+  // Extents that bound the primitives stored in this node.
   Extents currExtents;
-  // Extents that bound the polygons in this node and its children.
+  // Extents that bound the primitives in this node and its children.
   Extents totalExtents;
 
   OctreeNode(
-      T[] allPolygons, int maxObjectsPerLeaf, int maxDepth, Vector min, Vector max, int depth) {
+      OctreePrimitives primitives,
+      int maxObjectsPerLeaf,
+      int maxDepth,
+      Vector min,
+      Vector max,
+      int depth) {
     this.maxObjectsPerLeaf = maxObjectsPerLeaf;
     this.maxDepth = maxDepth;
     this.min = min;
     this.max = max;
-    this.allPolygons = allPolygons;
+    this.primitives = primitives;
     this.depth = depth;
-    this.boundPolygons = new ArrayList<>(maxDepth);
+    this.boundPrimitives = new ArrayList<>(maxDepth);
   }
 
-  @Override
-  public Optional<RayHit> intersectWith(Ray ray) {
-    // Return empty if ray does not intersect with net extents at all for this node.
-    if (totalExtents.intersectWithBoundingVolume(ray) < 0) {
-      return Optional.empty();
-    }
-    // Otherwise, see if this node stores any local polygons we need to check against.
-    // This will be true for both leaf nodes and internal nodes which store polygons.
-    Optional<RayHit> closest = Optional.empty();
-    if (!boundPolygons.isEmpty()) {
-      closest = currExtents.intersectWith(ray);
+  /**
+   * Builds this node, and recursively its children, from the given indexes of the shapes which
+   * fall within it, then computes the extents of every node in the subtree.
+   *
+   * <p>A node holds all of its shapes while it has at most maxObjectsPerLeaf of them or is at the
+   * maximum depth. Otherwise, each shape is passed down to the child cell containing it, except for
+   * shapes spanning multiple child cells, which stay in this node. Children of large nodes are
+   * built in parallel on the current {@link ForkJoinPool}.
+   */
+  void build(int[] shapeIndexes) {
+    BoundingBox[] shapeBounds = new BoundingBox[shapeIndexes.length];
+    for (int i = 0; i < shapeIndexes.length; i++) {
+      shapeBounds[i] = primitives.getBounds(shapeIndexes[i]);
+      checkInBounds(shapeBounds[i]);
     }
-    // Finally, intersections of all children. But, do so according in the order of closest-children
-    // first by computing the intersection distance to each child extents, as the closer bounding
-    // distances will be more likely to contain the correct triangle.
-    double[] childExtentsIntersections = intersectWithChildExtents(ray);
-    int numIntersections = 0;
-    for (double t : childExtentsIntersections) {
-      if (t > 0) {
-        numIntersections++;
+    if (shapeIndexes.length <= maxObjectsPerLeaf || depth >= maxDepth) {
+      for (int shapeIndex : shapeIndexes) {
+        boundPrimitives.add(shapeIndex);
       }
+      computeExtents();
+      return;
     }
-    if (numIntersections == 0) {
-      return closest;
+    isLeafNode = false;
+
+    // Find the child cell of every shape, or -1 for shapes which span multiple cells.
+    int[] childIndexes = new int[shapeIndexes.length];
+    int[] childSizes = new int[children.length];
+    for (int i = 0; i < shapeIndexes.length; i++) {
+      int childIndex = computeChildIndex(shapeBounds[i].getMinBound());
+      if (childIndex != computeChildIndex(shapeBounds[i].getMaxBound())) {
+        NUM_OCTREE_INTERNAL_INSERTIONS.getAndIncrement();
+        boundPrimitives.add(shapeIndexes[i]);
+        childIndexes[i] = -1;
+      } else {
+        NUM_OCTREE_CHILD_INSERTIONS.getAndIncrement();
+        childIndexes[i] = childIndex;
+        childSizes[childIndex]++;
+      }
     }
-    PriorityQueue<Integer> childrenQueue = new PriorityQueue<>(
-        numIntersections,
-        comparingDouble(childIndex -> childExtentsIntersections[childIndex]));
 
-    for (int i = 0; i < children.length; i++) {
-      if (children[i] != null) {
-        childrenQueue.add(i);
+    int[][] childShapeIndexes = new int[children.length][];
+    for (int childIndex = 0; childIndex < children.length; childIndex++) {
+      if (childSizes[childIndex] > 0) {
+        childShapeIndexes[childIndex] = new int[childSizes[childIndex]];
+        children[childIndex] =
+            new OctreeNode(
+                primitives,
+                maxObjectsPerLeaf,
+                maxDepth,
+                getMinBoundForChild(childIndex),
+                getMaxBoundForChild(childIndex),
+                depth + 1);
       }
     }
-
-    while (!childrenQueue.isEmpty()) {
-      int childIndex = childrenQueue.remove();
-      Optional<RayHit> shapeHit = children[childIndex].intersectWith(ray);
-      closest = pickHitWithLowestTime(closest, shapeHit);
-      if (closest.isPresent() && !childrenQueue.isEmpty() && closest.get().getTime() < childExtentsIntersections[childrenQueue.peek()]) {
-        return closest;
+    int[] filled = new int[children.length];
+    for (int i = 0; i < shapeIndexes.length; i++) {
+      int childIndex = childIndexes[i];
+      if (childIndex >= 0) {
+        childShapeIndexes[childIndex][filled[childIndex]++] = shapeIndexes[i];
       }
     }
-    return closest;
-  }
 
-  /**
-   * Returns a double[] where the value at index i is the time of intersection with the child at
-   * index i in children.
-   */
-  private double[] intersectWithChildExtents(Ray ray) {
-    double[] childExtentsIntersections = new double[children.length];
-    for (int i = 0; i < children.length; i++) {
-      if (children[i] == null) {
+    List<ForkJoinTask<?>> childBuilds = new ArrayList<>(children.length);
+    for (int childIndex = 0; childIndex < children.length; childIndex++) {
+      if (children[childIndex] == null) {
         continue;
       }
-      childExtentsIntersections[i] = children[i].intersectWithExtents(ray);
-    }
-    return childExtentsIntersections;
-  }
-
-  double intersectWithExtents(Ray ray) {
-    return totalExtents.intersectWithBoundingVolume(ray);
-  }
-
-  /**
-   * Returns the ray hit with the lowest time if both are present, the ray hit that is present if
-   * one is empty, or empty if both are empty.
-   */
-  private Optional<RayHit> pickHitWithLowestTime(Optional<RayHit> hit1, Optional<RayHit> hit2) {
-    if (hit1.isEmpty()) {
-      return hit2;
-    }
-    if (hit2.isEmpty()) {
-      return hit1;
-    }
-    return hit1.get().getTime() < hit2.get().getTime() ? hit1 : hit2;
-  }
-
-  /**
-   * Performs an insertion into this {@link OctreeNode}, recursively inserting into children nodes
-   * if necessary.
-   */
-  void insert(int shapeIndex) {
-    checkInBounds(allPolygons[shapeIndex]);
-
-    // If this is an internal node, simply insert the shape into the correct child.
-    if (!isLeafNode) {
-      insertIntoCorrectChild(shapeIndex);
-      return;
-    }
-
-    // Otherwise, insert the shape into this node.
-    boundPolygons.add(shapeIndex);
-
-    // If the node has now grown too large, and the octree is not yet too deep, reassign all of the
-    // current node's shapes to the proper children.
-    if (boundPolygons.size() > maxObjectsPerLeaf && depth < maxDepth) {
-      // Keep track of this, because the insertion logic may re-insert at the end of this same
-      // list if a particular shape spans multiple child cells.
-      int initialSize = boundPolygons.size();
-      for (int i = initialSize - 1; i >= 0; i--) {
-        insertIntoCorrectChild(boundPolygons.remove(i));
+      OctreeNode child = children[childIndex];
+      int[] childShapes = childShapeIndexes[childIndex];
+      if (shapeIndexes.length >= PARALLEL_BUILD_THRESHOLD) {
+        childBuilds.add(ForkJoinTask.adapt(() -> child.build(childShapes)));
+      } else {
+        child.build(childShapes);
       }
-      isLeafNode = false;
     }
+    ForkJoinTask.invokeAll(childBuilds);
+    computeExtents();
   }
 
   /**
@@ -180,16 +157,16 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
     }
 
     // Otherwise, recompute by first checking the shapes bound within this node.
-    currExtents = Extents.empty();
-    Triangle[] allBoundTriangles = getAllBoundTriangles();
-    if (allBoundTriangles.length > 0) {
-      currExtents = Extents.fromTriangles(allBoundTriangles);
+    Extents.Builder builder = new Extents.Builder();
+    for (int primitiveIndex : boundPrimitives) {
+      primitives.addToExtents(primitiveIndex, builder);
     }
+    currExtents = builder.build();
 
     totalExtents = currExtents;
     // Then, union that extent with any present children.
     if (!isLeafNode) {
-      for (OctreeNode<T> child : children) {
+      for (OctreeNode child : children) {
         if (child == null) {
           continue;
         }
@@ -201,33 +178,6 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
     return totalExtents;
   }
 
-  /** Inserts the given shape index into the correct child, based on its index. */
-  private void insertIntoCorrectChild(int shapeIndex) {
-    int childIndex = computeChildIndex(allPolygons[shapeIndex].minBound());
-
-    // Check if shape spans multiple child cells.
-    if (childIndex != computeChildIndex(allPolygons[shapeIndex].maxBound())) {
-      // If so, store it in this internal node and return.
-      NUM_OCTREE_INTERNAL_INSERTIONS.getAndIncrement();
-      boundPolygons.add(shapeIndex);
-      return;
-    }
-
-    NUM_OCTREE_CHILD_INSERTIONS.getAndIncrement();
-
-    // Otherwise, first check if the correct child exists.
-    if (children[childIndex] == null) {
-      Vector min = getMinBoundForChild(childIndex);
-      Vector max = getMaxBoundForChild(childIndex);
-
-      children[childIndex] =
-          new OctreeNode<T>(allPolygons, maxObjectsPerLeaf, maxDepth, min, max, depth + 1);
-    }
-
-    // Then, recursively insert into the child.
-    children[childIndex].insert(shapeIndex);
-  }
-
   /** Computes min bounds for the child cell index. */
   private Vector getMinBoundForChild(int childIndex) {
     Vector centroid = min.average(max);
@@ -279,40 +229,28 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
     return (childIndex & 1) == 1;
   }
 
-  /** Asserts that the given shape is within bounds of this node. */
-  private void checkInBounds(T shape) {
+  /** Asserts that the given shape bounds are within bounds of this node. */
+  private void checkInBounds(BoundingBox shapeBounds) {
     checkState(
-        shapeIsInBounds(shape),
-        "Shape has bounds outside of this octree node. shape_bounds= octree_node_bounds=%s",
-        ImmutableList.of(min, max),
-        ImmutableList.of(shape.minBound(), shape.maxBound()));
+        shapeIsInBounds(shapeBounds),
+        "Shape has bounds outside of this octree node. shape_bounds=%s octree_node_bounds=%s",
+        shapeBounds,
+        ImmutableList.of(min, max));
   }
 
-  /** Returns whether or not the given shape is within the bounds defined by this cell. */
-  private boolean shapeIsInBounds(T shape) {
+  /** Returns whether or not the given shape bounds are within the bounds defined by this cell. */
+  private boolean shapeIsInBounds(BoundingBox shapeBounds) {
     for (int i = 0; i < 3; i++) {
-      if (shape.minBound().getComponent(i) < min.getComponent(i)) {
+      if (shapeBounds.getMinBound().getComponent(i) < min.getComponent(i)) {
         return false;
       }
-      if (shape.maxBound().getComponent(i) > max.getComponent(i)) {
+      if (shapeBounds.getMaxBound().getComponent(i) > max.getComponent(i)) {
         return false;
       }
     }
     return true;
   }
 
-  /** Returns all triangles bound within the polygons contained in the current node. */
-  private Triangle[] getAllBoundTriangles() {
-    if (boundPolygons.isEmpty()) {
-      return new Triangle[] {};
-    }
-    Triangle[][] allTriangles = new Triangle[boundPolygons.size()][];
-    for (int i = 0; i < boundPolygons.size(); i++) {
-      allTriangles[i] = allPolygons[boundPolygons.get(i)].getTriangles();
-    }
-    return concatenate(allTriangles);
-  }
-
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -321,13 +259,13 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
     if (o == null || getClass() != o.getClass()) {
       return false;
     }
-    OctreeNode<?> that = (OctreeNode<?>) o;
+    OctreeNode that = (OctreeNode) o;
     return depth == that.depth &&
         isLeafNode == that.isLeafNode &&
         min.equals(that.min) &&
         max.equals(that.max) &&
         Arrays.equals(children, that.children) &&
-        Objects.equals(boundPolygons, that.boundPolygons) &&
+        Objects.equals(boundPrimitives, that.boundPrimitives) &&
         Objects.equals(currExtents, that.currExtents) &&
         Objects.equals(totalExtents, that.totalExtents);
   }
@@ -335,36 +273,8 @@ final class OctreeNode<T extends Polygon> implements Intersectable {
   @Override
   public int hashCode() {
     int result = Objects
-        .hash(depth, min, max, isLeafNode, boundPolygons, currExtents, totalExtents);
+        .hash(depth, min, max, isLeafNode, boundPrimitives, currExtents, totalExtents);
     result = 31 * result + Arrays.hashCode(children);
     return result;
   }
-
-  /**
-   * Concatenates multiple arrays.
-   *
-   * <p>From https://stackoverflow.com/questions/80476/how-can-i-concatenate-two-arrays-in-java
-   */
-  private static <T> T[] concatenate(T[]... arrays)
-  {
-    int finalLength = 0;
-    for (T[] array : arrays) {
-      finalLength += array.length;
-    }
-
-    T[] dest = null;
-    int destPos = 0;
-
-    for (T[] array : arrays)
-    {
-      if (dest == null) {
-        dest = Arrays.copyOf(array, finalLength);
-        destPos = array.length;
-      } else {
-        System.arraycopy(array, 0, dest, destPos, array.length);
-        destPos += array.length;
-      }
-    }
-    return dest;
-  }
 }
@@ -0,0 +1,14 @@
+package me.kahlil.octree;
+
+import me.kahlil.bvh.IndexedPrimitives;
+import me.kahlil.geometry.Extents;
+
+/**
+ * {@link IndexedPrimitives} which an {@link Octree} can be built over. Besides their boxes, the
+ * octree needs the points of every primitive to compute the tighter {@link Extents} of its nodes.
+ */
+public interface OctreePrimitives extends IndexedPrimitives {
+
+  /** Grows the extents being built to include the primitive at the given index. */
+  void addToExtents(int index, Extents.Builder extents);
+}
@@ -0,0 +1,74 @@
+package me.kahlil.octree;
+
+import java.util.Optional;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Extents;
+import me.kahlil.geometry.Polygon;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.Triangle;
+
+/**
+ * Adapts an array of {@link Polygon}s to {@link OctreePrimitives}. Each polygon is a single
+ * primitive, which is hit wherever any of its triangles are. Rays are expected to already be in
+ * the polygons' object space.
+ */
+final class PolygonPrimitives implements OctreePrimitives {
+
+  private final Polygon[] polygons;
+  // The triangles of every polygon, fetched once rather than on every intersection test.
+  private final Triangle[][] triangles;
+
+  PolygonPrimitives(Polygon[] polygons) {
+    this.polygons = polygons;
+    this.triangles = new Triangle[polygons.length][];
+    for (int i = 0; i < polygons.length; i++) {
+      triangles[i] = polygons[i].getTriangles();
+    }
+  }
+
+  /** Returns the polygon at the given index. */
+  Polygon get(int index) {
+    return polygons[index];
+  }
+
+  @Override
+  public int size() {
+    return polygons.length;
+  }
+
+  @Override
+  public BoundingBox getBounds(int index) {
+    return new BoundingBox(polygons[index].minBound(), polygons[index].maxBound());
+  }
+
+  @Override
+  public Optional<RayHit> intersectWith(int index, Ray ray) {
+    Optional<RayHit> closest = Optional.empty();
+    for (Triangle triangle : triangles[index]) {
+      Optional<RayHit> rayHit = triangle.intersectInObjectSpace(ray);
+      if (rayHit.isPresent()
+          && (closest.isEmpty() || rayHit.get().getTime() < closest.get().getTime())) {
+        closest = rayHit;
+      }
+    }
+    return closest;
+  }
+
+  @Override
+  public boolean intersectsWithin(int index, Ray ray, double maxDistance) {
+    for (Triangle triangle : triangles[index]) {
+      if (triangle.intersectsInObjectSpaceWithin(ray, maxDistance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void addToExtents(int index, Extents.Builder extents) {
+    for (Triangle triangle : triangles[index]) {
+      extents.addTriangle(triangle);
+    }
+  }
+}
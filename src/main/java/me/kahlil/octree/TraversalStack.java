@@ -0,0 +1,35 @@
+package me.kahlil.octree;
+
+import me.kahlil.geometry.Extents;
+
+/**
+ * Scratch stack of node indexes and the times at which the ray enters them, along with the
+ * precomputed {@link Extents.RayContext} of the ray, reused by every traversal on the same thread
+ * so that traversals do not allocate.
+ *
+ * <p>Traversals must not be nested on one thread, since they would share the same stack.
+ */
+final class TraversalStack {
+
+  private static final ThreadLocal<TraversalStack> STACKS =
+      ThreadLocal.withInitial(() -> new TraversalStack(64));
+
+  final int[] nodes;
+  final double[] times;
+  final Extents.RayContext rayContext = new Extents.RayContext();
+
+  private TraversalStack(int capacity) {
+    this.nodes = new int[capacity];
+    this.times = new double[capacity];
+  }
+
+  /** Returns the current thread's stack, grown if necessary to hold at least capacity entries. */
+  static TraversalStack forCurrentThread(int capacity) {
+    TraversalStack stack = STACKS.get();
+    if (stack.nodes.length < capacity) {
+      stack = new TraversalStack(Math.max(capacity, 2 * stack.nodes.length));
+      STACKS.set(stack);
+    }
+    return stack;
+  }
+}
@@ -0,0 +1,495 @@
+package me.kahlil.scene;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static me.kahlil.geometry.LinearTransformation.affine;
+import static me.kahlil.geometry.LinearTransformation.rotate;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import me.kahlil.geometry.LinearTransformation;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.graphics.MutableColor;
+
+/**
+ * Loads binary glTF 2.0 (GLB) files into {@link TriangleMesh}es.
+ *
+ * <p>The file is memory-mapped once, and every accessor is read through a little-endian view of
+ * its slice of the binary chunk, so vertex data is copied straight from the mapping into the
+ * mesh's arrays. Each triangle primitive of a glTF mesh becomes a {@link TriangleMesh} which is
+ * loaded once, however many nodes instance it: every node gets a transformed copy which shares
+ * the mesh's arrays and acceleration structure.
+ *
+ * <p>Node transforms, given either as a matrix or as translation, rotation and scale, are
+ * composed down the node hierarchy. The metallic-roughness material of each primitive is mapped
+ * onto the nearest {@link Material}. Only what this renderer can draw is supported: the binary
+ * chunk as the sole buffer, float positions and normals, and triangle primitives, with any other
+ * primitive modes skipped.
+ */
+public final class GlbLoader {
+
+  private static final int MAGIC = 0x46546C67; // "glTF"
+  private static final int VERSION = 2;
+  private static final int JSON_CHUNK = 0x4E4F534A; // "JSON"
+  private static final int BIN_CHUNK = 0x004E4942; // "BIN\0"
+
+  private static final int UNSIGNED_BYTE = 5121;
+  private static final int UNSIGNED_SHORT = 5123;
+  private static final int UNSIGNED_INT = 5125;
+  private static final int FLOAT = 5126;
+
+  private static final int TRIANGLES = 4;
+
+  private static final Material DEFAULT_MATERIAL =
+      Materials.glossy().setColor(new MutableColor(1f, 1f, 1f)).build();
+
+  private final Map<String, Object> gltf;
+  private final ByteBuffer bin;
+  private final List<Material> materials = new ArrayList<>();
+  // The primitives of each glTF mesh, loaded when the mesh is first instanced by a node.
+  private final List<ImmutableList<TriangleMesh>> meshes = new ArrayList<>();
+
+  private GlbLoader(Map<String, Object> gltf, ByteBuffer bin) {
+    this.gltf = gltf;
+    this.bin = bin;
+    for (Object material : array(gltf, "materials")) {
+      materials.add(toMaterial(object(material)));
+    }
+    for (int i = 0; i < array(gltf, "meshes").size(); i++) {
+      meshes.add(null);
+    }
+  }
+
+  /** Loads every mesh instance in the default scene of the GLB file at the given path. */
+  public static ImmutableList<TriangleMesh> load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      checkArgument(
+          channel.size() <= Integer.MAX_VALUE, "GLB files over 2 GB are not supported.");
+      ByteBuffer file =
+          channel.map(MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+      checkArgument(
+          file.capacity() >= 20 && file.getInt(0) == MAGIC, "Invalid GLB data: missing header.");
+      checkArgument(
+          file.getInt(4) == VERSION,
+          "Only version %s GLB files are supported but found version %s.",
+          VERSION,
+          file.getInt(4));
+      int length = file.getInt(8);
+      checkArgument(
+          length >= 20 && length <= file.capacity(),
+          "Invalid GLB data: length %s does not match the file size %s.",
+          length,
+          file.capacity());
+
+      ByteBuffer json = chunk(file, 12, length, JSON_CHUNK);
+      byte[] jsonBytes = new byte[json.remaining()];
+      json.get(jsonBytes);
+      Object gltf = Json.parse(new String(jsonBytes, UTF_8));
+      checkArgument(gltf instanceof Map, "Invalid GLB data: the JSON chunk is not an object.");
+
+      int binStart = 20 + json.capacity();
+      ByteBuffer bin =
+          binStart + 8 <= length
+              ? chunk(file, binStart, length, BIN_CHUNK)
+              : ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+      return new GlbLoader(object(gltf), bin).loadScene();
+    }
+  }
+
+  /** Returns a little-endian view of the contents of the chunk starting at the given offset. */
+  private static ByteBuffer chunk(ByteBuffer file, int start, int fileLength, int type) {
+    checkArgument(start + 8 <= fileLength, "Invalid GLB data: missing chunk at %s.", start);
+    int chunkLength = file.getInt(start);
+    checkArgument(
+        file.getInt(start + 4) == type,
+        "Invalid GLB data: expected chunk type %s at %s but found %s.",
+        Integer.toHexString(type),
+        start,
+        Integer.toHexString(file.getInt(start + 4)));
+    checkArgument(
+        chunkLength >= 0 && chunkLength <= fileLength - start - 8,
+        "Invalid GLB data: chunk at %s overruns the file.",
+        start);
+    return slice(file, start + 8, chunkLength);
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset).limit(offset + length);
+    return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private ImmutableList<TriangleMesh> loadScene() {
+    List<Object> nodes = array(gltf, "nodes");
+    List<Object> roots;
+    List<Object> scenes = array(gltf, "scenes");
+    if (!scenes.isEmpty()) {
+      roots = array(object(element(scenes, toInt(gltf.getOrDefault("scene", 0.0)))), "nodes");
+    } else {
+      // Without scenes, every node which is not the child of another node is drawn.
+      Set<Integer> children = new HashSet<>();
+      for (Object node : nodes) {
+        for (Object child : array(object(node), "children")) {
+          children.add(toInt(child));
+        }
+      }
+      roots = new ArrayList<>();
+      for (int i = 0; i < nodes.size(); i++) {
+        if (!children.contains(i)) {
+          roots.add((double) i);
+        }
+      }
+    }
+
+    ImmutableList.Builder<TriangleMesh> instances = ImmutableList.builder();
+    for (Object root : roots) {
+      addNode(toInt(root), null, 0, instances);
+    }
+    return instances.build();
+  }
+
+  /**
+   * Adds the mesh instances of the given node and its descendants.
+   *
+   * @param parentTransform the transformation from the parent node to world space, or null at
+   *     the root of the hierarchy
+   */
+  private void addNode(
+      int index,
+      LinearTransformation parentTransform,
+      int depth,
+      ImmutableList.Builder<TriangleMesh> instances) {
+    List<Object> nodes = array(gltf, "nodes");
+    checkArgument(depth < nodes.size(), "Invalid glTF data: the node hierarchy has a cycle.");
+    Map<String, Object> node = object(element(nodes, index));
+
+    LinearTransformation transform = then(localTransform(node), parentTransform);
+    if (node.containsKey("mesh")) {
+      for (TriangleMesh mesh : mesh(toInt(node.get("mesh")))) {
+        instances.add(transform == null ? mesh : mesh.transform(transform));
+      }
+    }
+    for (Object child : array(node, "children")) {
+      addNode(toInt(child), transform, depth + 1, instances);
+    }
+  }
+
+  /** Returns the transformation from the given node to its parent, or null for none. */
+  private static LinearTransformation localTransform(Map<String, Object> node) {
+    if (node.containsKey("matrix")) {
+      double[] matrix = numbers(node, "matrix", 16);
+      double[][] entries = new double[4][4];
+      for (int column = 0; column < 4; column++) {
+        for (int row = 0; row < 4; row++) {
+          entries[row][column] = matrix[4 * column + row];
+        }
+      }
+      return affine(entries);
+    }
+    // Translation, rotation and scale are applied in the reverse order.
+    LinearTransformation transform = null;
+    if (node.containsKey("scale")) {
+      double[] s = numbers(node, "scale", 3);
+      transform = scale(s[0], s[1], s[2]);
+    }
+    if (node.containsKey("rotation")) {
+      double[] q = numbers(node, "rotation", 4);
+      transform = then(transform, rotate(q[0], q[1], q[2], q[3]));
+    }
+    if (node.containsKey("translation")) {
+      double[] t = numbers(node, "translation", 3);
+      transform = then(transform, translate(t[0], t[1], t[2]));
+    }
+    return transform;
+  }
+
+  /** Returns first followed by second, where either may be null for the identity. */
+  private static LinearTransformation then(
+      LinearTransformation first, LinearTransformation second) {
+    if (first == null) {
+      return second;
+    }
+    return second == null ? first : first.then(second);
+  }
+
+  /** Returns the triangle primitives of the given mesh, loading them on first use. */
+  private ImmutableList<TriangleMesh> mesh(int index) {
+    checkArgument(
+        0 <= index && index < meshes.size(), "Invalid glTF data: mesh %s does not exist.", index);
+    if (meshes.get(index) == null) {
+      ImmutableList.Builder<TriangleMesh> primitives = ImmutableList.builder();
+      Map<String, Object> mesh = object(element(array(gltf, "meshes"), index));
+      for (Object primitive : array(mesh, "primitives")) {
+        Map<String, Object> attributes = object(object(primitive).get("attributes"));
+        if (toInt(object(primitive).getOrDefault("mode", (double) TRIANGLES)) != TRIANGLES
+            || !attributes.containsKey("POSITION")) {
+          continue;
+        }
+        primitives.add(toMesh(object(primitive), attributes));
+      }
+      meshes.set(index, primitives.build());
+    }
+    return meshes.get(index);
+  }
+
+  private TriangleMesh toMesh(Map<String, Object> primitive, Map<String, Object> attributes) {
+    Accessor positionAccessor = accessor(toInt(attributes.get("POSITION")), "VEC3");
+    checkArgument(
+        positionAccessor.componentType == FLOAT, "Only float vertex positions are supported.");
+    FloatBuffer positionView = positionAccessor.data.asFloatBuffer();
+    double[] positions = new double[3 * positionAccessor.count];
+    for (int i = 0; i < positionAccessor.count; i++) {
+      int offset = positionAccessor.floatOffset(i);
+      positions[3 * i] = positionView.get(offset);
+      positions[3 * i + 1] = positionView.get(offset + 1);
+      positions[3 * i + 2] = positionView.get(offset + 2);
+    }
+
+    int[] indexes;
+    if (primitive.containsKey("indices")) {
+      indexes = readIndexes(accessor(toInt(primitive.get("indices")), "SCALAR"));
+    } else {
+      indexes = new int[positionAccessor.count];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+      }
+    }
+
+    Material material =
+        primitive.containsKey("material")
+            ? element(materials, toInt(primitive.get("material")))
+            : DEFAULT_MATERIAL;
+    if (!attributes.containsKey("NORMAL")) {
+      return TriangleMesh.withSurfaceNormals(material, positions, indexes);
+    }
+    Accessor normalAccessor = accessor(toInt(attributes.get("NORMAL")), "VEC3");
+    checkArgument(
+        normalAccessor.componentType == FLOAT, "Only float vertex normals are supported.");
+    float[] normals = new float[3 * normalAccessor.count];
+    FloatBuffer normalView = normalAccessor.data.asFloatBuffer();
+    if (normalAccessor.isTightlyPacked()) {
+      normalView.get(normals);
+    } else {
+      for (int i = 0; i < normalAccessor.count; i++) {
+        normalView.position(normalAccessor.floatOffset(i));
+        normalView.get(normals, 3 * i, 3);
+      }
+    }
+    return TriangleMesh.withVertexNormals(material, positions, normals, indexes);
+  }
+
+  private static int[] readIndexes(Accessor accessor) {
+    int[] indexes = new int[accessor.count];
+    switch (accessor.componentType) {
+      case UNSIGNED_BYTE:
+        for (int i = 0; i < indexes.length; i++) {
+          indexes[i] = Byte.toUnsignedInt(accessor.data.get(i * accessor.stride));
+        }
+        break;
+      case UNSIGNED_SHORT:
+        for (int i = 0; i < indexes.length; i++) {
+          indexes[i] = Short.toUnsignedInt(accessor.data.getShort(i * accessor.stride));
+        }
+        break;
+      case UNSIGNED_INT:
+        if (accessor.isTightlyPacked()) {
+          accessor.data.asIntBuffer().get(indexes);
+        } else {
+          for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = accessor.data.getInt(i * accessor.stride);
+          }
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Invalid glTF data: unsupported index component type %s.",
+                accessor.componentType));
+    }
+    return indexes;
+  }
+
+  /** Returns a view of the elements of the given accessor, which must be of the given type. */
+  private Accessor accessor(int index, String type) {
+    Map<String, Object> accessor = object(element(array(gltf, "accessors"), index));
+    checkArgument(
+        type.equals(accessor.get("type")),
+        "Invalid glTF data: accessor %s has type %s instead of %s.",
+        index,
+        accessor.get("type"),
+        type);
+    checkArgument(
+        !accessor.containsKey("sparse") && accessor.containsKey("bufferView"),
+        "Sparse and zero-filled accessors are not supported.");
+    int count = toInt(accessor.get("count"));
+    int componentType = toInt(accessor.get("componentType"));
+    int elementSize = (type.equals("VEC3") ? 3 : 1) * componentSize(componentType);
+
+    Map<String, Object> view =
+        object(element(array(gltf, "bufferViews"), toInt(accessor.get("bufferView"))));
+    int buffer = toInt(view.getOrDefault("buffer", 0.0));
+    checkArgument(
+        buffer == 0 && !object(element(array(gltf, "buffers"), 0)).containsKey("uri"),
+        "Only data in the binary chunk of the GLB file is supported.");
+    int viewOffset = toInt(view.getOrDefault("byteOffset", 0.0));
+    int viewLength = toInt(view.get("byteLength"));
+    int stride = toInt(view.getOrDefault("byteStride", (double) elementSize));
+    int offset = toInt(accessor.getOrDefault("byteOffset", 0.0));
+    checkArgument(
+        viewOffset + (long) viewLength <= bin.capacity()
+            && (count == 0 || offset + (long) (count - 1) * stride + elementSize <= viewLength),
+        "Invalid glTF data: accessor %s overruns its buffer.",
+        index);
+    checkArgument(
+        stride >= elementSize && stride % componentSize(componentType) == 0,
+        "Invalid glTF data: accessor %s has an invalid stride of %s.",
+        index,
+        stride);
+    return new Accessor(
+        slice(bin, viewOffset + offset, viewLength - offset),
+        count,
+        componentType,
+        elementSize,
+        stride);
+  }
+
+  private static int componentSize(int componentType) {
+    switch (componentType) {
+      case UNSIGNED_BYTE:
+        return 1;
+      case UNSIGNED_SHORT:
+        return 2;
+      case UNSIGNED_INT:
+      case FLOAT:
+        return 4;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Invalid glTF data: unsupported component type %s.", componentType));
+    }
+  }
+
+  /**
+   * Maps a metallic-roughness material onto the Phong model: smooth surfaces are hard and shiny,
+   * and smooth metals are reflective.
+   */
+  private static Material toMaterial(Map<String, Object> material) {
+    Map<String, Object> pbr = object(material.getOrDefault("pbrMetallicRoughness", Map.of()));
+    double[] color =
+        pbr.containsKey("baseColorFactor")
+            ? numbers(pbr, "baseColorFactor", 4)
+            : new double[] {1, 1, 1, 1};
+    double metallic = clamp(toDouble(pbr.getOrDefault("metallicFactor", 1.0)));
+    double roughness = clamp(toDouble(pbr.getOrDefault("roughnessFactor", 1.0)));
+
+    // The Phong exponent which best approximates a GGX lobe of the given roughness.
+    double alpha = roughness * roughness;
+    double exponent = alpha == 0 ? Double.POSITIVE_INFINITY : 2 / (alpha * alpha) - 2;
+    return ImmutableMaterial.builder()
+        .setColor(
+            new MutableColor(
+                (float) clamp(color[0]), (float) clamp(color[1]), (float) clamp(color[2])))
+        .setHardness((int) Math.max(1, Math.min(511, Math.round(exponent))))
+        .setSpecularIntensity(1 - roughness)
+        .setReflectiveness(metallic * (1 - roughness))
+        .build();
+  }
+
+  private static double clamp(double value) {
+    return Math.max(0, Math.min(1, value));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> object(Object value) {
+    checkArgument(
+        value instanceof Map, "Invalid glTF data: expected an object but found %s.", value);
+    return (Map<String, Object>) value;
+  }
+
+  /** Returns the array with the given key, or an empty list if it is absent. */
+  @SuppressWarnings("unchecked")
+  private static List<Object> array(Map<String, Object> object, String key) {
+    Object value = object.getOrDefault(key, List.of());
+    checkArgument(value instanceof List, "Invalid glTF data: %s is not an array.", key);
+    return (List<Object>) value;
+  }
+
+  private static <T> T element(List<T> list, int index) {
+    checkArgument(
+        0 <= index && index < list.size(),
+        "Invalid glTF data: index %s is out of range for %s elements.",
+        index,
+        list.size());
+    return list.get(index);
+  }
+
+  private static double[] numbers(Map<String, Object> object, String key, int length) {
+    List<Object> array = array(object, key);
+    checkArgument(
+        array.size() == length,
+        "Invalid glTF data: %s must have %s elements but has %s.",
+        key,
+        length,
+        array.size());
+    double[] numbers = new double[length];
+    for (int i = 0; i < length; i++) {
+      numbers[i] = toDouble(array.get(i));
+    }
+    return numbers;
+  }
+
+  private static double toDouble(Object value) {
+    checkArgument(
+        value instanceof Double, "Invalid glTF data: expected a number but found %s.", value);
+    return (Double) value;
+  }
+
+  private static int toInt(Object value) {
+    double number = toDouble(value);
+    checkArgument(
+        number == (int) number, "Invalid glTF data: expected an integer but found %s.", value);
+    return (int) number;
+  }
+
+  /** A little-endian view of the elements of an accessor within the binary chunk. */
+  private static final class Accessor {
+
+    // Starts at the first element of the accessor.
+    final ByteBuffer data;
+    final int count;
+    final int componentType;
+    final int elementSize;
+    final int stride;
+
+    Accessor(ByteBuffer data, int count, int componentType, int elementSize, int stride) {
+      this.data = data;
+      this.count = count;
+      this.componentType = componentType;
+      this.elementSize = elementSize;
+      this.stride = stride;
+    }
+
+    /** Returns whether the elements follow one another without any padding. */
+    boolean isTightlyPacked() {
+      return stride == elementSize;
+    }
+
+    /** Returns the offset of the given element in a float view of the data. */
+    int floatOffset(int element) {
+      return element * stride / Float.BYTES;
+    }
+  }
+}
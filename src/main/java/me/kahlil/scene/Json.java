@@ -0,0 +1,181 @@
+package me.kahlil.scene;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON parser, for reading the small JSON documents embedded in scene files such as
+ * glTF.
+ *
+ * <p>Objects are parsed into {@link Map}s, arrays into {@link List}s, numbers into {@link Double}s,
+ * and strings, booleans and null into {@link String}s, {@link Boolean}s and null.
+ */
+final class Json {
+
+  private final String text;
+  private int position;
+
+  private Json(String text) {
+    this.text = text;
+  }
+
+  /** Parses the given JSON document. */
+  static Object parse(String text) {
+    Json json = new Json(text);
+    Object value = json.parseValue();
+    json.skipWhitespace();
+    json.check(json.position == text.length(), "Unexpected trailing characters");
+    return value;
+  }
+
+  private Object parseValue() {
+    skipWhitespace();
+    check(position < text.length(), "Unexpected end of document");
+    char c = text.charAt(position);
+    switch (c) {
+      case '{':
+        return parseObject();
+      case '[':
+        return parseArray();
+      case '"':
+        return parseString();
+      case 't':
+        expect("true");
+        return true;
+      case 'f':
+        expect("false");
+        return false;
+      case 'n':
+        expect("null");
+        return null;
+      default:
+        return parseNumber();
+    }
+  }
+
+  private Map<String, Object> parseObject() {
+    Map<String, Object> object = new LinkedHashMap<>();
+    position++;
+    skipWhitespace();
+    if (consume('}')) {
+      return object;
+    }
+    do {
+      skipWhitespace();
+      check(position < text.length() && text.charAt(position) == '"', "Expected a key");
+      String key = parseString();
+      skipWhitespace();
+      check(consume(':'), "Expected ':'");
+      object.put(key, parseValue());
+      skipWhitespace();
+    } while (consume(','));
+    check(consume('}'), "Expected ',' or '}'");
+    return object;
+  }
+
+  private List<Object> parseArray() {
+    List<Object> array = new ArrayList<>();
+    position++;
+    skipWhitespace();
+    if (consume(']')) {
+      return array;
+    }
+    do {
+      array.add(parseValue());
+      skipWhitespace();
+    } while (consume(','));
+    check(consume(']'), "Expected ',' or ']'");
+    return array;
+  }
+
+  private String parseString() {
+    position++;
+    StringBuilder string = new StringBuilder();
+    while (true) {
+      check(position < text.length(), "Unterminated string");
+      char c = text.charAt(position++);
+      if (c == '"') {
+        return string.toString();
+      }
+      if (c != '\\') {
+        string.append(c);
+        continue;
+      }
+      check(position < text.length(), "Unterminated string");
+      char escaped = text.charAt(position++);
+      switch (escaped) {
+        case 'b':
+          string.append('\b');
+          break;
+        case 'f':
+          string.append('\f');
+          break;
+        case 'n':
+          string.append('\n');
+          break;
+        case 'r':
+          string.append('\r');
+          break;
+        case 't':
+          string.append('\t');
+          break;
+        case 'u':
+          check(position + 4 <= text.length(), "Truncated unicode escape");
+          try {
+            string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+          } catch (NumberFormatException e) {
+            throw error("Invalid unicode escape");
+          }
+          position += 4;
+          break;
+        default:
+          string.append(escaped);
+      }
+    }
+  }
+
+  private Double parseNumber() {
+    int start = position;
+    while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+      position++;
+    }
+    check(position > start, "Unexpected character");
+    try {
+      return Double.valueOf(text.substring(start, position));
+    } catch (NumberFormatException e) {
+      throw error("Invalid number");
+    }
+  }
+
+  private void expect(String literal) {
+    check(text.startsWith(literal, position), "Expected " + literal);
+    position += literal.length();
+  }
+
+  private boolean consume(char c) {
+    if (position < text.length() && text.charAt(position) == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void skipWhitespace() {
+    while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+      position++;
+    }
+  }
+
+  private void check(boolean condition, String message) {
+    if (!condition) {
+      throw error(message);
+    }
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(
+        String.format("Invalid JSON at position %d: %s", position, message));
+  }
+}
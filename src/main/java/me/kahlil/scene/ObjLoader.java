@@ -0,0 +1,414 @@
+package me.kahlil.scene;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import me.kahlil.geometry.TriangleMesh;
+
+/**
+ * Loads Wavefront OBJ files into {@link TriangleMesh}es.
+ *
+ * <p>The file is streamed through a reused buffer and parsed byte by byte straight into growable
+ * primitive arrays, without creating a String per line or token, so loading takes time linear in
+ * the size of the file and allocates little besides the mesh itself. Vertex positions ("v"),
+ * vertex normals ("vn") and faces ("f") are read; faces with more than 3 vertexes are split into
+ * triangles, and negative (relative) indexes are supported. Every other statement, such as
+ * texture coordinates, groups and materials, is skipped.
+ *
+ * <p>OBJ files index positions and normals separately, whereas a mesh has one normal per vertex,
+ * so a position used with several different normals is duplicated once per normal. If any face
+ * vertex has no normal, the normals are ignored and the mesh uses surface normals.
+ */
+public final class ObjLoader {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  // Powers of ten which are exactly representable as doubles, for parsing decimal numbers.
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private ObjLoader() {}
+
+  /** Loads the OBJ file at the given path as a mesh made of the given material. */
+  public static TriangleMesh load(Path path, Material material) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return load(channel, material);
+    }
+  }
+
+  /** Loads OBJ data read from the channel until its end as a mesh made of the given material. */
+  public static TriangleMesh load(ReadableByteChannel channel, Material material)
+      throws IOException {
+    Parser parser = new Parser();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    while (true) {
+      boolean isEndOfInput = channel.read(buffer) < 0;
+      byte[] bytes = buffer.array();
+      int end = buffer.position();
+      int lineStart = 0;
+      for (int i = 0; i < end; i++) {
+        if (bytes[i] == '\n') {
+          parser.parseLine(bytes, lineStart, i);
+          lineStart = i + 1;
+        }
+      }
+      if (isEndOfInput) {
+        if (lineStart < end) {
+          parser.parseLine(bytes, lineStart, end);
+        }
+        return parser.toMesh(material);
+      }
+
+      // Move the incomplete last line to the front of the buffer, growing it if the line fills it.
+      int remaining = end - lineStart;
+      if (remaining == bytes.length) {
+        buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, 2 * bytes.length));
+      } else {
+        System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+      }
+      buffer.position(remaining);
+    }
+  }
+
+  /** Parses lines one at a time, accumulating the geometry they describe. */
+  private static final class Parser {
+
+    private final DoubleArray positions = new DoubleArray();
+    private final DoubleArray normals = new DoubleArray();
+    // Position and normal index of every corner of every triangle. Normal indexes are -1 when
+    // absent.
+    private final IntArray cornerPositions = new IntArray();
+    private final IntArray cornerNormals = new IntArray();
+    private boolean allCornersHaveNormals = true;
+
+    private int lineNumber;
+    // Parsing position within the current line.
+    private byte[] line;
+    private int position;
+    private int end;
+
+    void parseLine(byte[] bytes, int start, int end) {
+      lineNumber++;
+      this.line = bytes;
+      this.position = start;
+      this.end = end;
+      skipWhitespace();
+      if (position >= this.end) {
+        return;
+      }
+      byte first = line[position];
+      int keywordLength = 0;
+      while (position + keywordLength < this.end
+          && !isWhitespace(line[position + keywordLength])) {
+        keywordLength++;
+      }
+      if (first == 'v' && keywordLength == 1) {
+        position++;
+        positions.add(parseDouble());
+        positions.add(parseDouble());
+        positions.add(parseDouble());
+      } else if (first == 'v' && keywordLength == 2 && line[position + 1] == 'n') {
+        position += 2;
+        normals.add(parseDouble());
+        normals.add(parseDouble());
+        normals.add(parseDouble());
+      } else if (first == 'f' && keywordLength == 1) {
+        position++;
+        parseFace();
+      }
+    }
+
+    /** Parses the vertexes of a face, splitting it into a fan of triangles around the first. */
+    private void parseFace() {
+      int numVertexes = 0;
+      int firstPosition = 0;
+      int firstNormal = 0;
+      int previousPosition = 0;
+      int previousNormal = 0;
+      skipWhitespace();
+      while (position < end) {
+        int vertexPosition = resolveIndex(parseInt(), positions.size() / 3, "vertex");
+        int vertexNormal = -1;
+        if (position < end && line[position] == '/') {
+          position++;
+          if (position < end && line[position] != '/' && !isWhitespace(line[position])) {
+            // Texture coordinates are not used.
+            parseInt();
+          }
+          if (position < end && line[position] == '/') {
+            position++;
+            vertexNormal = resolveIndex(parseInt(), normals.size() / 3, "normal");
+          }
+        }
+        if (vertexNormal < 0) {
+          allCornersHaveNormals = false;
+        }
+
+        if (numVertexes == 0) {
+          firstPosition = vertexPosition;
+          firstNormal = vertexNormal;
+        } else if (numVertexes >= 2) {
+          addCorner(firstPosition, firstNormal);
+          addCorner(previousPosition, previousNormal);
+          addCorner(vertexPosition, vertexNormal);
+        }
+        previousPosition = vertexPosition;
+        previousNormal = vertexNormal;
+        numVertexes++;
+        skipWhitespace();
+      }
+      if (numVertexes < 3) {
+        throw parseError("A face must have at least 3 vertices. Found: " + numVertexes);
+      }
+    }
+
+    private void addCorner(int cornerPosition, int cornerNormal) {
+      cornerPositions.add(cornerPosition);
+      cornerNormals.add(cornerNormal);
+    }
+
+    /** Converts a 1-based or negative (counting back from the last) index to a 0-based index. */
+    private int resolveIndex(int index, int numDefined, String type) {
+      int resolved = index > 0 ? index - 1 : numDefined + index;
+      if (index == 0 || resolved < 0 || resolved >= numDefined) {
+        throw parseError(
+            String.format("The %s index %d refers to an undefined %s.", type, index, type));
+      }
+      return resolved;
+    }
+
+    TriangleMesh toMesh(Material material) {
+      if (cornerPositions.size() == 0) {
+        throw new IllegalArgumentException("An OBJ mesh must have at least one face.");
+      }
+      if (!allCornersHaveNormals) {
+        return TriangleMesh.withSurfaceNormals(
+            material, positions.toArray(), cornerPositions.toArray());
+      }
+
+      // Assign every (position, normal) pair used by a corner its own vertex. The first normal
+      // a position is used with keeps the position's own vertex, and every other normal gets a
+      // copy, chained from the position's vertex.
+      int numPositions = positions.size() / 3;
+      IntArray vertexPositions = new IntArray();
+      IntArray vertexNormals = new IntArray();
+      IntArray nextVertexes = new IntArray();
+      for (int i = 0; i < numPositions; i++) {
+        vertexPositions.add(i);
+        vertexNormals.add(-1);
+        nextVertexes.add(-1);
+      }
+      int[] indexes = new int[cornerPositions.size()];
+      for (int corner = 0; corner < indexes.length; corner++) {
+        int normal = cornerNormals.get(corner);
+        int vertex = cornerPositions.get(corner);
+        while (vertexNormals.get(vertex) >= 0
+            && vertexNormals.get(vertex) != normal
+            && nextVertexes.get(vertex) >= 0) {
+          vertex = nextVertexes.get(vertex);
+        }
+        if (vertexNormals.get(vertex) < 0) {
+          vertexNormals.set(vertex, normal);
+        } else if (vertexNormals.get(vertex) != normal) {
+          int copy = vertexPositions.size();
+          vertexPositions.add(vertexPositions.get(vertex));
+          vertexNormals.add(normal);
+          nextVertexes.add(-1);
+          nextVertexes.set(vertex, copy);
+          vertex = copy;
+        }
+        indexes[corner] = vertex;
+      }
+
+      int numVertexes = vertexPositions.size();
+      double[] meshPositions = Arrays.copyOf(positions.values, 3 * numVertexes);
+      float[] meshNormals = new float[3 * numVertexes];
+      for (int vertex = 0; vertex < numVertexes; vertex++) {
+        if (vertex >= numPositions) {
+          System.arraycopy(
+              positions.values, 3 * vertexPositions.get(vertex), meshPositions, 3 * vertex, 3);
+        }
+        int normal = vertexNormals.get(vertex);
+        if (normal >= 0) {
+          for (int i = 0; i < 3; i++) {
+            meshNormals[3 * vertex + i] = (float) normals.values[3 * normal + i];
+          }
+        }
+      }
+      return TriangleMesh.withVertexNormals(material, meshPositions, meshNormals, indexes);
+    }
+
+    /** Parses a base 10 integer at the current position. */
+    private int parseInt() {
+      boolean isNegative = false;
+      if (position < end && (line[position] == '-' || line[position] == '+')) {
+        isNegative = line[position] == '-';
+        position++;
+      }
+      int start = position;
+      long value = 0;
+      while (position < end && isDigit(line[position])) {
+        value = 10 * value + (line[position++] - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw parseError("Index is too large.");
+        }
+      }
+      if (position == start) {
+        throw parseError("Expected an integer at column " + (position + 1) + ".");
+      }
+      return (int) (isNegative ? -value : value);
+    }
+
+    /**
+     * Parses a decimal number, optionally in scientific notation, after any whitespace at the
+     * current position.
+     *
+     * <p>Numbers with at most 18 significant digits and small exponents (nearly all numbers written
+     * by exporters) are computed directly, which is exact since both the digits and the power of
+     * ten are exactly representable as doubles. Anything else falls back to {@link
+     * Double#parseDouble}.
+     */
+    private double parseDouble() {
+      skipWhitespace();
+      int start = position;
+      boolean isNegative = false;
+      if (position < end && (line[position] == '-' || line[position] == '+')) {
+        isNegative = line[position] == '-';
+        position++;
+      }
+      long digits = 0;
+      int numDigits = 0;
+      // A long, so that adding a written exponent near the limits of an int cannot overflow.
+      long exponent = 0;
+      boolean sawDigit = false;
+      while (position < end && isDigit(line[position])) {
+        sawDigit = true;
+        if (numDigits < 18) {
+          digits = 10 * digits + (line[position] - '0');
+          if (digits > 0) {
+            numDigits++;
+          }
+        } else {
+          exponent++;
+        }
+        position++;
+      }
+      if (position < end && line[position] == '.') {
+        position++;
+        while (position < end && isDigit(line[position])) {
+          sawDigit = true;
+          if (numDigits < 18) {
+            digits = 10 * digits + (line[position] - '0');
+            if (digits > 0) {
+              numDigits++;
+            }
+            exponent--;
+          }
+          position++;
+        }
+      }
+      if (!sawDigit) {
+        throw parseError("Expected a number at column " + (start + 1) + ".");
+      }
+      if (position < end && (line[position] == 'e' || line[position] == 'E')) {
+        position++;
+        exponent += parseInt();
+      }
+      if (position < end && !isWhitespace(line[position])) {
+        throw parseError("Unexpected character in number at column " + (position + 1) + ".");
+      }
+
+      double value;
+      if (numDigits < 16 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+        value =
+            exponent < 0
+                ? digits / POWERS_OF_TEN[(int) -exponent]
+                : digits * POWERS_OF_TEN[(int) exponent];
+      } else {
+        value = Double.parseDouble(new String(line, start, position - start, US_ASCII));
+        return value;
+      }
+      return isNegative ? -value : value;
+    }
+
+    private void skipWhitespace() {
+      while (position < end && isWhitespace(line[position])) {
+        position++;
+      }
+    }
+
+    private IllegalArgumentException parseError(String message) {
+      return new IllegalArgumentException(
+          String.format("Invalid OBJ data on line %d: %s", lineNumber, message));
+    }
+
+    private static boolean isDigit(byte b) {
+      return '0' <= b && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\t' || b == '\r';
+    }
+  }
+
+  /** A growable array of doubles. */
+  private static final class DoubleArray {
+
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size;
+
+    void add(double value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * values.length);
+      }
+      values[size++] = value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  /** A growable array of ints. */
+  private static final class IntArray {
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * values.length);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    void set(int index, int value) {
+      values[index] = value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
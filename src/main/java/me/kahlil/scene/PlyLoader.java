@@ -0,0 +1,457 @@
+package me.kahlil.scene;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import me.kahlil.geometry.TriangleMesh;
+
+/**
+ * Loads binary PLY files into {@link TriangleMesh}es.
+ *
+ * <p>The file is memory-mapped, and the vertex and face elements are decoded straight from the
+ * mapping into the mesh's arrays, so the file's contents never pass through the heap. Only the
+ * vertex properties which are needed are decoded: positions always, normals only when requested
+ * and present, and every other property (colors, confidences, ...) is skipped over. Faces with
+ * more than 3 vertexes are split into triangles, and elements other than vertexes and faces are
+ * skipped.
+ *
+ * <p>Both binary byte orders are supported. ASCII PLY files are not, since they are not what
+ * scanners emit for large meshes.
+ */
+public final class PlyLoader {
+
+  // Size of the windows the file is mapped in, since a single mapping is limited to 2 GB.
+  private static final int WINDOW_SIZE = 1 << 30;
+  private static final int MAX_HEADER_SIZE = 1 << 16;
+
+  private PlyLoader() {}
+
+  /** Loads the PLY file at the given path, including its vertex normals if it has any. */
+  public static TriangleMesh load(Path path, Material material) throws IOException {
+    return load(path, material, true);
+  }
+
+  /**
+   * Loads the PLY file at the given path, including its vertex normals only if loadNormals is true
+   * and it has them. Otherwise, the mesh uses surface normals.
+   */
+  public static TriangleMesh load(Path path, Material material, boolean loadNormals)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedInput input = new MappedInput(channel);
+      Header header = Header.parse(input);
+
+      double[] positions = null;
+      float[] normals = null;
+      int[] indexes = null;
+      for (Element element : header.elements) {
+        if (element.name.equals("vertex")) {
+          positions = new double[toArraySize(3 * element.count)];
+          if (loadNormals && element.hasProperty("nx")) {
+            normals = new float[positions.length];
+          }
+          readVertexes(input, element, positions, normals);
+        } else if (element.name.equals("face")) {
+          indexes = readFaces(input, element);
+        } else {
+          skip(input, element);
+        }
+      }
+      checkArgument(positions != null, "A PLY mesh must have a vertex element.");
+      checkArgument(indexes != null, "A PLY mesh must have a face element.");
+      return normals == null
+          ? TriangleMesh.withSurfaceNormals(material, positions, indexes)
+          : TriangleMesh.withVertexNormals(material, positions, normals, indexes);
+    }
+  }
+
+  /**
+   * Reads the positions, and the normals if normals is not null, of every vertex. Vertex records
+   * have a fixed size, so each property is read at a fixed offset within its record.
+   */
+  private static void readVertexes(
+      MappedInput input, Element vertexes, double[] positions, float[] normals)
+      throws IOException {
+    int recordSize = vertexes.getFixedSize();
+    Property[] coordinates = {
+      vertexes.getProperty("x"), vertexes.getProperty("y"), vertexes.getProperty("z")
+    };
+    int[] coordinateOffsets = {
+      vertexes.getOffset("x"), vertexes.getOffset("y"), vertexes.getOffset("z")
+    };
+    Property[] normalCoordinates = new Property[3];
+    int[] normalOffsets = new int[3];
+    if (normals != null) {
+      String[] names = {"nx", "ny", "nz"};
+      for (int i = 0; i < 3; i++) {
+        normalCoordinates[i] = vertexes.getProperty(names[i]);
+        normalOffsets[i] = vertexes.getOffset(names[i]);
+      }
+    }
+
+    for (int vertex = 0; vertex < vertexes.count; vertex++) {
+      int record = input.take(recordSize);
+      for (int i = 0; i < 3; i++) {
+        positions[3 * vertex + i] =
+            coordinates[i].type.read(input.window, record + coordinateOffsets[i]);
+      }
+      if (normals != null) {
+        for (int i = 0; i < 3; i++) {
+          normals[3 * vertex + i] =
+              (float) normalCoordinates[i].type.read(input.window, record + normalOffsets[i]);
+        }
+      }
+    }
+  }
+
+  /** Reads the vertex indexes of every face, splitting each into a fan of triangles. */
+  private static int[] readFaces(MappedInput input, Element faces) throws IOException {
+    Property vertexIndexes =
+        faces.hasProperty("vertex_indices")
+            ? faces.getProperty("vertex_indices")
+            : faces.getProperty("vertex_index");
+    checkArgument(vertexIndexes.isList(), "The vertex indexes of PLY faces must be a list.");
+
+    // Most scans are made of triangles, so start with room for one triangle per face.
+    int[] indexes = new int[toArraySize(3 * faces.count)];
+    int numIndexes = 0;
+    for (long face = 0; face < faces.count; face++) {
+      for (Property property : faces.properties) {
+        if (property != vertexIndexes) {
+          skip(input, property);
+          continue;
+        }
+        int numVertexes = readCount(input, property);
+        checkArgument(
+            numVertexes >= 3, "A face must have at least 3 vertices. Found: %s", numVertexes);
+        int list = input.take(numVertexes * property.type.size);
+        int first = (int) property.type.read(input.window, list);
+        int previous = (int) property.type.read(input.window, list + property.type.size);
+        for (int i = 2; i < numVertexes; i++) {
+          int current = (int) property.type.read(input.window, list + i * property.type.size);
+          if (numIndexes + 3 > indexes.length) {
+            indexes = Arrays.copyOf(indexes, toArraySize(2L * indexes.length));
+          }
+          indexes[numIndexes++] = first;
+          indexes[numIndexes++] = previous;
+          indexes[numIndexes++] = current;
+          previous = current;
+        }
+      }
+    }
+    return numIndexes == indexes.length ? indexes : Arrays.copyOf(indexes, numIndexes);
+  }
+
+  /** Skips over every record of an element which is not used. */
+  private static void skip(MappedInput input, Element element) throws IOException {
+    int fixedSize = element.getFixedSize();
+    for (long record = 0; record < element.count; record++) {
+      if (fixedSize >= 0) {
+        input.take(fixedSize);
+        continue;
+      }
+      for (Property property : element.properties) {
+        skip(input, property);
+      }
+    }
+  }
+
+  private static void skip(MappedInput input, Property property) throws IOException {
+    if (property.isList()) {
+      input.take(readCount(input, property) * property.type.size);
+    } else {
+      input.take(property.type.size);
+    }
+  }
+
+  /** Reads the number of entries in the next value of the list property. */
+  private static int readCount(MappedInput input, Property property) throws IOException {
+    int count = (int) property.countType.read(input.window, input.take(property.countType.size));
+    checkArgument(count >= 0, "A PLY list must not have a negative length. Found: %s", count);
+    return count;
+  }
+
+  private static int toArraySize(long size) {
+    checkArgument(size <= Integer.MAX_VALUE - 8, "PLY mesh is too large to load: %s", size);
+    return (int) size;
+  }
+
+  /** The scalar types of PLY properties. */
+  private enum Type {
+    INT8(1, "char", "int8"),
+    UINT8(1, "uchar", "uint8"),
+    INT16(2, "short", "int16"),
+    UINT16(2, "ushort", "uint16"),
+    INT32(4, "int", "int32"),
+    UINT32(4, "uint", "uint32"),
+    FLOAT32(4, "float", "float32"),
+    FLOAT64(8, "double", "float64");
+
+    final int size;
+    private final String name;
+    private final String sizedName;
+
+    Type(int size, String name, String sizedName) {
+      this.size = size;
+      this.name = name;
+      this.sizedName = sizedName;
+    }
+
+    static Type parse(String name) {
+      for (Type type : values()) {
+        if (type.name.equals(name) || type.sizedName.equals(name)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Invalid PLY header: unknown property type " + name);
+    }
+
+    /** Reads a value of this type at the given index of the buffer, in the buffer's byte order. */
+    double read(MappedByteBuffer buffer, int index) {
+      switch (this) {
+        case INT8:
+          return buffer.get(index);
+        case UINT8:
+          return buffer.get(index) & 0xFF;
+        case INT16:
+          return buffer.getShort(index);
+        case UINT16:
+          return buffer.getShort(index) & 0xFFFF;
+        case INT32:
+          return buffer.getInt(index);
+        case UINT32:
+          return buffer.getInt(index) & 0xFFFFFFFFL;
+        case FLOAT32:
+          return buffer.getFloat(index);
+        default:
+          return buffer.getDouble(index);
+      }
+    }
+  }
+
+  /** A property of an element, which is either a scalar or a list of scalars. */
+  private static final class Property {
+
+    final String name;
+    final Type type;
+    // The type of the length of a list property, or null for scalar properties.
+    final Type countType;
+
+    Property(String name, Type type, Type countType) {
+      this.name = name;
+      this.type = type;
+      this.countType = countType;
+    }
+
+    boolean isList() {
+      return countType != null;
+    }
+  }
+
+  /** An element declared in the header, whose records are stored one after another. */
+  private static final class Element {
+
+    final String name;
+    final long count;
+    final ImmutableList<Property> properties;
+
+    Element(String name, long count, ImmutableList<Property> properties) {
+      this.name = name;
+      this.count = count;
+      this.properties = properties;
+    }
+
+    boolean hasProperty(String name) {
+      return properties.stream().anyMatch(property -> property.name.equals(name));
+    }
+
+    Property getProperty(String name) {
+      return properties.stream()
+          .filter(property -> property.name.equals(name))
+          .findFirst()
+          .orElseThrow(
+              () ->
+                  new IllegalArgumentException(
+                      String.format("PLY element %s has no property %s.", this.name, name)));
+    }
+
+    /** Returns the offset of the scalar property within records, which must have a fixed size. */
+    int getOffset(String name) {
+      checkArgument(
+          getFixedSize() >= 0, "PLY element %s must not have list properties.", this.name);
+      int offset = 0;
+      for (Property property : properties) {
+        if (property.name.equals(name)) {
+          return offset;
+        }
+        offset += property.type.size;
+      }
+      throw new IllegalArgumentException(
+          String.format("PLY element %s has no property %s.", this.name, name));
+    }
+
+    /** Returns the size of every record, or -1 if records vary in size due to list properties. */
+    int getFixedSize() {
+      int size = 0;
+      for (Property property : properties) {
+        if (property.isList()) {
+          return -1;
+        }
+        size += property.type.size;
+      }
+      return size;
+    }
+  }
+
+  /** The elements declared by a PLY header, in the order their records are stored. */
+  private static final class Header {
+
+    final ImmutableList<Element> elements;
+
+    private Header(ImmutableList<Element> elements) {
+      this.elements = elements;
+    }
+
+    /**
+     * Parses the header at the start of the input, leaving the input positioned at the first
+     * record and set to the byte order of the file.
+     */
+    static Header parse(MappedInput input) throws IOException {
+      int headerStart = input.take(0);
+      int length = 0;
+      String text = null;
+      int available = Math.min(MAX_HEADER_SIZE, input.window.limit() - headerStart);
+      byte[] bytes = new byte[available];
+      for (int i = 0; i < available; i++) {
+        bytes[i] = input.window.get(headerStart + i);
+        if (bytes[i] == '\n'
+            && (endsWith(bytes, i + 1, "end_header\n")
+                || endsWith(bytes, i + 1, "end_header\r\n"))) {
+          length = i + 1;
+          text = new String(bytes, 0, length, US_ASCII);
+          break;
+        }
+      }
+      checkArgument(text != null, "Invalid PLY header: no end_header found.");
+      input.take(length);
+
+      String[] lines = text.split("\r?\n");
+      checkArgument(lines[0].equals("ply"), "Invalid PLY header: the file must start with ply.");
+      ImmutableList.Builder<Element> elements = ImmutableList.builder();
+      String elementName = null;
+      long elementCount = 0;
+      ImmutableList.Builder<Property> properties = null;
+      for (int i = 1; i < lines.length; i++) {
+        String[] tokens = lines[i].trim().split("\\s+");
+        switch (tokens[0]) {
+          case "format":
+            checkArgument(tokens.length == 3, "Invalid PLY header: %s", lines[i]);
+            if (tokens[1].equals("binary_little_endian")) {
+              input.setOrder(ByteOrder.LITTLE_ENDIAN);
+            } else if (tokens[1].equals("binary_big_endian")) {
+              input.setOrder(ByteOrder.BIG_ENDIAN);
+            } else {
+              throw new IllegalArgumentException("Unsupported PLY format: " + tokens[1]);
+            }
+            break;
+          case "element":
+            checkArgument(tokens.length == 3, "Invalid PLY header: %s", lines[i]);
+            if (elementName != null) {
+              elements.add(new Element(elementName, elementCount, properties.build()));
+            }
+            elementName = tokens[1];
+            elementCount = Long.parseLong(tokens[2]);
+            properties = ImmutableList.builder();
+            break;
+          case "property":
+            checkArgument(elementName != null, "Invalid PLY header: property before element.");
+            if (tokens.length == 5 && tokens[1].equals("list")) {
+              properties.add(
+                  new Property(tokens[4], Type.parse(tokens[3]), Type.parse(tokens[2])));
+            } else {
+              checkArgument(tokens.length == 3, "Invalid PLY header: %s", lines[i]);
+              properties.add(new Property(tokens[2], Type.parse(tokens[1]), null));
+            }
+            break;
+          default:
+            // Comments, obj_info and end_header.
+            break;
+        }
+      }
+      if (elementName != null) {
+        elements.add(new Element(elementName, elementCount, properties.build()));
+      }
+      return new Header(elements.build());
+    }
+
+    private static boolean endsWith(byte[] bytes, int end, String suffix) {
+      if (end < suffix.length()) {
+        return false;
+      }
+      for (int i = 0; i < suffix.length(); i++) {
+        if (bytes[end - suffix.length() + i] != suffix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Reads a file through a window of it mapped into memory, which is moved along the file as it is
+   * read.
+   */
+  private static final class MappedInput {
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+    // Offset of the window within the file.
+    private long windowStart;
+    MappedByteBuffer window;
+    // Offset of the next unread byte within the window.
+    private int position;
+
+    MappedInput(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.fileSize = channel.size();
+      mapWindow(0);
+    }
+
+    void setOrder(ByteOrder order) {
+      this.order = order;
+      window.order(order);
+    }
+
+    /**
+     * Consumes the next numBytes bytes of the file, returning the index in {@link #window} they
+     * start at. The window is moved along the file if they are not all within it.
+     */
+    int take(int numBytes) throws IOException {
+      if (position + numBytes > window.limit()) {
+        checkArgument(
+            windowStart + position + numBytes <= fileSize, "PLY file ends before its last record.");
+        mapWindow(windowStart + position);
+      }
+      int start = position;
+      position += numBytes;
+      return start;
+    }
+
+    private void mapWindow(long start) throws IOException {
+      window = channel.map(MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+      window.order(order);
+      windowStart = start;
+      position = 0;
+    }
+  }
+}
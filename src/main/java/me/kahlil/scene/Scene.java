@@ -1,10 +1,17 @@
 package me.kahlil.scene;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static me.kahlil.config.Parameters.BVH_MAX_SHAPES_PER_LEAF;
+import static me.kahlil.config.Parameters.LAZY_ACCELERATION_STRUCTURES;
+
 import com.google.common.collect.ImmutableList;
+import me.kahlil.bvh.ShapeHierarchy;
 import me.kahlil.config.JavaStyle;
+import me.kahlil.geometry.LightSphere;
 import me.kahlil.geometry.Shape;
 import me.kahlil.graphics.MutableColor;
 import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Lazy;
 
 /** Represents all of hte lights and objects present in a scene to render. */
 @Immutable
@@ -22,4 +29,22 @@ public interface Scene {
 
   // Ambient lighting of the scene
   MutableColor getAmbient();
+
+  // Spheres representing each light, so lights can be seen in reflections. Computed once per scene
+  // rather than once per ray.
+  @Lazy
+  default ImmutableList<LightSphere> getLightSpheres() {
+    return getLights().stream().map(LightSphere::new).collect(toImmutableList());
+  }
+
+  // Acceleration structure over all shapes in the scene, built once on first use. The shapes' own
+  // acceleration structures (e.g. of meshes) are either built by the first ray which reaches them,
+  // or, since they are independent, concurrently first.
+  @Lazy
+  default ShapeHierarchy getShapeHierarchy() {
+    if (!LAZY_ACCELERATION_STRUCTURES) {
+      getShapes().parallelStream().forEach(Shape::buildAccelerationStructure);
+    }
+    return new ShapeHierarchy(getShapes(), BVH_MAX_SHAPES_PER_LEAF);
+  }
 }
@@ -0,0 +1,154 @@
+package me.kahlil.bvh;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static me.kahlil.bvh.BvhTesting.assertSameHits;
+import static me.kahlil.bvh.BvhTesting.randomSpheres;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import me.kahlil.bvh.BvhTesting.Spheres;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link BvhCache}. */
+@RunWith(JUnit4.class)
+public class BvhCacheTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setUp() {
+    directory = temporaryFolder.getRoot().toPath().resolve("bvh");
+  }
+
+  @Test
+  public void cachedHierarchyMatchesBuiltHierarchy() throws IOException {
+    Spheres spheres = randomSpheres(new Random(7), 500);
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+
+    cache.getOrBuild(spheres, 4, SplitStrategy.SURFACE_AREA);
+    BoundingVolumeHierarchy cached = cache.getOrBuild(spheres, 4, SplitStrategy.SURFACE_AREA);
+    BoundingVolumeHierarchy built =
+        new BoundingVolumeHierarchy(spheres, 4, SplitStrategy.SURFACE_AREA);
+
+    assertThat(listCacheFiles()).hasSize(1);
+    assertThat(cached).isNotSameAs(built);
+    assertThat(cached.getNumNodes()).isEqualTo(built.getNumNodes());
+    assertThat(cached.getMaxDepth()).isEqualTo(built.getMaxDepth());
+    assertSameHits(cached, built);
+  }
+
+  @Test
+  public void differentPrimitivesOrParametersAreCachedSeparately() throws IOException {
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+
+    cache.getOrBuild(randomSpheres(new Random(1), 100), 4, SplitStrategy.MIDPOINT);
+    cache.getOrBuild(randomSpheres(new Random(2), 100), 4, SplitStrategy.MIDPOINT);
+    cache.getOrBuild(randomSpheres(new Random(1), 100), 2, SplitStrategy.MIDPOINT);
+    cache.getOrBuild(randomSpheres(new Random(1), 100), 4, SplitStrategy.SURFACE_AREA);
+    cache.getOrBuild(randomSpheres(new Random(1), 100), 4, SplitStrategy.MIDPOINT);
+
+    assertThat(listCacheFiles()).hasSize(4);
+  }
+
+  @Test
+  public void corruptFileIsRebuilt() throws IOException {
+    Spheres spheres = randomSpheres(new Random(3), 200);
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+    cache.getOrBuild(spheres, 4, SplitStrategy.MIDPOINT);
+    Path file = listCacheFiles().get(0);
+    ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file)).order(LITTLE_ENDIAN);
+    // Point the root's first child, which follows the header and the nodes' bounds, out of range.
+    int numNodes = contents.getInt(28);
+    contents.putInt(32 + numNodes * 6 * Double.BYTES, numNodes);
+    Files.write(file, contents.array());
+
+    BoundingVolumeHierarchy rebuilt = cache.getOrBuild(spheres, 4, SplitStrategy.MIDPOINT);
+
+    assertSameHits(rebuilt, new BoundingVolumeHierarchy(spheres, 4, SplitStrategy.MIDPOINT));
+  }
+
+  @Test
+  public void truncatedFileIsRebuilt() throws IOException {
+    Spheres spheres = randomSpheres(new Random(4), 200);
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+    cache.getOrBuild(spheres, 4, SplitStrategy.MIDPOINT);
+    Path file = listCacheFiles().get(0);
+    byte[] contents = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(contents, contents.length / 2));
+
+    BoundingVolumeHierarchy rebuilt = cache.getOrBuild(spheres, 4, SplitStrategy.MIDPOINT);
+
+    assertSameHits(rebuilt, new BoundingVolumeHierarchy(spheres, 4, SplitStrategy.MIDPOINT));
+    assertThat(Files.size(file)).isEqualTo(contents.length);
+  }
+
+  @Test
+  public void leastRecentlyUsedFilesAreEvicted() throws IOException {
+    BvhCache unbounded = new BvhCache(directory, Long.MAX_VALUE);
+    // The same spheres moved around, so the hierarchies and their files are the same size.
+    Spheres first = randomSpheres(new Random(1), 100, 0);
+    Spheres second = randomSpheres(new Random(1), 100, 100);
+    unbounded.getOrBuild(first, 4, SplitStrategy.MIDPOINT);
+    Path firstFile = listCacheFiles().get(0);
+    long fileSize = Files.size(firstFile);
+    unbounded.getOrBuild(second, 4, SplitStrategy.MIDPOINT);
+    // Make the first file the least recently used, whatever the file system's time resolution.
+    Files.setLastModifiedTime(firstFile, FileTime.fromMillis(0));
+
+    // Room for two files, so adding a third evicts the first.
+    BvhCache bounded = new BvhCache(directory, fileSize * 2);
+    bounded.getOrBuild(randomSpheres(new Random(1), 100, 200), 4, SplitStrategy.MIDPOINT);
+
+    assertThat(listCacheFiles()).hasSize(2);
+    assertThat(Files.exists(firstFile)).isFalse();
+  }
+
+  @Test
+  public void unwritableDirectoryStillReturnsBuiltHierarchy() throws IOException {
+    Spheres spheres = randomSpheres(new Random(5), 200);
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+    // Replace the directory with a file, so that nothing can be written into it.
+    Files.delete(directory);
+    Files.createFile(directory);
+
+    BoundingVolumeHierarchy hierarchy = cache.getOrBuild(spheres, 4, SplitStrategy.MIDPOINT);
+
+    assertSameHits(hierarchy, new BoundingVolumeHierarchy(spheres, 4, SplitStrategy.MIDPOINT));
+  }
+
+  @Test
+  public void staleTemporaryFilesAreDeleted() throws IOException {
+    BvhCache cache = new BvhCache(directory, Long.MAX_VALUE);
+    Path stale = Files.write(directory.resolve("stale.tmp"), new byte[1024]);
+    Files.setLastModifiedTime(stale, FileTime.fromMillis(0));
+    // Possibly still being written by another process.
+    Path fresh = Files.write(directory.resolve("fresh.tmp"), new byte[1024]);
+
+    cache.getOrBuild(randomSpheres(new Random(6), 100), 4, SplitStrategy.MIDPOINT);
+
+    assertThat(Files.exists(stale)).isFalse();
+    assertThat(Files.exists(fresh)).isTrue();
+  }
+
+  private List<Path> listCacheFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+}
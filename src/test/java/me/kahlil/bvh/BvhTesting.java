@@ -0,0 +1,105 @@
+package me.kahlil.bvh;
+
+import static com.google.common.truth.Truth.assertThat;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import java.util.Random;
+import me.kahlil.geometry.BoundingBox;
+import me.kahlil.geometry.Intersectable;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.Shape;
+import me.kahlil.geometry.Sphere;
+import me.kahlil.geometry.Vector;
+
+/** Primitives and assertions shared by the tests of bounding volume hierarchies. */
+final class BvhTesting {
+
+  private BvhTesting() {}
+
+  /**
+   * Asserts that the hierarchies find the same closest hits and any-hits for rays from the origin
+   * in random directions, and that some of those rays hit anything at all.
+   */
+  static void assertSameHits(Intersectable actualHierarchy, Intersectable expectedHierarchy) {
+    Random random = new Random(11);
+    int numHits = 0;
+    for (int i = 0; i < 500; i++) {
+      // Some rays run parallel to the axes, so that their inverted directions are infinite.
+      Ray ray =
+          new Ray(
+              new Vector(0, 0, 0),
+              new Vector(
+                  random.nextInt(4) == 0 ? 0 : random.nextDouble() * 2 - 1,
+                  random.nextDouble() * 2 - 1,
+                  random.nextDouble() * 2 - 1));
+      Optional<RayHit> expected = expectedHierarchy.intersectWith(ray);
+      Optional<RayHit> actual = actualHierarchy.intersectWith(ray);
+
+      assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        numHits++;
+        assertThat(actual.get().getTime()).isEqualTo(expected.get().getTime());
+      }
+      assertThat(actualHierarchy.intersectsWithin(ray, 20))
+          .isEqualTo(expectedHierarchy.intersectsWithin(ray, 20));
+    }
+    assertThat(numHits).isGreaterThan(0);
+  }
+
+  /** Returns randomly sized spheres scattered around the origin. */
+  static Spheres randomSpheres(Random random, int numSpheres) {
+    return randomSpheres(random, numSpheres, 0);
+  }
+
+  /** Returns randomly sized spheres scattered around the origin moved by offset along x. */
+  static Spheres randomSpheres(Random random, int numSpheres, double offset) {
+    ImmutableList.Builder<Shape> spheres = ImmutableList.builder();
+    for (int i = 0; i < numSpheres; i++) {
+      spheres.add(
+          new Sphere(DUMMY_MATERIAL)
+              .transform(
+                  scale(0.2 + random.nextDouble())
+                      .then(
+                          translate(
+                              random.nextDouble() * 60 - 30 + offset,
+                              random.nextDouble() * 60 - 30,
+                              random.nextDouble() * 60 - 30))));
+    }
+    return new Spheres(spheres.build());
+  }
+
+  /** Spheres addressed by their index in a list. */
+  static final class Spheres implements IndexedPrimitives {
+
+    private final ImmutableList<Shape> spheres;
+
+    Spheres(ImmutableList<Shape> spheres) {
+      this.spheres = spheres;
+    }
+
+    @Override
+    public int size() {
+      return spheres.size();
+    }
+
+    @Override
+    public BoundingBox getBounds(int index) {
+      return spheres.get(index).getWorldBounds().get();
+    }
+
+    @Override
+    public Optional<RayHit> intersectWith(int index, Ray ray) {
+      return spheres.get(index).intersectWith(ray);
+    }
+
+    @Override
+    public boolean intersectsWithin(int index, Ray ray, double maxDistance) {
+      return spheres.get(index).intersectsWithin(ray, maxDistance);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package me.kahlil.bvh;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Vector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the {@link ChildBoundsKernel}s. */
+@RunWith(JUnit4.class)
+public class ChildBoundsKernelTest {
+
+  private static final int NUM_CHILDREN = WideBoundingVolumeHierarchy.MAX_WIDTH;
+
+  private final ChildBoundsKernel scalarKernel = new ScalarChildBoundsKernel();
+  private final ChildBoundsKernel vectorKernel = new VectorChildBoundsKernel();
+
+  @Test
+  public void vectorKernelFindsSameHitsAsScalarKernel() {
+    Random random = new Random(19);
+    ChildBounds scalarBounds = new ChildBounds(NUM_CHILDREN, scalarKernel.getGroupSize());
+    ChildBounds vectorBounds = new ChildBounds(NUM_CHILDREN, vectorKernel.getGroupSize());
+    double[] box = new double[6];
+    for (int i = 0; i < NUM_CHILDREN; i++) {
+      for (int axis = 0; axis < 3; axis++) {
+        double min = random.nextInt(8) - 4;
+        box[axis] = min;
+        box[axis + 3] = min + random.nextInt(3);
+      }
+      scalarBounds.set(i, box, 0);
+      vectorBounds.set(i, box, 0);
+    }
+
+    int numHits = 0;
+    for (int i = 0; i < 2000; i++) {
+      // Rays on whole coordinates, some of them parallel to the axes, start on the faces and
+      // edges of boxes and run along them.
+      Ray ray =
+          new Ray(
+              new Vector(random.nextInt(9) - 4, random.nextInt(9) - 4, random.nextInt(9) - 4),
+              new Vector(random.nextInt(3) - 1, random.nextInt(3) - 1, random.nextDouble() - 0.5));
+      // Ranges which start and end in the middle of groups.
+      int start = random.nextInt(NUM_CHILDREN);
+      int numChildren = random.nextInt(NUM_CHILDREN - start) + 1;
+      double maxTime = random.nextBoolean() ? Double.POSITIVE_INFINITY : random.nextDouble() * 6;
+      double[] expectedTimes = new double[NUM_CHILDREN + scalarKernel.getGroupSize()];
+      double[] actualTimes = new double[NUM_CHILDREN + vectorKernel.getGroupSize()];
+
+      int expected =
+          scalarKernel.intersect(scalarBounds, start, numChildren, ray, maxTime, expectedTimes);
+      int actual =
+          vectorKernel.intersect(vectorBounds, start, numChildren, ray, maxTime, actualTimes);
+
+      assertThat(Integer.toBinaryString(actual)).isEqualTo(Integer.toBinaryString(expected));
+      for (int child = 0; child < numChildren; child++) {
+        if ((expected & 1 << child) != 0) {
+          numHits++;
+          assertThat(actualTimes[child]).isEqualTo(expectedTimes[child]);
+        }
+      }
+    }
+    assertThat(numHits).isGreaterThan(200);
+  }
+
+  @Test
+  public void rangeExcludesNeighboringChildren() {
+    // Copies of the same box, so any range holding one of them is hit.
+    double[] box = {-1, -1, -1, 1, 1, 1};
+    Ray ray = new Ray(new Vector(0, 0, -5), new Vector(0, 0, 1));
+
+    for (ChildBoundsKernel kernel : new ChildBoundsKernel[] {scalarKernel, vectorKernel}) {
+      ChildBounds bounds = new ChildBounds(NUM_CHILDREN, kernel.getGroupSize());
+      for (int i = 0; i < NUM_CHILDREN; i++) {
+        bounds.set(i, box, 0);
+      }
+      double[] times = new double[NUM_CHILDREN + kernel.getGroupSize()];
+
+      assertThat(kernel.intersect(bounds, 3, 2, ray, Double.POSITIVE_INFINITY, times))
+          .isEqualTo(0b11);
+      assertThat(times[1]).isEqualTo(4.0);
+      assertThat(kernel.intersect(bounds, 0, NUM_CHILDREN, ray, Double.POSITIVE_INFINITY, times))
+          .isEqualTo(-1);
+      assertThat(kernel.intersect(bounds, 0, NUM_CHILDREN, ray, 4, times)).isEqualTo(0);
+      assertThat(kernel.intersect(bounds, 5, 0, ray, Double.POSITIVE_INFINITY, times))
+          .isEqualTo(0);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package me.kahlil.bvh;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static me.kahlil.config.MeshAccelerationStructure.BVH;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import java.util.Random;
+import me.kahlil.geometry.ConvexPolygon;
+import me.kahlil.geometry.Plane;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.RayPacket;
+import me.kahlil.geometry.Shape;
+import me.kahlil.geometry.Sphere;
+import me.kahlil.geometry.Vector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ShapeHierarchy}. */
+@RunWith(JUnit4.class)
+public class ShapeHierarchyTest {
+
+  private static final Plane FLOOR =
+      new Plane(new Vector(0, -20, 0), new Vector(0, 1, 0), DUMMY_MATERIAL);
+
+  @Test
+  public void closestHitMatchesLinearScan() {
+    Random random = new Random(155);
+    ImmutableList<Shape> shapes = randomSpheresAndFloor(random, 300);
+    ShapeHierarchy hierarchy = new ShapeHierarchy(shapes, 4);
+
+    for (int i = 0; i < 500; i++) {
+      Ray ray = new Ray(new Vector(0, 0, 0), randomDirection(random));
+      Optional<RayHit> expected = closestByLinearScan(shapes, ray);
+      Optional<RayHit> actual = hierarchy.intersectWith(ray);
+
+      assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        assertThat(actual.get().getObject()).isSameAs(expected.get().getObject());
+        assertThat(actual.get().getTime()).isWithin(1e-9).of(expected.get().getTime());
+      }
+    }
+  }
+
+  @Test
+  public void intersectsWithinMatchesLinearScan() {
+    Random random = new Random(155);
+    ImmutableList<Shape> shapes = randomSpheresAndFloor(random, 300);
+    ShapeHierarchy hierarchy = new ShapeHierarchy(shapes, 4);
+
+    for (int i = 0; i < 500; i++) {
+      Ray ray = new Ray(new Vector(0, 0, 0), randomDirection(random));
+      double maxDistance = random.nextDouble() * 60;
+      Optional<RayHit> closest = closestByLinearScan(shapes, ray);
+
+      assertThat(hierarchy.intersectsWithin(ray, maxDistance))
+          .isEqualTo(closest.isPresent() && closest.get().getTime() < maxDistance);
+    }
+  }
+
+  @Test
+  public void unboundedShapesAreStillHit() {
+    ShapeHierarchy hierarchy = new ShapeHierarchy(ImmutableList.of(FLOOR), 4);
+    Ray down = new Ray(new Vector(0, 0, 0), new Vector(0, -1, 0));
+
+    assertThat(hierarchy.intersectWith(down)).isPresent();
+    assertThat(hierarchy.intersectsWithin(down, 21)).isTrue();
+    assertThat(hierarchy.intersectsWithin(down, 19)).isFalse();
+  }
+
+  @Test
+  public void emptyHierarchyHitsNothing() {
+    ShapeHierarchy hierarchy = new ShapeHierarchy(ImmutableList.of(), 4);
+    Ray ray = new Ray(new Vector(0, 0, 0), new Vector(0, 0, -1));
+
+    assertThat(hierarchy.intersectWith(ray)).isEmpty();
+    assertThat(hierarchy.intersectsWithin(ray, Double.POSITIVE_INFINITY)).isFalse();
+  }
+
+  @Test
+  public void packetHitsMatchSingleRays() {
+    Random random = new Random(37);
+    ImmutableList<Shape> shapes = randomSpheresAndFloor(random, 300);
+    ShapeHierarchy hierarchy = new ShapeHierarchy(shapes, 4);
+
+    for (int packetIndex = 0; packetIndex < 50; packetIndex++) {
+      // A coherent packet of 8x8 rays around a random direction, as for a block of pixels.
+      Vector center = randomDirection(random);
+      Ray[] rays = new Ray[64];
+      for (int i = 0; i < rays.length; i++) {
+        rays[i] =
+            new Ray(
+                new Vector(0, 0, 0),
+                center.add(new Vector((i % 8) * 0.02, (i / 8) * 0.02, 0)));
+      }
+      RayPacket packet = new RayPacket(rays);
+      // Leave some of the rays out, which must not get any hits.
+      long activeRays = random.nextLong();
+
+      hierarchy.intersectWith(packet, activeRays);
+
+      for (int i = 0; i < rays.length; i++) {
+        if ((activeRays & (1L << i)) == 0) {
+          assertThat(packet.getHit(i)).isEmpty();
+          continue;
+        }
+        Optional<RayHit> expected = hierarchy.intersectWith(rays[i]);
+        assertThat(packet.getHit(i).isPresent()).isEqualTo(expected.isPresent());
+        if (expected.isPresent()) {
+          assertThat(packet.getHit(i).get().getTime()).isEqualTo(expected.get().getTime());
+          assertThat(packet.getHit(i).get().getObject())
+              .isSameAs(expected.get().getObject());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void nestedMeshHierarchiesMatchLinearScan() {
+    // The scene's hierarchy and the meshes' own hierarchies share the thread's traversal stacks.
+    Random random = new Random(91);
+    ConvexPolygon cube = ConvexPolygon.cube(DUMMY_MATERIAL).withAccelerationStructure(BVH);
+    ImmutableList.Builder<Shape> builder = ImmutableList.builder();
+    for (int i = 0; i < 200; i++) {
+      builder.add(
+          cube.transform(
+              translate(
+                  random.nextDouble() * 60 - 30,
+                  random.nextDouble() * 30 - 15,
+                  random.nextDouble() * 60 - 30)));
+    }
+    ImmutableList<Shape> shapes = builder.build();
+    ShapeHierarchy hierarchy = new ShapeHierarchy(shapes, 4);
+
+    for (int i = 0; i < 500; i++) {
+      Ray ray = new Ray(new Vector(0, 0, 0), randomDirection(random));
+      Optional<RayHit> expected = closestByLinearScan(shapes, ray);
+      Optional<RayHit> actual = hierarchy.intersectWith(ray);
+
+      assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        assertThat(actual.get().getTime()).isWithin(1e-9).of(expected.get().getTime());
+        assertThat(hierarchy.intersectsWithin(ray, expected.get().getTime() + 1e-6)).isTrue();
+      }
+    }
+  }
+
+  private static ImmutableList<Shape> randomSpheresAndFloor(Random random, int numSpheres) {
+    ImmutableList.Builder<Shape> shapes = ImmutableList.builder();
+    for (int i = 0; i < numSpheres; i++) {
+      shapes.add(
+          new Sphere(DUMMY_MATERIAL)
+              .transform(
+                  scale(0.2 + random.nextDouble())
+                      .then(
+                          translate(
+                              random.nextDouble() * 60 - 30,
+                              random.nextDouble() * 30 - 15,
+                              random.nextDouble() * 60 - 30))));
+    }
+    shapes.add(FLOOR);
+    return shapes.build();
+  }
+
+  private static Vector randomDirection(Random random) {
+    return new Vector(
+        random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+  }
+
+  private static Optional<RayHit> closestByLinearScan(ImmutableList<Shape> shapes, Ray ray) {
+    Optional<RayHit> closest = Optional.empty();
+    for (Shape shape : shapes) {
+      Optional<RayHit> rayHit = shape.intersectWith(ray);
+      if (rayHit.isPresent()
+          && (closest.isEmpty() || rayHit.get().getTime() < closest.get().getTime())) {
+        closest = rayHit;
+      }
+    }
+    return closest;
+  }
+}
@@ -0,0 +1,57 @@
+package me.kahlil.bvh;
+
+import static com.google.common.truth.Truth.assertThat;
+import static me.kahlil.bvh.BvhTesting.assertSameHits;
+import static me.kahlil.bvh.BvhTesting.randomSpheres;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import me.kahlil.bvh.BvhTesting.Spheres;
+import me.kahlil.geometry.Sphere;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link WideBoundingVolumeHierarchy}. */
+@RunWith(JUnit4.class)
+public class WideBoundingVolumeHierarchyTest {
+
+  @Test
+  public void vectorKernelIsUsedWhenAvailable() {
+    assertThat(WideBoundingVolumeHierarchy.KERNEL).isInstanceOf(VectorChildBoundsKernel.class);
+  }
+
+  @Test
+  public void wideHierarchyFindsSameHitsAsBinaryHierarchy() {
+    Spheres spheres = randomSpheres(new Random(5), 500);
+    BoundingVolumeHierarchy binary =
+        new BoundingVolumeHierarchy(spheres, 2, SplitStrategy.SURFACE_AREA);
+
+    // Widths which do and don't divide the group size of the kernel.
+    for (int width : new int[] {2, 4, 5, 8, 13}) {
+      WideBoundingVolumeHierarchy wide = new WideBoundingVolumeHierarchy(binary, width);
+
+      assertThat(wide.getNumNodes()).isLessThan(binary.getNumNodes());
+      assertThat(wide.getMaxDepth()).isAtMost(binary.getMaxDepth());
+      assertSameHits(wide, binary);
+    }
+  }
+
+  @Test
+  public void singlePrimitiveIsALeaf() {
+    Spheres spheres =
+        new Spheres(
+            ImmutableList.of(
+                new Sphere(DUMMY_MATERIAL).transform(scale(2).then(translate(0, 0, 3)))));
+    BoundingVolumeHierarchy binary =
+        new BoundingVolumeHierarchy(spheres, 2, SplitStrategy.SURFACE_AREA);
+
+    WideBoundingVolumeHierarchy wide = new WideBoundingVolumeHierarchy(binary, 8);
+
+    assertThat(wide.getNumNodes()).isEqualTo(1);
+    assertSameHits(wide, binary);
+  }
+}
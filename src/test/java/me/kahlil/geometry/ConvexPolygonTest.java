@@ -7,7 +7,11 @@ import static me.kahlil.geometry.Constants.ORIGIN;
 import static me.kahlil.geometry.LinearTransformation.translate;
 import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
 
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Random;
+import me.kahlil.config.MeshAccelerationStructure;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -88,4 +92,61 @@ public class ConvexPolygonTest {
     assertThat(polygon.intersectWith(leftOf)).isEmpty();
     assertThat(polygon.intersectWith(above)).isEmpty();
   }
+
+  @Test
+  public void accelerationStructuresAgreeWithLinearScan() {
+    Random random = new Random(17);
+    // Enough triangles that both the octree and the BVH build some subtrees in parallel.
+    ConvexPolygon sphere = sphereMesh(64).transform(translate(0, 0, -3));
+    ConvexPolygon linear = sphere.withAccelerationStructure(MeshAccelerationStructure.NONE);
+    ConvexPolygon octree = sphere.withAccelerationStructure(MeshAccelerationStructure.OCTREE);
+    ConvexPolygon bvh = sphere.withAccelerationStructure(MeshAccelerationStructure.BVH);
+
+    for (int i = 0; i < 500; i++) {
+      Ray ray =
+          new Ray(
+              ORIGIN,
+              new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+      Optional<RayHit> expected = linear.intersectWith(ray);
+
+      for (ConvexPolygon polygon : ImmutableList.of(octree, bvh)) {
+        Optional<RayHit> actual = polygon.intersectWith(ray);
+        assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+        if (expected.isPresent()) {
+          assertThat(actual.get().getTime()).isWithin(EPSILON).of(expected.get().getTime());
+        }
+        assertThat(polygon.intersectsWithin(ray, 3))
+            .isEqualTo(linear.intersectsWithin(ray, 3));
+      }
+    }
+  }
+
+  /** Returns a UV sphere of radius 1 built from numDivisions x numDivisions quads. */
+  private static ConvexPolygon sphereMesh(int numDivisions) {
+    int numVertexesPerRing = numDivisions + 1;
+    Vector[] vertexes = new Vector[numVertexesPerRing * numVertexesPerRing];
+    for (int i = 0; i < numVertexesPerRing; i++) {
+      double theta = Math.PI * i / numDivisions;
+      for (int j = 0; j < numVertexesPerRing; j++) {
+        double phi = 2 * Math.PI * j / numDivisions;
+        vertexes[i * numVertexesPerRing + j] =
+            new Vector(
+                Math.sin(theta) * Math.cos(phi), Math.cos(theta), Math.sin(theta) * Math.sin(phi));
+      }
+    }
+    int[] faces = new int[numDivisions * numDivisions];
+    Arrays.fill(faces, 4);
+    int[] vertexIndexes = new int[faces.length * 4];
+    int k = 0;
+    for (int i = 0; i < numDivisions; i++) {
+      for (int j = 0; j < numDivisions; j++) {
+        int topLeft = i * numVertexesPerRing + j;
+        vertexIndexes[k++] = topLeft;
+        vertexIndexes[k++] = topLeft + 1;
+        vertexIndexes[k++] = topLeft + numVertexesPerRing + 1;
+        vertexIndexes[k++] = topLeft + numVertexesPerRing;
+      }
+    }
+    return ConvexPolygon.withSurfaceNormals(DUMMY_MATERIAL, vertexes, faces, vertexIndexes);
+  }
 }
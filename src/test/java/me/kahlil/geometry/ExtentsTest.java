@@ -6,6 +6,7 @@ import static me.kahlil.geometry.ConvexPolygon.cube;
 import static me.kahlil.geometry.LinearTransformation.translate;
 import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
 
+import java.util.Random;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -75,4 +76,22 @@ public class ExtentsTest {
     assertThat(BOX.intersectWithBoundingVolume(leftOf)).isLessThan(0.0);
     assertThat(BOX.intersectWithBoundingVolume(above)).isLessThan(0.0);
   }
+
+  @Test
+  public void reusedRayContextMatchesDirectTest() {
+    double[] planes = new double[2 * Extents.NUM_PLANES];
+    BOX.writeTo(planes, 0);
+    Extents.RayContext context = new Extents.RayContext();
+    Random random = new Random(11);
+
+    for (int i = 0; i < 100; i++) {
+      Ray ray =
+          new Ray(
+              RAY_ORIGIN,
+              new Vector(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, -1));
+      assertThat(Extents.intersectWithBoundingVolume(context.setRay(ray), planes, 0))
+          .isWithin(EPSILON)
+          .of(BOX.intersectWithBoundingVolume(ray));
+    }
+  }
 }
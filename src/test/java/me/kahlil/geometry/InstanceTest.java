@@ -0,0 +1,118 @@
+package me.kahlil.geometry;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.geometry.Constants.ORIGIN;
+import static me.kahlil.geometry.LinearTransformation.rotateAboutYAxis;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import java.util.Random;
+import me.kahlil.bvh.ShapeHierarchy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link Instance}. */
+@RunWith(JUnit4.class)
+public class InstanceTest {
+
+  private static final PolygonSphere SPHERE = PolygonSphere.withSurfaceNormals(DUMMY_MATERIAL, 16);
+
+  @Test
+  public void instanceMatchesTransformedPrototype() {
+    LinearTransformation transformation =
+        scale(2, 1, 1).then(rotateAboutYAxis(30)).then(translate(1, 0, -5));
+    Instance instance = Instance.of(SPHERE, transformation);
+    PolygonSphere expectedShape = SPHERE.transform(transformation);
+
+    Random random = new Random(3);
+    for (int i = 0; i < 200; i++) {
+      Ray ray =
+          new Ray(ORIGIN, new Vector(random.nextDouble() - 0.3, random.nextDouble() - 0.5, -2));
+      Optional<RayHit> expected = expectedShape.intersectWith(ray);
+      Optional<RayHit> actual = instance.intersectWith(ray);
+
+      assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        assertThat(actual.get().getTime()).isWithin(EPSILON).of(expected.get().getTime());
+        assertThat(actual.get().getNormal()).isEqualTo(expected.get().getNormal());
+      }
+      assertThat(instance.intersectsWithin(ray, 4.5))
+          .isEqualTo(expectedShape.intersectsWithin(ray, 4.5));
+    }
+  }
+
+  @Test
+  public void packetHitsMatchSingleRays() {
+    Instance instance =
+        Instance.of(SPHERE, scale(2, 1, 1).then(rotateAboutYAxis(30)).then(translate(1, 0, -5)));
+    // Offset so that no ray passes exactly between two triangles, where either may be reported.
+    Ray[] rays = new Ray[64];
+    for (int i = 0; i < rays.length; i++) {
+      rays[i] = new Ray(ORIGIN, new Vector((i % 8) * 0.1 - 0.213, (i / 8) * 0.1 - 0.377, -1));
+    }
+    RayPacket packet = new RayPacket(rays);
+
+    instance.intersectWith(packet, packet.allRays());
+
+    for (int i = 0; i < rays.length; i++) {
+      Optional<RayHit> expected = instance.intersectWith(rays[i]);
+      assertThat(packet.getHit(i).isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        assertThat(packet.getHit(i).get().getTime()).isEqualTo(expected.get().getTime());
+        assertThat(packet.getHit(i).get().getNormal()).isEqualTo(expected.get().getNormal());
+      }
+    }
+  }
+
+  @Test
+  public void instanceTransformationIsAppliedAfterPrototypeTransformation() {
+    Instance instance = Instance.of(SPHERE.transform(translate(0, 0, -3)), translate(2, 0, 0));
+
+    Optional<RayHit> hit =
+        instance.intersectWith(new Ray(new Vector(2, 0, 0), new Vector(0, 0, -1)));
+
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isWithin(0.01).of(2.0);
+    assertThat(instance.getWorldBounds().get().getMinBound().getX()).isWithin(EPSILON).of(1.0);
+    assertThat(instance.getWorldBounds().get().getMaxBound().getZ()).isWithin(EPSILON).of(-2.0);
+  }
+
+  @Test
+  public void instancesShareTheirPrototype() {
+    Instance instance = Instance.of(SPHERE, translate(1, 2, 3));
+    Instance other = instance.transform(translate(1, 0, 0));
+
+    assertThat(other.getPrototype()).isSameAs(SPHERE);
+    assertThat(other.intersectWith(new Ray(new Vector(2, 2, 0), new Vector(0, 0, 1)))).isPresent();
+  }
+
+  @Test
+  public void instancesInShapeHierarchyAreFound() {
+    ImmutableList.Builder<Shape> instances = ImmutableList.builder();
+    for (int x = 0; x < 30; x++) {
+      for (int y = 0; y < 30; y++) {
+        instances.add(Instance.of(SPHERE, scale(0.4).then(translate(x, y, -10))));
+      }
+    }
+    ShapeHierarchy hierarchy = new ShapeHierarchy(instances.build(), 4);
+
+    Optional<RayHit> hit =
+        hierarchy.intersectWith(new Ray(new Vector(17, 23, 0), new Vector(0, 0, -1)));
+
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isWithin(0.01).of(9.6);
+    assertThat(hierarchy.intersectWith(new Ray(new Vector(17.5, 23.5, 0), new Vector(0, 0, -1))))
+        .isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unboundedPrototype_throws() {
+    Instance.of(new Plane(ORIGIN, new Vector(0, 1, 0), DUMMY_MATERIAL), translate(1, 0, 0));
+  }
+}
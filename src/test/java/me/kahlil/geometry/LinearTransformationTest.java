@@ -4,6 +4,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.TestCase.assertEquals;
 import static me.kahlil.geometry.Constants.ORIGIN;
 import static me.kahlil.geometry.LinearTransformation.IDENTITY;
+import static me.kahlil.geometry.LinearTransformation.rotate;
 import static me.kahlil.geometry.LinearTransformation.rotateAboutXAxis;
 import static me.kahlil.geometry.LinearTransformation.rotateAboutYAxis;
 import static me.kahlil.geometry.LinearTransformation.rotateAboutZAxis;
@@ -177,4 +178,90 @@ public class LinearTransformationTest {
     assertThat(rotateAboutYAxis(90).inverse()).isEqualTo(rotateAboutYAxis(-90));
     assertThat(rotateAboutZAxis(90).inverse()).isEqualTo(rotateAboutZAxis(-90));
   }
+
+  @Test
+  public void fastPathsMatchMatrixMultiplication() {
+    ImmutableList<LinearTransformation> transformations =
+        ImmutableList.of(
+            IDENTITY,
+            translate(1.0, -2.0, 3.0),
+            scale(2.5),
+            scale(0.5).then(translate(-4.0, 0.25, 7.0)),
+            scale(1.0, -2.0, 3.0),
+            rotateAboutYAxis(30).then(translate(1.0, 2.0, 3.0)));
+    for (LinearTransformation transformation : transformations) {
+      for (int i = 0; i < 100; ++i) {
+        Vector vector =
+            new Vector(rand.nextDouble(), rand.nextDouble(), rand.nextDouble(), i % 2);
+        Vector expected = transformation.getMatrix().multiply(vector);
+        Vector actual = transformation.apply(vector);
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.getW()).isEqualTo(expected.getW());
+      }
+    }
+  }
+
+  @Test
+  public void inverseIsCached() {
+    LinearTransformation transformation = rotateAboutXAxis(45).then(translate(1.0, 2.0, 3.0));
+    assertThat(transformation.inverse()).isSameAs(transformation.inverse());
+    assertThat(transformation.normalTransformation())
+        .isSameAs(transformation.normalTransformation());
+  }
+
+  @Test
+  public void normalTransformationMatchesInverseTranspose() {
+    LinearTransformation transformation =
+        scale(1.0, -2.0, 3.0).then(rotateAboutZAxis(30)).then(translate(4.0, 5.0, 6.0));
+    for (int i = 0; i < 100; ++i) {
+      Vector normal = new Vector(rand.nextDouble(), rand.nextDouble(), rand.nextDouble());
+      assertThat(transformation.normalTransformation().apply(normal))
+          .isEqualTo(transformation.inverseTranspose().apply(normal));
+    }
+  }
+
+  @Test
+  public void normalTransformationOfTranslationIsIdentity() {
+    assertThat(translate(1.0, -2.0, 3.0).normalTransformation()).isEqualTo(IDENTITY);
+  }
+
+  @Test
+  public void quaternionRotationMatchesAxisRotation() {
+    double halfAngle = Math.toRadians(45);
+    assertThat(rotate(Math.sin(halfAngle), 0, 0, Math.cos(halfAngle)))
+        .isEqualTo(rotateAboutXAxis(90));
+    // Quaternions are normalized, so scaling one does not change the rotation.
+    assertThat(rotate(0, 2 * Math.sin(halfAngle), 0, 2 * Math.cos(halfAngle)))
+        .isEqualTo(rotateAboutYAxis(90));
+    assertThat(rotate(0, 0, 0, 1)).isEqualTo(IDENTITY);
+  }
+
+  @Test
+  public void affineMatrixMatchesComposedTransformation() {
+    LinearTransformation transformation =
+        scale(1.0, -2.0, 3.0).then(rotateAboutZAxis(30)).then(translate(4.0, 5.0, 6.0));
+    double[][] entries = new double[4][4];
+    for (int column = 0; column < 4; column++) {
+      Vector image =
+          transformation.apply(
+              new Vector(
+                  column == 0 ? 1 : 0, column == 1 ? 1 : 0, column == 2 ? 1 : 0, column / 3));
+      entries[0][column] = image.getX();
+      entries[1][column] = image.getY();
+      entries[2][column] = image.getZ();
+    }
+    entries[3][3] = 1;
+
+    LinearTransformation affine = LinearTransformation.affine(entries);
+
+    assertThat(affine).isEqualTo(transformation);
+    assertThat(affine.inverse()).isEqualTo(transformation.inverse());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void singularAffineMatrix_throws() {
+    LinearTransformation.affine(
+        new double[][] {{1, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 1, 0}, {0, 0, 0, 1}});
+  }
 }
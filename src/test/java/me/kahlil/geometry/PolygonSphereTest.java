@@ -2,9 +2,12 @@ package me.kahlil.geometry;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
+import static me.kahlil.config.Counters.NUM_TRIANGLES;
 import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.geometry.LinearTransformation.scale;
 import static me.kahlil.geometry.LinearTransformation.translate;
 import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+import static me.kahlil.scene.Materials.REFLECTIVE;
 
 import java.util.Optional;
 import java.util.Random;
@@ -75,8 +78,44 @@ public class PolygonSphereTest {
     assertThat(sphere.intersectWith(outsideEdge)).isEmpty();
   }
 
+  @Test
+  public void intersectsWithin_accountsForScaling() {
+    // Sphere of radius 2 centered 5 units down the z axis, so its surface is 3 units away.
+    PolygonSphere sphere = unitSphere.transform(scale(2.0).then(translate(0, 0, -5)));
+    Ray ray = new Ray(new Vector(0, 0, 0), new Vector(0, 0, -1));
+
+    assertThat(sphere.intersectsWithin(ray, 3.1)).isTrue();
+    assertThat(sphere.intersectsWithin(ray, 2.9)).isFalse();
+    assertThat(sphere.intersectsWithin(ray, Double.POSITIVE_INFINITY)).isTrue();
+  }
+
   private static Vector getRandPointBiggerThan(int i) {
     Random rand = new Random();
     return new Vector(rand.nextInt(100) + i, rand.nextInt(100) + i, rand.nextInt(100) + i);
   }
+
+  @Test
+  public void spheresOfTheSameResolutionShareATessellation() {
+    PolygonSphere sphere = PolygonSphere.withSurfaceNormals(DUMMY_MATERIAL, 23);
+    long numTriangles = NUM_TRIANGLES.get();
+
+    PolygonSphere other = PolygonSphere.withSurfaceNormals(REFLECTIVE, 23);
+
+    assertThat(NUM_TRIANGLES.get()).isEqualTo(numTriangles);
+    Ray ray = new Ray(new Vector(0.1, 0.2, 3), new Vector(0, 0, -1));
+    assertThat(sphere.intersectWith(ray).get().getMaterial()).isEqualTo(DUMMY_MATERIAL);
+    assertThat(other.intersectWith(ray).get().getMaterial()).isEqualTo(REFLECTIVE);
+    assertThat(other.intersectWith(ray).get().getTime())
+        .isEqualTo(sphere.intersectWith(ray).get().getTime());
+  }
+
+  @Test
+  public void normalModesHaveSeparateTessellations() {
+    PolygonSphere.withSurfaceNormals(DUMMY_MATERIAL, 29);
+    long numTriangles = NUM_TRIANGLES.get();
+
+    PolygonSphere.withVertexNormals(DUMMY_MATERIAL, 29);
+
+    assertThat(NUM_TRIANGLES.get()).isGreaterThan(numTriangles);
+  }
 }
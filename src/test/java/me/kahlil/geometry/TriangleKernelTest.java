@@ -0,0 +1,91 @@
+package me.kahlil.geometry;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the {@link TriangleKernel}s. */
+@RunWith(JUnit4.class)
+public class TriangleKernelTest {
+
+  private static final int NUM_TRIANGLES = 300;
+
+  private final TriangleKernel scalarKernel = new ScalarTriangleKernel();
+  private final TriangleKernel vectorKernel = new VectorTriangleKernel();
+
+  @Test
+  public void vectorKernelIsUsedWhenAvailable() {
+    assertThat(TriangleGroups.KERNEL).isInstanceOf(VectorTriangleKernel.class);
+  }
+
+  @Test
+  public void vectorKernelFindsSameHitsAsScalarKernel() {
+    Random random = new Random(17);
+    double[] positions = new double[9 * NUM_TRIANGLES];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = random.nextDouble() * 4 - 2;
+    }
+    // Share the first vertex of a few triangles, so that some rays hit several at the same time.
+    for (int i = 10; i < 20; i++) {
+      System.arraycopy(positions, 0, positions, 9 * i, 9);
+    }
+    int[] indexes = IntStream.range(0, 3 * NUM_TRIANGLES).toArray();
+    int[] order = IntStream.range(0, NUM_TRIANGLES).map(i -> NUM_TRIANGLES - 1 - i).toArray();
+    TriangleGroups scalarGroups =
+        new TriangleGroups(positions, indexes, order, scalarKernel.getGroupSize());
+    TriangleGroups vectorGroups =
+        new TriangleGroups(positions, indexes, order, vectorKernel.getGroupSize());
+
+    int numHits = 0;
+    for (int i = 0; i < 500; i++) {
+      Ray ray =
+          new Ray(
+              new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 4),
+              new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+      // Ranges which start and end in the middle of groups.
+      int start = random.nextInt(NUM_TRIANGLES);
+      int end = start + random.nextInt(NUM_TRIANGLES - start) + 1;
+      double maxTime = random.nextBoolean() ? Double.POSITIVE_INFINITY : random.nextDouble() * 6;
+      double[] expectedHit = new double[3];
+      double[] actualHit = new double[3];
+
+      int expected = scalarKernel.intersect(scalarGroups, start, end, ray, maxTime, expectedHit);
+      int actual = vectorKernel.intersect(vectorGroups, start, end, ray, maxTime, actualHit);
+
+      assertThat(actual).isEqualTo(expected);
+      if (expected >= 0) {
+        numHits++;
+        assertThat(actualHit).isEqualTo(expectedHit);
+      }
+      assertThat(vectorKernel.intersectsWithin(vectorGroups, start, end, ray, maxTime))
+          .isEqualTo(scalarKernel.intersectsWithin(scalarGroups, start, end, ray, maxTime));
+    }
+    assertThat(numHits).isGreaterThan(100);
+  }
+
+  @Test
+  public void rangeExcludesNeighboringTriangles() {
+    // Two copies of the same triangle, so any range holding one of them is hit.
+    double[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0};
+    int[] indexes = {0, 1, 2, 3, 4, 5};
+    Ray ray = new Ray(new Vector(0.25, 0.25, 1), new Vector(0, 0, -1));
+
+    for (TriangleKernel kernel : new TriangleKernel[] {scalarKernel, vectorKernel}) {
+      TriangleGroups groups =
+          new TriangleGroups(positions, indexes, new int[] {0, 1}, kernel.getGroupSize());
+      double[] hit = new double[3];
+
+      assertThat(kernel.intersect(groups, 1, 2, ray, Double.POSITIVE_INFINITY, hit)).isEqualTo(1);
+      assertThat(hit).isEqualTo(new double[] {1, 0.25, 0.25});
+      assertThat(kernel.intersect(groups, 0, 2, ray, Double.POSITIVE_INFINITY, hit)).isEqualTo(0);
+      assertThat(kernel.intersect(groups, 0, 2, ray, 1, hit)).isEqualTo(-1);
+      assertThat(kernel.intersect(groups, 2, 2, ray, Double.POSITIVE_INFINITY, hit)).isEqualTo(-1);
+      assertThat(kernel.intersectsWithin(groups, 0, 1, ray, 1.5)).isTrue();
+      assertThat(kernel.intersectsWithin(groups, 0, 1, ray, 1)).isFalse();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package me.kahlil.geometry;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static me.kahlil.config.Counters.NUM_ACCELERATION_STRUCTURES_BUILT;
+import static me.kahlil.config.Counters.NUM_TRIANGLE_TESTS;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.geometry.Constants.ORIGIN;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import me.kahlil.config.MeshAccelerationStructure;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link TriangleMesh}. */
+@RunWith(JUnit4.class)
+public class TriangleMeshTest {
+
+  // A unit square in the z = 0 plane made of two triangles.
+  private static final double[] SQUARE_POSITIONS = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+  private static final int[] SQUARE_INDEXES = {0, 1, 2, 0, 2, 3};
+
+  @Test
+  public void triangulateFaces_fansEachFace() {
+    int[] indexes =
+        TriangleMesh.triangulateFaces(new int[] {3, 4}, new int[] {0, 1, 2, 3, 4, 5, 6});
+
+    assertThat(indexes).asList().containsExactly(0, 1, 2, 3, 4, 5, 3, 5, 6).inOrder();
+  }
+
+  @Test
+  public void surfaceNormals_hitIsCorrect() {
+    TriangleMesh mesh =
+        TriangleMesh.withSurfaceNormals(DUMMY_MATERIAL, SQUARE_POSITIONS, SQUARE_INDEXES)
+            .transform(translate(0, 0, -2));
+
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.25, 0.75, 0), new Vector(0, 0, -1)));
+
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isWithin(EPSILON).of(2.0);
+    assertThat(hit.get().getNormal()).isEqualTo(new Vector(0, 0, 1));
+    assertThat(mesh.intersectsWithin(new Ray(ORIGIN, new Vector(0.1, 0.1, -1)), 1.5)).isFalse();
+  }
+
+  @Test
+  public void vertexNormals_areInterpolated() {
+    // The normals tilt towards +x along the x axis, so the middle of the square is tilted halfway.
+    float[] normals = {0, 0, 1, 1, 0, 0, 1, 0, 0, 0, 0, 1};
+    TriangleMesh mesh =
+        TriangleMesh.withVertexNormals(DUMMY_MATERIAL, SQUARE_POSITIONS, normals, SQUARE_INDEXES);
+
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.5, 0.25, 1), new Vector(0, 0, -1)));
+
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getNormal().getX()).isWithin(EPSILON).of(0.5);
+    assertThat(hit.get().getNormal().getZ()).isWithin(EPSILON).of(0.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void outOfRangeIndex_throws() {
+    TriangleMesh.withSurfaceNormals(DUMMY_MATERIAL, SQUARE_POSITIONS, new int[] {0, 1, 4});
+  }
+
+  @Test
+  public void everyAccelerationStructureMatchesConvexPolygon() {
+    Random random = new Random(13);
+    int numDivisions = 32;
+    Vector[] vertexes = sphereVertexes(numDivisions);
+    int[] faces = new int[numDivisions * numDivisions];
+    Arrays.fill(faces, 4);
+    int[] vertexIndexes = sphereFaceIndexes(numDivisions);
+    ConvexPolygon polygon =
+        ConvexPolygon.withSurfaceNormals(DUMMY_MATERIAL, vertexes, faces, vertexIndexes)
+            .withAccelerationStructure(MeshAccelerationStructure.NONE)
+            .transform(translate(0, 0, -3));
+    double[] positions = new double[3 * vertexes.length];
+    for (int i = 0; i < vertexes.length; i++) {
+      positions[3 * i] = vertexes[i].getX();
+      positions[3 * i + 1] = vertexes[i].getY();
+      positions[3 * i + 2] = vertexes[i].getZ();
+    }
+    TriangleMesh mesh =
+        TriangleMesh.withSurfaceNormals(
+                DUMMY_MATERIAL, positions, TriangleMesh.triangulateFaces(faces, vertexIndexes))
+            .transform(translate(0, 0, -3));
+    assertThat(mesh.getNumTriangles()).isEqualTo(polygon.getTriangles().length);
+
+    ImmutableList.Builder<TriangleMesh> meshes = ImmutableList.builder();
+    for (MeshAccelerationStructure type : MeshAccelerationStructure.values()) {
+      meshes.add(mesh.withAccelerationStructure(type));
+    }
+    for (int i = 0; i < 300; i++) {
+      Ray ray =
+          new Ray(ORIGIN, new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+      Optional<RayHit> expected = polygon.intersectWith(ray);
+
+      for (TriangleMesh actualMesh : meshes.build()) {
+        Optional<RayHit> actual = actualMesh.intersectWith(ray);
+        assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+        if (expected.isPresent()) {
+          assertThat(actual.get().getTime()).isWithin(EPSILON).of(expected.get().getTime());
+          assertThat(actual.get().getNormal()).isEqualTo(expected.get().getNormal());
+        }
+        assertThat(actualMesh.intersectsWithin(ray, 3)).isEqualTo(polygon.intersectsWithin(ray, 3));
+      }
+    }
+  }
+
+  /** Returns the vertexes of a UV sphere of radius 1, ring by ring. */
+  private static Vector[] sphereVertexes(int numDivisions) {
+    int numVertexesPerRing = numDivisions + 1;
+    Vector[] vertexes = new Vector[numVertexesPerRing * numVertexesPerRing];
+    for (int i = 0; i < numVertexesPerRing; i++) {
+      double theta = Math.PI * i / numDivisions;
+      for (int j = 0; j < numVertexesPerRing; j++) {
+        double phi = 2 * Math.PI * j / numDivisions;
+        vertexes[i * numVertexesPerRing + j] =
+            new Vector(
+                Math.sin(theta) * Math.cos(phi), Math.cos(theta), Math.sin(theta) * Math.sin(phi));
+      }
+    }
+    return vertexes;
+  }
+
+  /** Returns the vertex indexes of the quads of a UV sphere. */
+  private static int[] sphereFaceIndexes(int numDivisions) {
+    int numVertexesPerRing = numDivisions + 1;
+    int[] vertexIndexes = new int[numDivisions * numDivisions * 4];
+    int k = 0;
+    for (int i = 0; i < numDivisions; i++) {
+      for (int j = 0; j < numDivisions; j++) {
+        int topLeft = i * numVertexesPerRing + j;
+        vertexIndexes[k++] = topLeft;
+        vertexIndexes[k++] = topLeft + 1;
+        vertexIndexes[k++] = topLeft + numVertexesPerRing + 1;
+        vertexIndexes[k++] = topLeft + numVertexesPerRing;
+      }
+    }
+    return vertexIndexes;
+  }
+
+  @Test
+  public void accelerationStructureIsBuiltByFirstRayReachingTheMesh() {
+    TriangleMesh mesh =
+        TriangleMesh.withSurfaceNormals(DUMMY_MATERIAL, SQUARE_POSITIONS, SQUARE_INDEXES)
+            .transform(translate(0, 0, -2));
+    long numBuilt = NUM_ACCELERATION_STRUCTURES_BUILT.get();
+
+    assertThat(mesh.intersectWith(new Ray(new Vector(3, 3, 0), new Vector(0, 0, -1)))).isEmpty();
+    assertThat(NUM_ACCELERATION_STRUCTURES_BUILT.get()).isEqualTo(numBuilt);
+
+    Ray ray = new Ray(new Vector(0.5, 0.5, 0), new Vector(0, 0, -1));
+    assertThat(mesh.intersectWith(ray)).isPresent();
+    // Transformed copies share the structure.
+    TriangleMesh copy = mesh.transform(translate(1, 0, 0));
+    assertThat(copy.intersectsWithin(new Ray(new Vector(1.5, 0.5, 0), new Vector(0, 0, -1)), 5))
+        .isTrue();
+    assertThat(NUM_ACCELERATION_STRUCTURES_BUILT.get()).isEqualTo(numBuilt + 1);
+  }
+
+  @Test
+  public void meshWithoutAccelerationStructureKeepsTestingItsBounds() {
+    TriangleMesh mesh =
+        TriangleMesh.withSurfaceNormals(DUMMY_MATERIAL, SQUARE_POSITIONS, SQUARE_INDEXES)
+            .withAccelerationStructure(MeshAccelerationStructure.NONE)
+            .transform(translate(0, 0, -2));
+    assertThat(mesh.intersectWith(new Ray(new Vector(0.5, 0.5, 0), new Vector(0, 0, -1))))
+        .isPresent();
+    long numTriangleTests = NUM_TRIANGLE_TESTS.get();
+
+    Ray miss = new Ray(new Vector(3, 3, 0), new Vector(0, 0, -1));
+    assertThat(mesh.intersectWith(miss)).isEmpty();
+    assertThat(mesh.intersectsWithin(miss, 5)).isFalse();
+
+    assertThat(NUM_TRIANGLE_TESTS.get()).isEqualTo(numTriangleTests);
+  }
+}
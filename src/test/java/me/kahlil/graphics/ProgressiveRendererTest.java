@@ -0,0 +1,79 @@
+package me.kahlil.graphics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static me.kahlil.scene.Cameras.STANDARD_CAMERA;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import me.kahlil.geometry.Ray;
+import me.kahlil.scene.Raster;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ProgressiveRenderer}. */
+@RunWith(JUnit4.class)
+public class ProgressiveRendererTest {
+
+  @Test
+  public void snapshotPublishedAfterEveryPass() throws Exception {
+    Raster raster = new Raster(9, 7);
+    ProgressiveRenderer renderer =
+        new ProgressiveRenderer(raster, STANDARD_CAMERA, new AlternatingRayTracer(raster), 3, 4);
+    List<Integer> passes = new ArrayList<>();
+
+    renderer.render(4, (numPasses, snapshot) -> passes.add(numPasses));
+
+    assertThat(passes).containsExactly(1, 2, 3, 4).inOrder();
+    assertThat(renderer.getNumPasses()).isEqualTo(4);
+  }
+
+  @Test
+  public void snapshotIsAverageOfSamples() throws Exception {
+    Raster raster = new Raster(9, 7);
+    ProgressiveRenderer renderer =
+        new ProgressiveRenderer(raster, STANDARD_CAMERA, new AlternatingRayTracer(raster), 3, 4);
+
+    Raster snapshot = renderer.render(2, (numPasses, s) -> true);
+
+    for (int i = 0; i < snapshot.getHeightPx(); i++) {
+      for (int j = 0; j < snapshot.getWidthPx(); j++) {
+        assertThat(snapshot.getPixel(i, j)).isEqualTo(new MutableColor(0.5f, 0.5f, 0.5f));
+      }
+    }
+  }
+
+  @Test
+  public void renderingStopsWhenListenerDeclinesAnotherPass() throws Exception {
+    Raster raster = new Raster(9, 7);
+    ProgressiveRenderer renderer =
+        new ProgressiveRenderer(raster, STANDARD_CAMERA, new AlternatingRayTracer(raster), 3, 4);
+
+    Raster snapshot = renderer.render(10, (numPasses, s) -> numPasses < 3);
+
+    assertThat(renderer.getNumPasses()).isEqualTo(3);
+    assertThat(snapshot.getPixel(0, 0)).isEqualTo(new MutableColor(2f / 3, 2f / 3, 2f / 3));
+  }
+
+  /**
+   * Ray tracer which returns white for every sample of even passes and black for every sample of
+   * odd passes, so the average of a pixel reveals how many passes contributed to it.
+   */
+  private static final class AlternatingRayTracer extends RayTracer {
+
+    private final int numPixels;
+    private final AtomicInteger numSamples = new AtomicInteger();
+
+    AlternatingRayTracer(Raster raster) {
+      super(raster, STANDARD_CAMERA);
+      this.numPixels = raster.getHeightPx() * raster.getWidthPx();
+    }
+
+    @Override
+    MutableColor traceRay(Ray ray) {
+      int pass = numSamples.getAndIncrement() / numPixels;
+      return pass % 2 == 0 ? new MutableColor(1.0f, 1.0f, 1.0f) : new MutableColor(0f, 0f, 0f);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package me.kahlil.graphics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import me.kahlil.geometry.Vector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RayBuffer}. */
+@RunWith(JUnit4.class)
+public class RayBufferTest {
+
+  @Test
+  public void sortCoherently_groupsRaysByDirectionOctant() {
+    Random random = new Random(5);
+    RayBuffer rays = new RayBuffer(200);
+    for (int i = 0; i < rays.size(); i++) {
+      rays.set(i, randomVector(random), randomVector(random), 1.0, i);
+    }
+    int[] order = new int[rays.size()];
+
+    rays.sortCoherently(0, rays.size(), order);
+
+    assertThat(Arrays.stream(order).sorted().toArray())
+        .isEqualTo(IntStream.range(0, rays.size()).toArray());
+    for (int k = 1; k < order.length; k++) {
+      assertThat(octant(rays, order[k])).isAtLeast(octant(rays, order[k - 1]));
+    }
+  }
+
+  @Test
+  public void sortCoherently_ordersStartsAlongMortonCurve() {
+    RayBuffer rays = new RayBuffer(6);
+    Vector direction = new Vector(1, 1, 1);
+    // Corners of a cube, in the order they are visited by the Morton curve, shuffled.
+    rays.set(0, new Vector(1, 1, 1), direction, 1.0, 0);
+    rays.set(1, new Vector(0, 0, 0), direction, 1.0, 1);
+    rays.set(2, new Vector(1, 0, 0), direction, 1.0, 2);
+    rays.set(3, new Vector(0, 0, 1), direction, 1.0, 3);
+    rays.set(4, new Vector(0, 1, 0), direction, 1.0, 4);
+    rays.set(5, new Vector(0, 0, 0), direction, 1.0, 5);
+    int[] order = new int[rays.size()];
+
+    rays.sortCoherently(0, rays.size(), order);
+
+    // Rays starting at the same point keep their order.
+    assertThat(order).isEqualTo(new int[] {1, 5, 3, 4, 2, 0});
+  }
+
+  @Test
+  public void sortCoherently_onlySortsWithinRange() {
+    RayBuffer rays = new RayBuffer(4);
+    rays.set(0, new Vector(1, 0, 0), new Vector(-1, 0, 0), 1.0, 0);
+    rays.set(1, new Vector(1, 0, 0), new Vector(1, 0, 0), 1.0, 1);
+    rays.set(2, new Vector(0, 0, 0), new Vector(-1, 0, 0), 1.0, 2);
+    rays.set(3, new Vector(0, 0, 0), new Vector(1, 0, 0), 1.0, 3);
+    int[] order = new int[rays.size()];
+
+    rays.sortCoherently(0, 2, order);
+    rays.sortCoherently(2, 4, order);
+
+    assertThat(order).isEqualTo(new int[] {1, 0, 3, 2});
+  }
+
+  private static int octant(RayBuffer rays, int index) {
+    Vector direction = rays.getRay(index).getDirection();
+    return (direction.getX() < 0 ? 4 : 0)
+        | (direction.getY() < 0 ? 2 : 0)
+        | (direction.getZ() < 0 ? 1 : 0);
+  }
+
+  private static Vector randomVector(Random random) {
+    return new Vector(
+        random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+  }
+}
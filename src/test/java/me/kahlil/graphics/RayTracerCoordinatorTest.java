@@ -0,0 +1,125 @@
+package me.kahlil.graphics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.graphics.Colors.BLUE;
+import static me.kahlil.graphics.Colors.GREEN;
+import static me.kahlil.graphics.Colors.RED;
+import static me.kahlil.scene.Cameras.STANDARD_CAMERA;
+import static me.kahlil.scene.Materials.REFLECTIVE;
+import static me.kahlil.scene.Materials.glossy;
+
+import com.google.common.collect.ImmutableList;
+import me.kahlil.geometry.Plane;
+import me.kahlil.geometry.PolygonSphere;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.Shape;
+import me.kahlil.geometry.Sphere;
+import me.kahlil.geometry.Vector;
+import me.kahlil.scene.ImmutablePointLight;
+import me.kahlil.scene.ImmutableScene;
+import me.kahlil.scene.Raster;
+import me.kahlil.scene.Scene;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RayTracerCoordinator}. */
+@RunWith(JUnit4.class)
+public class RayTracerCoordinatorTest {
+
+  private static final Scene EMPTY_SCENE =
+      ImmutableScene.builder()
+          .setShapes(ImmutableList.of())
+          .setLights(ImmutableList.of())
+          .setBackgroundColor(RED)
+          .setAmbient(RED)
+          .build();
+
+  @Test
+  public void everyPixelRenderedExactlyOnce_tileSizeDoesNotDivideRaster() throws Exception {
+    // Raster dimensions are deliberately not multiples of the tile size, and Raster#setPixel
+    // throws if a pixel is written twice.
+    Raster raster = new Raster(37, 23);
+    RayTracer rayTracer = new ConstantColorRayTracer(raster);
+
+    Raster rendered =
+        new RayTracerCoordinator(raster, STANDARD_CAMERA, EMPTY_SCENE, rayTracer, 4, 8).render();
+
+    for (int i = 0; i < rendered.getHeightPx(); i++) {
+      for (int j = 0; j < rendered.getWidthPx(); j++) {
+        assertThat(rendered.getPixel(i, j)).isEqualTo(RED);
+      }
+    }
+  }
+
+  @Test
+  public void everyPixelRendered_tileLargerThanRaster() throws Exception {
+    Raster raster = new Raster(5, 3);
+    RayTracer rayTracer = new ConstantColorRayTracer(raster);
+
+    Raster rendered =
+        new RayTracerCoordinator(raster, STANDARD_CAMERA, EMPTY_SCENE, rayTracer, 2, 64).render();
+
+    for (int i = 0; i < rendered.getHeightPx(); i++) {
+      for (int j = 0; j < rendered.getWidthPx(); j++) {
+        assertThat(rendered.getPixel(i, j)).isEqualTo(RED);
+      }
+    }
+  }
+
+  @Test
+  public void packetsRenderSameImageAsSingleRays() throws Exception {
+    Scene scene =
+        ImmutableScene.builder()
+            .setShapes(
+                ImmutableList.<Shape>of(
+                    PolygonSphere.withSurfaceNormals(glossy().setColor(GREEN).build(), 30)
+                        .transform(translate(1, 0, -5)),
+                    new Sphere(REFLECTIVE).transform(translate(-1, 0, -6)),
+                    new Plane(
+                        new Vector(0, -1, 0),
+                        new Vector(0, 1, 0),
+                        glossy().setColor(BLUE).build())))
+            .setLights(
+                ImmutableList.of(
+                    ImmutablePointLight.builder()
+                        .setLocation(new Vector(3, 3, 0))
+                        .setColor(new MutableColor(200, 200, 200))
+                        .build()))
+            .setBackgroundColor(RED)
+            .setAmbient(new MutableColor(.15f, .15f, .15f))
+            .build();
+
+    // The packets do not divide the raster evenly either.
+    Raster singleRays = render(scene, new Raster(37, 23), 1);
+    Raster packets = render(scene, new Raster(37, 23), 8);
+
+    for (int i = 0; i < singleRays.getHeightPx(); i++) {
+      for (int j = 0; j < singleRays.getWidthPx(); j++) {
+        assertThat(packets.getPixel(i, j)).isEqualTo(singleRays.getPixel(i, j));
+      }
+    }
+  }
+
+  private static Raster render(Scene scene, Raster raster, int packetSize) throws Exception {
+    RayTracer rayTracer =
+        new ReflectiveRayTracer(
+            new PhongShading(scene, STANDARD_CAMERA, true), scene, raster, STANDARD_CAMERA, 2);
+    return new RayTracerCoordinator(raster, STANDARD_CAMERA, scene, rayTracer, 2, 16, packetSize)
+        .render();
+  }
+
+  /** Ray tracer which colors every pixel red. */
+  private static final class ConstantColorRayTracer extends RayTracer {
+
+    ConstantColorRayTracer(Raster raster) {
+      super(raster, STANDARD_CAMERA);
+    }
+
+    @Override
+    MutableColor traceRay(Ray ray) {
+      return RED;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package me.kahlil.graphics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static me.kahlil.geometry.LinearTransformation.scale;
+import static me.kahlil.geometry.LinearTransformation.translate;
+import static me.kahlil.graphics.Colors.BLUE;
+import static me.kahlil.graphics.Colors.GREEN;
+import static me.kahlil.graphics.Colors.RED;
+import static me.kahlil.scene.Cameras.STANDARD_CAMERA;
+import static me.kahlil.scene.Materials.REFLECTIVE;
+import static me.kahlil.scene.Materials.glossy;
+import static me.kahlil.scene.Materials.shiny;
+
+import com.google.common.collect.ImmutableList;
+import me.kahlil.geometry.Plane;
+import me.kahlil.geometry.PolygonSphere;
+import me.kahlil.geometry.Shape;
+import me.kahlil.geometry.Sphere;
+import me.kahlil.geometry.Vector;
+import me.kahlil.scene.ImmutablePointLight;
+import me.kahlil.scene.ImmutableScene;
+import me.kahlil.scene.Raster;
+import me.kahlil.scene.Scene;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link WavefrontRenderer}. */
+@RunWith(JUnit4.class)
+public class WavefrontRendererTest {
+
+  // Mirrors facing each other and a partially reflective sphere, so rays bounce up to the maximum
+  // depth, along with a light in view of the camera.
+  private static final Scene SCENE =
+      ImmutableScene.builder()
+          .setShapes(
+              ImmutableList.<Shape>of(
+                  PolygonSphere.withSurfaceNormals(shiny().setColor(GREEN).build(), 20)
+                      .transform(translate(1, 0, -5)),
+                  new Sphere(REFLECTIVE).transform(translate(-1.5, 0, -6)),
+                  new Sphere(glossy().setColor(RED).build())
+                      .transform(scale(0.5).then(translate(0, 1.5, -4))),
+                  new Plane(
+                      new Vector(0, -1, 0),
+                      new Vector(0, 1, 0),
+                      shiny().setColor(BLUE).build()),
+                  new Plane(new Vector(0, 0, -12), new Vector(0, 0, 1), REFLECTIVE)))
+          .setLights(
+              ImmutableList.of(
+                  ImmutablePointLight.builder()
+                      .setLocation(new Vector(3, 3, 0))
+                      .setColor(new MutableColor(200, 200, 200))
+                      .build(),
+                  ImmutablePointLight.builder()
+                      .setLocation(new Vector(-1, 1, -8))
+                      .setColor(new MutableColor(115, 115, 115))
+                      .build()))
+          .setBackgroundColor(new MutableColor(.25f, .25f, .25f))
+          .setAmbient(new MutableColor(.15f, .15f, .15f))
+          .build();
+
+  @Test
+  public void rendersSameImageAsReflectiveRayTracer() throws Exception {
+    assertSameImage(/* shadowsEnabled= */ true, /* maxRayDepth= */ 4, /* batchSize= */ 100);
+  }
+
+  @Test
+  public void rendersSameImageAsReflectiveRayTracer_withoutShadows() throws Exception {
+    assertSameImage(/* shadowsEnabled= */ false, /* maxRayDepth= */ 4, /* batchSize= */ 100);
+  }
+
+  @Test
+  public void rendersSameImageAsReflectiveRayTracer_primaryRaysOnly() throws Exception {
+    assertSameImage(/* shadowsEnabled= */ true, /* maxRayDepth= */ 1, /* batchSize= */ 100);
+  }
+
+  @Test
+  public void rendersSameImageAsReflectiveRayTracer_unsortedSecondaryRays() throws Exception {
+    assertSameImage(/* shadowsEnabled= */ true, /* maxRayDepth= */ 4, /* batchSize= */ 1);
+  }
+
+  private static void assertSameImage(boolean shadowsEnabled, int maxRayDepth, int batchSize)
+      throws Exception {
+    PhongShading shading = new PhongShading(SCENE, STANDARD_CAMERA, shadowsEnabled);
+    Raster expected = new Raster(41, 29);
+    new RayTracerCoordinator(
+            expected,
+            STANDARD_CAMERA,
+            SCENE,
+            new ReflectiveRayTracer(shading, SCENE, expected, STANDARD_CAMERA, maxRayDepth),
+            2,
+            16)
+        .render();
+
+    // Wavefronts and batches deliberately do not divide the raster and the rays evenly.
+    Raster actual =
+        new WavefrontRenderer(
+                new Raster(41, 29), STANDARD_CAMERA, SCENE, shading, maxRayDepth, 3, 500, batchSize)
+            .render();
+
+    for (int i = 0; i < expected.getHeightPx(); i++) {
+      for (int j = 0; j < expected.getWidthPx(); j++) {
+        assertThat(actual.getPixel(i, j)).isEqualTo(expected.getPixel(i, j));
+      }
+    }
+  }
+}
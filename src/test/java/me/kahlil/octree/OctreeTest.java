@@ -5,7 +5,13 @@ import static me.kahlil.octree.BoundsHelper.computeGlobalMinAndMax;
 import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
 
 import com.google.common.collect.ImmutableList;
+import java.util.Optional;
+import java.util.Random;
+import me.kahlil.config.OctreeBounds;
 import me.kahlil.geometry.Extents;
+import me.kahlil.geometry.Polygon;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
 import me.kahlil.geometry.Triangle;
 import me.kahlil.geometry.Vector;
 import org.junit.Test;
@@ -58,7 +64,7 @@ public class OctreeTest {
       Triangle.withSurfaceNormals(
           DUMMY_MATERIAL, new Vector(0, 0, 0), new Vector(1, 1, 1), new Vector(2, 2, 2))
     };
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
     assertThat(tree.maxDepth).isEqualTo(2);
     assertThat(tree.maxObjectsPerLeaf).isEqualTo(2);
@@ -66,7 +72,7 @@ public class OctreeTest {
     assertThat(tree.root.maxDepth).isEqualTo(2);
     assertThat(tree.root.maxObjectsPerLeaf).isEqualTo(2);
     assertThat(tree.root.children).isEqualTo(new OctreeNode[8]);
-    assertThat(tree.root.allPolygons).isEqualTo(triangles);
+    assertHoldsExactly(tree.root.primitives, triangles);
     assertThat(tree.root.depth).isEqualTo(0);
 
     assertThat(tree.root.min).isEqualTo(new Vector(0, 0, 0));
@@ -76,12 +82,12 @@ public class OctreeTest {
   @Test
   public void octreeWithThreeNodes_commonFieldsSetCorrectly() {
     Triangle[] triangles = {IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK};
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
     assertThat(tree.root.isLeafNode).isFalse();
     assertThat(tree.root.max).isEqualTo(new Vector(1, 1, 1));
     assertThat(tree.root.min).isEqualTo(new Vector(-1, -1, -1));
-    assertThat(tree.root.allPolygons).isEqualTo(triangles);
+    assertHoldsExactly(tree.root.primitives, triangles);
     assertThat(tree.root.depth).isEqualTo(0);
     // (+x, +y, +z)
     assertThat(tree.root.children[0]).isNotNull();
@@ -90,43 +96,52 @@ public class OctreeTest {
     // (-x, -y, -z)
     assertThat(tree.root.children[7]).isNotNull();
 
-    OctreeNode<Triangle> firstQuadrantNode = tree.root.children[0];
-    OctreeNode<Triangle> secondQuadrantNode = tree.root.children[4];
-    OctreeNode<Triangle> thirdQuadrantNode = tree.root.children[7];
+    OctreeNode firstQuadrantNode = tree.root.children[0];
+    OctreeNode secondQuadrantNode = tree.root.children[4];
+    OctreeNode thirdQuadrantNode = tree.root.children[7];
 
     // Common assertions over all children nodes.
-    for (OctreeNode<Triangle> node :
+    for (OctreeNode node :
         ImmutableList.of(firstQuadrantNode, secondQuadrantNode, thirdQuadrantNode)) {
       assertThat(node.depth).isEqualTo(1);
       assertThat(node.isLeafNode).isTrue();
       assertThat(node.maxObjectsPerLeaf).isEqualTo(2);
       assertThat(node.maxDepth).isEqualTo(2);
       assertThat(node.children).isEqualTo(new OctreeNode[8]);
-      assertThat(node.allPolygons).isEqualTo(triangles);
+      assertThat(node.primitives).isSameAs(tree.root.primitives);
+    }
+  }
+
+  /** Asserts that the primitives are exactly the given polygons, in order. */
+  private static void assertHoldsExactly(OctreePrimitives primitives, Polygon[] polygons) {
+    assertThat(primitives).isInstanceOf(PolygonPrimitives.class);
+    assertThat(primitives.size()).isEqualTo(polygons.length);
+    for (int i = 0; i < polygons.length; i++) {
+      assertThat(((PolygonPrimitives) primitives).get(i)).isEqualTo(polygons[i]);
     }
   }
 
   @Test
   public void octreeWithThreeNodes_quadrantSpecificFieldsSetCorrectly() {
     Triangle[] triangles = {IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK};
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
-    OctreeNode<Triangle> firstQuadrantNode = tree.root.children[0];
-    OctreeNode<Triangle> secondQuadrantNode = tree.root.children[4];
-    OctreeNode<Triangle> thirdQuadrantNode = tree.root.children[7];
+    OctreeNode firstQuadrantNode = tree.root.children[0];
+    OctreeNode secondQuadrantNode = tree.root.children[4];
+    OctreeNode thirdQuadrantNode = tree.root.children[7];
 
-    assertThat(firstQuadrantNode.boundPolygons).hasSize(1);
-    assertThat(triangles[firstQuadrantNode.boundPolygons.get(0)]).isEqualTo(IN_FIRST_QUADRANT);
+    assertThat(firstQuadrantNode.boundPrimitives).hasSize(1);
+    assertThat(triangles[firstQuadrantNode.boundPrimitives.get(0)]).isEqualTo(IN_FIRST_QUADRANT);
     assertThat(firstQuadrantNode.min).isEqualTo(new Vector(0, 0, 0));
     assertThat(firstQuadrantNode.max).isEqualTo(new Vector(1, 1, 1));
 
-    assertThat(secondQuadrantNode.boundPolygons).hasSize(1);
-    assertThat(triangles[secondQuadrantNode.boundPolygons.get(0)]).isEqualTo(IN_SECOND_QUADRANT);
+    assertThat(secondQuadrantNode.boundPrimitives).hasSize(1);
+    assertThat(triangles[secondQuadrantNode.boundPrimitives.get(0)]).isEqualTo(IN_SECOND_QUADRANT);
     assertThat(secondQuadrantNode.min).isEqualTo(new Vector(-1, 0, 0));
     assertThat(secondQuadrantNode.max).isEqualTo(new Vector(0, 1, 1));
 
-    assertThat(thirdQuadrantNode.boundPolygons).hasSize(1);
-    assertThat(triangles[thirdQuadrantNode.boundPolygons.get(0)]).isEqualTo(IN_THIRD_QUADRANT_BACK);
+    assertThat(thirdQuadrantNode.boundPrimitives).hasSize(1);
+    assertThat(triangles[thirdQuadrantNode.boundPrimitives.get(0)]).isEqualTo(IN_THIRD_QUADRANT_BACK);
     assertThat(thirdQuadrantNode.min).isEqualTo(new Vector(-1, -1, -1));
     assertThat(thirdQuadrantNode.max).isEqualTo(new Vector(0, 0, 0));
   }
@@ -134,21 +149,21 @@ public class OctreeTest {
   @Test
   public void octreeWithFourNodes_oneOverlapping_fieldsCorrect() {
     Triangle[] triangles = {IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK, OVERLAPPING_FIRST_AND_SECOND};
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
     assertThat(tree.root.isLeafNode).isFalse();
-    assertThat(tree.root.boundPolygons).hasSize(1);
-    assertThat(triangles[tree.root.boundPolygons.get(0)]).isEqualTo(OVERLAPPING_FIRST_AND_SECOND);
+    assertThat(tree.root.boundPrimitives).hasSize(1);
+    assertThat(triangles[tree.root.boundPrimitives.get(0)]).isEqualTo(OVERLAPPING_FIRST_AND_SECOND);
   }
 
   @Test
   public void octreeWithThreeNodes_extentsAreCorrect() {
     Triangle[] triangles = {IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK};
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
-    OctreeNode<Triangle> firstQuadrantNode = tree.root.children[0];
-    OctreeNode<Triangle> secondQuadrantNode = tree.root.children[4];
-    OctreeNode<Triangle> thirdQuadrantNode = tree.root.children[7];
+    OctreeNode firstQuadrantNode = tree.root.children[0];
+    OctreeNode secondQuadrantNode = tree.root.children[4];
+    OctreeNode thirdQuadrantNode = tree.root.children[7];
 
     assertThat(tree.extents).isEqualTo(tree.root.totalExtents);
     assertThat(tree.root.currExtents.isEmpty()).isTrue();
@@ -167,11 +182,115 @@ public class OctreeTest {
   @Test
   public void octreeWithFourNodes_oneOverlapping_extentsAreCorrect() {
     Triangle[] triangles = {IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK, OVERLAPPING_FIRST_AND_SECOND};
-    Octree<Triangle> tree = new Octree<>(triangles, 2, 2);
+    Octree tree = new Octree(triangles, 2, 2);
 
     assertThat(tree.extents).isEqualTo(tree.root.totalExtents);
     assertThat(tree.root.currExtents.isEmpty()).isFalse();
     assertThat(tree.root.currExtents).isEqualTo(Extents.fromTriangles(new Triangle[]{OVERLAPPING_FIRST_AND_SECOND}));
     assertThat(tree.extents).isEqualTo(Extents.fromTriangles(triangles));
   }
+
+  private static final Triangle FACING_Z_IN_FIRST_QUADRANT = Triangle.withSurfaceNormals(
+      DUMMY_MATERIAL,
+      new Vector(0.2, 0.2, 0.5),
+      new Vector(0.9, 0.2, 0.5),
+      new Vector(0.2, 0.9, 0.5));
+
+  @Test
+  public void intersectsWithin_onlyCountsHitsBeforeMaxDistance() {
+    Triangle[] triangles = {FACING_Z_IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK, OVERLAPPING_FIRST_AND_SECOND};
+    Octree tree = new Octree(triangles, 2, 2);
+    // Passes through FACING_Z_IN_FIRST_QUADRANT at (0.3, 0.3, 0.5), which is 3 units away.
+    Ray ray = new Ray(new Vector(0.3, 0.3, 3.5), new Vector(0, 0, -1));
+
+    assertThat(tree.intersectsWithin(ray, 3.5)).isTrue();
+    assertThat(tree.intersectsWithin(ray, 2.5)).isFalse();
+  }
+
+  @Test
+  public void intersectsWithin_rayStartingInsideOctree() {
+    Triangle[] triangles = {FACING_Z_IN_FIRST_QUADRANT, IN_SECOND_QUADRANT, IN_THIRD_QUADRANT_BACK, OVERLAPPING_FIRST_AND_SECOND};
+    Octree tree = new Octree(triangles, 2, 2);
+    Ray ray = new Ray(new Vector(0.3, 0.3, 0.9), new Vector(0, 0, -1));
+
+    assertThat(tree.intersectsWithin(ray, 0.5)).isTrue();
+    assertThat(tree.intersectsWithin(ray, 0.3)).isFalse();
+  }
+
+  @Test
+  public void intersectWith_matchesLinearScanOfManyTriangles() {
+    Random random = new Random(3);
+    Triangle[] triangles = randomTriangles(random, 400);
+    Octree tree = new Octree(triangles, 4, 6);
+
+    assertThat(tree.flatOctree.getNumNodes()).isGreaterThan(8);
+    for (int i = 0; i < 300; i++) {
+      Ray ray = new Ray(randomPoint(random, 15), randomPoint(random, 1));
+      Optional<RayHit> expected = closestByLinearScan(triangles, ray);
+      Optional<RayHit> actual = tree.intersectWith(ray);
+
+      assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+      if (expected.isPresent()) {
+        assertThat(actual.get().getObject()).isSameAs(expected.get().getObject());
+      }
+    }
+  }
+
+  @Test
+  public void everyBoundsMatchesLinearScan() {
+    Random random = new Random(5);
+    Triangle[] triangles = randomTriangles(random, 400);
+
+    for (OctreeBounds bounds : OctreeBounds.values()) {
+      Octree tree = new Octree(triangles, 4, 6, bounds);
+      for (int i = 0; i < 300; i++) {
+        Ray ray = new Ray(randomPoint(random, 15), randomPoint(random, 1));
+        double maxDistance = random.nextDouble() * 20;
+        Optional<RayHit> expected = closestByLinearScan(triangles, ray);
+        Optional<RayHit> actual = tree.intersectWith(ray);
+
+        assertThat(actual.isPresent()).isEqualTo(expected.isPresent());
+        if (expected.isPresent()) {
+          assertThat(actual.get().getObject()).isSameAs(expected.get().getObject());
+        }
+        assertThat(tree.intersectsWithin(ray, maxDistance))
+            .isEqualTo(expected.isPresent() && expected.get().getTime() < maxDistance);
+      }
+    }
+  }
+
+  /** Returns small triangles with random corners in a cube of side 20 around the origin. */
+  private static Triangle[] randomTriangles(Random random, int numTriangles) {
+    Triangle[] triangles = new Triangle[numTriangles];
+    for (int i = 0; i < triangles.length; i++) {
+      Vector corner = randomPoint(random, 10);
+      triangles[i] =
+          Triangle.withSurfaceNormals(
+              DUMMY_MATERIAL,
+              corner,
+              corner.add(randomPoint(random, 1)),
+              corner.add(randomPoint(random, 1)));
+    }
+    return triangles;
+  }
+
+  private static Optional<RayHit> closestByLinearScan(Triangle[] triangles, Ray ray) {
+    Optional<RayHit> closest = Optional.empty();
+    for (Triangle triangle : triangles) {
+      Optional<RayHit> rayHit = triangle.intersectWith(ray);
+      if (rayHit.isPresent()
+          && (closest.isEmpty() || rayHit.get().getTime() < closest.get().getTime())) {
+        closest = rayHit;
+      }
+    }
+    return closest;
+  }
+
+  /** Returns a random point with each coordinate in [-size, size). */
+  private static Vector randomPoint(Random random, double size) {
+    return new Vector(
+        (random.nextDouble() * 2 - 1) * size,
+        (random.nextDouble() * 2 - 1) * size,
+        (random.nextDouble() * 2 - 1) * size);
+  }
 }
@@ -0,0 +1,173 @@
+package me.kahlil.scene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static me.kahlil.config.Counters.NUM_TRIANGLES;
+import static me.kahlil.geometry.Constants.EPSILON;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.geometry.Vector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link GlbLoader}. */
+@RunWith(JUnit4.class)
+public class GlbLoaderTest {
+
+  // A unit square in the z = 0 plane, instanced by two nodes under a common parent which moves it
+  // to z = -5: one node moves it 2 to the left, and the other doubles its size and moves it 2 to
+  // the right. The mesh also has a line primitive, which is skipped.
+  private static final String GLTF =
+      "{\"asset\": {\"version\": \"2.0\"},"
+          + " \"scene\": 0,"
+          + " \"scenes\": [{\"nodes\": [0]}],"
+          + " \"nodes\": ["
+          + "   {\"children\": [1, 2], \"translation\": [0, 0, -5]},"
+          + "   {\"mesh\": 0, \"translation\": [-2, 0, 0]},"
+          + "   {\"mesh\": 0,"
+          + "    \"matrix\": [2, 0, 0, 0, 0, 2, 0, 0, 0, 0, 2, 0, 2, 0, 0, 1]}],"
+          + " \"meshes\": [{\"primitives\": ["
+          + "   {\"attributes\": {\"POSITION\": 0, \"NORMAL\": 1}, \"indices\": 2,"
+          + "    \"material\": 0},"
+          + "   {\"attributes\": {\"POSITION\": 0}, \"mode\": 1}]}],"
+          + " \"materials\": [{\"pbrMetallicRoughness\":"
+          + "   {\"baseColorFactor\": [1, 0.5, 0, 1], \"metallicFactor\": 1,"
+          + "    \"roughnessFactor\": 0}}],"
+          + " \"accessors\": ["
+          + "   {\"bufferView\": 0, \"componentType\": 5126, \"count\": 4, \"type\": \"VEC3\"},"
+          + "   {\"bufferView\": %s, \"byteOffset\": %s, \"componentType\": 5126, \"count\": 4,"
+          + "    \"type\": \"VEC3\"},"
+          + "   {\"bufferView\": %s, \"componentType\": 5123, \"count\": 6,"
+          + "    \"type\": \"SCALAR\"}],"
+          + " \"bufferViews\": [%s],"
+          + " \"buffers\": [{\"byteLength\": 108}]}";
+
+  private static final float[][] CORNERS = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {0, 1, 0}};
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void instancesShareOneMesh() throws IOException {
+    Path path = writeSquares(false);
+    long numTriangles = NUM_TRIANGLES.get();
+
+    ImmutableList<TriangleMesh> instances = GlbLoader.load(path);
+
+    assertThat(instances).hasSize(2);
+    assertThat(NUM_TRIANGLES.get() - numTriangles).isEqualTo(2);
+  }
+
+  @Test
+  public void nodeTransformsAreComposed() throws IOException {
+    ImmutableList<TriangleMesh> instances = GlbLoader.load(writeSquares(false));
+
+    Optional<RayHit> left =
+        instances.get(0).intersectWith(new Ray(new Vector(-1.5, 0.5, 0), new Vector(0, 0, -1)));
+    assertThat(left).isPresent();
+    assertThat(left.get().getTime()).isWithin(EPSILON).of(5.0);
+    assertThat(left.get().getNormal()).isEqualTo(new Vector(0, 0, 1));
+
+    Ray rightRay = new Ray(new Vector(3.5, 1.5, 0), new Vector(0, 0, -1));
+    assertThat(instances.get(0).intersectWith(rightRay)).isEmpty();
+    assertThat(instances.get(1).intersectWith(rightRay)).isPresent();
+    assertThat(instances.get(1).intersectWith(rightRay).get().getTime())
+        .isWithin(EPSILON)
+        .of(5.0);
+  }
+
+  @Test
+  public void interleavedAttributesAreLoaded() throws IOException {
+    ImmutableList<TriangleMesh> instances = GlbLoader.load(writeSquares(true));
+
+    Optional<RayHit> hit =
+        instances.get(0).intersectWith(new Ray(new Vector(-1.2, 0.8, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getNormal()).isEqualTo(new Vector(0, 0, 1));
+  }
+
+  @Test
+  public void materialIsMapped() throws IOException {
+    ImmutableList<TriangleMesh> instances = GlbLoader.load(writeSquares(false));
+
+    Material material =
+        instances
+            .get(0)
+            .intersectWith(new Ray(new Vector(-1.5, 0.5, 0), new Vector(0, 0, -1)))
+            .get()
+            .getMaterial();
+    assertThat(material.getColor().getRgb()).usingExactEquality().containsExactly(1f, 0.5f, 0f);
+    assertThat(material.getHardness()).isEqualTo(511);
+    assertThat(material.getReflectiveness()).isEqualTo(1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void notGlb_throws() throws IOException {
+    Path path = folder.newFile().toPath();
+    Files.write(path, "not a GLB file at all".getBytes(UTF_8));
+
+    GlbLoader.load(path);
+  }
+
+  /**
+   * Writes the squares, with their positions and normals either in separate buffer views or
+   * interleaved in one.
+   */
+  private Path writeSquares(boolean interleaved) throws IOException {
+    ByteBuffer bin = ByteBuffer.allocate(108).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < CORNERS.length; i++) {
+      int offset = interleaved ? 24 * i : 12 * i;
+      bin.putFloat(offset, CORNERS[i][0]).putFloat(offset + 4, CORNERS[i][1]);
+      bin.putFloat(offset + 8, CORNERS[i][2]);
+      int normalOffset = interleaved ? offset + 12 : 48 + offset;
+      bin.putFloat(normalOffset, 0).putFloat(normalOffset + 4, 0).putFloat(normalOffset + 8, 1);
+    }
+    bin.position(96);
+    for (int index : new int[] {0, 1, 2, 0, 2, 3}) {
+      bin.putShort((short) index);
+    }
+    String json =
+        interleaved
+            ? String.format(
+                GLTF,
+                0,
+                12,
+                1,
+                "{\"buffer\": 0, \"byteLength\": 96, \"byteStride\": 24},"
+                    + " {\"buffer\": 0, \"byteOffset\": 96, \"byteLength\": 12}")
+            : String.format(
+                GLTF,
+                1,
+                0,
+                2,
+                "{\"buffer\": 0, \"byteLength\": 48},"
+                    + " {\"buffer\": 0, \"byteOffset\": 48, \"byteLength\": 48},"
+                    + " {\"buffer\": 0, \"byteOffset\": 96, \"byteLength\": 12}");
+    byte[] jsonBytes = Arrays.copyOf(json.getBytes(UTF_8), (json.length() + 3) / 4 * 4);
+    for (int i = json.length(); i < jsonBytes.length; i++) {
+      jsonBytes[i] = ' ';
+    }
+
+    ByteBuffer glb =
+        ByteBuffer.allocate(12 + 8 + jsonBytes.length + 8 + 108).order(ByteOrder.LITTLE_ENDIAN);
+    glb.putInt(0x46546C67).putInt(2).putInt(glb.capacity());
+    glb.putInt(jsonBytes.length).putInt(0x4E4F534A).put(jsonBytes);
+    glb.putInt(108).putInt(0x004E4942).put(bin.array());
+    Path path = folder.newFile().toPath();
+    Files.write(path, glb.array());
+    return path;
+  }
+}
@@ -0,0 +1,143 @@
+package me.kahlil.scene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.geometry.Vector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ObjLoader}. */
+@RunWith(JUnit4.class)
+public class ObjLoaderTest {
+
+  // A unit square in the z = -1 plane, written as a single quad.
+  private static final String SQUARE =
+      "# A square\n"
+          + "o square\n"
+          + "v 0 0 -1\n"
+          + "v 1.0 0 -1.0\n"
+          + "v 1 1e0 -1\n"
+          + "v 0 1 -1\n"
+          + "vt 0 0\n"
+          + "f 1 2 3 4\n";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void quadIsSplitIntoTriangles() throws IOException {
+    TriangleMesh mesh = load(SQUARE);
+
+    assertThat(mesh.getNumTriangles()).isEqualTo(2);
+    assertThat(mesh.getNumVertexes()).isEqualTo(4);
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.8, 0.2, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isWithin(EPSILON).of(1.0);
+    assertThat(hit.get().getNormal()).isEqualTo(new Vector(0, 0, 1));
+  }
+
+  @Test
+  public void loadsFromFile() throws IOException {
+    Path path = folder.newFile("square.obj").toPath();
+    Files.write(path, SQUARE.replace("\n", "\r\n").getBytes(US_ASCII));
+
+    TriangleMesh mesh = ObjLoader.load(path, DUMMY_MATERIAL);
+
+    assertThat(mesh.getNumTriangles()).isEqualTo(2);
+  }
+
+  @Test
+  public void positionsUsedWithDifferentNormalsAreDuplicated() throws IOException {
+    TriangleMesh mesh =
+        load(
+            "v 0 0 -1\nv 1 0 -1\nv 1 1 -1\nv 0 1 -1\n"
+                + "vn 0 0 1\nvn 1 0 0\n"
+                + "f 1//1 2//1 3//1\n"
+                + "f 1/1/2 3/1/2 4/1/2\n");
+
+    // Vertexes 1 and 3 are shared by both faces, but with different normals.
+    assertThat(mesh.getNumVertexes()).isEqualTo(6);
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.2, 0.8, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getNormal()).isEqualTo(new Vector(1, 0, 0));
+  }
+
+  @Test
+  public void negativeIndexesCountBackFromLastVertex() throws IOException {
+    TriangleMesh mesh = load("v 0 0 -1\nv 1 0 -1\nv 0 1 -1\nf -3 -2 -1\n");
+
+    assertThat(mesh.intersectWith(new Ray(new Vector(0.1, 0.1, 0), new Vector(0, 0, -1))))
+        .isPresent();
+  }
+
+  @Test
+  public void numbersParseExactly() throws IOException {
+    TriangleMesh mesh =
+        load("v -0.125 0 -2.5e-1\nv 1.000000000000000000001 0 -0.25\nv 0 1.5E+0 -.25\nf 1 2 3\n");
+
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0, 0.1, 1), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isEqualTo(1.25);
+  }
+
+  @Test
+  public void extremeExponentsFallBackToParseDouble() throws IOException {
+    TriangleMesh mesh =
+        load("v 0.1e-2147483647 0 -1\nv 1 0 -1\nv 0 1 1e-2147483647\nf 1 2 3\n");
+
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.25, 0.25, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+  }
+
+  @Test
+  public void linesSpanningReadBuffersAreParsed() throws IOException {
+    StringBuilder obj = new StringBuilder();
+    int numTriangles = 50_000;
+    for (int i = 0; i < numTriangles; i++) {
+      obj.append("v ").append(i).append(".000001 0.000000 -1.000000\n");
+      obj.append("v ").append(i).append(".500001 0.000000 -1.000000\n");
+      obj.append("v ").append(i).append(".000001 0.500000 -1.000000\n");
+      obj.append("f -3 -2 -1\n");
+    }
+
+    TriangleMesh mesh = load(obj.toString());
+
+    assertThat(mesh.getNumTriangles()).isEqualTo(numTriangles);
+    Ray ray = new Ray(new Vector(numTriangles - 0.9, 0.1, 0), new Vector(0, 0, -1));
+    assertThat(mesh.intersectWith(ray)).isPresent();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void undefinedVertex_throws() throws IOException {
+    load("v 0 0 0\nv 1 0 0\nf 1 2 3\n");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void malformedNumber_throws() throws IOException {
+    load("v 0 0x1 0\n");
+  }
+
+  private static TriangleMesh load(String obj) throws IOException {
+    return ObjLoader.load(
+        Channels.newChannel(new ByteArrayInputStream(obj.getBytes(US_ASCII))), DUMMY_MATERIAL);
+  }
+}
@@ -0,0 +1,154 @@
+package me.kahlil.scene;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static me.kahlil.geometry.Constants.EPSILON;
+import static me.kahlil.scene.Materials.DUMMY_MATERIAL;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import me.kahlil.geometry.Ray;
+import me.kahlil.geometry.RayHit;
+import me.kahlil.geometry.TriangleMesh;
+import me.kahlil.geometry.Vector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link PlyLoader}. */
+@RunWith(JUnit4.class)
+public class PlyLoaderTest {
+
+  private static final String HEADER =
+      "ply\n"
+          + "format %s 1.0\n"
+          + "comment made by a test\n"
+          + "element vertex 4\n"
+          + "property float x\n"
+          + "property float y\n"
+          + "property float z\n"
+          + "property uchar red\n"
+          + "property float nx\n"
+          + "property float ny\n"
+          + "property float nz\n"
+          + "element face 1\n"
+          + "property uchar flags\n"
+          + "property list uchar int vertex_indices\n"
+          + "element edge 1\n"
+          + "property list uchar int vertex_pair\n"
+          + "end_header\n";
+
+  // Corners of a unit square in the z = -1 plane.
+  private static final float[][] CORNERS = {{0, 0, -1}, {1, 0, -1}, {1, 1, -1}, {0, 1, -1}};
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void quadIsLoadedWithNormals() throws IOException {
+    TriangleMesh mesh = PlyLoader.load(writeSquare(ByteOrder.LITTLE_ENDIAN), DUMMY_MATERIAL);
+
+    assertThat(mesh.getNumVertexes()).isEqualTo(4);
+    assertThat(mesh.getNumTriangles()).isEqualTo(2);
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.8, 0.3, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getTime()).isWithin(EPSILON).of(1.0);
+    // The vertex normals all point along +x.
+    assertThat(hit.get().getNormal().getX()).isWithin(EPSILON).of(1.0);
+  }
+
+  @Test
+  public void normalsAreOnlyLoadedWhenRequested() throws IOException {
+    TriangleMesh mesh =
+        PlyLoader.load(writeSquare(ByteOrder.LITTLE_ENDIAN), DUMMY_MATERIAL, false);
+
+    Optional<RayHit> hit =
+        mesh.intersectWith(new Ray(new Vector(0.2, 0.7, 0), new Vector(0, 0, -1)));
+    assertThat(hit).isPresent();
+    assertThat(hit.get().getNormal()).isEqualTo(new Vector(0, 0, 1));
+  }
+
+  @Test
+  public void bigEndianFilesAreLoaded() throws IOException {
+    TriangleMesh mesh = PlyLoader.load(writeSquare(ByteOrder.BIG_ENDIAN), DUMMY_MATERIAL);
+
+    assertThat(mesh.intersectWith(new Ray(new Vector(0.5, 0.5, 0), new Vector(0, 0, -1))))
+        .isPresent();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void asciiFiles_throw() throws IOException {
+    Path path = folder.newFile("ascii.ply").toPath();
+    Files.write(path, String.format(HEADER, "ascii").getBytes(US_ASCII));
+
+    PlyLoader.load(path, DUMMY_MATERIAL);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncatedFiles_throw() throws IOException {
+    Path path = writeSquare(ByteOrder.LITTLE_ENDIAN);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 10));
+
+    PlyLoader.load(path, DUMMY_MATERIAL);
+  }
+
+  @Test
+  public void crlfHeadersAreLoaded() throws IOException {
+    Path path =
+        writeSquare(ByteOrder.LITTLE_ENDIAN, HEADER.replace("\n", "\r\n"), /* edgeLength= */ 2);
+
+    TriangleMesh mesh = PlyLoader.load(path, DUMMY_MATERIAL);
+
+    assertThat(mesh.getNumTriangles()).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeListLengths_throw() throws IOException {
+    // The skipped edge's list length is signed, and negative.
+    Path path =
+        writeSquare(
+            ByteOrder.LITTLE_ENDIAN,
+            HEADER.replace("list uchar int vertex_pair", "list char int vertex_pair"),
+            /* edgeLength= */ -2);
+
+    PlyLoader.load(path, DUMMY_MATERIAL);
+  }
+
+  /** Writes the square as a single quad face, followed by an edge element which is skipped. */
+  private Path writeSquare(ByteOrder order) throws IOException {
+    return writeSquare(order, HEADER, /* edgeLength= */ 2);
+  }
+
+  /**
+   * Writes the square with the given header, which must be formatted with the format of the file,
+   * and the given length written for the edge's list of two vertexes.
+   */
+  private Path writeSquare(ByteOrder order, String headerFormat, int edgeLength)
+      throws IOException {
+    String format =
+        order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian" : "binary_big_endian";
+    byte[] header = String.format(headerFormat, format).getBytes(US_ASCII);
+    ByteBuffer buffer = ByteBuffer.allocate(header.length + 256).order(order);
+    buffer.put(header);
+    for (float[] corner : CORNERS) {
+      buffer.putFloat(corner[0]).putFloat(corner[1]).putFloat(corner[2]);
+      buffer.put((byte) 255);
+      buffer.putFloat(1).putFloat(0).putFloat(0);
+    }
+    buffer.put((byte) 7).put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+    buffer.put((byte) edgeLength).putInt(0).putInt(2);
+
+    Path path = folder.newFile().toPath();
+    Files.write(path, Arrays.copyOf(buffer.array(), buffer.position()));
+    return path;
+  }
+}